@@ -0,0 +1,62 @@
+package com.scrim_pds.benchmark;
+
+import com.scrim_pds.config.JacksonConfig;
+import com.scrim_pds.model.Session;
+import com.scrim_pds.model.User;
+import com.scrim_pds.persistence.JsonPersistenceManager;
+import com.scrim_pds.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserService.findUserByToken (el camino de cada request autenticado),
+ * con la cache de sesiones activa (ttl 300s) o desactivada (ttl 0: siempre miss).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuthTokenBenchmark {
+
+    @Param({"10000"})
+    public int users;
+
+    @Param({"300", "0"})
+    public long cacheTtlSeconds;
+
+    private JsonPersistenceManager persistenceManager;
+    private UserService userService;
+    private List<Session> sessions;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        persistenceManager = new JsonPersistenceManager(new JacksonConfig().objectMapper(),
+                Files.createTempDirectory("scrim-bench").toString(),
+                3_600_000, Integer.MAX_VALUE, "snapshot", Integer.MAX_VALUE, "json", "buffered", 1);
+        persistenceManager.init();
+        BenchmarkData data = new BenchmarkData(42);
+        List<User> userList = data.users(users);
+        sessions = data.sessions(userList);
+        persistenceManager.writeCollection("users.json", userList);
+        persistenceManager.writeCollection("sessions.json", sessions);
+        userService = new UserService(persistenceManager, new SimpleMeterRegistry(), cacheTtlSeconds, users * 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        persistenceManager.shutdown();
+    }
+
+    @Benchmark
+    public Optional<User> findUserByToken() {
+        return userService.findUserByToken(sessions.get(next++ % sessions.size()).getToken());
+    }
+}
@@ -0,0 +1,144 @@
+package com.scrim_pds.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scrim_pds.config.JacksonConfig;
+import com.scrim_pds.model.Postulacion;
+import com.scrim_pds.model.Scrim;
+import com.scrim_pds.model.Session;
+import com.scrim_pds.model.User;
+import com.scrim_pds.model.enums.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generador de datos sinteticos (deterministico, con semilla) para los benchmarks.
+ * Tambien se puede usar para llenar un directorio data/ y probar la app con carga:
+ *
+ *   java -cp ... com.scrim_pds.benchmark.BenchmarkData <directorio> <cantidad de scrims>
+ */
+public final class BenchmarkData {
+
+    public static final String[] JUEGOS = {"Valorant", "League of Legends", "CS2", "Dota 2", "Rocket League"};
+    public static final String[] REGIONES = {"LATAM", "NA", "EUW", "BR", "KR"};
+    public static final String[] RANGOS = {"Hierro", "Bronce", "Plata", "Oro", "Platino", "Diamante"};
+
+    private static final LocalDateTime BASE_DATE = LocalDateTime.of(2030, 1, 1, 18, 0);
+
+    private final Random random;
+
+    public BenchmarkData(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setId(UUID.randomUUID());
+            user.setUsername("jugador" + i);
+            user.setEmail("jugador" + i + "@example.com");
+            user.setPasswordHash("$2a$10$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbench");
+            user.setRegion(pick(REGIONES));
+            user.setRol(UserRole.USER);
+            user.setEstadoVerificacion(VerificationState.VERIFICADO);
+            users.add(user);
+        }
+        return users;
+    }
+
+    public List<Session> sessions(List<User> users) {
+        List<Session> sessions = new ArrayList<>(users.size());
+        for (User user : users) {
+            sessions.add(new Session(UUID.randomUUID().toString(), user.getId(), LocalDateTime.now().plusDays(7)));
+        }
+        return sessions;
+    }
+
+    /**
+     * Scrims con un 70% abiertos (BUSCANDO / LOBBY_ARMADO) y el resto cerrados,
+     * repartidos en 90 dias a partir de 2030-01-01.
+     */
+    public List<Scrim> scrims(int count, List<User> organizers) {
+        List<Scrim> scrims = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Scrim scrim = new Scrim();
+            scrim.setId(UUID.randomUUID());
+            scrim.setOrganizadorId(organizers.get(random.nextInt(organizers.size())).getId());
+            scrim.setJuego(pick(JUEGOS));
+            scrim.setRegion(pick(REGIONES));
+            scrim.setFormato(pick(Formato.values()));
+            int rango = random.nextInt(RANGOS.length - 1);
+            scrim.setRangoMin(RANGOS[rango]);
+            scrim.setRangoMax(RANGOS[rango + 1]);
+            scrim.setLatenciaMax(20 + random.nextInt(180));
+            scrim.setFechaHora(BASE_DATE.plusDays(random.nextInt(90)).plusHours(random.nextInt(6)));
+            scrim.setFechaCreacion(BASE_DATE.minusDays(30).plusMinutes(i));
+            scrim.setDuracion(60);
+            scrim.setModalidad(pick(Modalidad.values()));
+            scrim.setCupo(10);
+            scrim.setEstado(randomState());
+            scrim.setDescripcion("Scrim de prueba " + i);
+            scrims.add(scrim);
+        }
+        return scrims;
+    }
+
+    public List<Postulacion> postulaciones(List<Scrim> scrims, List<User> users, int perScrim) {
+        List<Postulacion> postulaciones = new ArrayList<>(scrims.size() * perScrim);
+        for (Scrim scrim : scrims) {
+            for (int i = 0; i < perScrim; i++) {
+                Postulacion postulacion = new Postulacion();
+                postulacion.setId(UUID.randomUUID());
+                postulacion.setScrimId(scrim.getId());
+                postulacion.setUsuarioId(users.get(random.nextInt(users.size())).getId());
+                postulacion.setRolDeseado("Flex");
+                postulacion.setLatenciaReportada(20 + random.nextInt(100));
+                postulacion.setFechaPostulacion(BASE_DATE.minusDays(1));
+                postulacion.setEstado(random.nextBoolean() ? PostulacionState.PENDIENTE : PostulacionState.ACEPTADA);
+                postulaciones.add(postulacion);
+            }
+        }
+        return postulaciones;
+    }
+
+    public <T> T pick(T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private ScrimStateEnum randomState() {
+        int roll = random.nextInt(10);
+        if (roll < 5) return ScrimStateEnum.BUSCANDO;
+        if (roll < 7) return ScrimStateEnum.LOBBY_ARMADO;
+        if (roll < 8) return ScrimStateEnum.CONFIRMADO;
+        if (roll < 9) return ScrimStateEnum.FINALIZADO;
+        return ScrimStateEnum.CANCELADO;
+    }
+
+    /**
+     * Escribe users/sessions/scrims/postulaciones sinteticos en un directorio de datos.
+     */
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "data-benchmark");
+        int scrimCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        BenchmarkData data = new BenchmarkData(42);
+        List<User> users = data.users(Math.max(10, scrimCount / 10));
+        List<Scrim> scrims = data.scrims(scrimCount, users);
+
+        ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+        Files.createDirectories(dir);
+        objectMapper.writeValue(dir.resolve("users.json").toFile(), users);
+        objectMapper.writeValue(dir.resolve("sessions.json").toFile(), data.sessions(users));
+        objectMapper.writeValue(dir.resolve("scrims.json").toFile(), scrims);
+        objectMapper.writeValue(dir.resolve("postulaciones.json").toFile(), data.postulaciones(scrims, users, 3));
+        System.out.println("Datos sinteticos escritos en " + dir.toAbsolutePath() + " (" + scrimCount + " scrims)");
+    }
+}
@@ -0,0 +1,85 @@
+package com.scrim_pds.benchmark;
+
+import com.scrim_pds.config.JacksonConfig;
+import com.scrim_pds.event.DomainEventBus;
+import com.scrim_pds.event.EventOutbox;
+import com.scrim_pds.event.ScrimCreatedEvent;
+import com.scrim_pds.event.Subscriber;
+import com.scrim_pds.model.Scrim;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DomainEventBus.publish con fan-out a N suscriptores: mide desde que se publica
+ * hasta que todos los suscriptores procesaron el evento, con el executor acotado
+ * y con hilos virtuales (este ultimo solo difiere si se corre con Java 21+),
+ * con y sin el outbox persistente (un fsync por publicacion, agrupado) y con y sin
+ * carriles ordenados por scrim (todos los suscriptores de prueba comparten carril).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EventBusBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int subscribers;
+
+    @Param({"bounded", "virtual"})
+    public String executor;
+
+    @Param({"false", "true"})
+    public boolean outbox;
+
+    // 0 = sin carriles ordenados (todo al executor general)
+    @Param({"0", "8"})
+    public int lanes;
+
+    private DomainEventBus eventBus;
+    private final AtomicLong delivered = new AtomicLong();
+    private ScrimCreatedEvent event;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        EventOutbox eventOutbox = new EventOutbox(new JacksonConfig().objectMapper(),
+                Files.createTempDirectory("event-bench").toString(), outbox, 1000);
+        eventBus = new DomainEventBus(new SimpleMeterRegistry(), eventOutbox, executor, 4, 16, 1000, "wait", lanes, 1000, 5, 60_000, 500);
+        for (int i = 0; i < subscribers; i++) {
+            eventBus.subscribe(new Subscriber<ScrimCreatedEvent>() {
+                @Override
+                public void onEvent(ScrimCreatedEvent event) {
+                    delivered.incrementAndGet();
+                }
+
+                @Override
+                public Class<ScrimCreatedEvent> listensTo() {
+                    return ScrimCreatedEvent.class;
+                }
+            });
+        }
+        Scrim scrim = new Scrim();
+        scrim.setId(UUID.randomUUID());
+        event = new ScrimCreatedEvent(scrim);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        eventBus.shutdown();
+    }
+
+    @Benchmark
+    public void publishFanOut() {
+        long expected = delivered.get() + subscribers;
+        eventBus.publish(event);
+        while (delivered.get() < expected) {
+            Thread.onSpinWait();
+        }
+    }
+}
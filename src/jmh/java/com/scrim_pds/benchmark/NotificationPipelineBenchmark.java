@@ -0,0 +1,125 @@
+package com.scrim_pds.benchmark;
+
+import com.scrim_pds.adapter.DiscordAdapter;
+import com.scrim_pds.adapter.LocalEmailAdapter;
+import com.scrim_pds.adapter.PushAdapter;
+import com.scrim_pds.adapter.WebhookTransport;
+import com.scrim_pds.config.JacksonConfig;
+import com.scrim_pds.event.DomainEventBus;
+import com.scrim_pds.event.EventOutbox;
+import com.scrim_pds.event.LobbyArmadoEvent;
+import com.scrim_pds.event.LobbyArmadoSubscriber;
+import com.scrim_pds.event.ParticipanteSnapshot;
+import com.scrim_pds.event.UsuarioSnapshot;
+import com.scrim_pds.model.PreferenciasUsuario;
+import com.scrim_pds.model.Scrim;
+import com.scrim_pds.model.User;
+import com.scrim_pds.model.enums.CanalNotificacion;
+import com.scrim_pds.model.enums.PostulacionState;
+import com.scrim_pds.notification.NotificationDispatcher;
+import com.scrim_pds.notification.NotificationService;
+import com.scrim_pds.notification.NotificationStore;
+import com.scrim_pds.notification.ProdNotifierFactory;
+import com.scrim_pds.persistence.JsonPersistenceManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * El camino completo evento -> email sin SendGrid: se publica un LobbyArmadoEvent y se
+ * mide hasta que LocalEmailAdapter "envió" el email de cada participante y del organizador
+ * (bus de eventos, LobbyArmadoSubscriber, plantillas, NotificationStore y despachador).
+ * La latencia simulada del proveedor y la ventana de lotes muestran donde conviene
+ * agrandar executors o colas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NotificationPipelineBenchmark {
+
+    @Param({"10", "100"})
+    public int participantes;
+
+    // Latencia simulada de cada llamada al proveedor
+    @Param({"0", "50"})
+    public long latencyMs;
+
+    @Param({"0", "50"})
+    public long batchWindowMs;
+
+    private JsonPersistenceManager persistenceManager;
+    private WebhookTransport webhookTransport;
+    private DomainEventBus eventBus;
+    private NotificationDispatcher dispatcher;
+    private LocalEmailAdapter emailAdapter;
+    private Counter sent;
+    private LobbyArmadoEvent event;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String dataDir = Files.createTempDirectory("notification-bench").toString();
+        persistenceManager = new JsonPersistenceManager(new JacksonConfig().objectMapper(), dataDir,
+                3_600_000, Integer.MAX_VALUE, "snapshot", Integer.MAX_VALUE, "json", "buffered", 1);
+        persistenceManager.init();
+
+        BenchmarkData data = new BenchmarkData(42);
+        List<User> users = data.users(participantes + 1);
+        for (User user : users) {
+            PreferenciasUsuario prefs = new PreferenciasUsuario();
+            prefs.setCanalesNotificacion(Set.of(CanalNotificacion.EMAIL.name()));
+            user.setPreferencias(prefs);
+        }
+        persistenceManager.writeCollection("users.json", users);
+        Scrim scrim = data.scrims(1, users.subList(0, 1)).get(0);
+        List<ParticipanteSnapshot> snapshots = new ArrayList<>();
+        for (User user : users.subList(1, users.size())) {
+            snapshots.add(new ParticipanteSnapshot(user.getId(), PostulacionState.ACEPTADA, UsuarioSnapshot.of(user)));
+        }
+        event = new LobbyArmadoEvent(scrim, UsuarioSnapshot.of(users.get(0)), snapshots);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        emailAdapter = new LocalEmailAdapter(meterRegistry, "", latencyMs, 0, 0);
+        sent = meterRegistry.counter("email.local.sent");
+        // Los usuarios solo tienen EMAIL: Discord y push no se usan
+        webhookTransport = new WebhookTransport(meterRegistry, 5000, 10000);
+        ProdNotifierFactory notifierFactory = new ProdNotifierFactory(emailAdapter,
+                new PushAdapter(webhookTransport, new JacksonConfig().objectMapper(), "", "", 8, 1000),
+                new DiscordAdapter(webhookTransport, new JacksonConfig().objectMapper(), 4, 1000, "discord.com"));
+        NotificationStore store = new NotificationStore(persistenceManager, meterRegistry, 5, 30, 3600);
+        dispatcher = new NotificationDispatcher(notifierFactory, store, meterRegistry,
+                10_000, 1000, batchWindowMs, 0, false, 30);
+        dispatcher.start();
+        NotificationService notificationService = new NotificationService(dispatcher);
+
+        eventBus = new DomainEventBus(meterRegistry, new EventOutbox(new JacksonConfig().objectMapper(), dataDir, false, 1000),
+                "bounded", 4, 16, 1000, "abort", 8, 1000, 5, 60_000, 500);
+        new LobbyArmadoSubscriber(eventBus, notificationService).subscribeToEvents();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        eventBus.shutdown();
+        dispatcher.shutdown();
+        emailAdapter.close();
+        webhookTransport.shutdown();
+        persistenceManager.shutdown();
+    }
+
+    @Benchmark
+    public void publishUntilEmailsSent() throws InterruptedException {
+        double expected = sent.count() + participantes + 1;
+        eventBus.publish(event);
+        while (sent.count() < expected) {
+            Thread.sleep(0, 100_000);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.scrim_pds.benchmark;
+
+import com.scrim_pds.model.Scrim;
+import com.scrim_pds.model.User;
+import com.scrim_pds.notification.NotificationTemplate;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Armado del cuerpo del email de "nuevo scrim" por destinatario (el fan-out de ScrimMatchingSubscriber):
+ * String.format con los null checks (como antes), la plantilla compilada aplicando el scrim en cada
+ * mensaje, y la plantilla con el scrim aplicado una vez por evento (como NotificationService).
+ *
+ * Para ver la memoria asignada por mensaje (gc.alloc.rate.norm):
+ *   mvn -Pjmh compile exec:exec -Djmh.args="NotificationTemplateBenchmark -f 1 -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NotificationTemplateBenchmark {
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter
+            .ofLocalizedDateTime(FormatStyle.MEDIUM)
+            .withLocale(Locale.getDefault());
+
+    private static final NotificationTemplate CUERPO = NotificationTemplate.compile(
+            "Hola {{usuario}},\n\n" +
+            "Se ha creado un nuevo scrim que coincide con tus preferencias:\n\n" +
+            "Juego: {{juego|N/A}}\n" +
+            "Región: {{region|N/A}}\n" +
+            "Formato: {{formato|N/A}}\n" +
+            "Rango: {{rangoMin|N/A}} - {{rangoMax|N/A}}\n" +
+            "Fecha: {{fecha|N/A}}\n" +
+            "Descripción: {{descripcion|(Sin descripción)}}\n\n" +
+            "¡Puedes buscarlo en la plataforma!\n\n" +
+            "Saludos,\nEl equipo de eScrim");
+
+    private Scrim scrim;
+    private List<User> recipients;
+    private NotificationTemplate boundPorEvento;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData data = new BenchmarkData(42);
+        recipients = data.users(10_000);
+        scrim = data.scrims(1, recipients).get(0);
+        boundPorEvento = CUERPO.bind(scrimValues(scrim));
+    }
+
+    private User nextRecipient() {
+        return recipients.get(next++ % recipients.size());
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        User recipient = nextRecipient();
+        String fechaFormateada = scrim.getFechaHora() != null ? scrim.getFechaHora().format(DATE_TIME_FORMATTER) : "N/A";
+        return String.format(
+            "Hola %s,\n\n" +
+            "Se ha creado un nuevo scrim que coincide con tus preferencias:\n\n" +
+            "Juego: %s\n" +
+            "Región: %s\n" +
+            "Formato: %s\n" +
+            "Rango: %s - %s\n" +
+            "Fecha: %s\n" +
+            "Descripción: %s\n\n" +
+            "¡Puedes buscarlo en la plataforma!\n\n" +
+            "Saludos,\nEl equipo de eScrim",
+            recipient.getUsername(),
+            scrim.getJuego() != null ? scrim.getJuego() : "N/A",
+            scrim.getRegion() != null ? scrim.getRegion() : "N/A",
+            scrim.getFormato() != null ? scrim.getFormato() : "N/A",
+            scrim.getRangoMin() != null ? scrim.getRangoMin() : "N/A",
+            scrim.getRangoMax() != null ? scrim.getRangoMax() : "N/A",
+            fechaFormateada,
+            scrim.getDescripcion() != null && !scrim.getDescripcion().isEmpty() ? scrim.getDescripcion() : "(Sin descripción)"
+        );
+    }
+
+    @Benchmark
+    public String templateBindPorMensaje() {
+        return CUERPO.bind(scrimValues(scrim)).render("usuario", nextRecipient().getUsername());
+    }
+
+    @Benchmark
+    public String templateBindPorEvento() {
+        return boundPorEvento.render("usuario", nextRecipient().getUsername());
+    }
+
+    private static Map<String, String> scrimValues(Scrim scrim) {
+        Map<String, String> values = new HashMap<>();
+        values.put("juego", scrim.getJuego());
+        values.put("region", scrim.getRegion());
+        values.put("formato", scrim.getFormato() != null ? scrim.getFormato().toString() : null);
+        values.put("rangoMin", scrim.getRangoMin());
+        values.put("rangoMax", scrim.getRangoMax());
+        values.put("fecha", scrim.getFechaHora() != null ? scrim.getFechaHora().format(DATE_TIME_FORMATTER) : null);
+        values.put("descripcion", scrim.getDescripcion());
+        return values;
+    }
+}
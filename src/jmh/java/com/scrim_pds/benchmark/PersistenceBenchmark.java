@@ -0,0 +1,78 @@
+package com.scrim_pds.benchmark;
+
+import com.scrim_pds.config.JacksonConfig;
+import com.scrim_pds.model.Scrim;
+import com.scrim_pds.model.enums.ScrimStateEnum;
+import com.scrim_pds.persistence.JsonPersistenceManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * readCollection / writeCollection / findById / save sobre scrims.json con 1k, 100k y 1M elementos.
+ * Con 1M conviene darle memoria al fork: -jvmArgs -Xmx4g
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersistenceBenchmark {
+
+    private static final String SCRIMS_FILE = "scrims.json";
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private Path dataDir;
+    private JsonPersistenceManager persistenceManager;
+    private List<Scrim> scrims;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("scrim-bench");
+        // Volcado a disco practicamente desactivado: se mide el camino en memoria
+        persistenceManager = new JsonPersistenceManager(new JacksonConfig().objectMapper(), dataDir.toString(),
+                3_600_000, Integer.MAX_VALUE, "snapshot", Integer.MAX_VALUE, "json", "buffered", 1);
+        persistenceManager.init();
+
+        BenchmarkData data = new BenchmarkData(42);
+        persistenceManager.writeCollection(SCRIMS_FILE, data.scrims(rows, data.users(100)));
+        scrims = persistenceManager.readCollection(SCRIMS_FILE, Scrim.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        persistenceManager.shutdown();
+    }
+
+    @Benchmark
+    public List<Scrim> readCollection() throws IOException {
+        return persistenceManager.readCollection(SCRIMS_FILE, Scrim.class);
+    }
+
+    @Benchmark
+    public void writeCollectionOneChange() throws IOException {
+        // Patron de los servicios viejos: reescribir la lista completa por un cambio
+        Scrim scrim = scrims.get(next++ % scrims.size());
+        scrim.setEstado(scrim.getEstado() == ScrimStateEnum.BUSCANDO ? ScrimStateEnum.LOBBY_ARMADO : ScrimStateEnum.BUSCANDO);
+        persistenceManager.writeCollection(SCRIMS_FILE, scrims);
+    }
+
+    @Benchmark
+    public Scrim findById() throws IOException {
+        return persistenceManager.findById(SCRIMS_FILE, Scrim.class, scrims.get(next++ % scrims.size()).getId()).orElseThrow();
+    }
+
+    @Benchmark
+    public void saveOne() throws IOException {
+        Scrim scrim = scrims.get(next++ % scrims.size());
+        scrim.setEstado(scrim.getEstado() == ScrimStateEnum.BUSCANDO ? ScrimStateEnum.LOBBY_ARMADO : ScrimStateEnum.BUSCANDO);
+        persistenceManager.save(SCRIMS_FILE, scrim);
+    }
+}
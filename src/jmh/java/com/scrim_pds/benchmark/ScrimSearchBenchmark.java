@@ -0,0 +1,90 @@
+package com.scrim_pds.benchmark;
+
+import com.scrim_pds.config.JacksonConfig;
+import com.scrim_pds.dto.ScrimPage;
+import com.scrim_pds.event.DomainEventBus;
+import com.scrim_pds.event.EventOutbox;
+import com.scrim_pds.model.Scrim;
+import com.scrim_pds.model.enums.Formato;
+import com.scrim_pds.model.enums.ScrimSort;
+import com.scrim_pds.persistence.JsonPersistenceManager;
+import com.scrim_pds.persistence.StripedLocks;
+import com.scrim_pds.service.ScrimService;
+import com.scrim_pds.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScrimService.findScrims (lista completa) y findScrimsPage (primera pagina)
+ * con distintas combinaciones de filtros.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ScrimSearchBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"ninguno", "juego", "juego+region", "juego+region+latencia", "fecha", "formato+rango"})
+    public String filtros;
+
+    private JsonPersistenceManager persistenceManager;
+    private ScrimService scrimService;
+
+    private Optional<String> juego = Optional.empty();
+    private Optional<String> region = Optional.empty();
+    private Optional<String> rangoMin = Optional.empty();
+    private Optional<Integer> latenciaMax = Optional.empty();
+    private Optional<Formato> formato = Optional.empty();
+    private Optional<LocalDate> fecha = Optional.empty();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String dataDir = Files.createTempDirectory("scrim-bench").toString();
+        persistenceManager = new JsonPersistenceManager(new JacksonConfig().objectMapper(), dataDir,
+                3_600_000, Integer.MAX_VALUE, "snapshot", Integer.MAX_VALUE, "json", "buffered", 1);
+        persistenceManager.init();
+        BenchmarkData data = new BenchmarkData(42);
+        persistenceManager.writeCollection("scrims.json", data.scrims(rows, data.users(100)));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserService userService = new UserService(persistenceManager, meterRegistry, 300, 10_000);
+        EventOutbox outbox = new EventOutbox(new JacksonConfig().objectMapper(), dataDir, false, 1000);
+        DomainEventBus eventBus = new DomainEventBus(meterRegistry, outbox, "bounded", 4, 16, 1000, "abort", 8, 1000, 5, 60_000, 500);
+        scrimService = new ScrimService(persistenceManager, eventBus, userService,
+                new StripedLocks(64), meterRegistry, 20, 100, 3);
+
+        if (filtros.contains("juego")) juego = Optional.of("valorant");
+        if (filtros.contains("region")) region = Optional.of("LATAM");
+        if (filtros.contains("latencia")) latenciaMax = Optional.of(80);
+        if (filtros.contains("fecha")) fecha = Optional.of(LocalDate.of(2030, 1, 15));
+        if (filtros.contains("formato")) formato = Optional.of(Formato.FORMATO_5V5);
+        if (filtros.contains("rango")) rangoMin = Optional.of("Oro");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        persistenceManager.shutdown();
+    }
+
+    @Benchmark
+    public List<Scrim> findScrims() throws IOException {
+        return scrimService.findScrims(juego, region, rangoMin, Optional.empty(), latenciaMax, formato, fecha);
+    }
+
+    @Benchmark
+    public ScrimPage findScrimsFirstPage() throws IOException {
+        return scrimService.findScrimsPage(juego, region, rangoMin, Optional.empty(), latenciaMax, formato, fecha,
+                ScrimSort.FECHA, Optional.empty(), Optional.of(20));
+    }
+}
@@ -0,0 +1,79 @@
+package com.scrim_pds.benchmark;
+
+import com.scrim_pds.config.JacksonConfig;
+import com.scrim_pds.model.Scrim;
+import com.scrim_pds.model.enums.ScrimStateEnum;
+import com.scrim_pds.persistence.JsonPersistenceManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Volcado y carga de scrims con data.snapshot-format=json y smile.
+ * El tamaño del archivo de cada formato se imprime al preparar el benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SnapshotFormatBenchmark {
+
+    private static final String SCRIMS_FILE = "scrims.json";
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"json", "smile"})
+    public String format;
+
+    private Path dataDir;
+    private JsonPersistenceManager persistenceManager;
+    private Scrim scrim;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("scrim-bench");
+        persistenceManager = newManager();
+        BenchmarkData data = new BenchmarkData(42);
+        List<Scrim> scrims = data.scrims(rows, data.users(100));
+        persistenceManager.writeCollection(SCRIMS_FILE, scrims);
+        persistenceManager.flushAll();
+        scrim = persistenceManager.findById(SCRIMS_FILE, Scrim.class, scrims.get(0).getId()).orElseThrow();
+
+        try (Stream<Path> files = Files.list(dataDir)) {
+            Path snapshot = files.filter(p -> p.getFileName().toString().matches("scrims\\.(json|smile)")).findFirst().orElseThrow();
+            System.out.printf("%n%s: %d bytes (%d scrims)%n", snapshot.getFileName(), Files.size(snapshot), rows);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        persistenceManager.shutdown();
+    }
+
+    @Benchmark
+    public void flushSnapshot() throws IOException {
+        // Un cambio y el volcado de la coleccion completa
+        scrim.setEstado(scrim.getEstado() == ScrimStateEnum.BUSCANDO ? ScrimStateEnum.LOBBY_ARMADO : ScrimStateEnum.BUSCANDO);
+        persistenceManager.save(SCRIMS_FILE, scrim);
+        persistenceManager.flush(SCRIMS_FILE);
+    }
+
+    @Benchmark
+    public boolean loadSnapshot() throws IOException {
+        // Arranque: leer la foto de disco y armar el repositorio en memoria
+        JsonPersistenceManager restarted = newManager();
+        return restarted.findById(SCRIMS_FILE, Scrim.class, scrim.getId()).isPresent();
+    }
+
+    private JsonPersistenceManager newManager() {
+        return new JsonPersistenceManager(new JacksonConfig().objectMapper(), dataDir.toString(),
+                3_600_000, Integer.MAX_VALUE, "snapshot", Integer.MAX_VALUE, format, "buffered", 1);
+    }
+}
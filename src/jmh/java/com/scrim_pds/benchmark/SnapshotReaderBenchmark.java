@@ -0,0 +1,56 @@
+package com.scrim_pds.benchmark;
+
+import com.scrim_pds.config.JacksonConfig;
+import com.scrim_pds.model.Scrim;
+import com.scrim_pds.persistence.JsonPersistenceManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura de una foto de disco con data.snapshot-reader=buffered (stream con buffer) y mmap.
+ * Se recorre un archivo sin CollectionDefinition con findMatching, que lo parsea entero en
+ * streaming sin cargarlo en memoria: se mide la lectura, no el armado del repositorio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SnapshotReaderBenchmark {
+
+    private static final String FILE = "scrims-export.json";
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"buffered", "mmap"})
+    public String reader;
+
+    private JsonPersistenceManager persistenceManager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path dataDir = Files.createTempDirectory("scrim-bench");
+        BenchmarkData data = new BenchmarkData(42);
+        new JacksonConfig().objectMapper().writeValue(dataDir.resolve(FILE).toFile(), data.scrims(rows, data.users(100)));
+        persistenceManager = new JsonPersistenceManager(new JacksonConfig().objectMapper(), dataDir.toString(),
+                3_600_000, Integer.MAX_VALUE, "snapshot", Integer.MAX_VALUE, "json", reader, 1);
+    }
+
+    @Benchmark
+    public List<Scrim> scanWithoutMatches() throws IOException {
+        // Ningun elemento pasa el filtro: se recorre el archivo completo
+        return persistenceManager.findMatching(FILE, Scrim.class, s -> false);
+    }
+
+    @Benchmark
+    public List<Scrim> findFirstMatch() throws IOException {
+        // Corta en el primer elemento: mide abrir el archivo (o reutilizar el mapeo)
+        return persistenceManager.findMatching(FILE, Scrim.class, s -> true, 1);
+    }
+}
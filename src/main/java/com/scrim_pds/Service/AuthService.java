@@ -55,13 +55,11 @@ public class AuthService {
      * @throws UserAlreadyExistsException Si el email o username ya existen.
      */
     public User register(RegisterRequest dto) throws IOException { 
-        List<User> users = persistenceManager.readCollection(USERS_FILE, User.class);
-
-        // 1. Validar duplicados
-        if (users.stream().anyMatch(u -> u.getEmail().equalsIgnoreCase(dto.getEmail()))) {
+        // 1. Validar duplicados (se corta en la primera coincidencia, sin copiar la colección)
+        if (persistenceManager.findFirst(USERS_FILE, User.class, u -> u.getEmail().equalsIgnoreCase(dto.getEmail())).isPresent()) {
             throw new UserAlreadyExistsException("El email " + dto.getEmail() + " ya está en uso.");
         }
-        if (users.stream().anyMatch(u -> u.getUsername().equalsIgnoreCase(dto.getUsername()))) {
+        if (persistenceManager.findFirst(USERS_FILE, User.class, u -> u.getUsername().equalsIgnoreCase(dto.getUsername())).isPresent()) {
             throw new UserAlreadyExistsException("El usuario " + dto.getUsername() + " ya está en uso.");
         }
 
@@ -112,8 +110,7 @@ public class AuthService {
         newUser.setPreferencias(prefs); 
 
         // 5. Guardar usuario
-        users.add(newUser);
-        persistenceManager.writeCollection(USERS_FILE, users);
+        persistenceManager.save(USERS_FILE, newUser);
         logger.info("Usuario {} registrado con ID {}. Preferencias iniciales: Canales={}, Juego={}, Region={}",
                 dto.getUsername(), newUser.getId(), prefs.getCanalesNotificacion(), prefs.getBusquedaJuegoPorDefecto(), prefs.getBusquedaRegionPorDefecto());
 
@@ -121,10 +118,11 @@ public class AuthService {
         String verificationTokenString = generateNewToken();
         LocalDateTime expiryDate = LocalDateTime.now().plusHours(24);
         VerificationToken verificationToken = new VerificationToken(verificationTokenString, newUser.getId(), expiryDate);
-        List<VerificationToken> tokens = persistenceManager.readCollection(VERIFICATIONS_FILE, VerificationToken.class);
-        tokens.removeIf(t -> t.getExpiresAt().isBefore(LocalDateTime.now().minusDays(7)));
-        tokens.add(verificationToken);
-        persistenceManager.writeCollection(VERIFICATIONS_FILE, tokens);
+        // Solo se agrega el token y se borran los vencidos hace más de 7 días (sin reescribir los demás)
+        LocalDateTime tokenPurgeLimit = LocalDateTime.now().minusDays(7);
+        persistenceManager.deleteMatching(VERIFICATIONS_FILE, VerificationToken.class,
+                t -> t.getExpiresAt() != null && t.getExpiresAt().isBefore(tokenPurgeLimit));
+        persistenceManager.save(VERIFICATIONS_FILE, verificationToken);
         logger.info("Token de verificación generado para usuario {}", newUser.getId());
 
         // 7. Enviar notificacion con link
@@ -152,25 +150,21 @@ public class AuthService {
 
     // Autentica un usuario y crea una sesion.
     public LoginResponse login(String email, String password) throws IOException {
-        List<User> users = persistenceManager.readCollection(USERS_FILE, User.class);
-
-        User user = users.stream()
-                .filter(u -> u.getEmail().equalsIgnoreCase(email))
-                .findFirst()
+        User user = persistenceManager.findFirst(USERS_FILE, User.class, u -> u.getEmail().equalsIgnoreCase(email))
                 .orElseThrow(() -> new InvalidCredentialsException("Email o contraseña incorrectos."));
 
         if (!BCrypt.checkpw(password, user.getPasswordHash())) {
             throw new InvalidCredentialsException("Email o contraseña incorrectos.");
         }
 
-        List<Session> sessions = persistenceManager.readCollection(SESSIONS_FILE, Session.class);
         String sessionToken = generateNewToken();
-        LocalDateTime expiresAt = LocalDateTime.now().plusDays(7);
-        Session newSession = new Session(sessionToken, user.getId(), expiresAt);
+        LocalDateTime now = LocalDateTime.now();
+        Session newSession = new Session(sessionToken, user.getId(), now.plusDays(7));
 
-        sessions.removeIf(s -> s.getExpiresAt().isBefore(LocalDateTime.now()));
-        sessions.add(newSession);
-        persistenceManager.writeCollection(SESSIONS_FILE, sessions);
+        // Solo se agrega la sesión nueva y se borran las vencidas: un login concurrente no pierde la suya
+        persistenceManager.deleteMatching(SESSIONS_FILE, Session.class,
+                s -> s.getExpiresAt() != null && s.getExpiresAt().isBefore(now));
+        persistenceManager.save(SESSIONS_FILE, newSession);
         logger.info("Sesión creada para usuario {}", user.getId());
 
         return new LoginResponse(newSession.getToken(), user);
@@ -180,11 +174,7 @@ public class AuthService {
     // Cambia el estado del usuario a VERIFICADO y elimina el token.
 
     public void verifyEmail(String tokenString) throws IOException {
-        List<VerificationToken> tokens = persistenceManager.readCollection(VERIFICATIONS_FILE, VerificationToken.class);
-
-        Optional<VerificationToken> tokenOpt = tokens.stream()
-                .filter(t -> t.getToken().equals(tokenString))
-                .findFirst();
+        Optional<VerificationToken> tokenOpt = persistenceManager.findById(VERIFICATIONS_FILE, VerificationToken.class, tokenString);
 
         if (tokenOpt.isEmpty()) {
             logger.warn("Intento de verificación con token inválido: {}", tokenString);
@@ -194,51 +184,34 @@ public class AuthService {
 
         if (token.getExpiresAt().isBefore(LocalDateTime.now())) {
             logger.warn("Intento de verificación con token expirado para usuario {}: {}", token.getUserId(), tokenString);
-            tokens.remove(token);
-            persistenceManager.writeCollection(VERIFICATIONS_FILE, tokens); // Borrar token expirado
+            persistenceManager.delete(VERIFICATIONS_FILE, tokenString); // Borrar token expirado
             throw new TokenExpiredException("El token de verificación ha expirado. Por favor, solicita uno nuevo.");
         }
 
-        List<User> users = persistenceManager.readCollection(USERS_FILE, User.class);
-        Optional<User> userOpt = users.stream().filter(u -> u.getId().equals(token.getUserId())).findFirst();
+        Optional<User> userOpt = persistenceManager.findById(USERS_FILE, User.class, token.getUserId());
 
         if (userOpt.isEmpty()) {
             logger.error("CRITICAL: Token de verificación válido encontrado para usuario NO existente. UserID: {}, Token: {}", token.getUserId(), tokenString);
-            tokens.remove(token); // Borrar token huerfano
-            persistenceManager.writeCollection(VERIFICATIONS_FILE, tokens);
+            persistenceManager.delete(VERIFICATIONS_FILE, tokenString); // Borrar token huerfano
             throw new InvalidTokenException("Usuario asociado al token no encontrado.");
         }
         User user = userOpt.get();
 
-        boolean userWasUpdated = false;
         if (user.getEstadoVerificacion() == VerificationState.PENDIENTE) {
-            user.setEstadoVerificacion(VerificationState.VERIFICADO); 
+            user.setEstadoVerificacion(VerificationState.VERIFICADO);
+            // Solo se guarda este usuario (los cambios concurrentes de otros usuarios no se pisan)
+            persistenceManager.save(USERS_FILE, user);
             logger.info("Email verificado exitosamente para usuario {}", user.getId());
-
-            // Actualizar la lista de usuarios para persistencia
-            List<User> updatedUsers = users.stream()
-                .map(u -> u.getId().equals(user.getId()) ? user : u) 
-                .collect(Collectors.toList());
-
-            persistenceManager.writeCollection(USERS_FILE, updatedUsers); 
-            userWasUpdated = true; 
-
         } else {
             logger.warn("Usuario {} ya estaba verificado. Token {} será eliminado.", user.getId(), tokenString);
         }
 
         // Eliminar token para que no se reuse
-        boolean removed = tokens.remove(token);
-        if (removed) {
-             persistenceManager.writeCollection(VERIFICATIONS_FILE, tokens);
+        if (persistenceManager.delete(VERIFICATIONS_FILE, tokenString)) {
              logger.info("Token de verificación eliminado: {}", tokenString);
         } else {
              logger.warn("El token {} ya había sido eliminado (posible condición de carrera?).", tokenString);
         }
-
-        if (user.getEstadoVerificacion() == VerificationState.VERIFICADO && !userWasUpdated && users.stream().anyMatch(u -> u.getId().equals(user.getId()) && u.getEstadoVerificacion() == VerificationState.PENDIENTE) ) {
-             logger.error("CRITICAL: El estado del usuario {} no pudo ser actualizado a VERIFICADO en el archivo.", user.getId());
-        }
     }
 
     // Genera un token aleatorio seguro
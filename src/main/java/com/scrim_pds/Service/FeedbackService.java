@@ -21,7 +21,6 @@ import java.util.ArrayList; // Asegurarse que esté importado
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 public class FeedbackService {
@@ -65,12 +64,11 @@ public class FeedbackService {
         }
 
         // 4. Validar que no haya enviado ya feedback a este usuario en este scrim
-        List<Feedback> allFeedback = persistenceManager.readCollection(FEEDBACK_FILE, Feedback.class);
-        boolean alreadySubmitted = allFeedback.stream().anyMatch(f ->
+        boolean alreadySubmitted = persistenceManager.findFirst(FEEDBACK_FILE, Feedback.class, f ->
                 f.getScrimId().equals(scrimId) &&
                 f.getReviewerId().equals(reviewer.getId()) &&
                 f.getTargetUserId().equals(dto.getTargetUserId())
-        );
+        ).isPresent();
         if (alreadySubmitted) {
             throw new FeedbackNotAllowedException("Ya has enviado feedback para este jugador en este scrim.");
         }
@@ -86,8 +84,7 @@ public class FeedbackService {
         newFeedback.setModerationState(ModerationState.PENDIENTE); // Siempre PENDIENTE al crear
         newFeedback.setCreatedAt(LocalDateTime.now());
 
-        allFeedback.add(newFeedback);
-        persistenceManager.writeCollection(FEEDBACK_FILE, allFeedback);
+        persistenceManager.save(FEEDBACK_FILE, newFeedback);
         
         logger.info("[AUDIT] Usuario '{}' (ID: {}) envió feedback para Usuario '{}' en Scrim {}", 
                 reviewer.getUsername(), reviewer.getId(), dto.getTargetUserId(), scrimId);
@@ -99,22 +96,16 @@ public class FeedbackService {
      * Obtiene todo el feedback APROBADO para un scrim específico.
      */
     public List<Feedback> getApprovedFeedbackForScrim(UUID scrimId) throws IOException {
-        List<Feedback> allFeedback = persistenceManager.readCollection(FEEDBACK_FILE, Feedback.class);
-        
-        return allFeedback.stream()
-                .filter(f -> f.getScrimId().equals(scrimId) && 
-                             f.getModerationState() == ModerationState.APROBADO)
-                .collect(Collectors.toList());
+        return persistenceManager.findMatching(FEEDBACK_FILE, Feedback.class,
+                f -> f.getScrimId().equals(scrimId) && f.getModerationState() == ModerationState.APROBADO);
     }
 
     /**
      * Obtiene todo el feedback PENDIENTE (para moderadores).
      */
     public List<Feedback> getPendingFeedback() throws IOException {
-        List<Feedback> allFeedback = persistenceManager.readCollection(FEEDBACK_FILE, Feedback.class);
-        return allFeedback.stream()
-                .filter(f -> f.getModerationState() == ModerationState.PENDIENTE)
-                .collect(Collectors.toList());
+        return persistenceManager.findMatching(FEEDBACK_FILE, Feedback.class,
+                f -> f.getModerationState() == ModerationState.PENDIENTE);
     }
 
 
@@ -122,9 +113,7 @@ public class FeedbackService {
      * Modera un feedback (aprueba o rechaza).
      */
     public Feedback moderateFeedback(UUID feedbackId, ModerationRequest dto) throws IOException {
-        List<Feedback> allFeedback = persistenceManager.readCollection(FEEDBACK_FILE, Feedback.class);
-        
-        Optional<Feedback> feedbackOpt = allFeedback.stream().filter(f -> f.getId().equals(feedbackId)).findFirst();
+        Optional<Feedback> feedbackOpt = persistenceManager.findById(FEEDBACK_FILE, Feedback.class, feedbackId);
         if (feedbackOpt.isEmpty()) {
             // --- EXCEPCIÓN CORREGIDA ---
             throw new ScrimNotFoundException("No se encontró el feedback con ID: " + feedbackId);
@@ -138,7 +127,7 @@ public class FeedbackService {
         
         feedback.setModerationState(dto.getNewState());
         
-        persistenceManager.writeCollection(FEEDBACK_FILE, allFeedback);
+        persistenceManager.save(FEEDBACK_FILE, feedback);
         logger.info("[AUDIT] Feedback {} moderado a estado {}", feedbackId, dto.getNewState());
 
         return feedback;
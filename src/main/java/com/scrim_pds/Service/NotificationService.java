@@ -1,209 +1,194 @@
 package com.scrim_pds.notification;
 
+import com.scrim_pds.adapter.EmailMessage;
 import com.scrim_pds.model.Scrim;
+import com.scrim_pds.model.PreferenciasUsuario;
 import com.scrim_pds.model.User;
+import com.scrim_pds.model.enums.CanalNotificacion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
-import java.util.UUID; 
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class NotificationService {
 
     private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
 
-    private final Notifier emailNotifier;
-    private final Notifier pushNotifier;
-    private final Notifier discordNotifier;
+    // Cada notificacion va por los canales que eligio el usuario. Todas pasan por el
+    // despachador, que las registra en el store (con reintentos): los emails se envian en
+    // lotes desde otro hilo; Discord y push son asincronos (ver WebhookTransport).
+    private final NotificationDispatcher dispatcher;
 
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter
             .ofLocalizedDateTime(FormatStyle.MEDIUM)
             .withLocale(Locale.getDefault());
 
-    public NotificationService(NotifierFactory factory) {
-        this.emailNotifier = factory.createEmailNotifier();
-        this.pushNotifier = factory.createPushNotifier();
-        this.discordNotifier = factory.createDiscordNotifier();
+    // Plantillas (se compilan una vez). Las variables del scrim se reemplazan una vez por
+    // evento (ver paraScrim); por destinatario solo queda {{usuario}}.
+    private static final String FIRMA = "Saludos,\nEl equipo de eScrim";
+
+    private static final String BIENVENIDA_ASUNTO = "¡Bienvenido a eScrim! Verifica tu email";
+    private static final NotificationTemplate BIENVENIDA_CUERPO = NotificationTemplate.compile(
+            "Hola {{usuario}},\n\n" +
+            "Gracias por registrarte en eScrim.\n\n" +
+            "Para completar tu registro, por favor haz clic en el siguiente enlace para verificar tu dirección de email:\n" +
+            "{{link}}\n\n" +
+            "(Si no te registraste, puedes ignorar este email).\n\n" + FIRMA);
+
+    private static final NotificationTemplate NUEVO_SCRIM_ASUNTO = NotificationTemplate.compile(
+            "¡Nuevo Scrim disponible que podría interesarte!");
+    private static final NotificationTemplate NUEVO_SCRIM_CUERPO = NotificationTemplate.compile(
+            "Hola {{usuario}},\n\n" +
+            "Se ha creado un nuevo scrim que coincide con tus preferencias:\n\n" +
+            "Juego: {{juego|N/A}}\n" +
+            "Región: {{region|N/A}}\n" +
+            "Formato: {{formato|N/A}}\n" +
+            "Rango: {{rangoMin|N/A}} - {{rangoMax|N/A}}\n" +
+            "Fecha: {{fecha|N/A}}\n" +
+            "Descripción: {{descripcion|(Sin descripción)}}\n\n" +
+            "¡Puedes buscarlo en la plataforma!\n\n" + FIRMA);
+
+    private static final NotificationTemplate LOBBY_ARMADO_ASUNTO = NotificationTemplate.compile(
+            "¡Lobby Armado para tu Scrim de {{juego|Juego Desconocido}}!");
+    private static final NotificationTemplate LOBBY_ARMADO_CUERPO = NotificationTemplate.compile(
+            "Hola {{usuario}},\n\n" +
+            "¡El lobby para el scrim de {{juego|N/A}} ({{scrimId}}) está completo!\n\n" +
+            "Detalles del Scrim:\n" +
+            " - Juego: {{juego|N/A}}\n" +
+            " - Región: {{region|N/A}}\n" +
+            " - Fecha: {{fecha|N/A}}\n\n" +
+            "El siguiente paso es que todos los participantes confirmen su asistencia.\n" +
+            "Ve a la plataforma para confirmar tu participación.\n" +
+            "Recibirás otra notificación una vez que todos hayan confirmado.\n\n" + FIRMA);
+
+    private static final NotificationTemplate CONFIRMADO_ASUNTO = NotificationTemplate.compile(
+            "¡Scrim Confirmado! Prepárense para {{juego|la partida}}");
+    private static final NotificationTemplate CONFIRMADO_CUERPO = NotificationTemplate.compile(
+            "Hola {{usuario}},\n\n" +
+            "¡Todos los participantes han confirmado para el scrim de {{juego|N/A}} ({{scrimId}})!\n\n" +
+            "El scrim está programado para comenzar el: {{fecha|Próximamente}}\n\n" +
+            "¡Prepárate para la partida!\n\n" + FIRMA);
+
+    private static final NotificationTemplate INICIADO_ASUNTO = NotificationTemplate.compile(
+            "¡Tu Scrim de {{juego|N/A}} ha comenzado!");
+    private static final NotificationTemplate INICIADO_CUERPO = NotificationTemplate.compile(
+            "Hola {{usuario}},\n\n" +
+            "¡El scrim de {{juego|N/A}} ({{scrimId}}) programado para {{fecha|Ahora}} acaba de comenzar!\n\n" +
+            "¡Mucha suerte en la partida!\n\n" + FIRMA);
+
+    private static final NotificationTemplate FINALIZADO_ASUNTO = NotificationTemplate.compile(
+            "¡Tu Scrim de {{juego|N/A}} ha finalizado!");
+    private static final NotificationTemplate FINALIZADO_CUERPO = NotificationTemplate.compile(
+            "Hola {{usuario}},\n\n" +
+            "El scrim de {{juego|N/A}} ({{scrimId}}) ha finalizado.\n\n" +
+            "{{mensajeExtra}}\n\n" +
+            "¡Esperamos que hayas tenido una buena partida!\n\n" + FIRMA);
+    private static final NotificationTemplate FINALIZADO_CUERPO_ORGANIZADOR = FINALIZADO_CUERPO.bind(
+            Map.of("mensajeExtra", "Ya puedes cargar las estadísticas en la plataforma."));
+    private static final NotificationTemplate FINALIZADO_CUERPO_PARTICIPANTE = FINALIZADO_CUERPO.bind(
+            Map.of("mensajeExtra", "Pronto estarán disponibles las estadísticas."));
+
+    private static final NotificationTemplate CANCELADO_ASUNTO = NotificationTemplate.compile(
+            "Scrim Cancelado: {{juego|N/A}}");
+    private static final NotificationTemplate CANCELADO_CUERPO = NotificationTemplate.compile(
+            "Hola {{usuario}},\n\n" +
+            "Lamentamos informarte que el scrim de {{juego|N/A}} ({{scrimId}}) ha sido cancelado por el organizador.\n\n" +
+            "Ya no necesitas participar en esta partida.\n\n" +
+            "Puedes buscar otros scrims disponibles en la plataforma.\n\n" + FIRMA);
+
+    private static final NotificationTemplate RECORDATORIO_ASUNTO = NotificationTemplate.compile(
+            "¡Recordatorio! Tu Scrim de {{juego|N/A}} comienza pronto");
+    private static final NotificationTemplate RECORDATORIO_CUERPO = NotificationTemplate.compile(
+            "Hola {{usuario}},\n\n" +
+            "¡Esto es un recordatorio de que tu scrim de {{juego|N/A}} ({{scrimId}}) está programado para comenzar pronto!\n\n" +
+            "Fecha de inicio: {{fecha|muy pronto}}\n\n" +
+            "¡Asegúrate de estar listo a tiempo!\n\n" + FIRMA);
+
+    // Ultimo scrim aplicado a cada plantilla. En un fan-out el suscriptor pasa la misma
+    // instancia del scrim a cada destinatario, asi que se formatea una sola vez por evento.
+    private final Map<NotificationTemplate, ScrimBinding> porPlantilla = new ConcurrentHashMap<>();
+
+    public NotificationService(NotificationDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
     }
 
     // Envia una notificacion de bienvenida con link de verificación.
 
     public void sendWelcomeNotification(User newUser, String verificationLink) {
         String destinatario = newUser.getEmail();
-        String asunto = "¡Bienvenido a eScrim! Verifica tu email";
-        String cuerpo = "Hola " + newUser.getUsername() + ",\n\n" +
-                        "Gracias por registrarte en eScrim.\n\n" +
-                        "Para completar tu registro, por favor haz clic en el siguiente enlace para verificar tu dirección de email:\n" +
-                        verificationLink + "\n\n" +
-                        "(Si no te registraste, puedes ignorar este email).\n\n" +
-                        "Saludos,\nEl equipo de eScrim";
+        Map<String, String> values = new HashMap<>();
+        values.put("usuario", newUser.getUsername());
+        values.put("link", verificationLink);
+        String cuerpo = BIENVENIDA_CUERPO.render(values);
 
-        logger.info("Intentando enviar email de verificación/bienvenida a {}", destinatario);
-        boolean enviado = emailNotifier.send(destinatario, asunto, cuerpo);
-        logResult("Verificación/Bienvenida", enviado, null, destinatario);
+        logger.info("Encolando email de verificación/bienvenida para {}", destinatario);
+        dispatcher.enqueue(new EmailMessage(destinatario, BIENVENIDA_ASUNTO, cuerpo), "Verificación/Bienvenida", null);
     }
 
     // Envia una notificacion por email sobre un nuevo Scrim que coincide con preferencias.
 
     public void sendNewScrimNotification(User recipient, Scrim scrim) {
-        String destinatario = recipient.getEmail();
-        String asunto = "¡Nuevo Scrim disponible que podría interesarte!";
-        String fechaFormateada = scrim.getFechaHora() != null ? scrim.getFechaHora().format(DATE_TIME_FORMATTER) : "N/A";
+        logger.info("Encolando notificación de nuevo scrim para {}", recipient.getEmail());
+        enqueue(List.of(recipient), scrim, NUEVO_SCRIM_ASUNTO, NUEVO_SCRIM_CUERPO, "Nuevo Scrim");
+    }
 
-        String cuerpo = String.format(
-            "Hola %s,\n\n" +
-            "Se ha creado un nuevo scrim que coincide con tus preferencias:\n\n" +
-            "Juego: %s\n" +
-            "Región: %s\n" +
-            "Formato: %s\n" +
-            "Rango: %s - %s\n" +
-            "Fecha: %s\n" +
-            "Descripción: %s\n\n" +
-            "¡Puedes buscarlo en la plataforma!\n\n" +
-            "Saludos,\nEl equipo de eScrim",
-            recipient.getUsername(),
-            scrim.getJuego() != null ? scrim.getJuego() : "N/A",
-            scrim.getRegion() != null ? scrim.getRegion() : "N/A",
-            scrim.getFormato() != null ? scrim.getFormato() : "N/A",
-            scrim.getRangoMin() != null ? scrim.getRangoMin() : "N/A",
-            scrim.getRangoMax() != null ? scrim.getRangoMax() : "N/A",
-            fechaFormateada,
-            scrim.getDescripcion() != null && !scrim.getDescripcion().isEmpty() ? scrim.getDescripcion() : "(Sin descripción)"
-        );
-
-        logger.info("Intentando enviar notificación de nuevo scrim a {}", destinatario);
-        boolean enviado = emailNotifier.send(destinatario, asunto, cuerpo);
-        logResult("Nuevo Scrim", enviado, scrim.getId(), destinatario);
+    /**
+     * Nuevo scrim para todos los interesados de una vez: los emails se registran en el
+     * store con una sola escritura en lugar de una por destinatario.
+     */
+    public void sendNewScrimNotification(Collection<User> recipients, Scrim scrim) {
+        logger.info("Encolando notificación de nuevo scrim para {} usuarios", recipients.size());
+        enqueue(recipients, scrim, NUEVO_SCRIM_ASUNTO, NUEVO_SCRIM_CUERPO, "Nuevo Scrim");
     }
 
     // Envía una notificación por email indicando que el Lobby está listo.
 
     public void sendLobbyArmadoNotification(User recipient, Scrim scrim) {
-        String destinatario = recipient.getEmail();
-        String asunto = "¡Lobby Armado para tu Scrim de " + (scrim.getJuego() != null ? scrim.getJuego() : "Juego Desconocido") + "!";
-        String fechaFormateada = scrim.getFechaHora() != null ? scrim.getFechaHora().format(DATE_TIME_FORMATTER) : "N/A";
-
-        String cuerpo = String.format(
-            "Hola %s,\n\n" +
-            "¡El lobby para el scrim de %s (%s) está completo!\n\n" +
-            "Detalles del Scrim:\n" +
-            " - Juego: %s\n" +
-            " - Región: %s\n" +
-            " - Fecha: %s\n\n" +
-            "El siguiente paso es que todos los participantes confirmen su asistencia.\n" +
-            "Ve a la plataforma para confirmar tu participación.\n" +
-            "Recibirás otra notificación una vez que todos hayan confirmado.\n\n" +
-            "Saludos,\nEl equipo de eScrim",
-            recipient.getUsername(),
-            scrim.getJuego() != null ? scrim.getJuego() : "N/A",
-            scrim.getId(),
-            scrim.getJuego() != null ? scrim.getJuego() : "N/A",
-            scrim.getRegion() != null ? scrim.getRegion() : "N/A",
-            fechaFormateada
-        );
-
-        logger.info("Intentando enviar notificación de Lobby Armado a {}", destinatario);
-        boolean enviado = emailNotifier.send(destinatario, asunto, cuerpo);
-        logResult("Lobby Armado", enviado, scrim.getId(), destinatario);
+        logger.info("Encolando notificación de Lobby Armado para {}", recipient.getEmail());
+        enqueue(List.of(recipient), scrim, LOBBY_ARMADO_ASUNTO, LOBBY_ARMADO_CUERPO, "Lobby Armado");
     }
 
     // Envia una notificacion por email indicando que el Scrim esta confirmado y listo para iniciar.
 
     public void sendScrimConfirmadoNotification(User recipient, Scrim scrim) {
-        String destinatario = recipient.getEmail();
-        String asunto = "¡Scrim Confirmado! Prepárense para " + (scrim.getJuego() != null ? scrim.getJuego() : "la partida");
-        String fechaFormateada = scrim.getFechaHora() != null ? scrim.getFechaHora().format(DATE_TIME_FORMATTER) : "Próximamente";
-
-        String cuerpo = String.format(
-            "Hola %s,\n\n" +
-            "¡Todos los participantes han confirmado para el scrim de %s (%s)!\n\n" +
-            "El scrim está programado para comenzar el: %s\n\n" +
-            "¡Prepárate para la partida!\n" +
-            "\n" +
-            "Saludos,\nEl equipo de eScrim",
-            recipient.getUsername(),
-            scrim.getJuego() != null ? scrim.getJuego() : "N/A",
-            scrim.getId(),
-            fechaFormateada
-        );
-
-        logger.info("Intentando enviar notificación de Scrim Confirmado a {}", destinatario);
-        boolean enviado = emailNotifier.send(destinatario, asunto, cuerpo);
-        logResult("Scrim Confirmado", enviado, scrim.getId(), destinatario);
+        logger.info("Encolando notificación de Scrim Confirmado para {}", recipient.getEmail());
+        enqueue(List.of(recipient), scrim, CONFIRMADO_ASUNTO, CONFIRMADO_CUERPO, "Scrim Confirmado");
     }
 
     // Envia notificacion de que el Scrim ha iniciado.
 
     public void sendScrimIniciadoNotification(User recipient, Scrim scrim) {
-        String destinatario = recipient.getEmail();
-        String asunto = "¡Tu Scrim de " + (scrim.getJuego() != null ? scrim.getJuego() : "N/A") + " ha comenzado!";
-        String fechaFormateada = scrim.getFechaHora() != null ? scrim.getFechaHora().format(DATE_TIME_FORMATTER) : "Ahora";
-
-        String cuerpo = String.format(
-            "Hola %s,\n\n" +
-            "¡El scrim de %s (%s) programado para %s acaba de comenzar!\n\n" +
-            "¡Mucha suerte en la partida!\n\n" +
-            "Saludos,\nEl equipo de eScrim",
-            recipient.getUsername(),
-            scrim.getJuego() != null ? scrim.getJuego() : "N/A",
-            scrim.getId(),
-            fechaFormateada
-        );
-
-        logger.info("Intentando enviar notificación de Scrim Iniciado a {}", destinatario);
-        boolean enviado = emailNotifier.send(destinatario, asunto, cuerpo);
-        logResult("Scrim Iniciado", enviado, scrim.getId(), destinatario);
+        logger.info("Encolando notificación de Scrim Iniciado para {}", recipient.getEmail());
+        enqueue(List.of(recipient), scrim, INICIADO_ASUNTO, INICIADO_CUERPO, "Scrim Iniciado");
     }
 
     // Envia notificacion de que el Scrim ha finalizado.
 
     public void sendScrimFinalizadoNotification(User recipient, Scrim scrim) {
-        String destinatario = recipient.getEmail();
-        String asunto = "¡Tu Scrim de " + (scrim.getJuego() != null ? scrim.getJuego() : "N/A") + " ha finalizado!";
         boolean esOrganizador = recipient.getId().equals(scrim.getOrganizadorId());
-        String mensajeExtra = esOrganizador ? "Ya puedes cargar las estadísticas en la plataforma." : "Pronto estarán disponibles las estadísticas.";
-
-        String cuerpo = String.format(
-            "Hola %s,\n\n" +
-            "El scrim de %s (%s) ha finalizado.\n\n" +
-            "%s\n\n" +
-            "¡Esperamos que hayas tenido una buena partida!\n\n" +
-            "Saludos,\nEl equipo de eScrim",
-            recipient.getUsername(),
-            scrim.getJuego() != null ? scrim.getJuego() : "N/A",
-            scrim.getId(),
-            mensajeExtra
-        );
-
-        logger.info("Intentando enviar notificación de Scrim Finalizado a {}", destinatario);
-        boolean enviado = emailNotifier.send(destinatario, asunto, cuerpo);
-        logResult("Scrim Finalizado", enviado, scrim.getId(), destinatario);
+        logger.info("Encolando notificación de Scrim Finalizado para {}", recipient.getEmail());
+        enqueue(List.of(recipient), scrim, FINALIZADO_ASUNTO,
+                esOrganizador ? FINALIZADO_CUERPO_ORGANIZADOR : FINALIZADO_CUERPO_PARTICIPANTE, "Scrim Finalizado");
     }
 
     // Envia notificacion de que el Scrim ha sido cancelado.
 
     public void sendScrimCanceladoNotification(User recipient, Scrim scrim) {
-        String destinatario = recipient.getEmail();
-        String asunto = "Scrim Cancelado: " + (scrim.getJuego() != null ? scrim.getJuego() : "N/A");
-
-        String cuerpo = String.format(
-            "Hola %s,\n\n" +
-            "Lamentamos informarte que el scrim de %s (%s) ha sido cancelado por el organizador.\n\n" +
-            "Ya no necesitas participar en esta partida.\n\n" +
-            "Puedes buscar otros scrims disponibles en la plataforma.\n\n" +
-            "Saludos,\nEl equipo de eScrim",
-            recipient.getUsername(),
-            scrim.getJuego() != null ? scrim.getJuego() : "N/A",
-            scrim.getId()
-        );
-
-        logger.info("Intentando enviar notificación de Scrim Cancelado a {}", destinatario);
-        boolean enviado = emailNotifier.send(destinatario, asunto, cuerpo);
-        logResult("Scrim Cancelado", enviado, scrim.getId(), destinatario);
+        logger.info("Encolando notificación de Scrim Cancelado para {}", recipient.getEmail());
+        enqueue(List.of(recipient), scrim, CANCELADO_ASUNTO, CANCELADO_CUERPO, "Scrim Cancelado");
     }
 
     /**
@@ -212,34 +197,89 @@ public class NotificationService {
      * @param scrim El scrim que esta por comenzar.
      */
     public void sendScrimReminderNotification(User recipient, Scrim scrim) {
-        String destinatario = recipient.getEmail();
-        String asunto = "¡Recordatorio! Tu Scrim de " + (scrim.getJuego() != null ? scrim.getJuego() : "N/A") + " comienza pronto";
-        String fechaFormateada = scrim.getFechaHora() != null ? scrim.getFechaHora().format(DATE_TIME_FORMATTER) : "muy pronto";
-
-        String cuerpo = String.format(
-            "Hola %s,\n\n" +
-            "¡Esto es un recordatorio de que tu scrim de %s (%s) está programado para comenzar pronto!\n\n" +
-            "Fecha de inicio: %s\n\n" +
-            "¡Asegúrate de estar listo a tiempo!\n\n" +
-            "Saludos,\nEl equipo de eScrim",
-            recipient.getUsername(),
-            scrim.getJuego() != null ? scrim.getJuego() : "N/A",
-            scrim.getId(),
-            fechaFormateada
-        );
-
-        logger.info("Intentando enviar Recordatorio de Scrim a {}", destinatario);
-        boolean enviado = emailNotifier.send(destinatario, asunto, cuerpo);
-        logResult("Recordatorio Scrim", enviado, scrim.getId(), destinatario);
-    }
-
-    private void logResult(String notificationType, boolean success, UUID scrimId, String recipientEmail) {
-        String scrimIdStr = scrimId != null ? scrimId.toString() : "N/A";
-        if (success) {
-            logger.info("Email de {} ({}) enviado exitosamente a {}", notificationType, scrimIdStr, recipientEmail);
-        } else {
-            logger.error("Falló el envío del email de {} ({}) a {}", notificationType, scrimIdStr, recipientEmail);
+        logger.info("Encolando Recordatorio de Scrim para {}", recipient.getEmail());
+        enqueue(List.of(recipient), scrim, RECORDATORIO_ASUNTO, RECORDATORIO_CUERPO, "Recordatorio Scrim");
+    }
+
+    /**
+     * Canales elegidos por el usuario (canalesNotificacion) para los que tiene destino:
+     * EMAIL necesita email, DISCORD un webhook y PUSH un token de dispositivo.
+     */
+    public Set<CanalNotificacion> canalesDe(User user) {
+        PreferenciasUsuario prefs = user.getPreferencias();
+        Set<CanalNotificacion> canales = EnumSet.noneOf(CanalNotificacion.class);
+        if (prefs == null || prefs.getCanalesNotificacion() == null) {
+            return canales;
         }
+        for (String nombre : prefs.getCanalesNotificacion()) {
+            CanalNotificacion canal;
+            try {
+                canal = CanalNotificacion.valueOf(nombre);
+            } catch (IllegalArgumentException | NullPointerException e) {
+                continue;
+            }
+            String destino = destinoEn(user, canal);
+            if (destino != null && !destino.isBlank()) {
+                canales.add(canal);
+            }
+        }
+        return canales;
+    }
+
+    // Email, webhook de Discord o token push del usuario
+    private static String destinoEn(User user, CanalNotificacion canal) {
+        PreferenciasUsuario prefs = user.getPreferencias();
+        return switch (canal) {
+            case EMAIL -> user.getEmail();
+            case DISCORD -> prefs != null ? prefs.getDiscordWebhookUrl() : null;
+            case PUSH -> prefs != null ? prefs.getPushToken() : null;
+        };
+    }
+
+    private void enqueue(Collection<User> recipients, Scrim scrim, NotificationTemplate asuntoTemplate, NotificationTemplate cuerpoTemplate, String tipo) {
+        Map<CanalNotificacion, List<EmailMessage>> porCanal = new EnumMap<>(CanalNotificacion.class);
+        for (User recipient : recipients) {
+            String asunto = paraScrim(asuntoTemplate, scrim).render("usuario", recipient.getUsername());
+            String cuerpo = paraScrim(cuerpoTemplate, scrim).render("usuario", recipient.getUsername());
+            for (CanalNotificacion canal : canalesDe(recipient)) {
+                porCanal.computeIfAbsent(canal, k -> new ArrayList<>())
+                        .add(new EmailMessage(destinoEn(recipient, canal), asunto, cuerpo));
+            }
+        }
+        // Las notificaciones de cada canal se registran juntas
+        for (Map.Entry<CanalNotificacion, List<EmailMessage>> entry : porCanal.entrySet()) {
+            dispatcher.enqueueAll(entry.getKey(), entry.getValue(), tipo, scrim.getId());
+        }
+    }
+
+    /**
+     * La plantilla con los datos del scrim ya reemplazados. Se reutiliza mientras llegue
+     * la misma instancia del scrim (los eventos entregan una copia por suscriptor).
+     */
+    private NotificationTemplate paraScrim(NotificationTemplate template, Scrim scrim) {
+        ScrimBinding last = porPlantilla.get(template);
+        if (last != null && last.scrim() == scrim) {
+            return last.bound();
+        }
+        NotificationTemplate bound = template.bind(scrimValues(scrim));
+        porPlantilla.put(template, new ScrimBinding(scrim, bound));
+        return bound;
+    }
+
+    private static Map<String, String> scrimValues(Scrim scrim) {
+        // null = usar el valor por defecto de la plantilla
+        Map<String, String> values = new HashMap<>();
+        values.put("scrimId", String.valueOf(scrim.getId()));
+        values.put("juego", scrim.getJuego());
+        values.put("region", scrim.getRegion());
+        values.put("formato", scrim.getFormato() != null ? scrim.getFormato().toString() : null);
+        values.put("rangoMin", scrim.getRangoMin());
+        values.put("rangoMax", scrim.getRangoMax());
+        values.put("fecha", scrim.getFechaHora() != null ? scrim.getFechaHora().format(DATE_TIME_FORMATTER) : null);
+        values.put("descripcion", scrim.getDescripcion());
+        return values;
     }
-}
 
+    private record ScrimBinding(Scrim scrim, NotificationTemplate bound) {
+    }
+}
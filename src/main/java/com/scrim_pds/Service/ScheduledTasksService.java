@@ -2,14 +2,15 @@ package com.scrim_pds.service;
 
 import com.scrim_pds.model.Scrim;
 import com.scrim_pds.model.User;
-import com.scrim_pds.model.enums.CanalNotificacion;
 import com.scrim_pds.notification.NotificationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 
 @Service
@@ -22,9 +23,14 @@ public class ScheduledTasksService {
 
     private static final int REMINDER_HOURS_BEFORE = 2; // Enviar recordatorio 2 horas antes
 
-    public ScheduledTasksService(ScrimService scrimService, NotificationService notificationService) {
+    // Antigüedad a partir de la cual un scrim terminado se archiva (0 = no archivar)
+    private final int archiveMinAgeDays;
+
+    public ScheduledTasksService(ScrimService scrimService, NotificationService notificationService,
+                                 @Value("${archive.min-age-days:30}") int archiveMinAgeDays) {
         this.scrimService = scrimService;
         this.notificationService = notificationService;
+        this.archiveMinAgeDays = archiveMinAgeDays;
     }
 
     /**
@@ -53,6 +59,25 @@ public class ScheduledTasksService {
         logger.info("--- Tareas Programadas Finalizadas ---");
     }
 
+    /**
+     * (Archivado): Saca del working set los scrims terminados hace más de archive.min-age-days.
+     * Va aparte de las tareas de cada minuto: no hace falta correrlo seguido.
+     */
+    @Scheduled(fixedDelayString = "${archive.interval-ms:3600000}", initialDelayString = "${archive.interval-ms:3600000}")
+    public void archiveFinishedScrims() {
+        if (archiveMinAgeDays <= 0) {
+            return;
+        }
+        try {
+            int archived = scrimService.archiveFinishedScrims(Duration.ofDays(archiveMinAgeDays));
+            if (archived > 0) {
+                logger.info("[Scheduler] {} scrim(s) terminados archivados.", archived);
+            }
+        } catch (Exception e) {
+            logger.error("[Scheduler] Error durante el archivado de scrims:", e);
+        }
+    }
+
     /**
      * (Auto-Inicio): Busca scrims CONFIRMADO cuya fechaHora sea pasada
      * y llama a ScrimService para iniciarlos.
@@ -109,10 +134,10 @@ public class ScheduledTasksService {
                     }
                     
                     for (User user : participants) {
-                        if (shouldNotify(user, CanalNotificacion.EMAIL)) {
+                        if (shouldNotify(user)) {
                             notificationService.sendScrimReminderNotification(user, scrim);
                         } else {
-                            logger.debug("[Scheduler] Usuario {} no desea recordatorios por EMAIL.", user.getId());
+                            logger.debug("[Scheduler] Usuario {} no desea recordatorios (o no tiene canales).", user.getId());
                         }
                     }
                     
@@ -135,15 +160,13 @@ public class ScheduledTasksService {
         }
     }
 
-    private boolean shouldNotify(User user, CanalNotificacion canal) {
+    private boolean shouldNotify(User user) {
         if (user.getPreferencias() == null) {
             logger.debug("[Scheduler] Usuario {} no tiene objeto de preferencias, omitiendo notificación.", user.getId());
             return false;
         }
         boolean wantsReminders = user.getPreferencias().isRecordatoriosActivos();
-        boolean hasChannel = user.getPreferencias().getCanalesNotificacion() != null &&
-                             user.getPreferencias().getCanalesNotificacion().contains(canal.name());
-                             
+        boolean hasChannel = !notificationService.canalesDe(user).isEmpty();
 
         return wantsReminders && hasChannel;
     }
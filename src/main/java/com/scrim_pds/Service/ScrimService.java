@@ -3,8 +3,11 @@ package com.scrim_pds.service;
 import com.scrim_pds.dto.EstadisticaRequest;
 import com.scrim_pds.dto.PostulacionRequest;
 import com.scrim_pds.dto.ScrimCreateRequest;
+import com.scrim_pds.dto.ScrimPage;
 import com.scrim_pds.event.*;
 import com.scrim_pds.exception.InvalidScrimStateException;
+import com.scrim_pds.exception.InvalidTokenException;
+import com.scrim_pds.exception.OptimisticLockException;
 import com.scrim_pds.exception.ScrimNotFoundException;
 import com.scrim_pds.exception.UnauthorizedException;
 import com.scrim_pds.model.Estadistica;
@@ -13,23 +16,37 @@ import com.scrim_pds.model.Scrim;
 import com.scrim_pds.model.User;
 import com.scrim_pds.model.enums.Formato;
 import com.scrim_pds.model.enums.PostulacionState;
+import com.scrim_pds.model.enums.ScrimSort;
 import com.scrim_pds.model.enums.ScrimStateEnum;
+import com.scrim_pds.persistence.CollectionDefinition;
+import com.scrim_pds.persistence.CollectionRepository;
 import com.scrim_pds.persistence.JsonPersistenceManager;
+import com.scrim_pds.persistence.StripedLocks;
 import com.scrim_pds.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate; // Importar
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Service
 public class ScrimService {
@@ -38,24 +55,42 @@ public class ScrimService {
     private final JsonPersistenceManager persistenceManager;
     private final DomainEventBus eventBus;
     private final UserService userService;
+    // Lock por scrim: hace atómico el leer-modificar-guardar de cada transición
+    private final StripedLocks scrimLocks;
+    // Reintentos ante conflictos de versión (concurrencia optimista)
+    private final int maxConflictRetries;
+    private final MeterRegistry meterRegistry;
     private final String SCRIMS_FILE = "scrims.json";
     private final String POSTULACIONES_FILE = "postulaciones.json";
     private final String ESTADISTICAS_FILE = "estadisticas.json";
+    private final String USERS_FILE = "users.json";
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    // Eventos decididos con el lock de cada scrim y todavia sin publicar, en el orden de las transiciones
+    private final Map<UUID, EventosPendientes> porPublicar = new ConcurrentHashMap<>();
 
     public ScrimService(JsonPersistenceManager persistenceManager,
                         DomainEventBus eventBus,
-                        UserService userService) {
+                        UserService userService,
+                        StripedLocks scrimLocks,
+                        MeterRegistry meterRegistry,
+                        @Value("${scrims.page.default-size:20}") int defaultPageSize,
+                        @Value("${scrims.page.max-size:100}") int maxPageSize,
+                        @Value("${scrims.conflict-retries:3}") int maxConflictRetries) {
         this.persistenceManager = persistenceManager;
         this.eventBus = eventBus;
         this.userService = userService;
+        this.scrimLocks = scrimLocks;
+        this.meterRegistry = meterRegistry;
+        this.maxConflictRetries = maxConflictRetries;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     /**
      * Crea un nuevo Scrim y PUBLICA el evento ScrimCreatedEvent.
      */
     public Scrim createScrim(ScrimCreateRequest dto, User organizador) throws IOException {
-        List<Scrim> scrims = persistenceManager.readCollection(SCRIMS_FILE, Scrim.class);
-
         Scrim newScrim = new Scrim();
         newScrim.setId(UUID.randomUUID());
         newScrim.setOrganizadorId(organizador.getId());
@@ -73,15 +108,16 @@ public class ScrimService {
         newScrim.setMatchmakingStrategyType(dto.getMatchmakingStrategyType());
         newScrim.setEstado(ScrimStateEnum.BUSCANDO);
         newScrim.setRecordatorioEnviado(false); // Asegurar default
+        newScrim.setFechaCreacion(LocalDateTime.now());
 
-        scrims.add(newScrim);
-        persistenceManager.writeCollection(SCRIMS_FILE, scrims);
+        persistenceManager.save(SCRIMS_FILE, newScrim);
 
         // --- LOG DE AUDITORIA ---
         logger.info("[AUDIT] Usuario '{}' (ID: {}) creó Scrim '{}'", organizador.getUsername(), organizador.getId(), newScrim.getId());
         
-        eventBus.publish(new ScrimCreatedEvent(newScrim));
-        logger.info("Evento ScrimCreatedEvent publicado para Scrim {}.", newScrim.getId()); // Log de evento
+        // Por la misma fila que las transiciones, para que ninguna se publique antes que este
+        encolarEvento(newScrim.getId(), new ScrimCreatedEvent(newScrim));
+        publicarPendientes(newScrim.getId());
 
         return newScrim;
     }
@@ -94,11 +130,13 @@ public class ScrimService {
      * @throws ScrimNotFoundException Si no se encuentra.
      */
     public Scrim findScrimById(UUID scrimId) throws IOException {
-        // Usamos un ReadLock
-        List<Scrim> scrims = persistenceManager.readCollection(SCRIMS_FILE, Scrim.class);
-        return scrims.stream()
-                .filter(s -> s.getId().equals(scrimId))
-                .findFirst()
+        // Búsqueda O(1) por el índice de clave primaria
+        Optional<Scrim> scrim = persistenceManager.findById(SCRIMS_FILE, Scrim.class, scrimId);
+        if (scrim.isPresent()) {
+            return scrim.get();
+        }
+        // Si no está en el working set puede estar archivado (historial)
+        return persistenceManager.findArchived(SCRIMS_FILE, Scrim.class, scrimId).stream().findFirst()
                 .orElseThrow(() -> new ScrimNotFoundException("No se encontró el Scrim con ID: " + scrimId));
     }
 
@@ -115,59 +153,182 @@ public class ScrimService {
             Optional<Formato> formato,
             Optional<LocalDate> fecha) throws IOException {
 
-        List<Scrim> scrims = persistenceManager.readCollection(SCRIMS_FILE, Scrim.class);
-        Stream<Scrim> stream = scrims.stream();
+        Map<String, String> criteria = searchCriteria(juego, region, rangoMin, rangoMax, formato, fecha);
+        criteria.put(CollectionDefinition.SCRIMS_ABIERTOS, CollectionDefinition.indexKey());
+        return persistenceManager.findByIndexes(SCRIMS_FILE, Scrim.class, criteria, latenciaFilter(latenciaMax));
+    }
 
-        // Aplicar filtros
-        if (juego.isPresent()) {
-            String juegoFilter = juego.get();
-            stream = stream.filter(s -> s.getJuego() != null && s.getJuego().equalsIgnoreCase(juegoFilter));
-        }
-        if (region.isPresent()) {
-            String regionFilter = region.get();
-            stream = stream.filter(s -> s.getRegion() != null && s.getRegion().equalsIgnoreCase(regionFilter));
-        }
-        if (latenciaMax.isPresent()) {
-            Integer latenciaFilter = latenciaMax.get();
-            stream = stream.filter(s -> s.getLatenciaMax() != null && s.getLatenciaMax() <= latenciaFilter);
-        }
-        if (rangoMin.isPresent()) {
-            String rangoMinFilter = rangoMin.get();
-            stream = stream.filter(s -> s.getRangoMin() != null && s.getRangoMin().equalsIgnoreCase(rangoMinFilter));
-        }
-        if (rangoMax.isPresent()) {
-            String rangoMaxFilter = rangoMax.get();
-            stream = stream.filter(s -> s.getRangoMax() != null && s.getRangoMax().equalsIgnoreCase(rangoMaxFilter));
+    /**
+     * Igual que findScrims, pero devuelve una sola página ordenada (paginación por cursor).
+     * Solo se recorre el índice ordenado hasta llenar la página, sin armar la lista completa.
+     *
+     * @param cursor Cursor opaco devuelto en la página anterior (vacío para la primera).
+     * @param limit Tamaño de página (se limita a scrims.page.max-size).
+     * @throws InvalidTokenException Si el cursor es inválido o es de otro orden.
+     */
+    public ScrimPage findScrimsPage(
+            Optional<String> juego, Optional<String> region,
+            Optional<String> rangoMin, Optional<String> rangoMax,
+            Optional<Integer> latenciaMax,
+            Optional<Formato> formato,
+            Optional<LocalDate> fecha,
+            ScrimSort sort, Optional<String> cursor, Optional<Integer> limit) throws IOException {
+
+        int pageSize = Math.max(1, Math.min(limit.orElse(defaultPageSize), maxPageSize));
+        String afterKey = cursor.map(c -> decodeCursor(c, sort)).orElse(null);
+        String sortedIndex = sort == ScrimSort.CREACION
+                ? CollectionDefinition.SCRIMS_ABIERTOS_ORDEN_CREACION
+                : CollectionDefinition.SCRIMS_ABIERTOS_ORDEN_FECHA_HORA;
+
+        CollectionRepository.IndexPage<Scrim> page = persistenceManager.findPage(SCRIMS_FILE, Scrim.class,
+                sortedIndex, sort == ScrimSort.CREACION,
+                searchCriteria(juego, region, rangoMin, rangoMax, formato, fecha), latenciaFilter(latenciaMax),
+                afterKey, pageSize);
+
+        String nextCursor = page.nextKey() != null ? encodeCursor(page.nextKey(), sort) : null;
+        return new ScrimPage(page.items(), nextCursor, page.totalEstimate());
+    }
+
+    /**
+     * Criterios de búsqueda sobre los índices de scrims abiertos (BUSCANDO / LOBBY_ARMADO):
+     * los índices no incluyen los demás estados, así que solo se intersectan listas de candidatos.
+     */
+    private Map<String, String> searchCriteria(Optional<String> juego, Optional<String> region,
+                                               Optional<String> rangoMin, Optional<String> rangoMax,
+                                               Optional<Formato> formato, Optional<LocalDate> fecha) {
+        Map<String, String> criteria = new LinkedHashMap<>();
+        juego.ifPresent(j -> criteria.put(CollectionDefinition.SCRIMS_ABIERTOS_BY_JUEGO, CollectionDefinition.normalize(j)));
+        region.ifPresent(r -> criteria.put(CollectionDefinition.SCRIMS_ABIERTOS_BY_REGION, CollectionDefinition.normalize(r)));
+        rangoMin.ifPresent(r -> criteria.put(CollectionDefinition.SCRIMS_ABIERTOS_BY_RANGO_MIN, CollectionDefinition.normalize(r)));
+        rangoMax.ifPresent(r -> criteria.put(CollectionDefinition.SCRIMS_ABIERTOS_BY_RANGO_MAX, CollectionDefinition.normalize(r)));
+        formato.ifPresent(f -> criteria.put(CollectionDefinition.SCRIMS_ABIERTOS_BY_FORMATO, CollectionDefinition.indexKey(f)));
+        fecha.ifPresent(f -> criteria.put(CollectionDefinition.SCRIMS_ABIERTOS_BY_FECHA, CollectionDefinition.indexKey(f)));
+        return criteria;
+    }
+
+    // La latencia es un rango: se evalúa sobre los candidatos ya intersectados
+    private Predicate<Scrim> latenciaFilter(Optional<Integer> latenciaMax) {
+        return latenciaMax
+                .<Predicate<Scrim>>map(max -> s -> s.getLatenciaMax() != null && s.getLatenciaMax() <= max)
+                .orElse(null);
+    }
+
+    // El cursor es opaco para el cliente: "<orden>:<clave del índice>" en Base64 URL-safe
+    private String encodeCursor(String indexKey, ScrimSort sort) {
+        String raw = sort.name() + ":" + indexKey;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String decodeCursor(String cursor, ScrimSort sort) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTokenException("Cursor de paginación inválido.");
         }
-        
-        // --- NUEVOS FILTROS ---
-        if (formato.isPresent()) {
-            Formato formatoFilter = formato.get();
-            stream = stream.filter(s -> s.getFormato() != null && s.getFormato() == formatoFilter);
+        String prefix = sort.name() + ":";
+        if (!raw.startsWith(prefix)) {
+            throw new InvalidTokenException("El cursor no corresponde al orden pedido (" + sort + ").");
         }
-        if (fecha.isPresent()) {
-            LocalDate fechaFilter = fecha.get();
-            stream = stream.filter(s -> s.getFechaHora() != null &&
-                                        s.getFechaHora().toLocalDate().isEqual(fechaFilter));
+        return raw.substring(prefix.length());
+    }
+
+    /**
+     * Ejecuta una transición de un scrim con su lock tomado. Si falla por conflicto de versión
+     * (otro request lo guardó en el medio) se vuelve a ejecutar completa, releyendo los datos,
+     * hasta scrims.conflict-retries veces. Los eventos que encola se publican después de
+     * soltar el lock.
+     */
+    private void runTransition(String operation, UUID scrimId, StripedLocks.LockedAction action) throws IOException {
+        try {
+            scrimLocks.runWithLock(scrimId, () -> {
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        action.run();
+                        return;
+                    } catch (OptimisticLockException e) {
+                        meterRegistry.counter("scrims.optimistic.conflicts", "operation", operation).increment();
+                        if (attempt > maxConflictRetries) {
+                            meterRegistry.counter("scrims.optimistic.exhausted", "operation", operation).increment();
+                            throw e;
+                        }
+                        logger.warn("Conflicto de versión en {} para Scrim {} (intento {}). Reintentando.", operation, scrimId, attempt);
+                    }
+                }
+            });
+        } finally {
+            publicarPendientes(scrimId);
         }
-        // --- FIN NUEVOS FILTROS ---
+    }
+
+    /**
+     * Con el lock del scrim tomado: deja el evento en la fila del scrim. No se publica acá
+     * porque publish puede esperar lugar en el carril del bus, y con el lock tomado
+     * frenaría las demás transiciones del scrim.
+     */
+    private void encolarEvento(UUID scrimId, DomainEvent event) {
+        porPublicar.compute(scrimId, (id, fila) -> {
+            EventosPendientes pendientes = fila != null ? fila : new EventosPendientes();
+            pendientes.eventos.add(event);
+            return pendientes;
+        });
+    }
 
-        return stream
-                .filter(s -> s.getEstado() == ScrimStateEnum.BUSCANDO || s.getEstado() == ScrimStateEnum.LOBBY_ARMADO)
-                .collect(Collectors.toList());
+    /**
+     * Sin el lock del scrim: publica la fila del scrim en orden. Si otro hilo ya la está
+     * publicando, ese hilo publica también los eventos nuevos (así dos transiciones
+     * seguidas no se publican al revés).
+     */
+    private void publicarPendientes(UUID scrimId) {
+        boolean publicando = false;
+        while (true) {
+            boolean propio = publicando;
+            DomainEvent[] siguiente = new DomainEvent[1];
+            porPublicar.computeIfPresent(scrimId, (id, fila) -> {
+                if (fila.publicando && !propio) {
+                    return fila;
+                }
+                siguiente[0] = fila.eventos.poll();
+                if (siguiente[0] == null) {
+                    return null; // Vacía: se borra
+                }
+                fila.publicando = true;
+                return fila;
+            });
+            if (siguiente[0] == null) {
+                return;
+            }
+            publicando = true;
+            try {
+                eventBus.publish(siguiente[0]);
+                logger.info("Evento {} publicado para Scrim {}", siguiente[0].getClass().getSimpleName(), scrimId);
+            } catch (RuntimeException e) {
+                logger.error("No se pudo publicar el evento {} del Scrim {}: {}",
+                             siguiente[0].getClass().getSimpleName(), scrimId, e.getMessage(), e);
+            }
+        }
     }
 
     /**
      * Permite a un usuario postularse a un Scrim y PUBLICA LobbyArmadoEvent si se llena.
+     * No se reintenta ante conflictos: la postulación ya quedó guardada, así que si el
+     * scrim cambió en el medio el conflicto se informa (409) en lugar de volver a postular.
      */
     public Postulacion postularse(UUID scrimId, PostulacionRequest dto, User jugador) throws IOException {
-        List<Scrim> currentScrims = persistenceManager.readCollection(SCRIMS_FILE, Scrim.class);
-        Optional<Scrim> scrimOpt = currentScrims.stream().filter(s -> s.getId().equals(scrimId)).findFirst();
+        try {
+            return scrimLocks.withLock(scrimId, () -> postularseLocked(scrimId, dto, jugador));
+        } finally {
+            publicarPendientes(scrimId);
+        }
+    }
+
+    private Postulacion postularseLocked(UUID scrimId, PostulacionRequest dto, User jugador) throws IOException {
+        Optional<Scrim> scrimOpt = persistenceManager.findById(SCRIMS_FILE, Scrim.class, scrimId);
         if (scrimOpt.isEmpty()) { /* ... */ throw new ScrimNotFoundException("No se encontró el Scrim con ID: " + scrimId); }
         Scrim scrim = scrimOpt.get();
         if (scrim.getEstado() != ScrimStateEnum.BUSCANDO) { /* ... */ throw new InvalidScrimStateException("No te puedes postular..."); }
-        List<Postulacion> postulaciones = persistenceManager.readCollection(POSTULACIONES_FILE, Postulacion.class);
-        boolean yaPostulado = postulaciones.stream().anyMatch(p -> p.getScrimId().equals(scrimId) && p.getUsuarioId().equals(jugador.getId()));
+        boolean yaPostulado = persistenceManager.countByIndex(POSTULACIONES_FILE, Postulacion.class,
+                CollectionDefinition.POSTULACIONES_BY_SCRIM_AND_USER, scrimId, jugador.getId()) > 0;
         if (yaPostulado) { /* ... */ throw new InvalidScrimStateException("Ya te has postulado..."); }
         if (scrim.getOrganizadorId().equals(jugador.getId())) { /* ... */ throw new InvalidScrimStateException("No te puedes postular..."); }
         
@@ -181,25 +342,24 @@ public class ScrimService {
         newPostulacion.setFechaPostulacion(LocalDateTime.now());
         newPostulacion.setEstado(PostulacionState.PENDIENTE);
         
-        postulaciones.add(newPostulacion);
-        
-        long postulantesActivos = postulaciones.stream()
-                .filter(p -> p.getScrimId().equals(scrimId) && (p.getEstado() == PostulacionState.PENDIENTE || p.getEstado() == PostulacionState.ACEPTADA))
-                .count();
+        persistenceManager.save(POSTULACIONES_FILE, newPostulacion);
+
+        // Contadores por estado mantenidos por el índice (ya incluyen la nueva postulación)
+        long postulantesActivos = countPostulaciones(scrimId, PostulacionState.PENDIENTE)
+                + countPostulaciones(scrimId, PostulacionState.ACEPTADA);
         boolean cupoLleno = (scrim.getCupo() != null) && (postulantesActivos + 1) >= scrim.getCupo();
         
-        persistenceManager.writeCollection(POSTULACIONES_FILE, postulaciones);
         logger.info("[EVENTO] Nueva postulación para Scrim {} por {}", scrim.getId(), jugador.getUsername());
         
         if (cupoLleno && scrim.getEstado() == ScrimStateEnum.BUSCANDO) {
             logger.info("[INFO] Cupo lleno para Scrim {}. Cambiando estado y publicando evento.", scrim.getId());
             scrim.setEstado(ScrimStateEnum.LOBBY_ARMADO);
             try {
-                persistenceManager.writeCollection(SCRIMS_FILE, currentScrims);
+                persistenceManager.save(SCRIMS_FILE, scrim);
                 logger.info("[EVENTO] Scrim cambió a LOBBY_ARMADO (Cupo Lleno): {}", scrim.getId());
-                eventBus.publish(new LobbyArmadoEvent(scrim));
-                logger.info("Evento LobbyArmadoEvent publicado para Scrim {}", scrim.getId());
+                encolarEvento(scrimId, new LobbyArmadoEvent(scrim, organizador(scrim), participantes(scrimId)));
             } catch (IOException e) { /* ... */ scrim.setEstado(ScrimStateEnum.BUSCANDO); throw e; }
+              catch (OptimisticLockException e) { scrim.setEstado(ScrimStateEnum.BUSCANDO); throw e; } // Se informa como 409
               catch (Exception e) { /* ... */ }
         }
         return newPostulacion;
@@ -210,14 +370,17 @@ public class ScrimService {
      * Confirma la participación y PUBLICA ScrimConfirmadoEvent si todos confirman.
      */
     public void confirmar(UUID scrimId, User jugador) throws IOException {
-        List<Scrim> currentScrims = persistenceManager.readCollection(SCRIMS_FILE, Scrim.class);
-        Optional<Scrim> scrimOpt = currentScrims.stream().filter(s -> s.getId().equals(scrimId)).findFirst();
+        runTransition("confirmar", scrimId, () -> confirmarLocked(scrimId, jugador));
+    }
+
+    private void confirmarLocked(UUID scrimId, User jugador) throws IOException {
+        Optional<Scrim> scrimOpt = persistenceManager.findById(SCRIMS_FILE, Scrim.class, scrimId);
         if (scrimOpt.isEmpty()) { /* ... */ throw new ScrimNotFoundException("No se encontró el Scrim con ID: " + scrimId); }
         Scrim scrim = scrimOpt.get();
         if (scrim.getEstado() != ScrimStateEnum.LOBBY_ARMADO) { /* ... */ throw new InvalidScrimStateException("No se puede confirmar..."); }
         
-        List<Postulacion> currentPostulaciones = persistenceManager.readCollection(POSTULACIONES_FILE, Postulacion.class);
-        Optional<Postulacion> postulacionOpt = currentPostulaciones.stream().filter(p -> p.getScrimId().equals(scrimId) && p.getUsuarioId().equals(jugador.getId())).findFirst();
+        Optional<Postulacion> postulacionOpt = persistenceManager.findByIndex(POSTULACIONES_FILE, Postulacion.class,
+                CollectionDefinition.POSTULACIONES_BY_SCRIM_AND_USER, scrimId, jugador.getId()).stream().findFirst();
         if (postulacionOpt.isEmpty()) { /* ... */ throw new InvalidScrimStateException("No se encontró tu postulación..."); }
         Postulacion postulacion = postulacionOpt.get();
         if (postulacion.getEstado() == PostulacionState.RECHAZADA) { /* ... */ throw new InvalidScrimStateException("Tu postulación fue rechazada..."); }
@@ -225,23 +388,23 @@ public class ScrimService {
         boolean wasAlreadyAccepted = postulacion.getEstado() == PostulacionState.ACEPTADA;
         if (!wasAlreadyAccepted) {
             postulacion.setEstado(PostulacionState.ACEPTADA);
-            persistenceManager.writeCollection(POSTULACIONES_FILE, currentPostulaciones);
+            persistenceManager.save(POSTULACIONES_FILE, postulacion);
             logger.info("[EVENTO] Jugador {} confirmó (Postulación ACEPTADA) para Scrim {}", jugador.getUsername(), scrimId);
         } else {
              logger.info("Jugador {} ya había confirmado para Scrim {}", jugador.getUsername(), scrimId);
         }
 
-        long aceptados = currentPostulaciones.stream().filter(p -> p.getScrimId().equals(scrimId) && p.getEstado() == PostulacionState.ACEPTADA).count();
+        long aceptados = countPostulaciones(scrimId, PostulacionState.ACEPTADA);
         boolean todosConfirmados = (scrim.getCupo() != null) && (aceptados + 1) >= scrim.getCupo();
 
         if (todosConfirmados && scrim.getEstado() == ScrimStateEnum.LOBBY_ARMADO) {
             scrim.setEstado(ScrimStateEnum.CONFIRMADO);
             try {
-                persistenceManager.writeCollection(SCRIMS_FILE, currentScrims);
+                persistenceManager.save(SCRIMS_FILE, scrim);
                 logger.info("[EVENTO] ¡Todos confirmaron! Scrim cambió a CONFIRMADO: {}", scrim.getId());
-                eventBus.publish(new ScrimConfirmadoEvent(scrim));
-                logger.info("Evento ScrimConfirmadoEvent publicado para Scrim {}", scrim.getId());
+                encolarEvento(scrimId, new ScrimConfirmadoEvent(scrim, organizador(scrim), participantes(scrimId)));
             } catch (IOException e) { /* ... */ scrim.setEstado(ScrimStateEnum.LOBBY_ARMADO); throw e; }
+              catch (OptimisticLockException e) { scrim.setEstado(ScrimStateEnum.LOBBY_ARMADO); throw e; } // Lo reintenta runTransition
               catch (Exception e) { /* ... */ }
         } else if (!wasAlreadyAccepted) {
             logger.info("Aún faltan confirmaciones para Scrim {}. Aceptados: {}/{}", scrimId, aceptados, (scrim.getCupo() != null ? scrim.getCupo() - 1 : "?"));
@@ -253,8 +416,11 @@ public class ScrimService {
      * Inicia manualmente un Scrim y PUBLICA ScrimIniciadoEvent.
      */
     public void iniciarScrim(UUID scrimId, @Nullable User actor) throws IOException {
-        List<Scrim> currentScrims = persistenceManager.readCollection(SCRIMS_FILE, Scrim.class);
-        Optional<Scrim> scrimOpt = currentScrims.stream().filter(s -> s.getId().equals(scrimId)).findFirst();
+        runTransition("iniciarScrim", scrimId, () -> iniciarScrimLocked(scrimId, actor));
+    }
+
+    private void iniciarScrimLocked(UUID scrimId, @Nullable User actor) throws IOException {
+        Optional<Scrim> scrimOpt = persistenceManager.findById(SCRIMS_FILE, Scrim.class, scrimId);
          
         if (scrimOpt.isEmpty()) {
              if (actor != null) { throw new ScrimNotFoundException("No se encontró el Scrim con ID: " + scrimId); }
@@ -277,12 +443,12 @@ public class ScrimService {
         ScrimStateEnum estadoAnterior = scrim.getEstado();
         scrim.setEstado(ScrimStateEnum.EN_JUEGO);
         try {
-            persistenceManager.writeCollection(SCRIMS_FILE, currentScrims);
+            persistenceManager.save(SCRIMS_FILE, scrim);
             String actorName = actor != null ? actor.getUsername() : "SISTEMA";
             logger.info("[AUDIT] Scrim {} fue INICIADO por Actor: {}", scrim.getId(), actorName);
-            eventBus.publish(new ScrimIniciadoEvent(scrim));
-            logger.info("Evento ScrimIniciadoEvent publicado para Scrim {}", scrim.getId());
+            encolarEvento(scrimId, new ScrimIniciadoEvent(scrim, organizador(scrim), participantes(scrimId)));
         } catch (IOException e) { /* ... */ scrim.setEstado(estadoAnterior); throw e; }
+          catch (OptimisticLockException e) { scrim.setEstado(estadoAnterior); throw e; } // Lo reintenta runTransition
           catch (Exception e) { /* ... */ }
     }
 
@@ -291,8 +457,11 @@ public class ScrimService {
      * Cancela un Scrim y PUBLICA ScrimCanceladoEvent.
      */
     public void cancelarScrim(UUID scrimId, User organizador) throws IOException {
-        List<Scrim> currentScrims = persistenceManager.readCollection(SCRIMS_FILE, Scrim.class);
-        Optional<Scrim> scrimOpt = currentScrims.stream().filter(s -> s.getId().equals(scrimId)).findFirst();
+        runTransition("cancelarScrim", scrimId, () -> cancelarScrimLocked(scrimId, organizador));
+    }
+
+    private void cancelarScrimLocked(UUID scrimId, User organizador) throws IOException {
+        Optional<Scrim> scrimOpt = persistenceManager.findById(SCRIMS_FILE, Scrim.class, scrimId);
          if (scrimOpt.isEmpty()) { /* ... */ throw new ScrimNotFoundException("No se encontró el Scrim..."); }
         Scrim scrim = scrimOpt.get();
         if (!scrim.getOrganizadorId().equals(organizador.getId())) { /* ... */ throw new UnauthorizedException("Solo el organizador..."); }
@@ -305,11 +474,11 @@ public class ScrimService {
         ScrimStateEnum estadoAnterior = scrim.getEstado();
         scrim.setEstado(ScrimStateEnum.CANCELADO);
         try {
-             persistenceManager.writeCollection(SCRIMS_FILE, currentScrims);
+             persistenceManager.save(SCRIMS_FILE, scrim);
              logger.info("[AUDIT] Usuario '{}' (ID: {}) canceló Scrim '{}'", organizador.getUsername(), organizador.getId(), scrim.getId());
-             eventBus.publish(new ScrimCanceladoEvent(scrim));
-             logger.info("Evento ScrimCanceladoEvent publicado para Scrim {}", scrim.getId());
+             encolarEvento(scrimId, new ScrimCanceladoEvent(scrim, organizador(scrim), participantes(scrimId)));
         } catch (IOException e) { /* ... */ scrim.setEstado(estadoAnterior); throw e; }
+          catch (OptimisticLockException e) { scrim.setEstado(estadoAnterior); throw e; } // Lo reintenta runTransition
           catch (Exception e) { /* ... */ }
     }
 
@@ -317,8 +486,11 @@ public class ScrimService {
      * Finaliza un Scrim y PUBLICA ScrimFinalizadoEvent.
      */
     public void finalizarScrim(UUID scrimId, User organizador) throws IOException {
-         List<Scrim> currentScrims = persistenceManager.readCollection(SCRIMS_FILE, Scrim.class);
-        Optional<Scrim> scrimOpt = currentScrims.stream().filter(s -> s.getId().equals(scrimId)).findFirst();
+        runTransition("finalizarScrim", scrimId, () -> finalizarScrimLocked(scrimId, organizador));
+    }
+
+    private void finalizarScrimLocked(UUID scrimId, User organizador) throws IOException {
+        Optional<Scrim> scrimOpt = persistenceManager.findById(SCRIMS_FILE, Scrim.class, scrimId);
          if (scrimOpt.isEmpty()) { /* ... */ throw new ScrimNotFoundException("No se encontró el Scrim..."); }
         Scrim scrim = scrimOpt.get();
         if (!scrim.getOrganizadorId().equals(organizador.getId())) { /* ... */ throw new UnauthorizedException("Solo el organizador..."); }
@@ -327,11 +499,11 @@ public class ScrimService {
         ScrimStateEnum estadoAnterior = scrim.getEstado();
         scrim.setEstado(ScrimStateEnum.FINALIZADO);
         try {
-            persistenceManager.writeCollection(SCRIMS_FILE, currentScrims);
+            persistenceManager.save(SCRIMS_FILE, scrim);
             logger.info("[AUDIT] Usuario '{}' (ID: {}) finalizó Scrim '{}'", organizador.getUsername(), organizador.getId(), scrim.getId());
-            eventBus.publish(new ScrimFinalizadoEvent(scrim));
-            logger.info("Evento ScrimFinalizadoEvent publicado para Scrim {}", scrim.getId());
+            encolarEvento(scrimId, new ScrimFinalizadoEvent(scrim, organizador(scrim), participantes(scrimId)));
         } catch (IOException e) { /* ... */ scrim.setEstado(estadoAnterior); throw e; }
+          catch (OptimisticLockException e) { scrim.setEstado(estadoAnterior); throw e; } // Lo reintenta runTransition
           catch (Exception e) { /* ... */ }
     }
 
@@ -339,15 +511,18 @@ public class ScrimService {
      * Guarda las estadísticas para un Scrim finalizado.
      */
     public void guardarEstadisticas(UUID scrimId, List<EstadisticaRequest> statsRequests, User organizador) throws IOException {
-        List<Scrim> scrims = persistenceManager.readCollection(SCRIMS_FILE, Scrim.class);
-        Scrim scrim = scrims.stream().filter(s -> s.getId().equals(scrimId)).findFirst()
-                .orElseThrow(() -> new ScrimNotFoundException("No se encontró el Scrim con ID: " + scrimId));
+        runTransition("guardarEstadisticas", scrimId, () -> guardarEstadisticasLocked(scrimId, statsRequests, organizador));
+    }
+
+    private void guardarEstadisticasLocked(UUID scrimId, List<EstadisticaRequest> statsRequests, User organizador) throws IOException {
+        Scrim scrim = findScrimById(scrimId);
 
         if (!scrim.getOrganizadorId().equals(organizador.getId())) { /* ... */ throw new UnauthorizedException("Solo el organizador..."); }
         if (scrim.getEstado() != ScrimStateEnum.FINALIZADO) { /* ... */ throw new InvalidScrimStateException("Solo se pueden subir stats..."); }
 
-        List<Estadistica> allStats = persistenceManager.readCollection(ESTADISTICAS_FILE, Estadistica.class);
-        boolean alreadyExists = allStats.stream().anyMatch(s -> s.getScrimId().equals(scrimId));
+        boolean alreadyExists = persistenceManager.countByIndex(ESTADISTICAS_FILE, Estadistica.class,
+                CollectionDefinition.ESTADISTICAS_BY_SCRIM, scrimId) > 0
+                || !persistenceManager.findArchived(ESTADISTICAS_FILE, Estadistica.class, scrimId).isEmpty();
         if (alreadyExists) {
              logger.warn("[WARN] Ya existen estadísticas para el Scrim: {}. No se guardarán de nuevo.", scrimId);
              return;
@@ -373,8 +548,11 @@ public class ScrimService {
         }
 
         if (!newStats.isEmpty()) {
-            allStats.addAll(newStats);
-            persistenceManager.writeCollection(ESTADISTICAS_FILE, allStats);
+            // Se guarda cada estadística por separado: reescribir la lista completa
+            // podría pisar las de otro scrim guardadas en paralelo
+            for (Estadistica stat : newStats) {
+                persistenceManager.save(ESTADISTICAS_FILE, stat);
+            }
             logger.info("[AUDIT] Usuario '{}' (ID: {}) guardó {} entradas de estadísticas para Scrim '{}'", 
                         organizador.getUsername(), organizador.getId(), newStats.size(), scrimId);
         } else {
@@ -386,13 +564,11 @@ public class ScrimService {
     // --- MÉTODOS DEL SCHEDULER ---
     
     public List<Scrim> findScrimsToAutoStart() throws IOException {
-        List<Scrim> currentScrims = persistenceManager.readCollection(SCRIMS_FILE, Scrim.class);
         LocalDateTime now = LocalDateTime.now();
-        return currentScrims.stream()
-                .filter(s -> s.getEstado() == ScrimStateEnum.CONFIRMADO &&
-                             s.getFechaHora() != null &&
-                             s.getFechaHora().isBefore(now))
-                .collect(Collectors.toList());
+        return persistenceManager.findMatching(SCRIMS_FILE, Scrim.class,
+                s -> s.getEstado() == ScrimStateEnum.CONFIRMADO &&
+                     s.getFechaHora() != null &&
+                     s.getFechaHora().isBefore(now));
     }
 
     /**
@@ -401,16 +577,57 @@ public class ScrimService {
      * --- MÉTODO MODIFICADO ---
      */
     public List<Scrim> findScrimsForReminder(int soon_hours) throws IOException { // <-- Firma corregida (1 parámetro)
-        List<Scrim> currentScrims = persistenceManager.readCollection(SCRIMS_FILE, Scrim.class);
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime reminderWindowEnd = now.plusHours(soon_hours);
-        return currentScrims.stream()
-                .filter(s -> s.getEstado() == ScrimStateEnum.CONFIRMADO &&
-                             !s.isRecordatorioEnviado() && // <-- Lógica corregida
-                             s.getFechaHora() != null &&
-                             s.getFechaHora().isAfter(now) &&
-                             s.getFechaHora().isBefore(reminderWindowEnd))
-                .collect(Collectors.toList());
+        return persistenceManager.findMatching(SCRIMS_FILE, Scrim.class,
+                s -> s.getEstado() == ScrimStateEnum.CONFIRMADO &&
+                     !s.isRecordatorioEnviado() && // <-- Lógica corregida
+                     s.getFechaHora() != null &&
+                     s.getFechaHora().isAfter(now) &&
+                     s.getFechaHora().isBefore(reminderWindowEnd));
+    }
+
+    /**
+     * Archiva los scrims FINALIZADO/CANCELADO cuya fecha (o la de creación, si no tienen)
+     * es anterior a minAge, junto con sus postulaciones y estadísticas, en la partición
+     * del mes del scrim. Así dejan de ocupar memoria y de recorrerse en las búsquedas;
+     * findScrimById y findParticipantsForScrim los siguen encontrando.
+     *
+     * @return Cantidad de scrims archivados (sin contar los que cambiaron mientras tanto).
+     */
+    public int archiveFinishedScrims(Duration minAge) throws IOException {
+        LocalDateTime cutoff = LocalDateTime.now().minus(minAge);
+        List<Scrim> scrims = persistenceManager.findMatching(SCRIMS_FILE, Scrim.class,
+                s -> (s.getEstado() == ScrimStateEnum.FINALIZADO || s.getEstado() == ScrimStateEnum.CANCELADO) &&
+                     fechaArchivo(s) != null &&
+                     fechaArchivo(s).isBefore(cutoff));
+        if (scrims.isEmpty()) {
+            return 0;
+        }
+
+        Map<UUID, YearMonth> partitions = new LinkedHashMap<>();
+        List<Postulacion> postulaciones = new ArrayList<>();
+        List<Estadistica> estadisticas = new ArrayList<>();
+        for (Scrim scrim : scrims) {
+            partitions.put(scrim.getId(), YearMonth.from(fechaArchivo(scrim)));
+            postulaciones.addAll(persistenceManager.findByIndex(POSTULACIONES_FILE, Postulacion.class,
+                    CollectionDefinition.POSTULACIONES_BY_SCRIM, scrim.getId()));
+            estadisticas.addAll(persistenceManager.findByIndex(ESTADISTICAS_FILE, Estadistica.class,
+                    CollectionDefinition.ESTADISTICAS_BY_SCRIM, scrim.getId()));
+        }
+
+        // Primero lo que cuelga de cada scrim y al final el scrim: si se corta en el medio,
+        // el scrim sigue activo y la próxima corrida completa el archivado
+        persistenceManager.archive(POSTULACIONES_FILE, Postulacion.class, postulaciones,
+                Postulacion::getScrimId, p -> partitions.get(p.getScrimId()));
+        persistenceManager.archive(ESTADISTICAS_FILE, Estadistica.class, estadisticas,
+                Estadistica::getScrimId, e -> partitions.get(e.getScrimId()));
+        return persistenceManager.archive(SCRIMS_FILE, Scrim.class, scrims,
+                Scrim::getId, s -> partitions.get(s.getId()));
+    }
+
+    private static LocalDateTime fechaArchivo(Scrim scrim) {
+        return scrim.getFechaHora() != null ? scrim.getFechaHora() : scrim.getFechaCreacion();
     }
 
     /**
@@ -419,26 +636,65 @@ public class ScrimService {
     public List<User> findParticipantsForScrim(UUID scrimId, UUID organizadorId) throws IOException {
         List<User> participants = new ArrayList<>();
         userService.findUserById(organizadorId).ifPresent(participants::add);
-        List<Postulacion> postulaciones = persistenceManager.readCollection(POSTULACIONES_FILE, Postulacion.class);
-        postulaciones.stream()
-                .filter(p -> p.getScrimId().equals(scrimId) && p.getEstado() == PostulacionState.ACEPTADA)
-                .forEach(p -> userService.findUserById(p.getUsuarioId()).ifPresent(participants::add));
+        List<Postulacion> aceptadas = persistenceManager.findByIndex(POSTULACIONES_FILE, Postulacion.class,
+                CollectionDefinition.POSTULACIONES_BY_SCRIM_AND_STATE, scrimId, PostulacionState.ACEPTADA);
+        if (aceptadas.isEmpty()) {
+            // Scrim archivado: sus postulaciones se archivan juntas
+            aceptadas = persistenceManager.findArchived(POSTULACIONES_FILE, Postulacion.class, scrimId).stream()
+                    .filter(p -> p.getEstado() == PostulacionState.ACEPTADA)
+                    .collect(Collectors.toList());
+        }
+        aceptadas.forEach(p -> userService.findUserById(p.getUsuarioId()).ifPresent(participants::add));
         return participants.stream().distinct().collect(Collectors.toList());
     }
     
+    /**
+     * Cantidad de postulaciones de un scrim en un estado (contador del índice, O(1)).
+     */
+    private long countPostulaciones(UUID scrimId, PostulacionState estado) throws IOException {
+        return persistenceManager.countByIndex(POSTULACIONES_FILE, Postulacion.class,
+                CollectionDefinition.POSTULACIONES_BY_SCRIM_AND_STATE, scrimId, estado);
+    }
+
+    /**
+     * Foto de las postulaciones de un scrim para los eventos, con cada usuario ya resuelto
+     * (se toma con el lock del scrim, así los suscriptores no releen postulaciones ni usuarios).
+     * Si no se pueden leer los usuarios falla la transición, en lugar de publicar un evento
+     * al que le faltan destinatarios.
+     */
+    private List<ParticipanteSnapshot> participantes(UUID scrimId) throws IOException {
+        List<ParticipanteSnapshot> participantes = new ArrayList<>();
+        for (Postulacion postulacion : persistenceManager.findByIndex(POSTULACIONES_FILE, Postulacion.class,
+                CollectionDefinition.POSTULACIONES_BY_SCRIM, scrimId)) {
+            participantes.add(ParticipanteSnapshot.of(postulacion,
+                    persistenceManager.findById(USERS_FILE, User.class, postulacion.getUsuarioId()).orElse(null)));
+        }
+        return participantes;
+    }
+
+    // Organizador del scrim para los eventos (null si ya no existe)
+    private UsuarioSnapshot organizador(Scrim scrim) throws IOException {
+        return persistenceManager.findById(USERS_FILE, User.class, scrim.getOrganizadorId())
+                .map(UsuarioSnapshot::of)
+                .orElse(null);
+    }
+
     /**
      * Marca un scrim como "recordatorio enviado" para evitar spam.
      * --- MÉTODO AÑADIDO ---
      */
     public void marcarRecordatorioComoEnviado(UUID scrimId) throws IOException {
-        List<Scrim> currentScrims = persistenceManager.readCollection(SCRIMS_FILE, Scrim.class);
-        Optional<Scrim> scrimOpt = currentScrims.stream().filter(s -> s.getId().equals(scrimId)).findFirst();
+        runTransition("marcarRecordatorioComoEnviado", scrimId, () -> marcarRecordatorioComoEnviadoLocked(scrimId));
+    }
+
+    private void marcarRecordatorioComoEnviadoLocked(UUID scrimId) throws IOException {
+        Optional<Scrim> scrimOpt = persistenceManager.findById(SCRIMS_FILE, Scrim.class, scrimId);
         if (scrimOpt.isPresent()) {
             Scrim scrim = scrimOpt.get();
             if (!scrim.isRecordatorioEnviado()) {
                 scrim.setRecordatorioEnviado(true);
                 try {
-                    persistenceManager.writeCollection(SCRIMS_FILE, currentScrims);
+                    persistenceManager.save(SCRIMS_FILE, scrim);
                     logger.info("[Scheduler] Flag 'recordatorioEnviado' seteado para Scrim {}", scrimId);
                 } catch (IOException e) {
                      logger.error("[Scheduler] CRITICAL: Error al guardar flag de recordatorio para Scrim {}. Podrían enviarse duplicados.", scrimId, e);
@@ -451,5 +707,10 @@ public class ScrimService {
             logger.warn("[Scheduler] No se pudo encontrar Scrim {} para marcar recordatorio (¿fue borrado?).", scrimId);
         }
     }
-}
 
+    // Fila de eventos de un scrim; 'publicando' indica que un hilo la está vaciando
+    private static final class EventosPendientes {
+        private final ArrayDeque<DomainEvent> eventos = new ArrayDeque<>();
+        private boolean publicando;
+    }
+}
@@ -7,13 +7,19 @@ import com.scrim_pds.model.PreferenciasUsuario;
 import com.scrim_pds.model.Session;
 import com.scrim_pds.model.User;
 import com.scrim_pds.persistence.JsonPersistenceManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory; 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -26,16 +32,41 @@ public class UserService {
     private final String USERS_FILE = "users.json";
     private final String SESSIONS_FILE = "sessions.json";
 
-    public UserService(JsonPersistenceManager persistenceManager) {
+    // Cache token -> (userId, vencimiento), para no buscar la sesion en cada request autenticado.
+    // Solo guarda el ID: el usuario se resuelve siempre por su ID (indice hash), asi los cambios
+    // de perfil y preferencias se ven al instante sin invalidar nada.
+    // LRU (orden de acceso): al llenarse se descarta el token menos usado, en O(1).
+    // Una entrada vence con la sesion (expiresAt) o con el TTL, lo que llegue antes: no hay
+    // cierre de sesion ni revocacion de tokens que obligue a sacarla antes.
+    private final Map<String, CachedSession> sessionCache;
+    private final long sessionCacheTtlSeconds;
+    private final int sessionCacheMaxSize;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    public UserService(JsonPersistenceManager persistenceManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${auth.session-cache.ttl-seconds:300}") long sessionCacheTtlSeconds,
+                       @Value("${auth.session-cache.max-size:10000}") int sessionCacheMaxSize) {
         this.persistenceManager = persistenceManager;
+        this.sessionCacheTtlSeconds = sessionCacheTtlSeconds;
+        this.sessionCacheMaxSize = sessionCacheMaxSize;
+        this.sessionCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedSession> eldest) {
+                return size() > UserService.this.sessionCacheMaxSize;
+            }
+        });
+        this.cacheHits = meterRegistry.counter("auth.session.cache", "result", "hit");
+        this.cacheMisses = meterRegistry.counter("auth.session.cache", "result", "miss");
+        meterRegistry.gaugeMapSize("auth.session.cache.size", List.of(), sessionCache);
     }
 
     // Busca un usuario por su ID.
 
     public Optional<User> findUserById(UUID id) { 
         try {
-            List<User> users = persistenceManager.readCollection(USERS_FILE, User.class);
-            return users.stream().filter(u -> u.getId().equals(id)).findFirst();
+            return persistenceManager.findById(USERS_FILE, User.class, id);
         } catch (IOException e) {
             logger.error("Error al leer el archivo de usuarios (users.json): {}", e.getMessage());
             return Optional.empty(); 
@@ -46,18 +77,28 @@ public class UserService {
     // Busca un usuario valido (no expirado) a partir de un token de sesion.
 
     public Optional<User> findUserByToken(String token) { 
+        LocalDateTime now = LocalDateTime.now();
+        CachedSession cached = sessionCache.get(token);
+        if (cached != null && cached.validUntil().isAfter(now)) {
+            cacheHits.increment();
+            return findUserById(cached.userId());
+        }
+        if (cached != null) {
+            sessionCache.remove(token, cached); // Vencida (TTL de la cache o de la sesion)
+        }
+        cacheMisses.increment();
+
         try {
-            List<Session> sessions = persistenceManager.readCollection(SESSIONS_FILE, Session.class);
-            
-            Optional<Session> validSession = sessions.stream()
-                    .filter(s -> s.getToken().equals(token) && s.getExpiresAt().isAfter(LocalDateTime.now()))
-                    .findFirst();
+            Optional<Session> validSession = persistenceManager.findById(SESSIONS_FILE, Session.class, token)
+                    .filter(s -> s.getExpiresAt() != null && s.getExpiresAt().isAfter(now));
             
             if (validSession.isEmpty()) {
                 return Optional.empty();
             }
-            
-            return findUserById(validSession.get().getUserId());
+
+            Session session = validSession.get();
+            cacheSession(session, now);
+            return findUserById(session.getUserId());
 
         } catch (IOException e) {
             logger.error("Error al leer el archivo de sesiones (sessions.json): {}", e.getMessage());
@@ -74,19 +115,17 @@ public class UserService {
      * @throws UserAlreadyExistsException Si el nuevo username ya esta en uso.
      */
     public User updateUserProfile(UUID userId, ProfileUpdateRequest dto) throws IOException {
-        List<User> users = persistenceManager.readCollection(USERS_FILE, User.class);
-
         // 1. Validar conflicto de username
         if (dto.getUsername() != null && !dto.getUsername().isEmpty()) {
-            boolean conflict = users.stream()
-                    .anyMatch(u -> !u.getId().equals(userId) && u.getUsername().equalsIgnoreCase(dto.getUsername()));
+            boolean conflict = persistenceManager.findFirst(USERS_FILE, User.class,
+                    u -> !u.getId().equals(userId) && u.getUsername().equalsIgnoreCase(dto.getUsername())).isPresent();
             if (conflict) {
                 throw new UserAlreadyExistsException("El nombre de usuario '" + dto.getUsername() + "' ya está en uso por otro usuario.");
             }
         }
 
         // 2. Encontrar y actualizar usuario
-        Optional<User> userOpt = users.stream().filter(u -> u.getId().equals(userId)).findFirst();
+        Optional<User> userOpt = persistenceManager.findById(USERS_FILE, User.class, userId);
         if (userOpt.isEmpty()) {
             logger.error("CRITICAL: Usuario autenticado con ID {} no encontrado en {}.", userId, USERS_FILE);
             throw new RuntimeException("Usuario autenticado no encontrado en la base de datos.");
@@ -98,8 +137,8 @@ public class UserService {
         userToUpdate.setRangoPorJuego(dto.getRangoPorJuego()); 
         userToUpdate.setRolesPreferidos(dto.getRolesPreferidos()); 
 
-        // 3. Guardar la lista COMPLETA de usuarios
-        persistenceManager.writeCollection(USERS_FILE, users);
+        // 3. Guardar solo el usuario modificado
+        persistenceManager.save(USERS_FILE, userToUpdate);
         logger.info("Perfil actualizado para usuario {}", userId);
 
         return userToUpdate;
@@ -113,9 +152,7 @@ public class UserService {
      * @throws IOException Si falla la persistencia.
      */
     public PreferenciasUsuario updateUserPreferences(UUID userId, PreferencesUpdateRequest dto) throws IOException {
-        List<User> users = persistenceManager.readCollection(USERS_FILE, User.class);
-
-        Optional<User> userOpt = users.stream().filter(u -> u.getId().equals(userId)).findFirst();
+        Optional<User> userOpt = persistenceManager.findById(USERS_FILE, User.class, userId);
         if (userOpt.isEmpty()) {
             logger.error("CRITICAL: Usuario autenticado con ID {} no encontrado en {}.", userId, USERS_FILE);
             throw new RuntimeException("Usuario autenticado no encontrado en la base de datos.");
@@ -138,11 +175,26 @@ public class UserService {
         prefs.setBusquedaRegionPorDefecto(dto.getBusquedaRegionPorDefecto());
         prefs.setBusquedaRangoMinPorDefecto(dto.getBusquedaRangoMinPorDefecto());
         prefs.setBusquedaRangoMaxPorDefecto(dto.getBusquedaRangoMaxPorDefecto());
+        prefs.setDiscordWebhookUrl(dto.getDiscordWebhookUrl());
+        prefs.setPushToken(dto.getPushToken());
 
-        persistenceManager.writeCollection(USERS_FILE, users);
+        // save() tambien actualiza el indice invertido de preferencias (ver ScrimMatchingSubscriber)
+        persistenceManager.save(USERS_FILE, userToUpdate);
         logger.info("Preferencias actualizadas para usuario {}", userId);
 
         return prefs;
     }
-}
 
+    private void cacheSession(Session session, LocalDateTime now) {
+        if (sessionCacheMaxSize <= 0) {
+            return;
+        }
+        // Vence con la sesion, o antes si el TTL de la cache es menor
+        LocalDateTime ttlLimit = now.plusSeconds(sessionCacheTtlSeconds);
+        LocalDateTime validUntil = session.getExpiresAt().isBefore(ttlLimit) ? session.getExpiresAt() : ttlLimit;
+        sessionCache.put(session.getToken(), new CachedSession(session.getUserId(), validUntil));
+    }
+
+    private record CachedSession(UUID userId, LocalDateTime validUntil) {
+    }
+}
@@ -0,0 +1,121 @@
+package com.scrim_pds.adapter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Adapter para enviar mensajes a un webhook de Discord (Diagrama: DiscordAdapter).
+ *
+ * El envío es asíncrono (ver WebhookTransport): enviarMensaje devuelve true si el mensaje
+ * quedó encolado y el resultado se registra en el log; enviarMensajeAsync además informa
+ * si Discord lo aceptó (para reintentarlo si no). Solo se aceptan webhooks de los
+ * hosts de notifications.discord.allowed-hosts, para que un usuario no pueda hacer que
+ * el servidor llame a cualquier URL.
+ */
+@Component
+public class DiscordAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiscordAdapter.class);
+    // Limite de Discord para "content"
+    static final int MAX_CONTENT_LENGTH = 2000;
+
+    private final ObjectMapper objectMapper;
+    private final WebhookTransport.Canal canal;
+    private final Set<String> allowedHosts;
+
+    public DiscordAdapter(WebhookTransport transport,
+                          ObjectMapper objectMapper,
+                          @Value("${notifications.discord.max-concurrency:4}") int maxConcurrency,
+                          @Value("${notifications.discord.queue-capacity:1000}") int queueCapacity,
+                          @Value("${notifications.discord.allowed-hosts:discord.com,discordapp.com,ptb.discord.com,canary.discord.com}") String allowedHosts) {
+        this.objectMapper = objectMapper;
+        this.canal = transport.canal("discord", maxConcurrency, queueCapacity);
+        this.allowedHosts = Arrays.stream(allowedHosts.split(","))
+                .map(host -> host.trim().toLowerCase(Locale.ROOT))
+                .filter(host -> !host.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Encola un mensaje para el webhook.
+     * @param webhookUrl URL del webhook configurada por el usuario.
+     * @return true si se encoló, false si la URL no es válida o la cola está llena.
+     */
+    public boolean enviarMensaje(String webhookUrl, String titulo, String texto) {
+        return enviar(webhookUrl, titulo, texto) != null;
+    }
+
+    /**
+     * Como enviarMensaje, pero el futuro indica el resultado del envío.
+     * @return Futuro con true si Discord respondió 2xx; false si la URL no es válida,
+     *         la cola está llena, falló la red o Discord respondió con error.
+     */
+    public CompletableFuture<Boolean> enviarMensajeAsync(String webhookUrl, String titulo, String texto) {
+        CompletableFuture<Boolean> resultado = enviar(webhookUrl, titulo, texto);
+        return resultado != null ? resultado : CompletableFuture.completedFuture(false);
+    }
+
+    // null si no se pudo encolar
+    private CompletableFuture<Boolean> enviar(String webhookUrl, String titulo, String texto) {
+        URI uri = validUri(webhookUrl);
+        if (uri == null) {
+            logger.warn("Webhook de Discord inválido o no permitido: {}", webhookUrl);
+            return null;
+        }
+        String content = "**" + titulo + "**\n\n" + texto;
+        if (content.length() > MAX_CONTENT_LENGTH) {
+            content = content.substring(0, MAX_CONTENT_LENGTH - 3) + "...";
+        }
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("content", content);
+        body.putObject("allowed_mentions").putArray("parse"); // Sin @everyone ni menciones
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            logger.error("No se pudo armar el mensaje de Discord: {}", e.getMessage());
+            return null;
+        }
+
+        return canal.postJson(uri, json, Map.of()).handle((response, error) -> {
+            if (error != null) {
+                logger.error("Falló el envío a Discord ({}): {}", uri.getHost(), error.getMessage());
+                return false;
+            } else if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                logger.info("Mensaje de Discord '{}' enviado (StatusCode: {})", titulo, response.statusCode());
+                return true;
+            } else {
+                logger.error("Error de Discord al enviar '{}'. StatusCode: {}, Body: {}", titulo, response.statusCode(), response.body());
+                return false;
+            }
+        });
+    }
+
+    private URI validUri(String webhookUrl) {
+        if (webhookUrl == null || webhookUrl.isBlank()) {
+            return null;
+        }
+        try {
+            URI uri = URI.create(webhookUrl.trim());
+            String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : "";
+            String host = uri.getHost() != null ? uri.getHost().toLowerCase(Locale.ROOT) : "";
+            boolean schemeOk = scheme.equals("https") || scheme.equals("http");
+            return schemeOk && allowedHosts.contains(host) ? uri : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.scrim_pds.adapter;
 
+import java.util.List;
+
 // Interfaz Adapter para el servicio de envio de correo.
 
 public interface EmailAdapter {
@@ -12,4 +14,18 @@ public interface EmailAdapter {
      * @return true si el envío fue exitoso (o encolado), false si falló inmediatamente.
      */
     boolean enviarEmail(String destinatario, String asunto, String cuerpo);
+
+    /**
+     * Envía varios emails en una sola llamada al proveedor, si el proveedor lo permite.
+     * Por defecto los envía de a uno.
+     * @param mensajes Emails a enviar.
+     * @return true si el proveedor aceptó todos.
+     */
+    default boolean enviarEmails(List<EmailMessage> mensajes) {
+        boolean todos = true;
+        for (EmailMessage mensaje : mensajes) {
+            todos &= enviarEmail(mensaje.destinatario(), mensaje.asunto(), mensaje.cuerpo());
+        }
+        return todos;
+    }
 }
@@ -0,0 +1,6 @@
+package com.scrim_pds.adapter;
+
+// Un email listo para enviar (destinatario, asunto y cuerpo ya armados).
+
+public record EmailMessage(String destinatario, String asunto, String cuerpo) {
+}
@@ -0,0 +1,151 @@
+package com.scrim_pds.adapter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EmailAdapter local para pruebas de carga sin SendGrid (perfil "local-email").
+ *
+ * No envía nada: escribe cada email en un archivo (email.local.sink-file, vacío = no escribir)
+ * y simula al proveedor con una latencia por llamada (email.local.latency-ms), una tasa de
+ * errores de red (email.local.error-rate, 0..1) y un máximo de emails por segundo
+ * (email.local.max-per-second, 0 = sin límite). Igual que SendGrid, acepta lotes de hasta
+ * MAX_DESTINATARIOS_POR_LLAMADA emails en una llamada.
+ */
+@Component
+@Profile(LocalEmailAdapter.PROFILE)
+public class LocalEmailAdapter implements EmailAdapter {
+
+    public static final String PROFILE = "local-email";
+    private static final Logger logger = LoggerFactory.getLogger(LocalEmailAdapter.class);
+
+    private final long latencyNanos;
+    private final double errorRate;
+    private final long emailIntervalNanos;
+    private final BufferedWriter sink;
+    private final Counter sent;
+    private final Counter failed;
+    private long nextPermitNanos = 0; // Limite de emails por segundo (protegido por 'this')
+
+    public LocalEmailAdapter(MeterRegistry meterRegistry,
+                             @Value("${email.local.sink-file:${data.directory}/emails-enviados.log}") String sinkFile,
+                             @Value("${email.local.latency-ms:50}") long latencyMs,
+                             @Value("${email.local.error-rate:0}") double errorRate,
+                             @Value("${email.local.max-per-second:0}") double maxPerSecond) throws IOException {
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, latencyMs));
+        this.errorRate = Math.max(0, Math.min(1, errorRate));
+        this.emailIntervalNanos = maxPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxPerSecond) : 0;
+        if (sinkFile == null || sinkFile.isBlank()) {
+            this.sink = null;
+        } else {
+            Path path = Paths.get(sinkFile);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            this.sink = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        this.sent = meterRegistry.counter("email.local.sent");
+        this.failed = meterRegistry.counter("email.local.failed");
+        logger.warn("Usando LocalEmailAdapter: los emails NO se envían (archivo: {}, latencia: {} ms, errores: {}, máx/s: {}).",
+                sink != null ? sinkFile : "ninguno", latencyMs, this.errorRate, maxPerSecond > 0 ? maxPerSecond : "sin límite");
+    }
+
+    @Override
+    public boolean enviarEmail(String destinatario, String asunto, String cuerpo) {
+        return enviarEmails(List.of(new EmailMessage(destinatario, asunto, cuerpo)));
+    }
+
+    @Override
+    public boolean enviarEmails(List<EmailMessage> mensajes) {
+        if (mensajes.isEmpty()) {
+            return true;
+        }
+        if (mensajes.size() > SendGridAdapter.MAX_DESTINATARIOS_POR_LLAMADA) {
+            throw new IllegalArgumentException("Se aceptan hasta " + SendGridAdapter.MAX_DESTINATARIOS_POR_LLAMADA
+                    + " destinatarios por llamada (" + mensajes.size() + " pedidos).");
+        }
+        acquirePermits(mensajes.size());
+        sleepNanos(latencyNanos);
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            failed.increment(mensajes.size());
+            throw new UncheckedIOException(new IOException("Error de red simulado (email.local.error-rate)"));
+        }
+        if (sink != null) {
+            write(mensajes);
+        }
+        sent.increment(mensajes.size());
+        logger.debug("{} emails \"enviados\" localmente.", mensajes.size());
+        return true;
+    }
+
+    private synchronized void write(List<EmailMessage> mensajes) {
+        try {
+            LocalDateTime ahora = LocalDateTime.now();
+            for (EmailMessage mensaje : mensajes) {
+                sink.write("=== " + ahora + " | Para: " + mensaje.destinatario() + " | Asunto: " + mensaje.asunto());
+                sink.newLine();
+                sink.write(mensaje.cuerpo());
+                sink.newLine();
+            }
+            sink.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el email en el archivo local", e);
+        }
+    }
+
+    // Espera hasta que el limite de emails por segundo permita enviar 'count' emails
+    private void acquirePermits(int count) {
+        if (emailIntervalNanos == 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long permit = Math.max(now, nextPermitNanos);
+            nextPermitNanos = permit + emailIntervalNanos * count;
+            waitNanos = permit - now;
+        }
+        sleepNanos(waitNanos);
+    }
+
+    private static void sleepNanos(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (sink != null) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                logger.warn("No se pudo cerrar el archivo de emails locales: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.scrim_pds.adapter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Adapter para notificaciones push a través de un gateway HTTP (Diagrama: PushAdapter).
+ *
+ * Envía un POST JSON {"to": token, "title": ..., "body": ...} a notifications.push.url
+ * (con "Authorization: Bearer" si hay notifications.push.api-key). El envío es asíncrono
+ * (ver WebhookTransport): enviarPush devuelve true si quedó encolado; enviarPushAsync además
+ * informa si el gateway lo aceptó.
+ */
+@Component
+public class PushAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushAdapter.class);
+
+    private final ObjectMapper objectMapper;
+    private final WebhookTransport.Canal canal;
+    private final URI gatewayUri;
+    private final Map<String, String> headers;
+
+    public PushAdapter(WebhookTransport transport,
+                       ObjectMapper objectMapper,
+                       @Value("${notifications.push.url:}") String gatewayUrl,
+                       @Value("${notifications.push.api-key:}") String apiKey,
+                       @Value("${notifications.push.max-concurrency:8}") int maxConcurrency,
+                       @Value("${notifications.push.queue-capacity:1000}") int queueCapacity) {
+        this.objectMapper = objectMapper;
+        this.canal = transport.canal("push", maxConcurrency, queueCapacity);
+        if (gatewayUrl == null || gatewayUrl.isBlank()) {
+            logger.warn("notifications.push.url no configurada. Las notificaciones PUSH no se enviarán.");
+            this.gatewayUri = null;
+        } else {
+            this.gatewayUri = URI.create(gatewayUrl.trim());
+        }
+        this.headers = apiKey == null || apiKey.isBlank() ? Map.of() : Map.of("Authorization", "Bearer " + apiKey);
+    }
+
+    /**
+     * Encola una notificación push.
+     * @param token Token del dispositivo del usuario.
+     * @return true si se encoló, false si no hay gateway configurado o la cola está llena.
+     */
+    public boolean enviarPush(String token, String titulo, String texto) {
+        return enviar(token, titulo, texto) != null;
+    }
+
+    /**
+     * Como enviarPush, pero el futuro indica el resultado del envío.
+     * @return Futuro con true si el gateway respondió 2xx; false si no hay gateway, la cola
+     *         está llena, falló la red o el gateway respondió con error.
+     */
+    public CompletableFuture<Boolean> enviarPushAsync(String token, String titulo, String texto) {
+        CompletableFuture<Boolean> resultado = enviar(token, titulo, texto);
+        return resultado != null ? resultado : CompletableFuture.completedFuture(false);
+    }
+
+    // null si no se pudo encolar
+    private CompletableFuture<Boolean> enviar(String token, String titulo, String texto) {
+        if (gatewayUri == null) {
+            logger.warn("Gateway push no configurado. Push '{}' no enviado.", titulo);
+            return null;
+        }
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("to", token);
+        body.put("title", titulo);
+        body.put("body", texto);
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            logger.error("No se pudo armar la notificación push: {}", e.getMessage());
+            return null;
+        }
+
+        return canal.postJson(gatewayUri, json, headers).handle((response, error) -> {
+            if (error != null) {
+                logger.error("Falló el envío push '{}': {}", titulo, error.getMessage());
+                return false;
+            } else if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                logger.info("Push '{}' aceptado por el gateway (StatusCode: {})", titulo, response.statusCode());
+                return true;
+            } else {
+                logger.error("Error del gateway push al enviar '{}'. StatusCode: {}, Body: {}", titulo, response.statusCode(), response.body());
+                return false;
+            }
+        });
+    }
+}
@@ -4,23 +4,37 @@ import com.sendgrid.*;
 import com.sendgrid.helpers.mail.Mail;
 import com.sendgrid.helpers.mail.objects.Content;
 import com.sendgrid.helpers.mail.objects.Email;
+import com.sendgrid.helpers.mail.objects.Personalization;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.retry.annotation.Backoff; // <-- AÑADIR IMPORT
 import org.springframework.retry.annotation.Retryable; // <-- AÑADIR IMPORT
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * Implementación concreta del EmailAdapter usando SendGrid (Diagrama).
+ * Con el perfil "local-email" se usa LocalEmailAdapter en su lugar.
  */
 @Component
+@Profile("!" + LocalEmailAdapter.PROFILE)
 public class SendGridAdapter implements EmailAdapter {
 
     private static final Logger logger = LoggerFactory.getLogger(SendGridAdapter.class);
 
+    // Limite de SendGrid de "personalizations" (destinatarios) por llamada a mail/send
+    public static final int MAX_DESTINATARIOS_POR_LLAMADA = 1000;
+    // Limite de SendGrid para el total de las sustituciones de un "personalization" (10.000 bytes).
+    // El cuerpo de cada destinatario viaja como sustitucion: uno mas grande se envia solo (ver admiteLote).
+    public static final int MAX_BYTES_SUSTITUCION = 10_000;
+    // Marca que SendGrid reemplaza, en cada destinatario, por su cuerpo
+    private static final String CUERPO_TAG = "-cuerpo-";
+
     private final SendGrid sendGridClient;
     private final String fromEmail;
 
@@ -85,5 +99,83 @@ public class SendGridAdapter implements EmailAdapter {
             throw new SendGridIOException("Error de IO al contactar SendGrid", ex);
         }
     }
-}
 
+    /**
+     * Indica si el mensaje puede ir en un lote junto con otros: su cuerpo viaja como
+     * sustitucion y SendGrid rechaza la llamada completa si supera MAX_BYTES_SUSTITUCION.
+     */
+    public static boolean admiteLote(EmailMessage mensaje) {
+        return mensaje.cuerpo() == null
+                || mensaje.cuerpo().getBytes(StandardCharsets.UTF_8).length + CUERPO_TAG.length() <= MAX_BYTES_SUSTITUCION;
+    }
+
+    /**
+     * Envía hasta MAX_DESTINATARIOS_POR_LLAMADA emails en una sola llamada: un "personalization"
+     * por destinatario, con su asunto y su cuerpo (como sustitución). Cada destinatario
+     * recibe su propio email y no ve a los demás. Un único mensaje va con su propio
+     * contenido (sin sustitución), así que no tiene el límite de MAX_BYTES_SUSTITUCION.
+     * Sin @Retryable: si falla, NotificationStore reprograma el lote con backoff.
+     *
+     * @return false si SendGrid rechazó el contenido (400, ej. una dirección inválida):
+     *         en ese caso no se envió ninguno y NotificationDispatcher divide el lote.
+     * @throws SendGridIOException Si falla la red.
+     * @throws IllegalStateException Si SendGrid no está configurado o rechaza la llamada por otro motivo
+     *         (credenciales, límite de envíos, error del servidor): no depende de los mensajes.
+     */
+    @Override
+    public boolean enviarEmails(List<EmailMessage> mensajes) {
+        if (mensajes.isEmpty()) {
+            return true;
+        }
+        if (mensajes.size() > MAX_DESTINATARIOS_POR_LLAMADA) {
+            throw new IllegalArgumentException("SendGrid acepta hasta " + MAX_DESTINATARIOS_POR_LLAMADA
+                    + " destinatarios por llamada (" + mensajes.size() + " pedidos).");
+        }
+        if (sendGridClient == null) {
+            throw new IllegalStateException("SendGrid client no inicializado (API Key faltante?). "
+                    + mensajes.size() + " emails no enviados.");
+        }
+
+        Mail mail = new Mail();
+        mail.setFrom(new Email(this.fromEmail));
+        mail.setSubject(mensajes.get(0).asunto()); // Por defecto; cada personalization define el suyo
+        boolean solo = mensajes.size() == 1;
+        mail.addContent(new Content("text/plain", solo ? mensajes.get(0).cuerpo() : CUERPO_TAG));
+        for (EmailMessage mensaje : mensajes) {
+            if (!solo && !admiteLote(mensaje)) {
+                throw new IllegalArgumentException("El cuerpo del email a " + mensaje.destinatario()
+                        + " supera " + MAX_BYTES_SUSTITUCION + " bytes: se tiene que enviar solo.");
+            }
+            Personalization personalization = new Personalization();
+            personalization.addTo(new Email(mensaje.destinatario()));
+            personalization.setSubject(mensaje.asunto());
+            if (!solo) {
+                personalization.addSubstitution(CUERPO_TAG, mensaje.cuerpo());
+            }
+            mail.addPersonalization(personalization);
+        }
+
+        Request request = new Request();
+        try {
+            request.setMethod(Method.POST);
+            request.setEndpoint("mail/send");
+            request.setBody(mail.build());
+
+            logger.info("Enviando {} emails en una llamada a SendGrid...", mensajes.size());
+            Response response = sendGridClient.api(request);
+            if (response.getStatusCode() >= 200 && response.getStatusCode() < 300) {
+                logger.info("{} emails aceptados por SendGrid (StatusCode: {})", mensajes.size(), response.getStatusCode());
+                return true;
+            }
+            logger.error("Error de API al enviar {} emails via SendGrid. StatusCode: {}, Body: {}",
+                    mensajes.size(), response.getStatusCode(), response.getBody());
+            if (response.getStatusCode() == 400) {
+                return false;
+            }
+            throw new IllegalStateException("SendGrid respondió " + response.getStatusCode());
+        } catch (IOException ex) {
+            logger.warn("Error de IO al enviar {} emails: {}", mensajes.size(), ex.getMessage());
+            throw new SendGridIOException("Error de IO al contactar SendGrid", ex);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.scrim_pds.adapter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cliente HTTP compartido por los adapters de webhooks (Discord, push).
+ *
+ * Usa un único java.net.http.HttpClient asíncrono: reutiliza las conexiones (keep-alive en
+ * HTTP/1.1, multiplexadas en HTTP/2) y no bloquea hilos mientras espera la respuesta. Cada
+ * adapter pide su Canal, con su propio máximo de requests en vuelo y su cola de espera,
+ * así un proveedor lento no frena a los demás.
+ */
+@Component
+public class WebhookTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookTransport.class);
+    // Espera maxima que se respeta de un Retry-After (429)
+    private static final long MAX_RETRY_AFTER_MS = 10_000;
+
+    private final HttpClient client;
+    private final ExecutorService callbackExecutor;
+    private final Duration requestTimeout;
+    private final MeterRegistry meterRegistry;
+
+    public WebhookTransport(MeterRegistry meterRegistry,
+                            @Value("${notifications.webhook.connect-timeout-ms:5000}") long connectTimeoutMs,
+                            @Value("${notifications.webhook.request-timeout-ms:10000}") long requestTimeoutMs) {
+        this.meterRegistry = meterRegistry;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.callbackExecutor = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "webhook-http-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(callbackExecutor)
+                .build();
+    }
+
+    /**
+     * Crea un canal con su límite de requests concurrentes y su cola.
+     * @param nombre Nombre del canal (tag "canal" de las métricas).
+     */
+    public Canal canal(String nombre, int maxConcurrency, int queueCapacity) {
+        return new Canal(nombre, Math.max(1, maxConcurrency), Math.max(1, queueCapacity));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        callbackExecutor.shutdown();
+    }
+
+    /**
+     * Requests de un mismo proveedor: como máximo maxConcurrency en vuelo, el resto espera
+     * en la cola (si se llena, se rechaza sin bloquear al que llama).
+     */
+    public final class Canal {
+
+        private final String nombre;
+        private final Semaphore permisos;
+        private final BlockingQueue<Envio> pendientes;
+
+        private Canal(String nombre, int maxConcurrency, int queueCapacity) {
+            this.nombre = nombre;
+            this.permisos = new Semaphore(maxConcurrency);
+            this.pendientes = new ArrayBlockingQueue<>(queueCapacity);
+            meterRegistry.gauge("notifications.webhook.pending", Tags.of("canal", nombre),
+                    pendientes, BlockingQueue::size);
+        }
+
+        /**
+         * Encola un POST con cuerpo JSON. El futuro se completa con la respuesta (cualquier
+         * status) o falla por error de red, timeout o cola llena.
+         */
+        public CompletableFuture<HttpResponse<String>> postJson(URI uri, String json, Map<String, String> headers) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json));
+            headers.forEach(builder::header);
+            Envio envio = new Envio(builder.build(), new CompletableFuture<>(), 1);
+            if (!pendientes.offer(envio)) {
+                meterRegistry.counter("notifications.webhook.rejected", "canal", nombre).increment();
+                return CompletableFuture.failedFuture(new RejectedExecutionException("Cola del canal " + nombre + " llena"));
+            }
+            drain();
+            return envio.resultado();
+        }
+
+        // Arranca requests mientras haya permisos y pendientes
+        private void drain() {
+            while (permisos.tryAcquire()) {
+                Envio envio = pendientes.poll();
+                if (envio == null) {
+                    permisos.release();
+                    // Otro hilo pudo encolar entre el poll y el release
+                    if (pendientes.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                send(envio);
+            }
+        }
+
+        private void send(Envio envio) {
+            long start = System.nanoTime();
+            client.sendAsync(envio.request(), HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        permisos.release();
+                        String result = error != null ? "error" : (response.statusCode() / 100) + "xx";
+                        meterRegistry.timer("notifications.webhook", "canal", nombre, "result", result)
+                                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        if (error == null && response.statusCode() == 429 && envio.intento() == 1) {
+                            retryLater(envio, response);
+                        } else if (error != null) {
+                            envio.resultado().completeExceptionally(error);
+                        } else {
+                            envio.resultado().complete(response);
+                        }
+                        drain();
+                    });
+        }
+
+        // Rate limit del proveedor: un reintento despues del Retry-After (con tope)
+        private void retryLater(Envio envio, HttpResponse<String> response) {
+            long delayMs = response.headers().firstValue("Retry-After")
+                    .map(value -> {
+                        try {
+                            return (long) (Double.parseDouble(value) * 1000);
+                        } catch (NumberFormatException e) {
+                            return 1000L;
+                        }
+                    })
+                    .orElse(1000L);
+            delayMs = Math.min(Math.max(delayMs, 0), MAX_RETRY_AFTER_MS);
+            logger.warn("Webhook {}: rate limit (429), se reintenta en {} ms.", nombre, delayMs);
+            Envio retry = new Envio(envio.request(), envio.resultado(), envio.intento() + 1);
+            CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS, callbackExecutor).execute(() -> {
+                if (!pendientes.offer(retry)) {
+                    envio.resultado().complete(response);
+                    return;
+                }
+                drain();
+            });
+        }
+    }
+
+    private record Envio(HttpRequest request, CompletableFuture<HttpResponse<String>> resultado, int intento) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.scrim_pds.controller;
+
+import com.scrim_pds.config.AuthUser;
+import com.scrim_pds.exception.AdminRequiredException;
+import com.scrim_pds.model.User;
+import com.scrim_pds.model.enums.UserRole;
+import com.scrim_pds.persistence.CollectionDefinition;
+import com.scrim_pds.persistence.JsonPersistenceManager;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@Tag(name = "Admin - Datos", description = "Herramientas para revisar los archivos de datos")
+public class AdminDataController {
+
+    private final JsonPersistenceManager persistenceManager;
+
+    public AdminDataController(JsonPersistenceManager persistenceManager) {
+        this.persistenceManager = persistenceManager;
+    }
+
+    @Operation(summary = "ADMIN: Descargar una colección como JSON legible (aunque esté guardada en Smile)",
+               security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Contenido de la colección en JSON indentado"),
+            @ApiResponse(responseCode = "401", description = "Token inválido o faltante"),
+            @ApiResponse(responseCode = "403", description = "No tienes permisos de administrador"),
+            @ApiResponse(responseCode = "404", description = "Colección desconocida")
+    })
+    @GetMapping(value = "/api/admin/data/{fileName}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCollection(
+            @Parameter(description = "Nombre lógico de la colección (ej. scrims.json)") @PathVariable("fileName") String fileName,
+            @Parameter(hidden = true) @AuthUser User admin
+    ) {
+        if (admin.getRol() != UserRole.ADMIN) {
+            throw new AdminRequiredException();
+        }
+        if (CollectionDefinition.forFile(fileName) == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        StreamingResponseBody body = out -> persistenceManager.exportJson(fileName, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
@@ -5,6 +5,7 @@ import com.scrim_pds.config.AuthUser;
 import com.scrim_pds.dto.EstadisticaRequest;
 import com.scrim_pds.dto.PostulacionRequest;
 import com.scrim_pds.dto.ScrimCreateRequest;
+import com.scrim_pds.dto.ScrimPage;
 import com.scrim_pds.model.Postulacion;
 import com.scrim_pds.model.Scrim;
 import com.scrim_pds.model.User;
@@ -16,6 +17,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.format.annotation.DateTimeFormat; 
 import com.scrim_pds.model.enums.Formato;
+import com.scrim_pds.model.enums.ScrimSort;
 
 // --- Swagger Imports ---
 import io.swagger.v3.oas.annotations.Operation;
@@ -48,7 +50,8 @@ public class ScrimController {
         this.iCalAdapter = iCalAdapter; // <-- AÑADIDO AL CONSTRUCTOR
     }
 
-    @Operation(summary = "Listar scrims disponibles con filtros opcionales")
+    @Operation(summary = "Listar scrims disponibles con filtros opcionales",
+               description = "Con limit, cursor o sort devuelve una página: el cursor de la siguiente viene en el header X-Next-Cursor y una estimación del total en X-Total-Count.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de scrims encontrados",
                          content = @Content(mediaType = "application/json",
@@ -75,12 +78,33 @@ public class ScrimController {
             @RequestParam Optional<Formato> formato,
 
             @Parameter(description = "Filtrar por fecha de inicio (formato YYYY-MM-DD)", required = false, example = "2025-12-31")
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Optional<LocalDate> fecha
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Optional<LocalDate> fecha,
+
+            // --- PAGINACIÓN (opcional: sin estos parámetros se devuelve la lista completa) ---
+            @Parameter(description = "Tamaño de página (activa la paginación)", required = false, example = "20")
+            @RequestParam Optional<Integer> limit,
+
+            @Parameter(description = "Cursor opaco de la página siguiente (header X-Next-Cursor de la respuesta anterior)", required = false)
+            @RequestParam Optional<String> cursor,
+
+            @Parameter(description = "Orden de la página: FECHA (próximos primero) o CREACION (más nuevos primero)", required = false)
+            @RequestParam Optional<ScrimSort> sort
 
     ) throws IOException {
         
-        List<Scrim> scrims = scrimService.findScrims(juego, region, rangoMin, rangoMax, latenciaMax, formato, fecha);
-        return ResponseEntity.ok(scrims);
+        if (limit.isEmpty() && cursor.isEmpty() && sort.isEmpty()) {
+            List<Scrim> scrims = scrimService.findScrims(juego, region, rangoMin, rangoMax, latenciaMax, formato, fecha);
+            return ResponseEntity.ok(scrims);
+        }
+
+        ScrimPage page = scrimService.findScrimsPage(juego, region, rangoMin, rangoMax, latenciaMax, formato, fecha,
+                sort.orElse(ScrimSort.FECHA), cursor, limit);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Total-Count", String.valueOf(page.getTotalEstimate()));
+        if (page.getNextCursor() != null) {
+            headers.add("X-Next-Cursor", page.getNextCursor());
+        }
+        return ResponseEntity.ok().headers(headers).body(page.getItems());
     }
     
     // --- NUEVO ENDPOINT AÑADIDO ---
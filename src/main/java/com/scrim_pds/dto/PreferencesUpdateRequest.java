@@ -35,6 +35,12 @@ public class PreferencesUpdateRequest {
     @Schema(description = "Rango máximo por defecto para búsquedas (puede ser nulo o vacío)")
     private String busquedaRangoMaxPorDefecto;
 
+    @Schema(description = "URL del webhook de Discord para el canal DISCORD (puede ser nulo)")
+    private String discordWebhookUrl;
+
+    @Schema(description = "Token del dispositivo para el canal PUSH (puede ser nulo)")
+    private String pushToken;
+
     // Getters y Setters
     public Set<String> getCanalesNotificacion() {
         return canalesNotificacion;
@@ -99,4 +105,20 @@ public class PreferencesUpdateRequest {
     public void setBusquedaRangoMaxPorDefecto(String busquedaRangoMaxPorDefecto) {
         this.busquedaRangoMaxPorDefecto = busquedaRangoMaxPorDefecto;
     }
+
+    public String getDiscordWebhookUrl() {
+        return discordWebhookUrl;
+    }
+
+    public void setDiscordWebhookUrl(String discordWebhookUrl) {
+        this.discordWebhookUrl = discordWebhookUrl;
+    }
+
+    public String getPushToken() {
+        return pushToken;
+    }
+
+    public void setPushToken(String pushToken) {
+        this.pushToken = pushToken;
+    }
 }
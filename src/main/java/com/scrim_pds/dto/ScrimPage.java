@@ -0,0 +1,24 @@
+package com.scrim_pds.dto;
+
+import com.scrim_pds.model.Scrim;
+
+import java.util.List;
+
+// Una página de resultados de la búsqueda de scrims (paginación por cursor).
+
+public class ScrimPage {
+    private List<Scrim> items;
+    private String nextCursor; // null si no hay más páginas
+    private long totalEstimate; // Cota superior del total de resultados
+
+    public ScrimPage(List<Scrim> items, String nextCursor, long totalEstimate) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.totalEstimate = totalEstimate;
+    }
+
+    // Getters
+    public List<Scrim> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public long getTotalEstimate() { return totalEstimate; }
+}
@@ -0,0 +1,10 @@
+package com.scrim_pds.model.enums;
+
+// Orden de la lista paginada de scrims (GET /api/scrims?sort=...).
+
+public enum ScrimSort {
+    // Por fecha y hora de inicio, los más próximos primero
+    FECHA,
+    // Por fecha de creación, los más nuevos primero
+    CREACION
+}
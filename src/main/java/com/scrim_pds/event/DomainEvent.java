@@ -8,4 +8,13 @@ public interface DomainEvent {
     default LocalDateTime occurredOn() {
         return LocalDateTime.now();
     }
+
+    /**
+     * Clave de orden del evento (ej. el id del scrim). Los eventos con la misma clave
+     * se entregan a cada suscriptor en el orden en que se publicaron.
+     * @return La clave, o null si el evento no necesita orden.
+     */
+    default Object partitionKey() {
+        return null;
+    }
 }
@@ -1,13 +1,29 @@
 package com.scrim_pds.event;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 // Bus de eventos simple para desacoplar componentes.
@@ -21,8 +37,150 @@ public class DomainEventBus {
     // Se usa ConcurrentHashMap para seguridad en hilos
     private final Map<Class<? extends DomainEvent>, List<Subscriber<? extends DomainEvent>>> subscribers = new ConcurrentHashMap<>();
 
-    // Executor para manejar eventos de forma asincrona
-    private final ExecutorService executor = Executors.newCachedThreadPool(); 
+    // Executor para manejar eventos de forma asincrona (acotado o con hilos virtuales, ver events.executor)
+    private final ExecutorService executor;
+    // Carriles de un solo hilo para eventos con clave de orden (ver DomainEvent.partitionKey)
+    private final ExecutorService[] lanes;
+    private final MeterRegistry meterRegistry;
+    // Log durable de eventos publicados y entregas hechas (ver EventOutbox)
+    private final EventOutbox outbox;
+    private final long shutdownTimeoutSeconds;
+    // Tareas encoladas o en ejecucion, para ver el atraso del bus en /actuator/metrics
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Entregas del outbox ya encoladas ("id|suscriptor"): el reintento periodico no las duplica
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final long redispatchIntervalMs;
+    private final int redispatchBatchSize;
+    // Entregas retenidas por "clave de orden|suscriptor": si falla una entrega de un scrim, las
+    // siguientes del mismo scrim esperan detras de ella, en orden (ver process y drain)
+    private final Map<String, ArrayDeque<Delivery>> held = new HashMap<>();
+    // Claves con un vaciado de retenidas ya encolado en su carril
+    private final Set<String> draining = ConcurrentHashMap.newKeySet();
+
+    public DomainEventBus(MeterRegistry meterRegistry,
+                          EventOutbox outbox,
+                          @Value("${events.executor:bounded}") String executorMode,
+                          @Value("${events.executor.core-size:4}") int coreSize,
+                          @Value("${events.executor.max-size:16}") int maxSize,
+                          @Value("${events.executor.queue-capacity:1000}") int queueCapacity,
+                          @Value("${events.executor.rejection-policy:abort}") String rejectionPolicy,
+                          @Value("${events.lanes:8}") int laneCount,
+                          @Value("${events.lane.queue-capacity:1000}") int laneQueueCapacity,
+                          @Value("${events.shutdown-timeout-seconds:30}") long shutdownTimeoutSeconds,
+                          @Value("${events.outbox.redispatch-interval-ms:60000}") long redispatchIntervalMs,
+                          @Value("${events.outbox.redispatch-batch-size:500}") int redispatchBatchSize) {
+        this.meterRegistry = meterRegistry;
+        this.outbox = outbox;
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        this.redispatchIntervalMs = redispatchIntervalMs;
+        this.redispatchBatchSize = Math.max(1, redispatchBatchSize);
+        EventExecutorMode mode = EventExecutorMode.valueOf(executorMode.trim().toUpperCase());
+        ExecutorService delegate = null;
+        if (mode == EventExecutorMode.VIRTUAL) {
+            delegate = virtualThreadExecutor();
+        }
+        if (delegate == null) {
+            delegate = boundedExecutor(coreSize, maxSize, queueCapacity, rejectionPolicy);
+        }
+        // Expone executor.active, executor.queued, executor.pool.size, etc. con tag name=domain.events
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, delegate, "domain.events");
+        this.lanes = new ExecutorService[Math.max(0, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = ExecutorServiceMetrics.monitor(meterRegistry, laneExecutor(i, laneQueueCapacity),
+                    "domain.events.lane", Tags.of("lane", String.valueOf(i)));
+        }
+        meterRegistry.gauge("domain.events.in-flight", inFlight);
+        meterRegistry.gauge("domain.events.outbox.pending", outbox, EventOutbox::pendingCount);
+        meterRegistry.gauge("domain.events.held", held, Map::size);
+        logger.info("DomainEventBus usando executor {} y {} carriles ordenados", delegate.getClass().getSimpleName(), lanes.length);
+    }
+
+    /**
+     * Un carril es un executor de un solo hilo: sus tareas corren en orden de llegada.
+     * Con la cola llena el que publica espera (ejecutar en su hilo rompería el orden);
+     * por eso no hay que publicar con un lock tomado (ScrimService publica despues de soltar
+     * el lock del scrim).
+     */
+    private ExecutorService laneExecutor(int index, int queueCapacity) {
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "domain-events-lane-" + index);
+            t.setDaemon(true);
+            return t;
+        };
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory,
+                (task, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("DomainEventBus apagado");
+                    }
+                    meterRegistry.counter("domain.events.rejected", "policy", "lane-wait").increment();
+                    try {
+                        pool.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrumpido esperando lugar en el carril " + index, e);
+                    }
+                });
+    }
+
+    private ExecutorService boundedExecutor(int coreSize, int maxSize, int queueCapacity, String rejectionPolicy) {
+        int core = Math.max(1, coreSize);
+        int max = Math.max(core, maxSize);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "domain-events-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(core, max, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory,
+                rejectionHandler(rejectionPolicy));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Con la cola llena: "abort" no entrega ahora y la entrega queda pendiente en el outbox
+     * (se reintenta despues); "wait" hace esperar al que publica hasta que haya lugar.
+     * Nunca se corre el suscriptor en el hilo que publica: es el hilo del request, y el
+     * envio de notificaciones lo demoraria.
+     */
+    private RejectedExecutionHandler rejectionHandler(String rejectionPolicy) {
+        String policy = rejectionPolicy.trim().toLowerCase();
+        if (!policy.equals("abort") && !policy.equals("wait")) {
+            logger.warn("events.executor.rejection-policy={} no es válida (abort o wait). Se usa abort.", rejectionPolicy);
+            policy = "abort";
+        }
+        boolean wait = policy.equals("wait");
+        String metricPolicy = policy;
+        return (task, pool) -> {
+            if (pool.isShutdown()) {
+                throw new RejectedExecutionException("DomainEventBus apagado");
+            }
+            meterRegistry.counter("domain.events.rejected", "policy", metricPolicy).increment();
+            if (!wait) {
+                throw new RejectedExecutionException("Cola del bus de eventos llena");
+            }
+            try {
+                pool.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrumpido esperando lugar en la cola de eventos", e);
+            }
+        };
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() existe recien en Java 21; se busca por reflexion
+    // para poder seguir compilando con Java 17.
+    private ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("events.executor=virtual requiere Java 21 o superior (runtime actual: {}). Se usa el executor acotado.",
+                    Runtime.version());
+            return null;
+        }
+    }
 
     /**
      * Registra un suscriptor para un tipo especifico de evento.
@@ -53,9 +211,9 @@ public class DomainEventBus {
 
     /**
      * Publica un evento, notificando a todos los suscriptores interesados de forma asíncrona.
+     * El evento queda guardado en el outbox (en disco) antes de volver.
      * @param event El evento a publicar.
      */
-    @SuppressWarnings("unchecked") 
     public void publish(DomainEvent event) {
         if (event == null) {
             logger.warn("Se intentó publicar un evento nulo.");
@@ -71,21 +229,312 @@ public class DomainEventBus {
             // Copiar la lista para evitar ConcurrentModificationException si alguien se desuscribe mientras iteramos
              List<Subscriber<? extends DomainEvent>> subscribersToNotify = new ArrayList<>(subsForEvent);
 
-            // Notificar a cada suscriptor en un hilo separado
-            for (Subscriber subscriber : subscribersToNotify) {
-                executor.submit(() -> { // Envia la tarea al pool de hilos
-                    try {
-                        logger.debug("Notificando a suscriptor {} sobre evento {}", subscriber.getClass().getSimpleName(), eventType.getSimpleName());
-                        subscriber.onEvent(event); // Llama al método onEvent
-                    } catch (Exception e) {
-                        // Capturar excepciones para que un suscriptor fallido no detenga a otros
-                        logger.error("Error al notificar al suscriptor {} sobre el evento {}: {}",
-                                     subscriber.getClass().getSimpleName(), eventType.getSimpleName(), e.getMessage(), e);
-                    }
-                });
+            // Guardar el evento en el outbox antes de repartirlo, para no perderlo si la JVM se cae
+            UUID outboxId = null;
+            try {
+                outboxId = outbox.record(event, subscribersToNotify.stream().map(DomainEventBus::subscriberKey).toList());
+            } catch (IOException e) {
+                logger.error("No se pudo guardar el evento {} en el outbox; se entrega igual, sin reintento: {}",
+                             eventType.getSimpleName(), e.getMessage(), e);
             }
+            dispatch(outboxId, event, subscribersToNotify);
         } else {
             logger.debug("No hay suscriptores para el evento {}", eventType.getSimpleName());
         }
     }
+
+    /**
+     * Al terminar de iniciar (con todos los suscriptores ya registrados) vuelve a
+     * entregar los eventos del outbox que quedaron sin procesar.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayOutbox() {
+        List<EventOutbox.PendingEvent> pendingEvents = outbox.takeRecovered();
+        if (pendingEvents.isEmpty()) {
+            return;
+        }
+        logger.info("Reentregando {} eventos pendientes del outbox.", pendingEvents.size());
+        redeliver(pendingEvents);
+    }
+
+    /**
+     * Reintenta, sin esperar a un reinicio, las entregas del outbox que siguen sin marca
+     * despues de events.outbox.redispatch-interval-ms (suscriptor que fallo o executor lleno).
+     * Toma hasta events.outbox.redispatch-batch-size eventos por pasada.
+     */
+    @Scheduled(fixedDelayString = "${events.outbox.redispatch-interval-ms:60000}",
+               initialDelayString = "${events.outbox.redispatch-interval-ms:60000}")
+    public void redispatchOutbox() {
+        if (!outbox.isEnabled()) {
+            return;
+        }
+        drainHeld();
+        List<EventOutbox.PendingEvent> stale = outbox.takeStale(redispatchIntervalMs, redispatchBatchSize);
+        if (stale.isEmpty()) {
+            return;
+        }
+        logger.info("Reintentando {} eventos pendientes del outbox.", stale.size());
+        meterRegistry.counter("domain.events.outbox.redispatched").increment(stale.size());
+        redeliver(stale);
+    }
+
+    /**
+     * Vuelve a intentar, en el carril de cada clave, las entregas retenidas por una falla.
+     * Las entregas del outbox que estan retenidas siguen en 'queued', asi que takeStale
+     * no las manda de nuevo al carril (quedarian detras de eventos mas nuevos).
+     */
+    private void drainHeld() {
+        Map<String, Delivery> heads = new HashMap<>();
+        synchronized (held) {
+            held.forEach((key, backlog) -> {
+                if (!backlog.isEmpty()) {
+                    heads.put(key, backlog.peekFirst());
+                }
+            });
+        }
+        heads.forEach((key, head) -> {
+            if (!draining.add(key)) {
+                return;
+            }
+            inFlight.incrementAndGet();
+            try {
+                executorFor(head.event(), head.subscriber()).execute(() -> drain(key));
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                draining.remove(key);
+                logger.warn("Reintento de las entregas retenidas de {} no encolado (executor apagado)", key);
+            }
+        });
+    }
+
+    /**
+     * Entrega eventos del outbox en lotes: una tarea por (executor, suscriptor) con todos
+     * sus eventos, en orden de publicacion (asi un carril recibe los de un scrim en orden).
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void redeliver(List<EventOutbox.PendingEvent> pendingEvents) {
+        Map<ExecutorService, Map<Subscriber<? extends DomainEvent>, List<EventOutbox.PendingEvent>>> batches = new LinkedHashMap<>();
+        for (EventOutbox.PendingEvent pendingEvent : pendingEvents) {
+            Set<String> missing = new HashSet<>(pendingEvent.subscribers());
+            for (Subscriber<? extends DomainEvent> subscriber :
+                    new ArrayList<>(subscribers.getOrDefault(pendingEvent.event().getClass(), List.of()))) {
+                String key = subscriberKey(subscriber);
+                if (!missing.remove(key) || queued.contains(queuedKey(pendingEvent.id(), key))) {
+                    continue;
+                }
+                batches.computeIfAbsent(executorFor(pendingEvent.event(), subscriber), k -> new LinkedHashMap<>())
+                        .computeIfAbsent(subscriber, k -> new ArrayList<>())
+                        .add(pendingEvent);
+            }
+            // Suscriptores que ya no existen: no hay a quien entregarle el evento
+            for (String key : missing) {
+                logger.warn("Outbox: el suscriptor {} ya no está registrado, se descarta su entrega.", key);
+                outbox.markDone(pendingEvent.id(), key);
+            }
+        }
+        batches.forEach((target, bySubscriber) -> bySubscriber.forEach((subscriber, batch) -> {
+            List<String> keys = batch.stream().map(e -> queuedKey(e.id(), subscriberKey(subscriber))).toList();
+            queued.addAll(keys);
+            inFlight.addAndGet(batch.size());
+            try {
+                target.execute(() -> {
+                    for (EventOutbox.PendingEvent pendingEvent : batch) {
+                        process(pendingEvent.id(), pendingEvent.event(), (Subscriber) subscriber);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.addAndGet(-batch.size());
+                keys.forEach(queued::remove);
+                logger.warn("Reintento de {} eventos del outbox a {} no encolado (executor saturado o apagado); sigue pendiente",
+                            batch.size(), subscriber.getClass().getSimpleName());
+            }
+        }));
+    }
+
+    // Notificar a cada suscriptor en un hilo separado; las entregas exitosas se marcan en el outbox
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void dispatch(UUID outboxId, DomainEvent event, List<Subscriber<? extends DomainEvent>> subscribersToNotify) {
+        Class<? extends DomainEvent> eventType = event.getClass();
+        for (Subscriber subscriber : subscribersToNotify) {
+            String subscriberName = subscriber.getClass().getSimpleName();
+            String key = outboxId != null ? queuedKey(outboxId, subscriberKey(subscriber)) : null;
+            if (key != null) {
+                queued.add(key);
+            }
+            inFlight.incrementAndGet();
+            try {
+                // Envia la tarea al pool de hilos
+                executorFor(event, subscriber).execute(() -> process(outboxId, event, subscriber));
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                if (key != null) {
+                    queued.remove(key);
+                    logger.warn("Notificacion del evento {} a {} no encolada (executor saturado o apagado); queda pendiente en el outbox",
+                                eventType.getSimpleName(), subscriberName);
+                } else {
+                    logger.error("Notificacion del evento {} a {} descartada: executor saturado o apagado",
+                                 eventType.getSimpleName(), subscriberName);
+                }
+            }
+        }
+    }
+
+    /**
+     * Corre en el hilo del executor. Los eventos con clave de orden no se entregan mientras
+     * haya una entrega anterior del mismo scrim retenida: se agregan detras de ella. Si falla
+     * la entrega de uno (con outbox), queda retenida y las siguientes esperan a que salga
+     * bien (ver drain). Asi un reintento nunca llega despues de un evento mas nuevo.
+     */
+    private <T extends DomainEvent> void process(UUID outboxId, T event, Subscriber<T> subscriber) {
+        String orderKey = orderKey(event, subscriber);
+        boolean retained = false;
+        try {
+            if (orderKey == null) {
+                deliver(outboxId, event, subscriber);
+                return;
+            }
+            synchronized (held) {
+                ArrayDeque<Delivery> backlog = held.get(orderKey);
+                if (backlog != null) {
+                    backlog.addLast(new Delivery(outboxId, event, subscriber));
+                    retained = true;
+                    return;
+                }
+            }
+            if (!deliver(outboxId, event, subscriber) && outboxId != null) {
+                synchronized (held) {
+                    held.computeIfAbsent(orderKey, k -> new ArrayDeque<>()).addLast(new Delivery(outboxId, event, subscriber));
+                }
+                retained = true;
+            }
+        } finally {
+            if (outboxId != null && !retained) {
+                queued.remove(queuedKey(outboxId, subscriberKey(subscriber)));
+            }
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Corre en el carril de la clave (el mismo que agrega retenidas, asi que nadie mas las
+     * toca mientras tanto): entrega las retenidas en orden hasta que una falle. Las que
+     * quedan se reintentan en la proxima pasada de redispatchOutbox.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void drain(String orderKey) {
+        try {
+            while (true) {
+                Delivery next;
+                synchronized (held) {
+                    ArrayDeque<Delivery> backlog = held.get(orderKey);
+                    if (backlog == null) {
+                        return;
+                    }
+                    next = backlog.peekFirst();
+                    if (next == null) {
+                        held.remove(orderKey);
+                        return;
+                    }
+                }
+                if (!deliver(next.outboxId(), next.event(), (Subscriber) next.subscriber())) {
+                    return;
+                }
+                synchronized (held) {
+                    ArrayDeque<Delivery> backlog = held.get(orderKey);
+                    backlog.pollFirst();
+                    if (backlog.isEmpty()) {
+                        held.remove(orderKey);
+                    }
+                }
+                if (next.outboxId() != null) {
+                    queued.remove(queuedKey(next.outboxId(), subscriberKey(next.subscriber())));
+                }
+            }
+        } finally {
+            draining.remove(orderKey);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    // Entrega un evento a un suscriptor y, si sale bien, lo marca en el outbox
+    private <T extends DomainEvent> boolean deliver(UUID outboxId, T event, Subscriber<T> subscriber) {
+        String subscriberName = subscriber.getClass().getSimpleName();
+        String eventName = event.getClass().getSimpleName();
+        long start = System.nanoTime();
+        try {
+            logger.debug("Notificando a suscriptor {} sobre evento {}", subscriberName, eventName);
+            subscriber.onEvent(event); // Llama al método onEvent
+            outbox.markDone(outboxId, subscriberKey(subscriber));
+            return true;
+        } catch (Exception e) {
+            // Capturar excepciones para que un suscriptor fallido no detenga a otros.
+            // La entrega queda pendiente en el outbox y se reintenta (ver redispatchOutbox).
+            logger.error("Error al notificar al suscriptor {} sobre el evento {}: {}",
+                         subscriberName, eventName, e.getMessage(), e);
+            return false;
+        } finally {
+            meterRegistry.timer("domain.events.subscriber", "subscriber", subscriberName, "event", eventName)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Los eventos con clave de orden van al carril que corresponde a (clave, suscriptor):
+     * cada suscriptor recibe los eventos de un mismo scrim en orden, y distintos scrims
+     * (o distintos suscriptores) se reparten entre los carriles y corren en paralelo.
+     */
+    private ExecutorService executorFor(DomainEvent event, Subscriber<?> subscriber) {
+        Object key = event.partitionKey();
+        if (key == null || lanes.length == 0) {
+            return executor;
+        }
+        int hash = 31 * key.hashCode() + subscriberKey(subscriber).hashCode();
+        hash ^= (hash >>> 16);
+        return lanes[Math.floorMod(hash, lanes.length)];
+    }
+
+    // Clave de las retenidas: null si el evento no necesita orden (o no hay carriles que lo den)
+    private String orderKey(DomainEvent event, Subscriber<?> subscriber) {
+        Object key = event.partitionKey();
+        return key != null && lanes.length > 0 ? key + "|" + subscriberKey(subscriber) : null;
+    }
+
+    private static String queuedKey(UUID outboxId, String subscriberKey) {
+        return outboxId + "|" + subscriberKey;
+    }
+
+    // Identifica al suscriptor en el outbox (debe ser estable entre reinicios)
+    private static String subscriberKey(Subscriber<?> subscriber) {
+        return subscriber.getClass().getName();
+    }
+
+    /**
+     * Al apagar la aplicación deja de aceptar eventos y espera a que terminen
+     * las notificaciones pendientes, de todos los carriles (hasta events.shutdown-timeout-seconds).
+     */
+    @PreDestroy
+    public void shutdown() {
+        List<ExecutorService> all = new ArrayList<>(List.of(lanes));
+        all.add(executor);
+        all.forEach(ExecutorService::shutdown);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(shutdownTimeoutSeconds);
+        int dropped = 0;
+        try {
+            for (ExecutorService service : all) {
+                if (!service.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    dropped += service.shutdownNow().size();
+                }
+            }
+        } catch (InterruptedException e) {
+            all.forEach(ExecutorService::shutdownNow);
+            Thread.currentThread().interrupt();
+        }
+        if (dropped > 0) {
+            logger.warn("DomainEventBus apagado con {} notificaciones sin procesar ({} en curso)", dropped, inFlight.get());
+        }
+    }
+
+    // Entrega retenida detras de una anterior del mismo scrim que fallo
+    private record Delivery(UUID outboxId, DomainEvent event, Subscriber<? extends DomainEvent> subscriber) {
+    }
 }
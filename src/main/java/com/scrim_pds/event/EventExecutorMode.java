@@ -0,0 +1,10 @@
+package com.scrim_pds.event;
+
+// Backend de ejecucion de los suscriptores del bus (propiedad events.executor).
+
+public enum EventExecutorMode {
+    // Pool de hilos de plataforma con cola acotada y politica de rechazo configurable
+    BOUNDED,
+    // Un hilo virtual por tarea (requiere Java 21; en Java 17 se usa BOUNDED)
+    VIRTUAL
+}
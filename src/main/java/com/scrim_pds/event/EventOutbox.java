@@ -0,0 +1,257 @@
+package com.scrim_pds.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.scrim_pds.persistence.WriteAheadLog;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Outbox persistente de eventos de dominio, en "data/events-outbox.wal".
+ *
+ * Cada evento publicado se agrega al log (con fsync agrupado, ver WriteAheadLog)
+ * antes de repartirlo a los suscriptores, junto con la lista de suscriptores que
+ * deben recibirlo. Cada entrega exitosa agrega una marca DONE. Al iniciar se
+ * reproduce el log y las entregas sin marca se vuelven a hacer (al menos una vez);
+ * mientras corre, DomainEventBus reintenta cada tanto las que siguen sin marca
+ * (ver takeStale).
+ *
+ * Las marcas DONE no hacen fsync: si se pierden, el evento se entrega de nuevo.
+ * Cuando el log supera events.outbox.compact-threshold lineas se reescribe
+ * dejando solo los eventos pendientes.
+ */
+@Component
+public class EventOutbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventOutbox.class);
+    static final String FILE_NAME = "events-outbox.wal";
+    private static final String OP_EVENT = "EVENT";
+    private static final String OP_DONE = "DONE";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter compactWriter;
+    private final boolean enabled;
+    private final int compactThreshold;
+    private final WriteAheadLog log;
+
+    // Eventos con entregas pendientes, en orden de publicacion
+    private final Map<UUID, PendingEvent> pending = new LinkedHashMap<>();
+    // Ids de los eventos pendientes reproducidos del log al iniciar
+    private final Set<UUID> recovered = new LinkedHashSet<>();
+    // Ultimo intento de entrega de cada evento pendiente (millis), para no reintentar enseguida
+    private final Map<UUID, Long> lastAttempt = new HashMap<>();
+
+    public EventOutbox(ObjectMapper objectMapper,
+                       @Value("${data.directory}") String dataDirPath,
+                       @Value("${events.outbox.enabled:true}") boolean enabled,
+                       @Value("${events.outbox.compact-threshold:1000}") int compactThreshold) throws IOException {
+        this.objectMapper = objectMapper;
+        this.compactWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.enabled = enabled;
+        this.compactThreshold = compactThreshold;
+        if (!enabled) {
+            this.log = null;
+            return;
+        }
+        Path dataDirectory = Paths.get(dataDirPath);
+        Files.createDirectories(dataDirectory);
+        Path logPath = dataDirectory.resolve(FILE_NAME);
+        long replayed = WriteAheadLog.replay(logPath, this::applyLogLine);
+        this.log = new WriteAheadLog(logPath, replayed);
+        recovered.addAll(pending.keySet());
+        if (!pending.isEmpty()) {
+            logger.info("Outbox de eventos: {} eventos con entregas pendientes.", pending.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Guarda el evento en el log y espera a que este en disco.
+     * @param subscriberNames Suscriptores que deben recibirlo.
+     * @return Id del evento en el outbox, o null si el outbox esta deshabilitado.
+     */
+    public UUID record(DomainEvent event, Collection<String> subscriberNames) throws IOException {
+        if (!enabled || subscriberNames.isEmpty()) {
+            return null;
+        }
+        UUID id = UUID.randomUUID();
+        PendingEvent entry = new PendingEvent(id, event, ConcurrentHashMap.newKeySet());
+        entry.subscribers().addAll(subscriberNames);
+        byte[] line = eventLine(entry);
+        long seq;
+        synchronized (this) {
+            seq = log.append(List.of(line));
+            pending.put(id, entry);
+            lastAttempt.put(id, System.currentTimeMillis());
+        }
+        log.sync(seq);
+        return id;
+    }
+
+    /**
+     * Marca la entrega del evento a un suscriptor. Si era la ultima, el evento
+     * deja de estar pendiente.
+     */
+    public void markDone(UUID id, String subscriberName) {
+        if (!enabled || id == null) {
+            return;
+        }
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("op", OP_DONE);
+        node.put("id", id.toString());
+        node.put("subscriber", subscriberName);
+        try {
+            byte[] line = compactWriter.writeValueAsBytes(node);
+            synchronized (this) {
+                PendingEvent entry = pending.get(id);
+                if (entry == null || !entry.subscribers().remove(subscriberName)) {
+                    return;
+                }
+                if (entry.subscribers().isEmpty()) {
+                    pending.remove(id);
+                    lastAttempt.remove(id);
+                }
+                log.append(List.of(line));
+                if (log.getEntries() >= compactThreshold) {
+                    compact();
+                }
+            }
+        } catch (IOException e) {
+            // No es grave: sin la marca el evento se vuelve a entregar al reiniciar
+            logger.warn("No se pudo marcar en el outbox la entrega de {} a {}: {}", id, subscriberName, e.getMessage());
+        }
+    }
+
+    /**
+     * Eventos que quedaron con entregas pendientes en el log al iniciar.
+     * Se devuelven una sola vez (los publicados despues ya se estan entregando).
+     */
+    public synchronized List<PendingEvent> takeRecovered() {
+        long now = System.currentTimeMillis();
+        List<PendingEvent> copy = new ArrayList<>(recovered.size());
+        for (UUID id : recovered) {
+            PendingEvent entry = pending.get(id);
+            if (entry != null) {
+                copy.add(new PendingEvent(entry.id(), entry.event(), Set.copyOf(entry.subscribers())));
+                lastAttempt.put(id, now);
+            }
+        }
+        recovered.clear();
+        return copy;
+    }
+
+    /**
+     * Eventos con entregas pendientes cuyo ultimo intento fue hace al menos minAgeMillis
+     * (el suscriptor fallo o la entrega no entro en el executor), en orden de publicacion
+     * y hasta max. Quedan marcados como intentados ahora. No incluye los recuperados al
+     * iniciar que todavia no se tomaron con takeRecovered.
+     */
+    public synchronized List<PendingEvent> takeStale(long minAgeMillis, int max) {
+        long now = System.currentTimeMillis();
+        List<PendingEvent> stale = new ArrayList<>();
+        for (PendingEvent entry : pending.values()) {
+            if (stale.size() >= max) {
+                break;
+            }
+            if (recovered.contains(entry.id()) || now - lastAttempt.getOrDefault(entry.id(), 0L) < minAgeMillis) {
+                continue;
+            }
+            stale.add(new PendingEvent(entry.id(), entry.event(), Set.copyOf(entry.subscribers())));
+            lastAttempt.put(entry.id(), now);
+        }
+        return stale;
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    // Reescribe el log con solo los eventos pendientes. Se llama con 'this' bloqueado.
+    private void compact() throws IOException {
+        log.rotate();
+        List<byte[]> lines = new ArrayList<>(pending.size());
+        for (PendingEvent entry : pending.values()) {
+            lines.add(eventLine(entry));
+        }
+        log.sync(log.append(lines));
+        log.deleteRotated();
+        logger.debug("Outbox de eventos compactado: {} eventos pendientes.", pending.size());
+    }
+
+    private byte[] eventLine(PendingEvent entry) throws IOException {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("op", OP_EVENT);
+        node.put("id", entry.id().toString());
+        node.put("type", entry.event().getClass().getName());
+        ArrayNode subscribers = node.putArray("subscribers");
+        entry.subscribers().forEach(subscribers::add);
+        node.set("data", objectMapper.valueToTree(entry.event()));
+        return compactWriter.writeValueAsBytes(node);
+    }
+
+    private void applyLogLine(String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            UUID id = UUID.fromString(node.get("id").asText());
+            if (OP_DONE.equals(node.get("op").asText())) {
+                PendingEvent entry = pending.get(id);
+                if (entry != null) {
+                    entry.subscribers().remove(node.get("subscriber").asText());
+                    if (entry.subscribers().isEmpty()) {
+                        pending.remove(id);
+                    }
+                }
+                return;
+            }
+            Class<? extends DomainEvent> type = Class.forName(node.get("type").asText()).asSubclass(DomainEvent.class);
+            DomainEvent event = objectMapper.treeToValue(node.get("data"), type);
+            Set<String> subscribers = ConcurrentHashMap.newKeySet();
+            node.get("subscribers").forEach(s -> subscribers.add(s.asText()));
+            pending.put(id, new PendingEvent(id, event, subscribers));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Linea inválida en el outbox de eventos: " + line, e);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            // Tipo de evento que ya no existe: no hay a quien entregarlo
+            logger.warn("Outbox de eventos: se descarta un evento de tipo desconocido ({})", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    /**
+     * Evento del outbox y los suscriptores que todavia no lo recibieron.
+     */
+    public record PendingEvent(UUID id, DomainEvent event, Set<String> subscribers) {
+    }
+}
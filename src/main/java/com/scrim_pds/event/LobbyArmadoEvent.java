@@ -1,19 +1,39 @@
 package com.scrim_pds.event;
 
 import com.scrim_pds.model.Scrim;
+import java.util.List;
 import java.util.UUID; 
 
 // Evento que se publica cuando un Scrim alcanza el cupo y pasa a Lobby Armado.
 
 public record LobbyArmadoEvent(
-    UUID scrimId,       
-    String juego,       
-    UUID organizadorId 
-
+    UUID scrimId,
+    String juego,
+    UUID organizadorId,
+    UsuarioSnapshot organizador, // null si el organizador ya no existe
+    Scrim scrim, // Foto del scrim al publicar el evento
+    List<ParticipanteSnapshot> participantes // Postulaciones del scrim al publicar el evento
 ) implements DomainEvent {
 
-    // Constructor adicional si queremos pasar el objeto Scrim completo
-    public LobbyArmadoEvent(Scrim scrim) {
-        this(scrim.getId(), scrim.getJuego(), scrim.getOrganizadorId());
+    // Los suscriptores no releen scrims.json, postulaciones.json ni users.json: todo viaja en el evento,
+    // con el organizador y los participantes ya resueltos (email y canales de notificacion).
+    // El scrim se copia al crear el evento y al leerlo, para que nadie modifique la foto.
+    public LobbyArmadoEvent {
+        scrim = scrim != null ? new Scrim(scrim) : null;
+        participantes = participantes != null ? List.copyOf(participantes) : List.of();
+    }
+
+    public LobbyArmadoEvent(Scrim scrim, UsuarioSnapshot organizador, List<ParticipanteSnapshot> participantes) {
+        this(scrim.getId(), scrim.getJuego(), scrim.getOrganizadorId(), organizador, scrim, participantes);
+    }
+
+    @Override
+    public Scrim scrim() {
+        return scrim != null ? new Scrim(scrim) : null;
+    }
+
+    @Override
+    public Object partitionKey() {
+        return scrimId;
     }
 }
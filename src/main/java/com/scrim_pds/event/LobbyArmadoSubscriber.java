@@ -1,19 +1,14 @@
 package com.scrim_pds.event;
 
-import com.scrim_pds.model.Postulacion;
 import com.scrim_pds.model.Scrim; 
 import com.scrim_pds.model.User;
-import com.scrim_pds.model.enums.CanalNotificacion;
 import com.scrim_pds.model.enums.PostulacionState;
 import com.scrim_pds.notification.NotificationService;
-import com.scrim_pds.persistence.JsonPersistenceManager;
-import com.scrim_pds.service.UserService; 
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -27,18 +22,12 @@ public class LobbyArmadoSubscriber implements Subscriber<LobbyArmadoEvent> {
     private static final Logger logger = LoggerFactory.getLogger(LobbyArmadoSubscriber.class);
 
     private final DomainEventBus eventBus;
-    private final JsonPersistenceManager persistenceManager; 
     private final NotificationService notificationService;
-    private final UserService userService; 
 
     public LobbyArmadoSubscriber(DomainEventBus eventBus,
-                                 JsonPersistenceManager persistenceManager,
-                                 NotificationService notificationService,
-                                 UserService userService) { 
+                                 NotificationService notificationService) {
         this.eventBus = eventBus;
-        this.persistenceManager = persistenceManager;
         this.notificationService = notificationService;
-        this.userService = userService; 
     }
 
     @PostConstruct
@@ -56,68 +45,57 @@ public class LobbyArmadoSubscriber implements Subscriber<LobbyArmadoEvent> {
         UUID scrimId = event.scrimId();
         logger.info("Procesando LobbyArmadoEvent para Scrim ID: {}", scrimId);
 
-        try {
-            // Releer el Scrim por si acaso, aunque el evento podría tener mas datos.
-             List<Scrim> scrims = persistenceManager.readCollection("scrims.json", Scrim.class);
-             Optional<Scrim> scrimOpt = scrims.stream().filter(s -> s.getId().equals(scrimId)).findFirst();
-             if (scrimOpt.isEmpty()) {
-                 logger.error("No se encontró el Scrim {} al procesar LobbyArmadoEvent.", scrimId);
-                 return;
-             }
-             Scrim scrim = scrimOpt.get();
-
-
-            // 1. Notificar al Organizador
-            Optional<User> organizadorOpt = userService.findUserById(event.organizadorId());
-            if (organizadorOpt.isPresent()) {
-                User organizador = organizadorOpt.get();
-                if (shouldNotify(organizador, CanalNotificacion.EMAIL)) { // Verificar preferencias
-                    notificationService.sendLobbyArmadoNotification(organizador, scrim);
-                } else {
-                     logger.debug("Organizador {} no desea notificaciones EMAIL para Lobby Armado.", organizador.getId());
-                }
+        // El evento trae la foto del scrim, de sus postulaciones y de los usuarios (no se releen los archivos)
+        Scrim scrim = event.scrim();
+        if (scrim == null) {
+            logger.error("El LobbyArmadoEvent del Scrim {} no trae la foto del scrim.", scrimId);
+            return;
+        }
+
+
+        // 1. Notificar al Organizador
+        Optional<User> organizadorOpt = Optional.ofNullable(event.organizador()).map(UsuarioSnapshot::toUser);
+        if (organizadorOpt.isPresent()) {
+            User organizador = organizadorOpt.get();
+            if (shouldNotify(organizador)) { // Verificar preferencias
+                notificationService.sendLobbyArmadoNotification(organizador, scrim);
             } else {
-                logger.warn("No se encontró al organizador con ID {} para notificar sobre Lobby Armado del Scrim {}.", event.organizadorId(), scrimId);
+                 logger.debug("Organizador {} no desea notificaciones para Lobby Armado.", organizador.getId());
             }
+        } else {
+            logger.warn("No se encontró al organizador con ID {} para notificar sobre Lobby Armado del Scrim {}.", event.organizadorId(), scrimId);
+        }
 
-            // 2. Notificar a los Postulantes (PENDIENTE o ACEPTADA)
-            List<Postulacion> postulaciones = persistenceManager.readCollection("postulaciones.json", Postulacion.class);
-            List<Postulacion> postulantesActivos = postulaciones.stream()
-                    .filter(p -> p.getScrimId().equals(scrimId) &&
-                                 (p.getEstado() == PostulacionState.PENDIENTE || p.getEstado() == PostulacionState.ACEPTADA))
-                    .collect(Collectors.toList());
-
-            int notifiedPostulantes = 0;
-            for (Postulacion p : postulantesActivos) {
-                Optional<User> postulanteOpt = userService.findUserById(p.getUsuarioId());
-                if (postulanteOpt.isPresent()) {
-                    User postulante = postulanteOpt.get();
-                    if (shouldNotify(postulante, CanalNotificacion.EMAIL)) {
-                        notificationService.sendLobbyArmadoNotification(postulante, scrim);
-                        notifiedPostulantes++;
-                    } else {
-                         logger.debug("Postulante {} no desea notificaciones EMAIL para Lobby Armado.", postulante.getId());
-                    }
+        // 2. Notificar a los Postulantes (PENDIENTE o ACEPTADA)
+        List<ParticipanteSnapshot> postulaciones = event.participantes();
+        List<ParticipanteSnapshot> postulantesActivos = postulaciones.stream()
+                .filter(p -> p.estado() == PostulacionState.PENDIENTE || p.estado() == PostulacionState.ACEPTADA)
+                .collect(Collectors.toList());
+
+        int notifiedPostulantes = 0;
+        for (ParticipanteSnapshot p : postulantesActivos) {
+            Optional<User> postulanteOpt = Optional.ofNullable(p.usuario()).map(UsuarioSnapshot::toUser);
+            if (postulanteOpt.isPresent()) {
+                User postulante = postulanteOpt.get();
+                if (shouldNotify(postulante)) {
+                    notificationService.sendLobbyArmadoNotification(postulante, scrim);
+                    notifiedPostulantes++;
                 } else {
-                    logger.warn("No se encontró al usuario con ID {} (postulante) para notificar sobre Lobby Armado del Scrim {}.", p.getUsuarioId(), scrimId);
+                     logger.debug("Postulante {} no desea notificaciones para Lobby Armado.", postulante.getId());
                 }
+            } else {
+                logger.warn("No se encontró al usuario con ID {} (postulante) para notificar sobre Lobby Armado del Scrim {}.", p.usuarioId(), scrimId);
             }
-            logger.info("Notificación de Lobby Armado enviada a {} postulantes.", notifiedPostulantes);
-
-        } catch (IOException e) {
-            logger.error("Error al leer archivos para notificar sobre Lobby Armado del Scrim {}: {}", scrimId, e.getMessage());
-        } catch (Exception e) {
-             logger.error("Error inesperado procesando LobbyArmadoEvent para {}: {}", scrimId, e.getMessage(), e);
         }
+        logger.info("Notificación de Lobby Armado enviada a {} postulantes.", notifiedPostulantes);
     }
 
-    // Verifica si un usuario desea recibir notificaciones por un canal específico.
+    // Verifica si un usuario desea esta notificación y tiene algún canal donde recibirla.
 
-    private boolean shouldNotify(User user, CanalNotificacion canal) {
+    private boolean shouldNotify(User user) {
         if (user.getPreferencias() == null) return false; // Sin preferencias, no notificar
         // Usamos la preferencia general 'alertasScrim' por ahora
         return user.getPreferencias().isAlertasScrim() &&
-               user.getPreferencias().getCanalesNotificacion() != null &&
-               user.getPreferencias().getCanalesNotificacion().contains(canal.name());
+               !notificationService.canalesDe(user).isEmpty();
     }
 }
@@ -0,0 +1,18 @@
+package com.scrim_pds.event;
+
+import com.scrim_pds.model.Postulacion;
+import com.scrim_pds.model.User;
+import com.scrim_pds.model.enums.PostulacionState;
+
+import java.util.UUID;
+
+// Postulante de un scrim tal como estaba al publicar el evento, con sus datos de usuario ya resueltos
+// (usuario es null si el usuario no existia).
+
+public record ParticipanteSnapshot(UUID usuarioId, PostulacionState estado, UsuarioSnapshot usuario) {
+
+    public static ParticipanteSnapshot of(Postulacion postulacion, User usuario) {
+        return new ParticipanteSnapshot(postulacion.getUsuarioId(), postulacion.getEstado(),
+                usuario != null ? UsuarioSnapshot.of(usuario) : null);
+    }
+}
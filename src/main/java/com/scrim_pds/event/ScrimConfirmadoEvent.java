@@ -2,6 +2,7 @@ package com.scrim_pds.event;
 
 import com.scrim_pds.model.Scrim;
 import java.time.LocalDateTime; 
+import java.util.List;
 import java.util.UUID;
 
 // Evento que se publica cuando todos los participantes han confirmado y el Scrim pasa al estado CONFIRMADO.
@@ -9,12 +10,31 @@ import java.util.UUID;
 public record ScrimConfirmadoEvent(
     UUID scrimId,
     String juego,
-    LocalDateTime fechaHora, 
-    UUID organizadorId
+    LocalDateTime fechaHora,
+    UUID organizadorId,
+    UsuarioSnapshot organizador,
+    Scrim scrim,
+    List<ParticipanteSnapshot> participantes
 ) implements DomainEvent {
 
-    // Constructor adicional para crear desde el objeto Scrim
-    public ScrimConfirmadoEvent(Scrim scrim) {
-        this(scrim.getId(), scrim.getJuego(), scrim.getFechaHora(), scrim.getOrganizadorId());
+    // Como LobbyArmadoEvent: los suscriptores no hacen busquedas, el organizador y los
+    // participantes vienen resueltos al publicar el evento.
+    public ScrimConfirmadoEvent {
+        scrim = scrim != null ? new Scrim(scrim) : null;
+        participantes = participantes != null ? List.copyOf(participantes) : List.of();
+    }
+
+    public ScrimConfirmadoEvent(Scrim scrim, UsuarioSnapshot organizador, List<ParticipanteSnapshot> participantes) {
+        this(scrim.getId(), scrim.getJuego(), scrim.getFechaHora(), scrim.getOrganizadorId(), organizador, scrim, participantes);
+    }
+
+    @Override
+    public Scrim scrim() {
+        return scrim != null ? new Scrim(scrim) : null;
+    }
+
+    @Override
+    public Object partitionKey() {
+        return scrimId;
     }
 }
@@ -5,5 +5,10 @@ import com.scrim_pds.model.Scrim;
 // Evento que se publica cuando se crea un nuevo Scrim. 
 
 public record ScrimCreatedEvent(Scrim scrim) implements DomainEvent {
+
+    @Override
+    public Object partitionKey() {
+        return scrim.getId();
+    }
 }
 
@@ -1,6 +1,7 @@
 package com.scrim_pds.event;
 
 import com.scrim_pds.model.Scrim;
+import java.util.List;
 import java.util.UUID;
 
 // Evento que se publica cuando un Scrim pasa al estado FINALIZADO.
@@ -8,10 +9,30 @@ import java.util.UUID;
 public record ScrimFinalizadoEvent(
     UUID scrimId,
     String juego,
-    UUID organizadorId
+    UUID organizadorId,
+    UsuarioSnapshot organizador,
+    Scrim scrim,
+    List<ParticipanteSnapshot> participantes
 ) implements DomainEvent {
 
-     public ScrimFinalizadoEvent(Scrim scrim) {
-        this(scrim.getId(), scrim.getJuego(), scrim.getOrganizadorId());
+    // Como LobbyArmadoEvent: los suscriptores no hacen busquedas, el organizador y los
+    // participantes vienen resueltos al publicar el evento.
+    public ScrimFinalizadoEvent {
+        scrim = scrim != null ? new Scrim(scrim) : null;
+        participantes = participantes != null ? List.copyOf(participantes) : List.of();
+    }
+
+    public ScrimFinalizadoEvent(Scrim scrim, UsuarioSnapshot organizador, List<ParticipanteSnapshot> participantes) {
+        this(scrim.getId(), scrim.getJuego(), scrim.getOrganizadorId(), organizador, scrim, participantes);
+    }
+
+    @Override
+    public Scrim scrim() {
+        return scrim != null ? new Scrim(scrim) : null;
+    }
+
+    @Override
+    public Object partitionKey() {
+        return scrimId;
     }
 }
@@ -2,6 +2,7 @@ package com.scrim_pds.event;
 
 import com.scrim_pds.model.Scrim;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 // Evento que se publica cuando un Scrim pasa al estado EN_JUEGO.
@@ -10,10 +11,30 @@ public record ScrimIniciadoEvent(
     UUID scrimId,
     String juego,
     LocalDateTime fechaHora,
-    UUID organizadorId
+    UUID organizadorId,
+    UsuarioSnapshot organizador,
+    Scrim scrim,
+    List<ParticipanteSnapshot> participantes
 ) implements DomainEvent {
 
-    public ScrimIniciadoEvent(Scrim scrim) {
-        this(scrim.getId(), scrim.getJuego(), scrim.getFechaHora(), scrim.getOrganizadorId());
+    // Como LobbyArmadoEvent: los suscriptores no hacen busquedas, el organizador y los
+    // participantes vienen resueltos al publicar el evento.
+    public ScrimIniciadoEvent {
+        scrim = scrim != null ? new Scrim(scrim) : null;
+        participantes = participantes != null ? List.copyOf(participantes) : List.of();
+    }
+
+    public ScrimIniciadoEvent(Scrim scrim, UsuarioSnapshot organizador, List<ParticipanteSnapshot> participantes) {
+        this(scrim.getId(), scrim.getJuego(), scrim.getFechaHora(), scrim.getOrganizadorId(), organizador, scrim, participantes);
+    }
+
+    @Override
+    public Scrim scrim() {
+        return scrim != null ? new Scrim(scrim) : null;
+    }
+
+    @Override
+    public Object partitionKey() {
+        return scrimId;
     }
 }
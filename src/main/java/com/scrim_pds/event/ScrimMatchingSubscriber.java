@@ -1,10 +1,9 @@
 package com.scrim_pds.event;
 
-import com.scrim_pds.model.PreferenciasUsuario;
 import com.scrim_pds.model.Scrim;
 import com.scrim_pds.model.User;
-import com.scrim_pds.model.enums.CanalNotificacion;
 import com.scrim_pds.notification.NotificationService;
+import com.scrim_pds.persistence.CollectionDefinition;
 import com.scrim_pds.persistence.JsonPersistenceManager; 
 import jakarta.annotation.PostConstruct; 
 import org.slf4j.Logger;
@@ -12,6 +11,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 // Suscriptor que escucha ScrimCreatedEvent y notifica a usuarios con preferencias coincidentes.
@@ -53,73 +55,49 @@ public class ScrimMatchingSubscriber implements Subscriber<ScrimCreatedEvent> {
         logger.info("Procesando ScrimCreatedEvent para Scrim ID: {}", newScrim.getId());
 
         try {
-            List<User> allUsers = persistenceManager.readCollection("users.json", User.class);
-            int notifiedCount = 0;
-
-            for (User user : allUsers) {
+            List<User> destinatarios = new ArrayList<>();
+            for (User user : findInteresados(newScrim)) {
                 // Ignorar al organizador del scrim
                 if (user.getId().equals(newScrim.getOrganizadorId())) {
                     continue;
                 }
-
-                PreferenciasUsuario prefs = user.getPreferencias();
-                if (prefs != null && prefs.isAlertasScrim() && matchesPreferences(newScrim, prefs)) {
-
-                    // Verificar si el usuario quiere notificaciones por EMAIL
-                    if (prefs.getCanalesNotificacion() != null &&
-                        prefs.getCanalesNotificacion().contains(CanalNotificacion.EMAIL.name())) {
-
-                        // Enviar notificacion (el NotificationService se encargara de llamar al EmailNotifier)
-                        notificationService.sendNewScrimNotification(user, newScrim);
-                        notifiedCount++;
-                    }
-                }
+                destinatarios.add(user);
             }
-            logger.info("Notificación de nuevo scrim enviada a {} usuarios.", notifiedCount);
+            // Una sola llamada para todos (el NotificationService la envia por cada canal del usuario
+            // y registra los emails juntos)
+            notificationService.sendNewScrimNotification(destinatarios, newScrim);
+            logger.info("Notificación de nuevo scrim enviada a {} usuarios.", destinatarios.size());
 
         } catch (IOException e) {
-            logger.error("Error al leer users.json para notificar sobre nuevo scrim {}: {}", newScrim.getId(), e.getMessage());
-        } catch (Exception e) {
-             logger.error("Error inesperado procesando ScrimCreatedEvent para {}: {}", newScrim.getId(), e.getMessage(), e);
+            // Se propaga: la entrega queda pendiente en el outbox y se reintenta
+            throw new UncheckedIOException("Error al leer users.json para notificar sobre nuevo scrim " + newScrim.getId(), e);
         }
     }
 
-    // Verifica si un Scrim coincide con las preferencias de búsqueda de un usuario.
-
-    private boolean matchesPreferences(Scrim scrim, PreferenciasUsuario prefs) {
-        boolean match = true; 
-
-        // Comprobar juego (si el usuario tiene preferencia)
-        if (prefs.getBusquedaJuegoPorDefecto() != null && !prefs.getBusquedaJuegoPorDefecto().isEmpty()) {
-            if (!scrim.getJuego().equalsIgnoreCase(prefs.getBusquedaJuegoPorDefecto())) {
-                match = false; // No coincide el juego
-            }
-        }
-
-        // Comprobar region (si el usuario tiene preferencia y coincide)
-        if (match && prefs.getBusquedaRegionPorDefecto() != null && !prefs.getBusquedaRegionPorDefecto().isEmpty()) {
-            if (!scrim.getRegion().equalsIgnoreCase(prefs.getBusquedaRegionPorDefecto())) {
-                match = false; // No coincide la region
+    /**
+     * Usuarios con alertas de scrims (por algún canal) cuyas preferencias coinciden con el scrim.
+     * Cada preferencia (juego, región, rango) puede coincidir con el valor del scrim o no
+     * estar definida, así que son 8 búsquedas en el índice invertido de preferencias
+     * en lugar de recorrer todos los usuarios. Cada usuario está en una sola combinación.
+     */
+    private List<User> findInteresados(Scrim scrim) throws IOException {
+        String sinPreferencia = CollectionDefinition.SIN_PREFERENCIA;
+        List<String> juegos = Arrays.asList(CollectionDefinition.normalize(scrim.getJuego()), sinPreferencia);
+        List<String> regiones = Arrays.asList(CollectionDefinition.normalize(scrim.getRegion()), sinPreferencia);
+        List<String[]> rangos = List.of(
+                new String[] {CollectionDefinition.normalize(scrim.getRangoMin()), CollectionDefinition.normalize(scrim.getRangoMax())},
+                new String[] {sinPreferencia, sinPreferencia});
+
+        List<User> interesados = new ArrayList<>();
+        for (String juego : juegos) {
+            for (String region : regiones) {
+                for (String[] rango : rangos) {
+                    interesados.addAll(persistenceManager.findByIndex("users.json", User.class,
+                            CollectionDefinition.USERS_ALERTAS_BY_PREFERENCIA, juego, region, rango[0], rango[1]));
+                }
             }
         }
-
-        // Comprobar rangos
-        boolean rangoMatch = true; // Asumir que coincide si no hay preferencias de rango
-        if (prefs.getBusquedaRangoMinPorDefecto() != null && !prefs.getBusquedaRangoMinPorDefecto().isEmpty() &&
-            prefs.getBusquedaRangoMaxPorDefecto() != null && !prefs.getBusquedaRangoMaxPorDefecto().isEmpty())
-        {
-             rangoMatch = scrim.getRangoMin().equalsIgnoreCase(prefs.getBusquedaRangoMinPorDefecto()) &&
-                          scrim.getRangoMax().equalsIgnoreCase(prefs.getBusquedaRangoMaxPorDefecto());
-        }
-        if (!rangoMatch) {
-            match = false;
-        }
-
-        // Aca podemos agregar mas filtros (modalidad, formato, etc)
-
-        if (match) {
-             logger.debug("Scrim {} coincide con preferencias de usuario {}", scrim.getId(), prefs); 
-        }
-        return match;
+        logger.debug("Scrim {}: {} usuarios con preferencias coincidentes.", scrim.getId(), interesados.size());
+        return interesados;
     }
 }
@@ -6,6 +6,9 @@ public interface Subscriber<T extends DomainEvent> {
 
     /**
      * Metodo llamado cuando se publica un evento del tipo suscrito.
+     * Si lanza una excepcion la entrega queda pendiente en el outbox y se reintenta
+     * (ver DomainEventBus.redispatchOutbox), asi que no hay que atrapar los errores
+     * que conviene reintentar. Un reintento puede repetir lo que ya se hizo.
      * @param event El evento publicado.
      */
     void onEvent(T event);
@@ -0,0 +1,52 @@
+package com.scrim_pds.event;
+
+import com.scrim_pds.model.PreferenciasUsuario;
+import com.scrim_pds.model.User;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+// Datos de un usuario que necesitan los suscriptores para notificarlo, tal como estaban al publicar el evento.
+
+public record UsuarioSnapshot(
+    UUID id,
+    String username,
+    String email,
+    boolean alertasScrim,
+    Set<String> canalesNotificacion,
+    String discordWebhookUrl,
+    String pushToken
+) {
+
+    public UsuarioSnapshot {
+        canalesNotificacion = canalesNotificacion != null ? Set.copyOf(canalesNotificacion) : Set.of();
+    }
+
+    // Sin preferencias no se lo notifica (igual que antes, al leerlo de users.json)
+    public static UsuarioSnapshot of(User user) {
+        PreferenciasUsuario prefs = user.getPreferencias();
+        if (prefs == null) {
+            return new UsuarioSnapshot(user.getId(), user.getUsername(), user.getEmail(), false, Set.of(), null, null);
+        }
+        return new UsuarioSnapshot(user.getId(), user.getUsername(), user.getEmail(), prefs.isAlertasScrim(),
+                prefs.getCanalesNotificacion(), prefs.getDiscordWebhookUrl(), prefs.getPushToken());
+    }
+
+    /**
+     * Usuario con solo estos datos, para pasarselo al NotificationService.
+     */
+    public User toUser() {
+        PreferenciasUsuario prefs = new PreferenciasUsuario();
+        prefs.setAlertasScrim(alertasScrim);
+        prefs.setCanalesNotificacion(new HashSet<>(canalesNotificacion));
+        prefs.setDiscordWebhookUrl(discordWebhookUrl);
+        prefs.setPushToken(pushToken);
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPreferencias(prefs);
+        return user;
+    }
+}
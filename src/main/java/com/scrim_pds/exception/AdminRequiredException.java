@@ -0,0 +1,11 @@
+package com.scrim_pds.exception;
+
+/**
+ * Excepción lanzada cuando un usuario sin rol ADMIN llama a un endpoint de administración.
+ * Se traduce a un HTTP 403 Forbidden.
+ */
+public class AdminRequiredException extends RuntimeException {
+    public AdminRequiredException() {
+        super("No tienes permisos de administrador.");
+    }
+}
@@ -74,6 +74,15 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.CONFLICT);
     }
 
+    /**
+     * Maneja conflictos de concurrencia (la entidad cambió desde que se leyó).
+     * Devuelve HTTP 409 Conflict.
+     */
+    @ExceptionHandler(OptimisticLockException.class)
+    public ResponseEntity<Object> handleOptimisticLock(OptimisticLockException ex) {
+        return new ResponseEntity<>(Map.of("error", "El recurso fue modificado por otra operación. Intenta de nuevo."), HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(InvalidTokenException.class)
     public ResponseEntity<Object> handleInvalidToken(InvalidTokenException ex) {
         return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.BAD_REQUEST); // 400 Bad Request
@@ -96,6 +105,15 @@ public class GlobalExceptionHandler {
     }
     // --- FIN NUEVO MANEJADOR ---
 
+    /**
+     * Maneja llamadas a endpoints de administración sin rol ADMIN.
+     * Devuelve HTTP 403 Forbidden.
+     */
+    @ExceptionHandler(AdminRequiredException.class)
+    public ResponseEntity<Object> handleAdminRequired(AdminRequiredException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.FORBIDDEN);
+    }
+
 
     /**
      * Manejador genérico para CUALQUIER OTRA excepción no controlada.
@@ -0,0 +1,9 @@
+package com.scrim_pds.exception;
+
+// Se lanza cuando se intenta guardar una entidad que otro request modificó desde que se leyó.
+
+public class OptimisticLockException extends RuntimeException {
+    public OptimisticLockException(String message) {
+        super(message);
+    }
+}
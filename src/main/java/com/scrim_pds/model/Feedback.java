@@ -7,7 +7,7 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Schema(description = "Representa una pieza de feedback (rating/comentario) de un usuario a otro después de un scrim")
-public class Feedback {
+public class Feedback implements Versioned {
 
     private UUID id;
     private UUID scrimId; // Scrim donde ocurrió
@@ -17,6 +17,7 @@ public class Feedback {
     private String comment;
     private ModerationState moderationState; // PENDIENTE, APROBADO, RECHAZADO
     private LocalDateTime createdAt;
+    private long version; // Control de concurrencia optimista (0 en datos viejos)
 
     // Constructor vacío para Jackson
     public Feedback() {
@@ -86,4 +87,12 @@ public class Feedback {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
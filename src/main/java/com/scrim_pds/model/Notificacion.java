@@ -0,0 +1,134 @@
+package com.scrim_pds.model;
+
+import com.scrim_pds.model.enums.EstadoNotificacion;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Notificación saliente (email, Discord o push) con su estado de envío y sus reintentos.
+// destinatario depende del canal: email, URL del webhook de Discord o token push.
+
+public class Notificacion {
+    private UUID id;
+    private String canal; // CanalNotificacion
+    private String tipo; // Ej. "Lobby Armado"
+    private UUID scrimId; // Puede ser null
+    private String destinatario;
+    private String asunto;
+    private String cuerpo;
+    private EstadoNotificacion estado;
+    private int intentos;
+    private LocalDateTime proximoIntento;
+    private String ultimoError;
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaEnvio;
+
+    // Constructor
+    public Notificacion() {
+    }
+
+    // Getters y Setters
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public String getCanal() {
+        return canal;
+    }
+
+    public void setCanal(String canal) {
+        this.canal = canal;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    public UUID getScrimId() {
+        return scrimId;
+    }
+
+    public void setScrimId(UUID scrimId) {
+        this.scrimId = scrimId;
+    }
+
+    public String getDestinatario() {
+        return destinatario;
+    }
+
+    public void setDestinatario(String destinatario) {
+        this.destinatario = destinatario;
+    }
+
+    public String getAsunto() {
+        return asunto;
+    }
+
+    public void setAsunto(String asunto) {
+        this.asunto = asunto;
+    }
+
+    public String getCuerpo() {
+        return cuerpo;
+    }
+
+    public void setCuerpo(String cuerpo) {
+        this.cuerpo = cuerpo;
+    }
+
+    public EstadoNotificacion getEstado() {
+        return estado;
+    }
+
+    public void setEstado(EstadoNotificacion estado) {
+        this.estado = estado;
+    }
+
+    public int getIntentos() {
+        return intentos;
+    }
+
+    public void setIntentos(int intentos) {
+        this.intentos = intentos;
+    }
+
+    public LocalDateTime getProximoIntento() {
+        return proximoIntento;
+    }
+
+    public void setProximoIntento(LocalDateTime proximoIntento) {
+        this.proximoIntento = proximoIntento;
+    }
+
+    public String getUltimoError() {
+        return ultimoError;
+    }
+
+    public void setUltimoError(String ultimoError) {
+        this.ultimoError = ultimoError;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(LocalDateTime fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+
+    public LocalDateTime getFechaEnvio() {
+        return fechaEnvio;
+    }
+
+    public void setFechaEnvio(LocalDateTime fechaEnvio) {
+        this.fechaEnvio = fechaEnvio;
+    }
+}
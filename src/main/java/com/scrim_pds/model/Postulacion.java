@@ -5,7 +5,7 @@ import com.scrim_pds.model.enums.PostulacionState;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
-public class Postulacion {
+public class Postulacion implements Versioned {
     private UUID id;
     private UUID usuarioId;
     private UUID scrimId;
@@ -13,6 +13,7 @@ public class Postulacion {
     private PostulacionState estado; 
     private int latenciaReportada;
     private LocalDateTime fechaPostulacion;
+    private long version; // Control de concurrencia optimista (0 en datos viejos)
 
     // Constructor
     public Postulacion() {
@@ -74,4 +75,12 @@ public class Postulacion {
     public void setFechaPostulacion(LocalDateTime fechaPostulacion) {
         this.fechaPostulacion = fechaPostulacion;
     }
-}
\ No newline at end of file
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -21,6 +21,10 @@ public class PreferenciasUsuario {
     private String busquedaRangoMinPorDefecto;
     private String busquedaRangoMaxPorDefecto;
 
+    // Destinos de los canales DISCORD y PUSH (sin destino, el canal se ignora)
+    private String discordWebhookUrl;
+    private String pushToken;
+
     // Constructor
     public PreferenciasUsuario() {
         // Establecer valores por defecto si es necesario,
@@ -91,4 +95,20 @@ public class PreferenciasUsuario {
     public void setBusquedaRangoMaxPorDefecto(String busquedaRangoMaxPorDefecto) {
         this.busquedaRangoMaxPorDefecto = busquedaRangoMaxPorDefecto;
     }
+
+    public String getDiscordWebhookUrl() {
+        return discordWebhookUrl;
+    }
+
+    public void setDiscordWebhookUrl(String discordWebhookUrl) {
+        this.discordWebhookUrl = discordWebhookUrl;
+    }
+
+    public String getPushToken() {
+        return pushToken;
+    }
+
+    public void setPushToken(String pushToken) {
+        this.pushToken = pushToken;
+    }
 }
@@ -10,7 +10,7 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 import java.util.Objects; 
 
-public class Scrim {
+public class Scrim implements Versioned {
     private UUID id;
     private String juego;
     private Formato formato;
@@ -26,12 +26,36 @@ public class Scrim {
     private String descripcion;
     private Integer cupo; 
     private MatchmakingStrategyType matchmakingStrategyType; 
+    private LocalDateTime fechaCreacion; // Para ordenar por creación (null en scrims viejos)
+    private long version; // Control de concurrencia optimista (0 en scrims viejos)
     
     @Schema(description = "Flag para saber si el recordatorio de 2 horas ya fue enviado", hidden = true) 
     private boolean recordatorioEnviado = false; // Default false
 
     public Scrim() { }
 
+    // Copia (ej. para la foto del scrim que viaja en los eventos)
+    public Scrim(Scrim other) {
+        this.id = other.id;
+        this.juego = other.juego;
+        this.formato = other.formato;
+        this.region = other.region;
+        this.rangoMin = other.rangoMin;
+        this.rangoMax = other.rangoMax;
+        this.latenciaMax = other.latenciaMax;
+        this.fechaHora = other.fechaHora;
+        this.duracion = other.duracion;
+        this.modalidad = other.modalidad;
+        this.organizadorId = other.organizadorId;
+        this.estado = other.estado;
+        this.descripcion = other.descripcion;
+        this.cupo = other.cupo;
+        this.matchmakingStrategyType = other.matchmakingStrategyType;
+        this.fechaCreacion = other.fechaCreacion;
+        this.version = other.version;
+        this.recordatorioEnviado = other.recordatorioEnviado;
+    }
+
     // Getters and Setters 
     public UUID getId() { return id; }
     public void setId(UUID id) { this.id = id; }
@@ -63,6 +87,10 @@ public class Scrim {
     public void setCupo(Integer cupo) { this.cupo = cupo; }
     public MatchmakingStrategyType getMatchmakingStrategyType() { return matchmakingStrategyType; }
     public void setMatchmakingStrategyType(MatchmakingStrategyType matchmakingStrategyType) { this.matchmakingStrategyType = matchmakingStrategyType; }
+    public LocalDateTime getFechaCreacion() { return fechaCreacion; }
+    public void setFechaCreacion(LocalDateTime fechaCreacion) { this.fechaCreacion = fechaCreacion; }
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
     
     public boolean isRecordatorioEnviado() {
         return recordatorioEnviado;
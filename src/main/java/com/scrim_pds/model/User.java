@@ -8,7 +8,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
-public class User {
+public class User implements Versioned {
     private UUID id;
     private String username;
     private String email;
@@ -21,6 +21,7 @@ public class User {
     private int strikes;
     private LocalDateTime cooldownHasta;
     private VerificationState estadoVerificacion; 
+    private long version; // Control de concurrencia optimista (0 en datos viejos)
 
     // Constructor
     public User() {
@@ -122,4 +123,12 @@ public class User {
     public void setEstadoVerificacion(VerificationState estadoVerificacion) {
         this.estadoVerificacion = estadoVerificacion;
     }
-}
\ No newline at end of file
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,11 @@
+package com.scrim_pds.model;
+
+// Entidad con número de versión para control de concurrencia optimista.
+// La capa de persistencia solo acepta guardar una entidad si su versión coincide
+// con la guardada, y al guardarla la incrementa.
+
+public interface Versioned {
+    long getVersion();
+
+    void setVersion(long version);
+}
@@ -0,0 +1,27 @@
+package com.scrim_pds.notification;
+
+import com.scrim_pds.adapter.DiscordAdapter;
+
+import java.util.concurrent.CompletableFuture;
+
+// Implementación de Notifier para Discord (Diagrama). El destinatario es la URL del webhook.
+
+public class DiscordNotifier implements Notifier {
+
+    private final DiscordAdapter discordAdapter;
+
+    // Constructor
+    public DiscordNotifier(DiscordAdapter discordAdapter) {
+        this.discordAdapter = discordAdapter;
+    }
+
+    @Override
+    public boolean send(String destinatario, String asunto, String cuerpo) {
+        return discordAdapter.enviarMensaje(destinatario, asunto, cuerpo);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendAsync(String destinatario, String asunto, String cuerpo) {
+        return discordAdapter.enviarMensajeAsync(destinatario, asunto, cuerpo);
+    }
+}
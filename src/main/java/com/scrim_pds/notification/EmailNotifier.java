@@ -1,6 +1,9 @@
 package com.scrim_pds.notification;
 
 import com.scrim_pds.adapter.EmailAdapter;
+import com.scrim_pds.adapter.EmailMessage;
+
+import java.util.List;
 
 
 // Implementación de Notifier para emails (Diagrama).
@@ -18,5 +21,9 @@ public class EmailNotifier implements Notifier {
     public boolean send(String destinatario, String asunto, String cuerpo) {
         return emailAdapter.enviarEmail(destinatario, asunto, cuerpo);
     }
-}
 
+    @Override
+    public boolean sendBatch(List<EmailMessage> mensajes) {
+        return emailAdapter.enviarEmails(mensajes);
+    }
+}
@@ -0,0 +1,500 @@
+package com.scrim_pds.notification;
+
+import com.scrim_pds.adapter.EmailMessage;
+import com.scrim_pds.adapter.SendGridAdapter;
+import com.scrim_pds.model.Notificacion;
+import com.scrim_pds.model.enums.CanalNotificacion;
+import com.scrim_pds.model.enums.EstadoNotificacion;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cola asincrona de emails. NotificationService encola y vuelve enseguida; un hilo
+ * despachador junta lo que llega durante una ventana (notifications.batch-window-ms),
+ * une los mensajes que van al mismo destinatario en un solo email y los envia en lotes
+ * (una llamada al proveedor por lote), respetando un maximo de llamadas por segundo.
+ *
+ * Si el proveedor rechaza un lote (ej. por una direccion invalida) el lote se divide
+ * en mitades y se reenvia, hasta aislar los mensajes rechazados; los demas salen igual.
+ * Los cuerpos que no entran en un lote (ver SendGridAdapter.admiteLote) se envian solos.
+ *
+ * Cada email se guarda antes en NotificationStore (PENDIENTE_ENVIO) y el resultado del
+ * envío queda registrado ahí. Los fallidos no se reintentan en este hilo: el store los
+ * reprograma con backoff y NotificationRetryWorker los vuelve a encolar cuando vencen.
+ *
+ * Discord y push pasan por el mismo store y los mismos reintentos, pero no por la cola:
+ * sus notifiers ya son asincronos (ver WebhookTransport), asi que se envian enseguida y el
+ * resultado de cada uno se junta y se registra en el store desde el hilo despachador.
+ */
+@Component
+public class NotificationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private final Notifier emailNotifier;
+    private final Map<CanalNotificacion, Notifier> webhookNotifiers = new EnumMap<>(CanalNotificacion.class);
+    private final NotificationStore store;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<Pendiente> queue;
+    private final int batchSize;
+    private final long batchWindowMs;
+    private final long rateIntervalNanos;
+    private final boolean coalesce;
+    private final long shutdownTimeoutSeconds;
+
+    private final Thread dispatcherThread = new Thread(this::dispatchLoop, "notification-dispatcher");
+    private volatile boolean running = true;
+    // Ids de las notificaciones encoladas o enviandose (para no encolar dos veces un reintento)
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    // Guardar un resultado en el store y liberar sus ids es un solo paso respecto de reintentar:
+    // nadie ve el resultado guardado con el id todavia en vuelo, ni reintenta una copia vieja
+    private final Object resultadosLock = new Object();
+    // Resultados de Discord / push que todavia no se guardaron en el store
+    private final Queue<ResultadoWebhook> resultadosWebhook = new ConcurrentLinkedQueue<>();
+    private long nextPermitNanos = 0; // Limite de llamadas al proveedor (protegido por 'this')
+
+    public NotificationDispatcher(NotifierFactory factory,
+                                  NotificationStore store,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${notifications.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${notifications.batch-size:1000}") int batchSize,
+                                  @Value("${notifications.batch-window-ms:500}") long batchWindowMs,
+                                  @Value("${notifications.rate-limit-per-second:10}") double rateLimitPerSecond,
+                                  @Value("${notifications.coalesce:true}") boolean coalesce,
+                                  @Value("${notifications.shutdown-timeout-seconds:30}") long shutdownTimeoutSeconds) {
+        this.emailNotifier = factory.createEmailNotifier();
+        this.webhookNotifiers.put(CanalNotificacion.DISCORD, factory.createDiscordNotifier());
+        this.webhookNotifiers.put(CanalNotificacion.PUSH, factory.createPushNotifier());
+        this.store = store;
+        this.meterRegistry = meterRegistry;
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+        // SendGrid no acepta mas de 1000 destinatarios por llamada
+        this.batchSize = Math.max(1, Math.min(batchSize, SendGridAdapter.MAX_DESTINATARIOS_POR_LLAMADA));
+        this.batchWindowMs = Math.max(0, batchWindowMs);
+        this.rateIntervalNanos = rateLimitPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rateLimitPerSecond) : 0;
+        this.coalesce = coalesce;
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        meterRegistry.gauge("notifications.queue.size", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    /**
+     * Registra el email en el store y lo encola. Si la cola esta llena queda pendiente
+     * en el store y lo envia el worker de reintentos; si no se pudo guardar, se envia
+     * en el hilo que llama.
+     * @param tipo Tipo de notificacion, para el log (ej. "Lobby Armado").
+     * @param scrimId Scrim relacionado, o null.
+     */
+    public void enqueue(EmailMessage mensaje, String tipo, UUID scrimId) {
+        enqueueAll(List.of(mensaje), tipo, scrimId);
+    }
+
+    /**
+     * Como enqueue, pero registra todos los emails en el store con una sola escritura
+     * (ej. el fan-out de un scrim nuevo).
+     */
+    public void enqueueAll(List<EmailMessage> mensajes, String tipo, UUID scrimId) {
+        enqueueAll(CanalNotificacion.EMAIL, mensajes, tipo, scrimId);
+    }
+
+    /**
+     * Registra las notificaciones de un canal en el store (una sola escritura) y las envia.
+     * Los emails van a la cola; Discord y push se envian enseguida y, si fallan, quedan
+     * para el worker de reintentos con el mismo backoff que los emails.
+     * @param mensajes El destinatario de cada mensaje es el destino en ese canal
+     *                 (email, webhook de Discord o token push).
+     */
+    public void enqueueAll(CanalNotificacion canal, List<EmailMessage> mensajes, String tipo, UUID scrimId) {
+        if (mensajes.isEmpty()) {
+            return;
+        }
+        // En vuelo antes de guardarlas: el worker de reintentos no las toma mientras se encolan
+        List<UUID> registradas = new ArrayList<>(mensajes.size());
+        for (int i = 0; i < mensajes.size(); i++) {
+            registradas.add(UUID.randomUUID());
+        }
+        inFlight.addAll(registradas);
+        try {
+            store.registrarTodos(canal, registradas, mensajes, tipo, scrimId);
+        } catch (IOException | RuntimeException e) {
+            logger.error("No se pudieron registrar {} notificaciones de {} por {}: {}", mensajes.size(), tipo, canal, e.getMessage());
+            registradas.forEach(inFlight::remove);
+            registradas = null;
+        }
+        long enqueuedNanos = System.nanoTime();
+        for (int i = 0; i < mensajes.size(); i++) {
+            EmailMessage mensaje = mensajes.get(i);
+            List<UUID> ids = registradas != null ? List.of(registradas.get(i)) : List.of();
+            if (canal != CanalNotificacion.EMAIL) {
+                sendWebhook(canal, ids, mensaje, tipo);
+                continue;
+            }
+            Pendiente pendiente = new Pendiente(ids, mensaje, tipo, scrimId, enqueuedNanos);
+            if (offer(pendiente)) {
+                continue;
+            }
+            meterRegistry.counter("notifications.queue.rejected").increment();
+            if (!ids.isEmpty()) {
+                logger.warn("Cola de notificaciones llena o detenida: {} a {} queda pendiente para el próximo reintento.", tipo, mensaje.destinatario());
+            } else {
+                logger.warn("Cola de notificaciones llena o detenida: enviando {} a {} en el hilo actual.", tipo, mensaje.destinatario());
+                send(List.of(pendiente));
+            }
+        }
+    }
+
+    /**
+     * Vuelve a encolar una notificacion pendiente del store (la llama NotificationRetryWorker).
+     * @return false si ya estaba en la cola o la cola no tiene lugar.
+     */
+    public boolean reintentar(Notificacion notificacion) {
+        if (!running || !reservar(notificacion.getId())) {
+            return false;
+        }
+        CanalNotificacion canal = canalDe(notificacion);
+        if (canal != CanalNotificacion.EMAIL) {
+            sendWebhook(canal, List.of(notificacion.getId()),
+                    new EmailMessage(notificacion.getDestinatario(), notificacion.getAsunto(), notificacion.getCuerpo()),
+                    notificacion.getTipo());
+            meterRegistry.counter("notifications.retries").increment();
+            return true;
+        }
+        Pendiente pendiente = new Pendiente(List.of(notificacion.getId()),
+                new EmailMessage(notificacion.getDestinatario(), notificacion.getAsunto(), notificacion.getCuerpo()),
+                notificacion.getTipo(), notificacion.getScrimId(), System.nanoTime());
+        if (!offer(pendiente)) {
+            return false;
+        }
+        meterRegistry.counter("notifications.retries").increment();
+        return true;
+    }
+
+    /**
+     * true si la notificacion esta en la cola o enviandose (el worker de reintentos la saltea).
+     */
+    public boolean enVuelo(UUID id) {
+        return inFlight.contains(id);
+    }
+
+    /**
+     * Marca la notificacion en vuelo si no lo estaba y sigue PENDIENTE_ENVIO en el store
+     * (la copia que trae el worker puede ser anterior a un resultado ya guardado).
+     */
+    private boolean reservar(UUID id) {
+        synchronized (resultadosLock) {
+            if (inFlight.contains(id)) {
+                return false;
+            }
+            try {
+                Optional<Notificacion> actual = store.findById(id);
+                if (actual.isEmpty() || actual.get().getEstado() != EstadoNotificacion.PENDIENTE_ENVIO) {
+                    return false;
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("No se pudo leer la notificación {} antes de reintentarla: {}", id, e.getMessage());
+                return false;
+            }
+            return inFlight.add(id);
+        }
+    }
+
+    // Registros viejos (sin canal) son emails
+    private static CanalNotificacion canalDe(Notificacion notificacion) {
+        if (notificacion.getCanal() == null) {
+            return CanalNotificacion.EMAIL;
+        }
+        try {
+            return CanalNotificacion.valueOf(notificacion.getCanal());
+        } catch (IllegalArgumentException e) {
+            return CanalNotificacion.EMAIL;
+        }
+    }
+
+    /**
+     * Envia por Discord o push; el resultado se guarda en el store desde el hilo despachador
+     * (ver registrarResultadosWebhook), junto con los demas que terminaron mientras tanto.
+     */
+    private void sendWebhook(CanalNotificacion canal, List<UUID> ids, EmailMessage mensaje, String tipo) {
+        inFlight.addAll(ids);
+        CompletableFuture<Boolean> envio;
+        try {
+            envio = webhookNotifiers.get(canal).sendAsync(mensaje.destinatario(), mensaje.asunto(), mensaje.cuerpo());
+        } catch (RuntimeException e) {
+            envio = CompletableFuture.failedFuture(e);
+        }
+        envio.whenComplete((enviado, error) -> {
+            boolean ok = error == null && Boolean.TRUE.equals(enviado);
+            if (!ok) {
+                logger.warn("Falló el envío de {} por {}: {}", tipo, canal, error != null ? error.getMessage() : "el proveedor no lo aceptó");
+            }
+            resultadosWebhook.add(new ResultadoWebhook(ids, ok,
+                    ok ? null : error != null ? error.getMessage() : "El proveedor no aceptó el envío (" + canal + ")"));
+        });
+    }
+
+    // Guarda en el store los resultados de Discord / push acumulados (un saveAll por resultado distinto)
+    private void registrarResultadosWebhook() {
+        if (resultadosWebhook.isEmpty()) {
+            return;
+        }
+        List<UUID> enviadas = new ArrayList<>();
+        Map<String, List<UUID>> fallidasPorError = new LinkedHashMap<>();
+        ResultadoWebhook resultado;
+        while ((resultado = resultadosWebhook.poll()) != null) {
+            if (resultado.enviado()) {
+                enviadas.addAll(resultado.ids());
+            } else {
+                fallidasPorError.computeIfAbsent(resultado.error(), k -> new ArrayList<>()).addAll(resultado.ids());
+            }
+        }
+        synchronized (resultadosLock) {
+            try {
+                store.marcarEnviadas(enviadas);
+                for (Map.Entry<String, List<UUID>> entry : fallidasPorError.entrySet()) {
+                    store.registrarFallo(entry.getValue(), entry.getKey());
+                }
+            } catch (IOException | RuntimeException e) {
+                // Quedan PENDIENTE_ENVIO: en el peor caso se envian de nuevo
+                logger.error("No se pudo registrar el resultado de {} notificaciones por webhook: {}",
+                        enviadas.size() + fallidasPorError.values().stream().mapToInt(List::size).sum(), e.getMessage());
+            } finally {
+                enviadas.forEach(inFlight::remove);
+                fallidasPorError.values().forEach(ids -> ids.forEach(inFlight::remove));
+            }
+        }
+    }
+
+    private boolean offer(Pendiente pendiente) {
+        inFlight.addAll(pendiente.ids());
+        if (!running || !queue.offer(pendiente)) {
+            pendiente.ids().forEach(inFlight::remove);
+            return false;
+        }
+        return true;
+    }
+
+    private void dispatchLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Pendiente first = queue.poll(200, TimeUnit.MILLISECONDS);
+                registrarResultadosWebhook();
+                if (first == null) {
+                    continue;
+                }
+                List<Pendiente> batch = new ArrayList<>();
+                batch.add(first);
+                // Esperar un poco a que lleguen mas (ej. todos los participantes de un mismo evento).
+                // Se espera de a poco para no demorar el apagado.
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindowMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        break;
+                    }
+                    Pendiente next = queue.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(50)), TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Error inesperado en el despachador de notificaciones: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void send(List<Pendiente> batch) {
+        List<Pendiente> mensajes = coalesce ? coalesce(batch) : batch;
+        List<Pendiente> agrupables = new ArrayList<>(mensajes.size());
+        for (Pendiente pendiente : mensajes) {
+            if (SendGridAdapter.admiteLote(pendiente.mensaje())) {
+                agrupables.add(pendiente);
+            } else {
+                sendLote(List.of(pendiente)); // Cuerpo demasiado grande para ir como sustitución
+            }
+        }
+        for (int from = 0; from < agrupables.size(); from += batchSize) {
+            sendLote(agrupables.subList(from, Math.min(from + batchSize, agrupables.size())));
+        }
+    }
+
+    private void sendLote(List<Pendiente> lote) {
+        acquirePermit();
+        long start = System.nanoTime();
+        boolean enviado;
+        boolean rechazado = false;
+        String error = null;
+        try {
+            enviado = emailNotifier.sendBatch(lote.stream().map(Pendiente::mensaje).toList());
+            if (!enviado) {
+                rechazado = true;
+                error = "El proveedor no aceptó el envío";
+            }
+        } catch (RuntimeException e) {
+            logger.error("Falló el envío de un lote de {} emails: {}", lote.size(), e.getMessage());
+            enviado = false;
+            error = e.getMessage();
+        }
+        long end = System.nanoTime();
+        meterRegistry.timer("notifications.send", "result", enviado ? "ok" : "error")
+                .record(end - start, TimeUnit.NANOSECONDS);
+        if (rechazado && lote.size() > 1) {
+            // Un destinatario invalido hace rechazar el lote entero: se divide para aislarlo
+            // (log2(lote) llamadas de mas por cada mensaje rechazado)
+            meterRegistry.counter("notifications.batch.split").increment();
+            logger.warn("El proveedor rechazó un lote de {} emails; se reenvía en dos mitades.", lote.size());
+            int mitad = lote.size() / 2;
+            sendLote(lote.subList(0, mitad));
+            sendLote(lote.subList(mitad, lote.size()));
+            return;
+        }
+        for (Pendiente pendiente : lote) {
+            meterRegistry.timer("notifications.latency").record(end - pendiente.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            logResult(pendiente, enviado);
+        }
+        registrarResultado(lote, enviado, error);
+    }
+
+    private void registrarResultado(List<Pendiente> lote, boolean enviado, String error) {
+        List<UUID> ids = new ArrayList<>();
+        lote.forEach(pendiente -> ids.addAll(pendiente.ids()));
+        synchronized (resultadosLock) {
+            try {
+                if (enviado) {
+                    store.marcarEnviadas(ids);
+                } else {
+                    store.registrarFallo(ids, error);
+                }
+            } catch (IOException | RuntimeException e) {
+                // Quedan PENDIENTE_ENVIO: en el peor caso se envian de nuevo
+                logger.error("No se pudo registrar el resultado de {} notificaciones: {}", ids.size(), e.getMessage());
+            } finally {
+                ids.forEach(inFlight::remove);
+            }
+        }
+    }
+
+    /**
+     * Une los mensajes del lote que van al mismo destinatario en un solo email,
+     * manteniendo el orden en que se encolaron.
+     */
+    private List<Pendiente> coalesce(List<Pendiente> batch) {
+        Map<String, List<Pendiente>> porDestinatario = new LinkedHashMap<>();
+        for (Pendiente pendiente : batch) {
+            porDestinatario.computeIfAbsent(pendiente.mensaje().destinatario(), k -> new ArrayList<>()).add(pendiente);
+        }
+        if (porDestinatario.size() == batch.size()) {
+            return batch;
+        }
+        List<Pendiente> result = new ArrayList<>(porDestinatario.size());
+        for (Map.Entry<String, List<Pendiente>> entry : porDestinatario.entrySet()) {
+            List<Pendiente> delDestinatario = entry.getValue();
+            if (delDestinatario.size() == 1) {
+                result.add(delDestinatario.get(0));
+                continue;
+            }
+            StringBuilder cuerpo = new StringBuilder();
+            List<String> tipos = new ArrayList<>();
+            List<UUID> ids = new ArrayList<>();
+            for (Pendiente pendiente : delDestinatario) {
+                if (cuerpo.length() > 0) {
+                    cuerpo.append("\n\n----------------------------------------\n\n");
+                }
+                cuerpo.append("== ").append(pendiente.mensaje().asunto()).append(" ==\n\n").append(pendiente.mensaje().cuerpo());
+                tipos.add(pendiente.tipo());
+                ids.addAll(pendiente.ids());
+            }
+            String asunto = "Tienes " + delDestinatario.size() + " novedades en eScrim";
+            Pendiente primero = delDestinatario.get(0);
+            result.add(new Pendiente(ids, new EmailMessage(entry.getKey(), asunto, cuerpo.toString()),
+                    String.join(" + ", tipos), primero.scrimId(), primero.enqueuedNanos()));
+            meterRegistry.counter("notifications.coalesced").increment(delDestinatario.size() - 1);
+        }
+        return result;
+    }
+
+    // Espera hasta que se pueda hacer otra llamada al proveedor (notifications.rate-limit-per-second)
+    private void acquirePermit() {
+        if (rateIntervalNanos == 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long permit = Math.max(now, nextPermitNanos);
+            nextPermitNanos = permit + rateIntervalNanos;
+            waitNanos = permit - now;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void logResult(Pendiente pendiente, boolean success) {
+        String scrimIdStr = pendiente.scrimId() != null ? pendiente.scrimId().toString() : "N/A";
+        if (success) {
+            logger.info("Email de {} ({}) enviado exitosamente a {}", pendiente.tipo(), scrimIdStr, pendiente.mensaje().destinatario());
+        } else {
+            logger.error("Falló el envío del email de {} ({}) a {}", pendiente.tipo(), scrimIdStr, pendiente.mensaje().destinatario());
+        }
+    }
+
+    /**
+     * Al apagar, deja de aceptar mensajes y espera a que se envíe lo que quedó en la cola.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            dispatcherThread.join(TimeUnit.SECONDS.toMillis(shutdownTimeoutSeconds));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        registrarResultadosWebhook();
+        if (!queue.isEmpty()) {
+            logger.warn("Despachador de notificaciones detenido con {} emails sin enviar (quedan pendientes en el store).", queue.size());
+        }
+    }
+
+    // ids: notificaciones del store que representa (varias si se unieron; ninguna si no se pudo guardar)
+    private record Pendiente(List<UUID> ids, EmailMessage mensaje, String tipo, UUID scrimId, long enqueuedNanos) {
+    }
+
+    private record ResultadoWebhook(List<UUID> ids, boolean enviado, String error) {
+    }
+}
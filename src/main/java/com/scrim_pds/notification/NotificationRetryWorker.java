@@ -0,0 +1,75 @@
+package com.scrim_pds.notification;
+
+import com.scrim_pds.model.Notificacion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Reintento en segundo plano de las notificaciones pendientes: cada
+ * notifications.retry.poll-interval-ms busca en el store las que ya vencieron
+ * (fallidas con backoff cumplido, o que quedaron pendientes por un reinicio o
+ * por la cola llena) y las vuelve a encolar en el despachador.
+ * Cada notifications.retention.interval-ms borra las ENVIADA / FALLIDA de mas de
+ * notifications.retention-days dias.
+ */
+@Component
+public class NotificationRetryWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationRetryWorker.class);
+
+    private final NotificationStore store;
+    private final NotificationDispatcher dispatcher;
+    private final int batchSize;
+    // Dias que se conservan las notificaciones terminadas (0 = no se borran)
+    private final int retentionDays;
+
+    public NotificationRetryWorker(NotificationStore store,
+                                   NotificationDispatcher dispatcher,
+                                   @Value("${notifications.retry.batch-size:500}") int batchSize,
+                                   @Value("${notifications.retention-days:30}") int retentionDays) {
+        this.store = store;
+        this.dispatcher = dispatcher;
+        this.batchSize = Math.max(1, batchSize);
+        this.retentionDays = retentionDays;
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.retry.poll-interval-ms:15000}")
+    public void retryPending() {
+        try {
+            List<Notificacion> vencidas = store.pendientesVencidas(LocalDateTime.now(), batchSize, dispatcher::enVuelo);
+            int encoladas = 0;
+            for (Notificacion notificacion : vencidas) {
+                if (dispatcher.reintentar(notificacion)) {
+                    encoladas++;
+                }
+            }
+            if (encoladas > 0) {
+                logger.info("[Reintentos] {} notificaciones pendientes encoladas de nuevo.", encoladas);
+            }
+        } catch (Exception e) {
+            logger.error("[Reintentos] Error al buscar notificaciones pendientes: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.retention.interval-ms:3600000}",
+               initialDelayString = "${notifications.retention.interval-ms:3600000}")
+    public void purgeFinished() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        try {
+            int borradas = store.purgarTerminadas(LocalDateTime.now().minusDays(retentionDays));
+            if (borradas > 0) {
+                logger.info("[Retención] {} notificaciones terminadas borradas (más de {} días).", borradas, retentionDays);
+            }
+        } catch (Exception e) {
+            logger.error("[Retención] Error al borrar notificaciones terminadas: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.scrim_pds.notification;
+
+import com.scrim_pds.adapter.EmailMessage;
+import com.scrim_pds.model.Notificacion;
+import com.scrim_pds.model.enums.CanalNotificacion;
+import com.scrim_pds.model.enums.EstadoNotificacion;
+import com.scrim_pds.persistence.CollectionDefinition;
+import com.scrim_pds.persistence.JsonPersistenceManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Registro de las notificaciones salientes en "notifications.json".
+ *
+ * Cada notificacion (email, Discord o push) se guarda como PENDIENTE_ENVIO antes de enviarla. Si el envío falla se
+ * reprograma con backoff exponencial (notifications.retry.base-delay-seconds, duplicando
+ * en cada intento hasta notifications.retry.max-delay-seconds); después de
+ * notifications.retry.max-attempts intentos queda FALLIDA.
+ *
+ * Los resultados de un lote se guardan juntos (saveAll: un lock y un fsync por lote), y las
+ * ENVIADA / FALLIDA se borran pasados notifications.retention-days (ver purgarTerminadas).
+ */
+@Component
+public class NotificationStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationStore.class);
+    private static final String FILE_NAME = "notifications.json";
+
+    private final JsonPersistenceManager persistenceManager;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long baseDelaySeconds;
+    private final long maxDelaySeconds;
+
+    public NotificationStore(JsonPersistenceManager persistenceManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${notifications.retry.max-attempts:5}") int maxAttempts,
+                             @Value("${notifications.retry.base-delay-seconds:30}") long baseDelaySeconds,
+                             @Value("${notifications.retry.max-delay-seconds:3600}") long maxDelaySeconds) {
+        this.persistenceManager = persistenceManager;
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelaySeconds = Math.max(0, baseDelaySeconds);
+        this.maxDelaySeconds = Math.max(this.baseDelaySeconds, maxDelaySeconds);
+        for (EstadoNotificacion estado : EstadoNotificacion.values()) {
+            meterRegistry.gauge("notifications.store", Tags.of("estado", estado.name()),
+                    this, store -> store.count(estado));
+        }
+    }
+
+    /**
+     * Guarda un email nuevo como PENDIENTE_ENVIO, listo para enviarse ya.
+     */
+    public Notificacion registrar(EmailMessage mensaje, String tipo, UUID scrimId) throws IOException {
+        return registrarTodos(List.of(mensaje), tipo, scrimId).get(0);
+    }
+
+    /**
+     * Guarda varios emails nuevos (ej. todos los destinatarios de un evento) en una sola escritura.
+     * @return Las notificaciones, en el mismo orden que los mensajes.
+     */
+    public List<Notificacion> registrarTodos(List<EmailMessage> mensajes, String tipo, UUID scrimId) throws IOException {
+        return registrarTodos(CanalNotificacion.EMAIL, mensajes, tipo, scrimId);
+    }
+
+    /**
+     * Como registrarTodos, para cualquier canal: el destinatario de cada mensaje es el
+     * destino en ese canal (email, webhook de Discord o token push).
+     */
+    public List<Notificacion> registrarTodos(CanalNotificacion canal, List<EmailMessage> mensajes, String tipo, UUID scrimId) throws IOException {
+        List<UUID> ids = new ArrayList<>(mensajes.size());
+        for (int i = 0; i < mensajes.size(); i++) {
+            ids.add(UUID.randomUUID());
+        }
+        return registrarTodos(canal, ids, mensajes, tipo, scrimId);
+    }
+
+    /**
+     * Como registrarTodos, con los ids ya elegidos por quien llama (el despachador los marca
+     * en vuelo antes de guardarlos, para que el worker de reintentos no los tome).
+     */
+    public List<Notificacion> registrarTodos(CanalNotificacion canal, List<UUID> ids, List<EmailMessage> mensajes,
+                                             String tipo, UUID scrimId) throws IOException {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Notificacion> notificaciones = new ArrayList<>(mensajes.size());
+        for (int i = 0; i < mensajes.size(); i++) {
+            EmailMessage mensaje = mensajes.get(i);
+            Notificacion notificacion = new Notificacion();
+            notificacion.setId(ids.get(i));
+            notificacion.setCanal(canal.name());
+            notificacion.setTipo(tipo);
+            notificacion.setScrimId(scrimId);
+            notificacion.setDestinatario(mensaje.destinatario());
+            notificacion.setAsunto(mensaje.asunto());
+            notificacion.setCuerpo(mensaje.cuerpo());
+            notificacion.setEstado(EstadoNotificacion.PENDIENTE_ENVIO);
+            notificacion.setIntentos(0);
+            notificacion.setProximoIntento(ahora);
+            notificacion.setFechaCreacion(ahora);
+            notificaciones.add(notificacion);
+        }
+        persistenceManager.saveAll(FILE_NAME, notificaciones);
+        return notificaciones;
+    }
+
+    public Optional<Notificacion> findById(UUID id) throws IOException {
+        return persistenceManager.findById(FILE_NAME, Notificacion.class, id);
+    }
+
+    public void marcarEnviadas(List<UUID> ids) throws IOException {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Notificacion> actualizadas = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            Optional<Notificacion> found = findById(id);
+            if (found.isEmpty()) {
+                continue;
+            }
+            Notificacion notificacion = found.get();
+            notificacion.setEstado(EstadoNotificacion.ENVIADA);
+            notificacion.setIntentos(notificacion.getIntentos() + 1);
+            notificacion.setProximoIntento(null);
+            notificacion.setUltimoError(null);
+            notificacion.setFechaEnvio(ahora);
+            actualizadas.add(notificacion);
+        }
+        persistenceManager.saveAll(FILE_NAME, actualizadas);
+    }
+
+    /**
+     * Registra un intento fallido: reprograma el envío con backoff, o la marca
+     * FALLIDA si ya no quedan intentos.
+     */
+    public void registrarFallo(List<UUID> ids, String error) throws IOException {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Notificacion> actualizadas = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            Optional<Notificacion> found = findById(id);
+            if (found.isEmpty()) {
+                continue;
+            }
+            Notificacion notificacion = found.get();
+            int intentos = notificacion.getIntentos() + 1;
+            notificacion.setIntentos(intentos);
+            notificacion.setUltimoError(error);
+            if (intentos >= maxAttempts) {
+                notificacion.setEstado(EstadoNotificacion.FALLIDA);
+                notificacion.setProximoIntento(null);
+                meterRegistry.counter("notifications.failed").increment();
+                logger.error("Notificación {} ({}) a {} FALLIDA después de {} intentos: {}",
+                        id, notificacion.getTipo(), notificacion.getDestinatario(), intentos, error);
+            } else {
+                Duration espera = backoff(intentos);
+                notificacion.setProximoIntento(ahora.plus(espera));
+                logger.warn("Notificación {} ({}) a {} falló (intento {}/{}), se reintenta en {}s.",
+                        id, notificacion.getTipo(), notificacion.getDestinatario(), intentos, maxAttempts, espera.toSeconds());
+            }
+            actualizadas.add(notificacion);
+        }
+        persistenceManager.saveAll(FILE_NAME, actualizadas);
+    }
+
+    /**
+     * Notificaciones PENDIENTE_ENVIO cuyo próximo intento ya venció, de la más vieja a la más nueva.
+     */
+    public List<Notificacion> pendientesVencidas(LocalDateTime ahora, int limit) throws IOException {
+        return pendientesVencidas(ahora, limit, id -> false);
+    }
+
+    /**
+     * Como pendientesVencidas, salteando (antes de aplicar el limite) las que indica omitir:
+     * las que ya estan en la cola del despachador no ocupan el lugar de las que fallaron.
+     */
+    public List<Notificacion> pendientesVencidas(LocalDateTime ahora, int limit, Predicate<UUID> omitir) throws IOException {
+        // El indice esta ordenado por proximo intento: se corta en la primera que todavia no vence
+        List<Notificacion> vencidas = new ArrayList<>();
+        for (Notificacion notificacion : persistenceManager.findPage(FILE_NAME, Notificacion.class,
+                CollectionDefinition.NOTIFICACIONES_PENDIENTES_ORDEN_PROXIMO_INTENTO, false, Map.of(),
+                n -> !omitir.test(n.getId()), null, limit).items()) {
+            if (notificacion.getProximoIntento() != null && notificacion.getProximoIntento().isAfter(ahora)) {
+                break;
+            }
+            vencidas.add(notificacion);
+        }
+        return vencidas;
+    }
+
+    /**
+     * Borra las notificaciones terminadas (ENVIADA o FALLIDA) enviadas o creadas antes del límite,
+     * para que notifications.json no crezca sin fin. Las pendientes nunca se borran.
+     * @return Cantidad de notificaciones borradas.
+     */
+    public int purgarTerminadas(LocalDateTime limite) throws IOException {
+        int borradas = persistenceManager.deleteMatching(FILE_NAME, Notificacion.class, n -> {
+            if (n.getEstado() != EstadoNotificacion.ENVIADA && n.getEstado() != EstadoNotificacion.FALLIDA) {
+                return false;
+            }
+            LocalDateTime fecha = n.getFechaEnvio() != null ? n.getFechaEnvio() : n.getFechaCreacion();
+            return fecha == null || fecha.isBefore(limite);
+        });
+        if (borradas > 0) {
+            meterRegistry.counter("notifications.purged").increment(borradas);
+        }
+        return borradas;
+    }
+
+    // Espera antes del proximo intento: base * 2^(intentos-1), con tope
+    Duration backoff(int intentos) {
+        long seconds = baseDelaySeconds;
+        for (int i = 1; i < intentos && seconds < maxDelaySeconds; i++) {
+            seconds *= 2;
+        }
+        return Duration.ofSeconds(Math.min(seconds, maxDelaySeconds));
+    }
+
+    private double count(EstadoNotificacion estado) {
+        try {
+            return persistenceManager.countByIndex(FILE_NAME, Notificacion.class, CollectionDefinition.NOTIFICACIONES_BY_ESTADO, estado);
+        } catch (IOException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.scrim_pds.notification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plantilla de texto con variables "{{nombre}}" o "{{nombre|valor por defecto}}",
+ * compilada una sola vez en una lista de partes (texto fijo o variable).
+ *
+ * Con bind() se reemplazan algunas variables (ej. los datos del scrim, una vez por evento)
+ * y se obtiene otra plantilla con menos variables; render() solo copia las partes al
+ * resultado, sin volver a parsear ni formatear.
+ */
+public final class NotificationTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    // Partes en orden: un String es texto fijo, una Variable se reemplaza al renderizar
+    private final Object[] parts;
+    private final int fixedLength;
+
+    private NotificationTemplate(List<Object> parts) {
+        this.parts = parts.toArray();
+        int length = 0;
+        for (Object part : this.parts) {
+            if (part instanceof String text) {
+                length += text.length();
+            }
+        }
+        this.fixedLength = length;
+    }
+
+    /**
+     * Compila una plantilla.
+     * @throws IllegalArgumentException Si hay un "{{" sin cerrar.
+     */
+    public static NotificationTemplate compile(String template) {
+        List<Object> parts = new ArrayList<>();
+        int from = 0;
+        while (from < template.length()) {
+            int open = template.indexOf(OPEN, from);
+            if (open < 0) {
+                break;
+            }
+            int close = template.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Variable sin cerrar en la plantilla (posición " + open + ")");
+            }
+            if (open > from) {
+                parts.add(template.substring(from, open));
+            }
+            String variable = template.substring(open + OPEN.length(), close);
+            int pipe = variable.indexOf('|');
+            parts.add(pipe < 0
+                    ? new Variable(variable.trim(), "")
+                    : new Variable(variable.substring(0, pipe).trim(), variable.substring(pipe + 1)));
+            from = close + CLOSE.length();
+        }
+        if (from < template.length()) {
+            parts.add(template.substring(from));
+        }
+        return new NotificationTemplate(parts);
+    }
+
+    /**
+     * Devuelve una plantilla con las variables del mapa ya reemplazadas (y el texto fijo
+     * contiguo unido). Una variable presente con valor null o vacío toma su valor por
+     * defecto; las que no están en el mapa quedan para render().
+     */
+    public NotificationTemplate bind(Map<String, String> values) {
+        List<Object> bound = new ArrayList<>(parts.length);
+        StringBuilder text = new StringBuilder();
+        for (Object part : parts) {
+            if (part instanceof Variable variable && !values.containsKey(variable.name())) {
+                if (text.length() > 0) {
+                    bound.add(text.toString());
+                    text.setLength(0);
+                }
+                bound.add(variable);
+            } else if (part instanceof Variable variable) {
+                text.append(variable.valueOr(values.get(variable.name())));
+            } else {
+                text.append((String) part);
+            }
+        }
+        if (text.length() > 0) {
+            bound.add(text.toString());
+        }
+        return new NotificationTemplate(bound);
+    }
+
+    /**
+     * Arma el texto final. Las variables sin valor toman su valor por defecto.
+     */
+    public String render(Map<String, String> values) {
+        StringBuilder result = new StringBuilder(fixedLength + 32 * (parts.length / 2 + 1));
+        for (Object part : parts) {
+            if (part instanceof Variable variable) {
+                result.append(variable.valueOr(values.get(variable.name())));
+            } else {
+                result.append((String) part);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Arma el texto final cuando queda una sola variable por reemplazar (el caso comun:
+     * el nombre del destinatario), sin armar un mapa por mensaje.
+     */
+    public String render(String name, String value) {
+        StringBuilder result = new StringBuilder(fixedLength + (value != null ? value.length() : 0) * (parts.length / 2 + 1));
+        for (Object part : parts) {
+            if (part instanceof Variable variable) {
+                result.append(variable.valueOr(variable.name().equals(name) ? value : null));
+            } else {
+                result.append((String) part);
+            }
+        }
+        return result.toString();
+    }
+
+    private record Variable(String name, String defaultValue) {
+        String valueOr(String value) {
+            return value != null && !value.isEmpty() ? value : defaultValue;
+        }
+    }
+}
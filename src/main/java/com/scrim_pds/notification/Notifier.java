@@ -1,5 +1,10 @@
 package com.scrim_pds.notification;
 
+import com.scrim_pds.adapter.EmailMessage;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
     // Interfaz para cualquier canal de envío de notificaciones (Diagrama).
 
 public interface Notifier {
@@ -12,4 +17,28 @@ public interface Notifier {
      * @return true si fue exitoso/encolado.
      */
     boolean send(String destinatario, String asunto, String cuerpo);
+
+    /**
+     * Envia una notificacion e informa el resultado cuando se conoce (en los canales
+     * asincronos, como los webhooks, send solo dice si quedo encolada).
+     * @return Futuro con true si el proveedor la acepto.
+     */
+    default CompletableFuture<Boolean> sendAsync(String destinatario, String asunto, String cuerpo) {
+        return CompletableFuture.completedFuture(send(destinatario, asunto, cuerpo));
+    }
+
+    /**
+     * Envia varias notificaciones juntas (en una sola llamada si el canal lo permite).
+     * @param mensajes Notificaciones a enviar.
+     * @return true si todas fueron exitosas/encoladas; false si el proveedor rechazo el
+     *         contenido del lote (ej. un destinatario invalido). Las fallas que no dependen
+     *         de los mensajes (red, credenciales) se informan con una excepcion.
+     */
+    default boolean sendBatch(List<EmailMessage> mensajes) {
+        boolean todos = true;
+        for (EmailMessage mensaje : mensajes) {
+            todos &= send(mensaje.destinatario(), mensaje.asunto(), mensaje.cuerpo());
+        }
+        return todos;
+    }
 }
@@ -13,14 +13,12 @@ public interface NotifierFactory {
 
     /**
      * Crea un notificador para el canal Push.
-     * (No implementado).
      * @return Una instancia de Notifier capaz de enviar notificaciones push.
      */
     Notifier createPushNotifier();
 
     /**
      * Crea un notificador para el canal Discord.
-     * (No implementado).
      * @return Una instancia de Notifier capaz de enviar webhooks de Discord.
      */
     Notifier createDiscordNotifier();
@@ -0,0 +1,27 @@
+package com.scrim_pds.notification;
+
+import com.scrim_pds.adapter.PushAdapter;
+
+import java.util.concurrent.CompletableFuture;
+
+// Implementación de Notifier para notificaciones push (Diagrama). El destinatario es el token del dispositivo.
+
+public class PushNotifier implements Notifier {
+
+    private final PushAdapter pushAdapter;
+
+    // Constructor
+    public PushNotifier(PushAdapter pushAdapter) {
+        this.pushAdapter = pushAdapter;
+    }
+
+    @Override
+    public boolean send(String destinatario, String asunto, String cuerpo) {
+        return pushAdapter.enviarPush(destinatario, asunto, cuerpo);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sendAsync(String destinatario, String asunto, String cuerpo) {
+        return pushAdapter.enviarPushAsync(destinatario, asunto, cuerpo);
+    }
+}
@@ -0,0 +1,155 @@
+package com.scrim_pds.persistence;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archivo historico (datos frios) de las colecciones: lo que ya no se consulta seguido
+ * sale del working set en memoria y se guarda comprimido, repartido por mes.
+ *
+ * Cada particion es "archive/<yyyy-MM>/<coleccion>.gz": un objeto JSON gzip que agrupa
+ * los elementos por una clave (ej. el scrim al que pertenecen), asi las lecturas traen
+ * un grupo completo abriendo solo las particiones donde esta. El indice grupo -> particiones
+ * se arma en memoria la primera vez que se consulta una coleccion (solo lee las claves).
+ *
+ * Los metodos son synchronized: el archivado es un proceso en segundo plano y las lecturas
+ * son consultas de historial, poco frecuentes.
+ */
+class ArchiveStore {
+
+    private static final String EXTENSION = ".gz";
+
+    private final ObjectMapper objectMapper;
+    private final Path archiveDirectory;
+    // Coleccion -> grupo -> particiones donde tiene elementos (se arma al primer uso)
+    private final Map<String, Map<String, Set<String>>> groupIndexes = new HashMap<>();
+
+    ArchiveStore(ObjectMapper objectMapper, Path archiveDirectory) {
+        this.objectMapper = objectMapper;
+        this.archiveDirectory = archiveDirectory;
+    }
+
+    /**
+     * Agrega grupos de elementos a una particion. Si un elemento ya estaba archivado
+     * (mismo id) se reemplaza, asi repetir un archivado a medias no duplica nada.
+     * La particion se reescribe completa (.tmp + rename).
+     */
+    synchronized <T> void append(String fileName, Class<T> itemClass, String partition,
+                                 Map<String, List<T>> groups, Function<T, String> idOf) throws IOException {
+        Path path = partitionPath(fileName, partition);
+        Map<String, List<T>> stored = Files.exists(path) ? read(path, itemClass) : new LinkedHashMap<>();
+        for (Map.Entry<String, List<T>> group : groups.entrySet()) {
+            List<T> items = stored.computeIfAbsent(group.getKey(), k -> new ArrayList<>());
+            for (T item : group.getValue()) {
+                String id = idOf.apply(item);
+                items.removeIf(existing -> id != null && id.equals(idOf.apply(existing)));
+                items.add(item);
+            }
+        }
+
+        Files.createDirectories(path.getParent());
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            objectMapper.writeValue(out, stored);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+
+        Map<String, Set<String>> index = groupIndexes.get(fileName);
+        if (index != null) {
+            for (String group : groups.keySet()) {
+                index.computeIfAbsent(group, k -> new TreeSet<>()).add(partition);
+            }
+        }
+    }
+
+    /**
+     * Elementos archivados de un grupo (vacio si no hay ninguno).
+     */
+    synchronized <T> List<T> find(String fileName, Class<T> itemClass, String group) throws IOException {
+        Set<String> partitions = groupIndex(fileName).get(group);
+        if (partitions == null) {
+            return new ArrayList<>();
+        }
+        List<T> found = new ArrayList<>();
+        for (String partition : partitions) {
+            List<T> items = read(partitionPath(fileName, partition), itemClass).get(group);
+            if (items != null) {
+                found.addAll(items);
+            }
+        }
+        return found;
+    }
+
+    private Map<String, Set<String>> groupIndex(String fileName) throws IOException {
+        Map<String, Set<String>> index = groupIndexes.get(fileName);
+        if (index != null) {
+            return index;
+        }
+        index = new HashMap<>();
+        if (Files.isDirectory(archiveDirectory)) {
+            List<Path> partitions;
+            try (Stream<Path> dirs = Files.list(archiveDirectory)) {
+                partitions = dirs.filter(Files::isDirectory).toList();
+            }
+            for (Path dir : partitions) {
+                Path path = dir.resolve(fileName + EXTENSION);
+                if (!Files.exists(path)) {
+                    continue;
+                }
+                // Solo los nombres de los grupos: los elementos se saltean sin deserializar
+                try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path)));
+                     JsonParser parser = objectMapper.createParser(in)) {
+                    if (parser.nextToken() != JsonToken.START_OBJECT) {
+                        continue;
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        index.computeIfAbsent(parser.currentName(), k -> new TreeSet<>()).add(dir.getFileName().toString());
+                        parser.nextToken();
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+        groupIndexes.put(fileName, index);
+        return index;
+    }
+
+    private <T> Map<String, List<T>> read(Path path, Class<T> itemClass) throws IOException {
+        TypeFactory types = objectMapper.getTypeFactory();
+        JavaType type = types.constructMapType(LinkedHashMap.class, types.constructType(String.class),
+                types.constructCollectionType(List.class, itemClass));
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return objectMapper.readValue(in, type);
+        }
+    }
+
+    private Path partitionPath(String fileName, String partition) {
+        return archiveDirectory.resolve(partition).resolve(fileName + EXTENSION);
+    }
+}
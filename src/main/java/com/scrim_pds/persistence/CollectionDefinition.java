@@ -0,0 +1,286 @@
+package com.scrim_pds.persistence;
+
+import com.scrim_pds.model.*;
+import com.scrim_pds.model.enums.EstadoNotificacion;
+import com.scrim_pds.model.enums.ScrimStateEnum;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Describe una coleccion persistida: su archivo, el tipo de sus elementos,
+ * como obtener la clave primaria de cada elemento y sus indices secundarios.
+ */
+public final class CollectionDefinition<T> {
+
+    // Indices secundarios de postulaciones.json
+    public static final String POSTULACIONES_BY_SCRIM = "scrimId";
+    public static final String POSTULACIONES_BY_SCRIM_AND_USER = "scrimId+usuarioId";
+    public static final String POSTULACIONES_BY_SCRIM_AND_STATE = "scrimId+estado";
+
+    // Indice secundario de estadisticas.json
+    public static final String ESTADISTICAS_BY_SCRIM = "scrimId";
+
+    // Indices de busqueda de scrims.json: solo incluyen scrims abiertos (BUSCANDO / LOBBY_ARMADO)
+    public static final String SCRIMS_ABIERTOS = "abiertos";
+    public static final String SCRIMS_ABIERTOS_BY_JUEGO = "abiertos+juego";
+    public static final String SCRIMS_ABIERTOS_BY_REGION = "abiertos+region";
+    public static final String SCRIMS_ABIERTOS_BY_FORMATO = "abiertos+formato";
+    public static final String SCRIMS_ABIERTOS_BY_RANGO_MIN = "abiertos+rangoMin";
+    public static final String SCRIMS_ABIERTOS_BY_RANGO_MAX = "abiertos+rangoMax";
+    public static final String SCRIMS_ABIERTOS_BY_FECHA = "abiertos+fecha";
+    // Indices ordenados de scrims abiertos (para paginar por cursor)
+    public static final String SCRIMS_ABIERTOS_ORDEN_FECHA_HORA = "abiertos>fechaHora";
+    public static final String SCRIMS_ABIERTOS_ORDEN_CREACION = "abiertos>fechaCreacion";
+
+    // Indice invertido de preferencias de users.json: usuarios que quieren alertas de scrims nuevos
+    // (con algun canal de notificacion), por (juego, region, rangoMin, rangoMax) preferidos. Sin preferencia = SIN_PREFERENCIA.
+    public static final String USERS_ALERTAS_BY_PREFERENCIA = "alertas+juego+region+rango";
+    public static final String SIN_PREFERENCIA = "*";
+
+    // Indices de notifications.json: por estado, y las pendientes de envio ordenadas por proximo intento
+    public static final String NOTIFICACIONES_BY_ESTADO = "estado";
+    public static final String NOTIFICACIONES_PENDIENTES_ORDEN_PROXIMO_INTENTO = "pendientes>proximoIntento";
+
+    // Fechas en los indices ordenados: ancho fijo, asi comparadas como texto ordenan igual que como fechas
+    private static final DateTimeFormatter SORTABLE_DATE = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSSSSSSS");
+    private static final String NO_DATE = "-";
+
+    // Todos los archivos JSON que usará la aplicación
+    private static final Map<String, CollectionDefinition<?>> DEFINITIONS = new LinkedHashMap<>();
+    static {
+        Predicate<User> quiereAlertas = u -> u.getPreferencias() != null && u.getPreferencias().isAlertasScrim()
+                && u.getPreferencias().getCanalesNotificacion() != null
+                && !u.getPreferencias().getCanalesNotificacion().isEmpty();
+        register(new CollectionDefinition<>("users.json", User.class, User::getId)
+                .withPartialIndex(USERS_ALERTAS_BY_PREFERENCIA, quiereAlertas,
+                        u -> preferencia(u.getPreferencias().getBusquedaJuegoPorDefecto()),
+                        u -> preferencia(u.getPreferencias().getBusquedaRegionPorDefecto()),
+                        u -> rangoPreferido(u.getPreferencias(), u.getPreferencias().getBusquedaRangoMinPorDefecto()),
+                        u -> rangoPreferido(u.getPreferencias(), u.getPreferencias().getBusquedaRangoMaxPorDefecto())));
+        register(new CollectionDefinition<>("sessions.json", Session.class, Session::getToken));
+        Predicate<Scrim> abierto = s -> s.getEstado() == ScrimStateEnum.BUSCANDO || s.getEstado() == ScrimStateEnum.LOBBY_ARMADO;
+        register(new CollectionDefinition<>("scrims.json", Scrim.class, Scrim::getId)
+                .withShardKey(Scrim::getId)
+                .withPartialIndex(SCRIMS_ABIERTOS, abierto)
+                .withPartialIndex(SCRIMS_ABIERTOS_BY_JUEGO, abierto, s -> normalize(s.getJuego()))
+                .withPartialIndex(SCRIMS_ABIERTOS_BY_REGION, abierto, s -> normalize(s.getRegion()))
+                .withPartialIndex(SCRIMS_ABIERTOS_BY_FORMATO, abierto, Scrim::getFormato)
+                .withPartialIndex(SCRIMS_ABIERTOS_BY_RANGO_MIN, abierto, s -> normalize(s.getRangoMin()))
+                .withPartialIndex(SCRIMS_ABIERTOS_BY_RANGO_MAX, abierto, s -> normalize(s.getRangoMax()))
+                .withPartialIndex(SCRIMS_ABIERTOS_BY_FECHA, abierto, s -> s.getFechaHora() != null ? s.getFechaHora().toLocalDate() : null)
+                .withSortedIndex(SCRIMS_ABIERTOS_ORDEN_FECHA_HORA, abierto, s -> sortableDate(s.getFechaHora()))
+                .withSortedIndex(SCRIMS_ABIERTOS_ORDEN_CREACION, abierto, s -> sortableDate(s.getFechaCreacion())));
+        register(new CollectionDefinition<>("postulaciones.json", Postulacion.class, Postulacion::getId)
+                .withShardKey(Postulacion::getScrimId)
+                .withIndex(POSTULACIONES_BY_SCRIM, Postulacion::getScrimId)
+                .withIndex(POSTULACIONES_BY_SCRIM_AND_USER, Postulacion::getScrimId, Postulacion::getUsuarioId)
+                .withIndex(POSTULACIONES_BY_SCRIM_AND_STATE, Postulacion::getScrimId, Postulacion::getEstado));
+        register(new CollectionDefinition<>("estadisticas.json", Estadistica.class, Estadistica::getId)
+                .withIndex(ESTADISTICAS_BY_SCRIM, Estadistica::getScrimId));
+        register(new CollectionDefinition<>("verifications.json", VerificationToken.class, VerificationToken::getToken));
+        register(new CollectionDefinition<>("feedback.json", Feedback.class, Feedback::getId));
+        register(new CollectionDefinition<>("notifications.json", Notificacion.class, Notificacion::getId)
+                .withIndex(NOTIFICACIONES_BY_ESTADO, Notificacion::getEstado)
+                .withSortedIndex(NOTIFICACIONES_PENDIENTES_ORDEN_PROXIMO_INTENTO,
+                        n -> n.getEstado() == EstadoNotificacion.PENDIENTE_ENVIO, n -> sortableDate(n.getProximoIntento())));
+    }
+
+    private final String fileName;
+    private final Class<T> itemClass;
+    private final Function<T, ?> idExtractor;
+    // Nombre del indice -> campos que forman su clave
+    private final Map<String, List<Function<T, ?>>> indexes = new LinkedHashMap<>();
+    // Nombre del indice parcial -> condicion para que un elemento entre en el indice
+    private final Map<String, Predicate<T>> indexConditions = new LinkedHashMap<>();
+    // Nombre del indice ordenado -> valor por el que se ordena (comparado como texto)
+    private final Map<String, Function<T, String>> sortedIndexes = new LinkedHashMap<>();
+    // Campo por el que se reparte la coleccion entre archivos (data.shards), o null si no se reparte
+    private Function<T, ?> shardKey;
+
+    public CollectionDefinition(String fileName, Class<T> itemClass, Function<T, ?> idExtractor) {
+        this.fileName = fileName;
+        this.itemClass = itemClass;
+        this.idExtractor = idExtractor;
+    }
+
+    /**
+     * Agrega un indice secundario (no unico) sobre uno o varios campos.
+     */
+    @SafeVarargs
+    public final CollectionDefinition<T> withIndex(String indexName, Function<T, ?>... fields) {
+        indexes.put(indexName, List.of(fields));
+        return this;
+    }
+
+    /**
+     * Agrega un indice secundario que solo contiene los elementos que cumplen la condicion.
+     * Sin campos, es la lista de todos los elementos que la cumplen.
+     */
+    @SafeVarargs
+    public final CollectionDefinition<T> withPartialIndex(String indexName, Predicate<T> condition, Function<T, ?>... fields) {
+        indexConditions.put(indexName, condition);
+        return withIndex(indexName, fields);
+    }
+
+    /**
+     * Agrega un indice ordenado sobre los elementos que cumplen la condicion.
+     * El valor de orden se compara como texto, asi que tiene que ordenar bien
+     * lexicograficamente (ej. fechas ISO); los empates se desempatan por clave primaria.
+     */
+    public CollectionDefinition<T> withSortedIndex(String indexName, Predicate<T> condition, Function<T, String> sortValue) {
+        indexConditions.put(indexName, condition);
+        sortedIndexes.put(indexName, sortValue);
+        return this;
+    }
+
+    /**
+     * Permite repartir la coleccion en varios archivos ("<nombre>-NN.json") segun el hash
+     * de un campo. Conviene un campo que no cambie (el id, o el scrim al que pertenece).
+     */
+    public CollectionDefinition<T> withShardKey(Function<T, ?> field) {
+        this.shardKey = field;
+        return this;
+    }
+
+    private static void register(CollectionDefinition<?> definition) {
+        DEFINITIONS.put(definition.getFileName(), definition);
+    }
+
+    public static Map<String, CollectionDefinition<?>> all() {
+        return DEFINITIONS;
+    }
+
+    public static CollectionDefinition<?> forFile(String fileName) {
+        return DEFINITIONS.get(fileName);
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Class<T> getItemClass() {
+        return itemClass;
+    }
+
+    /**
+     * Clave primaria del elemento como String (UUID o token), o null si no tiene.
+     */
+    public String idOf(T item) {
+        Object id = idExtractor.apply(item);
+        return id != null ? id.toString() : null;
+    }
+
+    public boolean isShardable() {
+        return shardKey != null;
+    }
+
+    /**
+     * Shard del elemento (0 .. shardCount - 1). Sin clave de shard, o si es null, va al 0.
+     */
+    public int shardOf(T item, int shardCount) {
+        if (shardKey == null || shardCount <= 1) {
+            return 0;
+        }
+        Object value = shardKey.apply(item);
+        return value != null ? Math.floorMod(value.toString().hashCode(), shardCount) : 0;
+    }
+
+    /**
+     * Nombre del archivo de un shard (ej. "postulaciones.json", 3 de 16 -> "postulaciones-03.json").
+     */
+    public static String shardFileName(String fileName, int shard, int shardCount) {
+        int digits = Math.max(2, String.valueOf(shardCount - 1).length());
+        String base = fileName.endsWith(".json") ? fileName.substring(0, fileName.length() - ".json".length()) : fileName;
+        return String.format("%s-%0" + digits + "d.json", base, shard);
+    }
+
+    public Map<String, List<Function<T, ?>>> getIndexes() {
+        return Collections.unmodifiableMap(indexes);
+    }
+
+    /**
+     * Clave del elemento en un indice secundario (ver indexKey), o null si el elemento
+     * no entra en el indice (no cumple su condicion o algun campo es null).
+     */
+    public String indexKeyOf(String indexName, T item) {
+        Predicate<T> condition = indexConditions.get(indexName);
+        if (condition != null && !condition.test(item)) {
+            return null;
+        }
+        List<Function<T, ?>> fields = indexes.get(indexName);
+        List<Object> parts = new ArrayList<>(fields.size());
+        for (Function<T, ?> field : fields) {
+            Object value = field.apply(item);
+            if (value == null) {
+                return null;
+            }
+            parts.add(value);
+        }
+        return indexKey(parts.toArray());
+    }
+
+    public Map<String, Function<T, String>> getSortedIndexes() {
+        return Collections.unmodifiableMap(sortedIndexes);
+    }
+
+    /**
+     * Clave del elemento en un indice ordenado ("valor|clave primaria"),
+     * o null si no cumple la condicion del indice.
+     */
+    public String sortKeyOf(String indexName, T item) {
+        Predicate<T> condition = indexConditions.get(indexName);
+        if (condition != null && !condition.test(item)) {
+            return null;
+        }
+        String sortValue = sortedIndexes.get(indexName).apply(item);
+        return (sortValue != null ? sortValue : "") + "|" + idOf(item);
+    }
+
+    private static String preferencia(String value) {
+        return value != null && !value.isBlank() ? normalize(value) : SIN_PREFERENCIA;
+    }
+
+    // El rango solo filtra si el usuario eligio minimo y maximo
+    private static String rangoPreferido(PreferenciasUsuario prefs, String value) {
+        boolean completo = prefs.getBusquedaRangoMinPorDefecto() != null && !prefs.getBusquedaRangoMinPorDefecto().isBlank()
+                && prefs.getBusquedaRangoMaxPorDefecto() != null && !prefs.getBusquedaRangoMaxPorDefecto().isBlank();
+        return completo ? normalize(value) : SIN_PREFERENCIA;
+    }
+
+    private static String sortableDate(LocalDateTime date) {
+        // Ancho fijo: LocalDateTime.toString() omite los segundos y nanos en cero ("10:00" vs "10:00:30"),
+        // y seguido de "|id" ordenaba mal. Sin fecha va primero ('-' es menor que cualquier digito).
+        return date != null ? SORTABLE_DATE.format(date) : NO_DATE;
+    }
+
+    /**
+     * Normaliza un texto para usarlo como clave de indice (sin distinguir mayusculas).
+     */
+    public static String normalize(String text) {
+        return text != null ? text.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * Arma la clave de un indice secundario a partir de los valores de sus campos,
+     * en el mismo orden en que se declararon con withIndex.
+     */
+    public static String indexKey(Object... parts) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                key.append('|');
+            }
+            key.append(parts[i]);
+        }
+        return key.toString();
+    }
+}
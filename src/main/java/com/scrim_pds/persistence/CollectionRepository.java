@@ -0,0 +1,952 @@
+package com.scrim_pds.persistence;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.scrim_pds.exception.OptimisticLockException;
+import com.scrim_pds.model.Versioned;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Repositorio en memoria para una coleccion (un archivo JSON).
+ * Se carga una sola vez desde disco y luego sirve las lecturas desde memoria.
+ * Las escrituras solo actualizan la memoria y marcan la coleccion como "sucia";
+ * el JsonPersistenceManager se encarga de volcarla a disco en segundo plano.
+ *
+ * Los elementos se copian al leer y al escribir, para que los servicios puedan
+ * modificar lo que reciben (como hacian con la lista leída del archivo) sin
+ * tocar el estado compartido hasta llamar a writeCollection.
+ * Cada elemento se guarda junto con su JSON compacto: sirve para copiarlo y
+ * para detectar que elementos cambiaron en cada writeCollection.
+ * Los elementos se indexan por clave primaria (hash), asi que buscar o
+ * guardar un unico elemento no recorre la coleccion. Ademas se mantienen los
+ * indices secundarios declarados en la CollectionDefinition (clave -> claves
+ * primarias), que se actualizan en cada escritura.
+ *
+ * Si la coleccion se reparte en shards (data.shards), en memoria sigue siendo una sola;
+ * lo que se reparte es la foto en disco: cada cambio marca su shard como sucio y el
+ * volcado reescribe solo los archivos de los shards sucios.
+ */
+public class CollectionRepository<T> {
+
+    private static final String OP_PUT = "PUT";
+    private static final String OP_DEL = "DEL";
+
+    private final CollectionDefinition<T> definition;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter compactWriter;
+
+    // Elementos por clave primaria, en el orden del archivo
+    private Map<String, Stored<T>> items = new LinkedHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Indices secundarios: nombre del indice -> clave del indice -> claves primarias
+    private final Map<String, Map<String, Set<String>>> indexes = new HashMap<>();
+    // Indices ordenados: nombre del indice -> "valor|clave primaria" -> clave primaria
+    private final Map<String, NavigableMap<String, String>> sortedIndexes = new HashMap<>();
+
+    // Cambios en memoria que todavia no estan en el .json
+    // (escrituras en modo SNAPSHOT, lineas del log en modo WAL)
+    private long pendingChanges = 0;
+
+    // Log de cambios (solo en modo WAL)
+    private WriteAheadLog changeLog;
+
+    // Serializa los volcados de esta coleccion para que se escriban en orden
+    private final Object flushMonitor = new Object();
+
+    // Cantidad de archivos de la foto (1 = un solo archivo) y shards con cambios sin volcar
+    private final int shardCount;
+    private final BitSet dirtyShards = new BitSet();
+
+    public CollectionRepository(CollectionDefinition<T> definition, ObjectMapper objectMapper, Collection<T> initialItems) {
+        this(definition, objectMapper, initialItems, 1);
+    }
+
+    public CollectionRepository(CollectionDefinition<T> definition, ObjectMapper objectMapper, Collection<T> initialItems, int shardCount) {
+        this.definition = definition;
+        this.shardCount = definition.isShardable() ? Math.max(1, shardCount) : 1;
+        this.objectMapper = objectMapper;
+        this.compactWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        for (String indexName : definition.getIndexes().keySet()) {
+            indexes.put(indexName, new HashMap<>());
+        }
+        for (String indexName : definition.getSortedIndexes().keySet()) {
+            sortedIndexes.put(indexName, new TreeMap<>());
+        }
+        for (T item : initialItems) {
+            String key = keyOf(item);
+            Stored<T> stored = stored(item, serialize(item));
+            reindex(key, items.put(key, stored), stored);
+        }
+    }
+
+    public String getFileName() {
+        return definition.getFileName();
+    }
+
+    public Class<T> getItemClass() {
+        return definition.getItemClass();
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Activa el modo WAL: a partir de ahora cada cambio se agrega al log.
+     */
+    void attachChangeLog(WriteAheadLog changeLog) {
+        lock.writeLock().lock();
+        try {
+            this.changeLog = changeLog;
+            this.pendingChanges = changeLog.getEntries();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    WriteAheadLog getChangeLog() {
+        return changeLog;
+    }
+
+    /**
+     * Devuelve una copia de todos los elementos de la coleccion.
+     */
+    public List<T> findAll() {
+        lock.readLock().lock();
+        try {
+            List<T> result = new ArrayList<>(items.size());
+            for (Stored<T> stored : items.values()) {
+                result.add(deserialize(stored.json));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca un elemento por su clave primaria (O(1)) y devuelve una copia.
+     */
+    public Optional<T> findById(Object id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            Stored<T> stored = items.get(id.toString());
+            return stored != null ? Optional.of(deserialize(stored.json)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve copias de los elementos con esa clave en un indice secundario.
+     * @param indexKey Clave armada con CollectionDefinition.indexKey(...).
+     */
+    public List<T> findByIndex(String indexName, String indexKey) {
+        lock.readLock().lock();
+        try {
+            Set<String> keys = index(indexName).get(indexKey);
+            if (keys == null) {
+                return new ArrayList<>();
+            }
+            List<T> result = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                result.add(deserialize(items.get(key).json));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca los elementos que estan en todos los buckets pedidos (interseccion de indices).
+     * Se recorre el bucket mas chico y se verifica la pertenencia a los demas (O(1) cada uno);
+     * el filtro se evalua sobre los elementos guardados y solo se copian los que pasan.
+     *
+     * @param criteria Nombre del indice -> clave buscada. No puede estar vacio.
+     * @param filter Condicion adicional (ej. rangos), o null.
+     */
+    public List<T> findByIndexes(Map<String, String> criteria, Predicate<? super T> filter) {
+        if (criteria.isEmpty()) {
+            throw new IllegalArgumentException("Se necesita al menos un indice para buscar en " + getFileName());
+        }
+        lock.readLock().lock();
+        try {
+            List<Set<String>> buckets = bucketsFor(criteria);
+            if (buckets == null) {
+                return new ArrayList<>(); // Algun criterio no tiene resultados
+            }
+
+            List<T> result = new ArrayList<>();
+            Set<String> smallest = buckets.get(0);
+            for (String key : smallest) {
+                if (matches(key, buckets, 1, filter)) {
+                    result.add(deserialize(items.get(key).json));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Recorre la coleccion en orden y devuelve copias de los elementos que cumplen el filtro,
+     * hasta 'limit'. El filtro se evalua sobre los elementos guardados: solo se copian los que
+     * pasan y el recorrido se corta al llenar el limite (ej. limit = 1 para el primero).
+     */
+    public List<T> findMatching(Predicate<? super T> filter, int limit) {
+        lock.readLock().lock();
+        try {
+            List<T> result = new ArrayList<>(Math.max(0, Math.min(limit, 16)));
+            for (Stored<T> stored : items.values()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                if (filter.test(stored.value)) {
+                    result.add(deserialize(stored.json));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve una pagina de elementos en el orden de un indice ordenado, empezando despues
+     * de 'afterKey' (paginacion por cursor). Solo se recorre el indice hasta llenar la pagina.
+     *
+     * @param criteria Indices que ademas deben coincidir (puede estar vacio).
+     * @param afterKey Clave del ultimo elemento de la pagina anterior (IndexPage.nextKey), o null.
+     * @return La pagina; nextKey es null si no se lleno (no hay mas resultados).
+     */
+    public IndexPage<T> findPage(String sortedIndexName, boolean descending, Map<String, String> criteria,
+                                 Predicate<? super T> filter, String afterKey, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<String, String> sorted = sortedIndex(sortedIndexName);
+            List<Set<String>> buckets = bucketsFor(criteria);
+            if (buckets == null) {
+                return new IndexPage<>(new ArrayList<>(), null, 0);
+            }
+            // Estimacion: el conjunto mas chico que hay que cumplir (cota superior)
+            long totalEstimate = buckets.isEmpty() ? sorted.size() : Math.min(sorted.size(), buckets.get(0).size());
+
+            NavigableMap<String, String> view = descending ? sorted.descendingMap() : sorted;
+            if (afterKey != null) {
+                view = view.tailMap(afterKey, false);
+            }
+            List<T> result = new ArrayList<>(Math.min(limit, 64));
+            String lastKey = null;
+            for (Map.Entry<String, String> entry : view.entrySet()) {
+                if (!matches(entry.getValue(), buckets, 0, filter)) {
+                    continue;
+                }
+                result.add(deserialize(items.get(entry.getValue()).json));
+                lastKey = entry.getKey();
+                if (result.size() >= limit) {
+                    return new IndexPage<>(result, lastKey, totalEstimate);
+                }
+            }
+            return new IndexPage<>(result, null, totalEstimate);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Buckets de cada criterio, del mas chico al mas grande, o null si alguno esta vacio.
+     */
+    private List<Set<String>> bucketsFor(Map<String, String> criteria) {
+        List<Set<String>> buckets = new ArrayList<>(criteria.size());
+        for (Map.Entry<String, String> criterion : criteria.entrySet()) {
+            Set<String> bucket = index(criterion.getKey()).get(criterion.getValue());
+            if (bucket == null) {
+                return null;
+            }
+            buckets.add(bucket);
+        }
+        buckets.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        return buckets;
+    }
+
+    private boolean matches(String key, List<Set<String>> buckets, int from, Predicate<? super T> filter) {
+        for (int i = from; i < buckets.size(); i++) {
+            if (!buckets.get(i).contains(key)) {
+                return false;
+            }
+        }
+        return filter == null || filter.test(items.get(key).value);
+    }
+
+    /**
+     * Cuenta los elementos con esa clave en un indice secundario, sin copiarlos (O(1)).
+     */
+    public int countByIndex(String indexName, String indexKey) {
+        lock.readLock().lock();
+        try {
+            Set<String> keys = index(indexName).get(indexKey);
+            return keys != null ? keys.size() : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inserta o actualiza un unico elemento (por su clave primaria), sin tocar el resto.
+     * Si ya existia conserva su posicion; si es nuevo se agrega al final.
+     * Si el elemento es Versioned, solo se guarda si su version coincide con la guardada
+     * (compare-and-set) y se le incrementa la version (tambien al objeto recibido).
+     *
+     * @throws OptimisticLockException Si otro request lo modifico desde que se leyo.
+     */
+    public WriteResult save(Object item) throws IOException {
+        T typed = getItemClass().cast(item);
+        String key = keyOf(typed);
+        byte[] json = serialize(typed);
+
+        lock.writeLock().lock();
+        try {
+            Stored<T> current = items.get(key);
+            if (current != null && Arrays.equals(current.json, json)) {
+                return new WriteResult(pendingChanges, 0);
+            }
+            long previousVersion = checkVersion(key, current, typed);
+            if (typed instanceof Versioned versioned) {
+                versioned.setVersion(previousVersion + 1);
+                json = serialize(typed);
+            }
+            long seq = 0;
+            try {
+                if (changeLog != null) {
+                    seq = changeLog.append(List.of(putLine(key, json)));
+                }
+            } catch (IOException e) {
+                restoreVersion(typed, previousVersion);
+                throw e;
+            }
+            pendingChanges++;
+            Stored<T> stored = stored(deserialize(json), json);
+            items.put(key, stored);
+            reindex(key, current, stored);
+            markDirty(current, stored);
+            return new WriteResult(pendingChanges, seq);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inserta o actualiza varios elementos (por su clave primaria) sin tocar el resto,
+     * con un solo lock y, en modo WAL, una sola escritura al log (un fsync para todos).
+     * Los elementos Versioned se validan y se versionan como en save(): si alguno tiene
+     * una version vieja no se guarda ninguno.
+     *
+     * @throws OptimisticLockException Si otro request modifico alguno desde que se leyo.
+     */
+    public WriteResult saveAll(Collection<?> collection) throws IOException {
+        List<T> typedItems = new ArrayList<>(collection.size());
+        List<String> keys = new ArrayList<>(collection.size());
+        List<byte[]> jsons = new ArrayList<>(collection.size());
+        for (Object item : collection) {
+            T typed = getItemClass().cast(item);
+            typedItems.add(typed);
+            keys.add(keyOf(typed));
+            jsons.add(serialize(typed));
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<Integer> changedPositions = new ArrayList<>();
+            long[] previousVersions = new long[keys.size()];
+            for (int i = 0; i < keys.size(); i++) {
+                Stored<T> current = items.get(keys.get(i));
+                if (current == null || !Arrays.equals(current.json, jsons.get(i))) {
+                    previousVersions[i] = checkVersion(keys.get(i), current, typedItems.get(i));
+                    changedPositions.add(i);
+                }
+            }
+            if (changedPositions.isEmpty()) {
+                return new WriteResult(pendingChanges, 0);
+            }
+            List<byte[]> changes = new ArrayList<>(changedPositions.size());
+            for (int i : changedPositions) {
+                if (typedItems.get(i) instanceof Versioned versioned) {
+                    versioned.setVersion(previousVersions[i] + 1);
+                    jsons.set(i, serialize(typedItems.get(i)));
+                }
+                changes.add(putLine(keys.get(i), jsons.get(i)));
+            }
+
+            long seq = 0;
+            if (changeLog != null) {
+                try {
+                    seq = changeLog.append(changes);
+                } catch (IOException e) {
+                    for (int i : changedPositions) {
+                        restoreVersion(typedItems.get(i), previousVersions[i]);
+                    }
+                    throw e;
+                }
+                pendingChanges += changes.size();
+            } else {
+                pendingChanges++;
+            }
+            for (int i : changedPositions) {
+                String key = keys.get(i);
+                Stored<T> previous = items.get(key);
+                Stored<T> stored = stored(deserialize(jsons.get(i)), jsons.get(i));
+                items.put(key, stored);
+                reindex(key, previous, stored);
+                markDirty(previous, stored);
+            }
+            return new WriteResult(pendingChanges, seq);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reemplaza el contenido completo de la coleccion.
+     * Solo los elementos que cambiaron (o se borraron) cuentan como cambios;
+     * en modo WAL esos cambios se agregan al log antes de soltar el lock.
+     * Los elementos Versioned que cambiaron se validan y se versionan como en save().
+     *
+     * @throws OptimisticLockException Si algun elemento cambiado tiene una version vieja.
+     */
+    public WriteResult replaceAll(Collection<?> collection) throws IOException {
+        // Serializar fuera del lock: la coleccion recibida es del llamador
+        List<T> typedItems = new ArrayList<>(collection.size());
+        List<String> keys = new ArrayList<>(collection.size());
+        List<byte[]> jsons = new ArrayList<>(collection.size());
+        for (Object item : collection) {
+            T typed = getItemClass().cast(item);
+            typedItems.add(typed);
+            keys.add(keyOf(typed));
+            jsons.add(serialize(typed));
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Primero se validan las versiones: si hay conflicto no se toca nada
+            List<Integer> changedPositions = new ArrayList<>();
+            long[] previousVersions = new long[keys.size()];
+            for (int i = 0; i < keys.size(); i++) {
+                Stored<T> current = items.get(keys.get(i));
+                if (current == null || !Arrays.equals(current.json, jsons.get(i))) {
+                    previousVersions[i] = checkVersion(keys.get(i), current, typedItems.get(i));
+                    changedPositions.add(i);
+                }
+            }
+            for (int i : changedPositions) {
+                if (typedItems.get(i) instanceof Versioned versioned) {
+                    versioned.setVersion(previousVersions[i] + 1);
+                    jsons.set(i, serialize(typedItems.get(i)));
+                }
+            }
+
+            Map<String, Stored<T>> next = new LinkedHashMap<>(Math.max(16, keys.size() * 4 / 3 + 1));
+            List<byte[]> changes = new ArrayList<>();
+            List<String> changedKeys = new ArrayList<>();
+            int nextChanged = 0;
+            for (int i = 0; i < keys.size(); i++) {
+                String key = keys.get(i);
+                byte[] json = jsons.get(i);
+                if (nextChanged < changedPositions.size() && changedPositions.get(nextChanged) == i) {
+                    nextChanged++;
+                    next.put(key, stored(deserialize(json), json));
+                    changes.add(putLine(key, json));
+                    changedKeys.add(key);
+                } else {
+                    next.put(key, items.get(key)); // Sin cambios: se reutiliza la copia guardada
+                }
+            }
+            for (String key : items.keySet()) {
+                if (!next.containsKey(key)) {
+                    changes.add(deleteLine(key));
+                    changedKeys.add(key);
+                }
+            }
+            if (changes.isEmpty()) {
+                return new WriteResult(pendingChanges, 0);
+            }
+
+            // Primero el log: si falla, la memoria queda como estaba
+            long seq = 0;
+            if (changeLog != null) {
+                try {
+                    seq = changeLog.append(changes);
+                } catch (IOException e) {
+                    for (int i : changedPositions) {
+                        restoreVersion(typedItems.get(i), previousVersions[i]);
+                    }
+                    throw e;
+                }
+                pendingChanges += changes.size();
+            } else {
+                pendingChanges++;
+            }
+            Map<String, Stored<T>> previous = items;
+            items = next;
+            for (String key : changedKeys) {
+                reindex(key, previous.get(key), next.get(key));
+                markDirty(previous.get(key), next.get(key));
+            }
+            return new WriteResult(pendingChanges, seq);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Borra los elementos recibidos, pero solo los que siguen iguales a lo guardado
+     * (compara la serializacion). Los que cambiaron desde que se leyeron se conservan:
+     * sirve para sacar de la coleccion lo que se copia a otro lado (ej. al archivo
+     * historico) sin perder una modificacion hecha en el medio.
+     *
+     * @param beforeRemove Recibe los elementos que se van a borrar, con el lock de escritura
+     *                     tomado (nadie los puede modificar mientras tanto). Si lanza una
+     *                     excepcion no se borra nada.
+     * @return Resultado de la escritura y cantidad de elementos borrados.
+     */
+    public DeleteResult removeUnchanged(Collection<?> expected, BeforeRemove<T> beforeRemove) throws IOException {
+        List<T> typedItems = new ArrayList<>(expected.size());
+        List<String> keys = new ArrayList<>(expected.size());
+        List<byte[]> jsons = new ArrayList<>(expected.size());
+        for (Object item : expected) {
+            T typed = getItemClass().cast(item);
+            typedItems.add(typed);
+            keys.add(keyOf(typed));
+            jsons.add(serialize(typed));
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<String> removedKeys = new ArrayList<>();
+            List<T> removedItems = new ArrayList<>();
+            for (int i = 0; i < keys.size(); i++) {
+                Stored<T> current = items.get(keys.get(i));
+                if (current != null && Arrays.equals(current.json, jsons.get(i))) {
+                    removedKeys.add(keys.get(i));
+                    removedItems.add(typedItems.get(i));
+                }
+            }
+            if (removedKeys.isEmpty()) {
+                return new DeleteResult(new WriteResult(pendingChanges, 0), 0);
+            }
+            beforeRemove.accept(removedItems);
+            return new DeleteResult(removeKeys(removedKeys), removedKeys.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Paso previo al borrado de removeUnchanged (ej. copiar los elementos al archivo historico).
+     */
+    @FunctionalInterface
+    public interface BeforeRemove<T> {
+        void accept(List<T> items) throws IOException;
+    }
+
+    /**
+     * Borra un unico elemento por su clave primaria, sin tocar el resto.
+     * Si no existe no hace nada (deleted = 0).
+     */
+    public DeleteResult delete(Object id) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (id == null || !items.containsKey(id.toString())) {
+                return new DeleteResult(new WriteResult(pendingChanges, 0), 0);
+            }
+            return new DeleteResult(removeKeys(List.of(id.toString())), 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Borra los elementos que cumplen el filtro (ej. sesiones vencidas), sin tocar el resto.
+     * El filtro se evalua con el lock de escritura tomado: no debe modificar los elementos.
+     *
+     * @return Resultado de la escritura y cantidad de elementos borrados.
+     */
+    public DeleteResult deleteMatching(Predicate<? super T> filter) throws IOException {
+        lock.writeLock().lock();
+        try {
+            List<String> removedKeys = new ArrayList<>();
+            for (Map.Entry<String, Stored<T>> entry : items.entrySet()) {
+                if (filter.test(entry.getValue().value)) {
+                    removedKeys.add(entry.getKey());
+                }
+            }
+            return new DeleteResult(removeKeys(removedKeys), removedKeys.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Saca las claves de la coleccion y de los indices (en modo WAL, una linea DEL por clave). Se llama con el lock de escritura tomado.
+    private WriteResult removeKeys(List<String> removedKeys) throws IOException {
+        if (removedKeys.isEmpty()) {
+            return new WriteResult(pendingChanges, 0);
+        }
+        long seq = 0;
+        if (changeLog != null) {
+            List<byte[]> changes = new ArrayList<>(removedKeys.size());
+            for (String key : removedKeys) {
+                changes.add(deleteLine(key));
+            }
+            seq = changeLog.append(changes);
+            pendingChanges += changes.size();
+        } else {
+            pendingChanges++;
+        }
+        for (String key : removedKeys) {
+            Stored<T> removed = items.remove(key);
+            reindex(key, removed, null);
+            markDirty(removed, null);
+        }
+        return new WriteResult(pendingChanges, seq);
+    }
+
+    /**
+     * Aplica una linea del log al iniciar (replay), sin volver a registrarla.
+     */
+    void applyLogLine(String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            String key = node.get("id").asText();
+            lock.writeLock().lock();
+            try {
+                if (OP_DEL.equals(node.get("op").asText())) {
+                    Stored<T> removed = items.remove(key);
+                    reindex(key, removed, null);
+                    markDirty(removed, null);
+                } else {
+                    T item = objectMapper.treeToValue(node.get("data"), getItemClass());
+                    Stored<T> stored = stored(item, serialize(item));
+                    Stored<T> previous = items.put(key, stored);
+                    reindex(key, previous, stored);
+                    markDirty(previous, stored);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Linea inválida en el log de " + getFileName() + ": " + line, e);
+        }
+    }
+
+    public long getPendingChanges() {
+        lock.readLock().lock();
+        try {
+            return pendingChanges;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isDirty() {
+        return getPendingChanges() > 0;
+    }
+
+    /**
+     * Marca todos los shards como sucios, para que el proximo volcado reescriba la foto
+     * completa (ej. al cambiar la cantidad de shards o el formato en disco).
+     */
+    void markAllDirty() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges++;
+            dirtyShards.set(0, shardCount);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Vuelca la coleccion a disco si tiene cambios pendientes.
+     * Los elementos guardados nunca se modifican (se copian al entrar y al salir),
+     * asi que se pueden serializar fuera del lock.
+     * En modo WAL, la foto y la rotacion del log se toman juntas, bajo el lock.
+     * Con shards, solo se escriben los archivos de los shards sucios.
+     *
+     * @param writer Funcion que escribe la foto de la coleccion (o de un shard) al archivo.
+     * @return true si se escribio algo a disco.
+     */
+    boolean flush(SnapshotWriter writer) throws IOException {
+        synchronized (flushMonitor) {
+            Map<String, List<T>> snapshot;
+            BitSet flushedShards;
+            long flushedChanges;
+            lock.writeLock().lock();
+            try {
+                if (pendingChanges == 0) {
+                    return false;
+                }
+                snapshot = dirtySnapshot();
+                flushedShards = (BitSet) dirtyShards.clone();
+                dirtyShards.clear();
+                flushedChanges = pendingChanges;
+                if (changeLog != null) {
+                    changeLog.rotate();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            try {
+                for (Map.Entry<String, List<T>> part : snapshot.entrySet()) {
+                    writer.write(part.getKey(), part.getValue());
+                }
+            } catch (IOException | RuntimeException e) {
+                // Los shards quedan sucios para el proximo volcado
+                lock.writeLock().lock();
+                try {
+                    dirtyShards.or(flushedShards);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+            if (changeLog != null) {
+                changeLog.deleteRotated();
+            }
+
+            lock.writeLock().lock();
+            try {
+                pendingChanges -= flushedChanges;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Elementos a volcar por archivo: toda la coleccion, o solo los shards sucios.
+     * Se llama con el write lock tomado.
+     */
+    private Map<String, List<T>> dirtySnapshot() {
+        if (shardCount == 1) {
+            List<T> all = new ArrayList<>(items.size());
+            for (Stored<T> stored : items.values()) {
+                all.add(stored.value);
+            }
+            return Map.of(getFileName(), all);
+        }
+        Map<Integer, List<T>> byShard = new TreeMap<>();
+        for (int shard = dirtyShards.nextSetBit(0); shard >= 0; shard = dirtyShards.nextSetBit(shard + 1)) {
+            byShard.put(shard, new ArrayList<>());
+        }
+        for (Stored<T> stored : items.values()) {
+            List<T> part = byShard.get(stored.shard);
+            if (part != null) {
+                part.add(stored.value);
+            }
+        }
+        Map<String, List<T>> result = new LinkedHashMap<>();
+        byShard.forEach((shard, part) -> result.put(CollectionDefinition.shardFileName(getFileName(), shard, shardCount), part));
+        return result;
+    }
+
+    // Se llama con el write lock tomado
+    private void markDirty(Stored<T> previous, Stored<T> current) {
+        if (previous != null) {
+            dirtyShards.set(previous.shard);
+        }
+        if (current != null) {
+            dirtyShards.set(current.shard);
+        }
+    }
+
+    private Stored<T> stored(T item, byte[] json) {
+        return new Stored<>(item, json, definition.shardOf(item, shardCount));
+    }
+
+    /**
+     * Compare-and-set: la version del elemento recibido tiene que ser la guardada
+     * (0 si es nuevo). Se llama con el write lock tomado.
+     * @return La version guardada actualmente.
+     */
+    private long checkVersion(String key, Stored<T> current, T incoming) {
+        if (!(incoming instanceof Versioned versioned)) {
+            return 0;
+        }
+        long storedVersion = current != null ? ((Versioned) current.value).getVersion() : 0;
+        if (versioned.getVersion() != storedVersion) {
+            throw new OptimisticLockException("El elemento " + key + " de " + getFileName()
+                    + " fue modificado por otro request (version " + versioned.getVersion()
+                    + ", actual " + storedVersion + ").");
+        }
+        return storedVersion;
+    }
+
+    private void restoreVersion(T item, long version) {
+        if (item instanceof Versioned versioned) {
+            versioned.setVersion(version);
+        }
+    }
+
+    private NavigableMap<String, String> sortedIndex(String indexName) {
+        NavigableMap<String, String> index = sortedIndexes.get(indexName);
+        if (index == null) {
+            throw new IllegalArgumentException("La coleccion " + getFileName() + " no tiene el indice ordenado: " + indexName);
+        }
+        return index;
+    }
+
+    private Map<String, Set<String>> index(String indexName) {
+        Map<String, Set<String>> index = indexes.get(indexName);
+        if (index == null) {
+            throw new IllegalArgumentException("La coleccion " + getFileName() + " no tiene el indice: " + indexName);
+        }
+        return index;
+    }
+
+    /**
+     * Mueve la clave primaria entre buckets de cada indice secundario.
+     * Se llama con el write lock tomado (o desde el constructor).
+     * @param previous Valor anterior (null si es nuevo).
+     * @param current Valor nuevo (null si se borro).
+     */
+    private void reindex(String key, Stored<T> previous, Stored<T> current) {
+        for (Map.Entry<String, Map<String, Set<String>>> entry : indexes.entrySet()) {
+            String indexName = entry.getKey();
+            Map<String, Set<String>> index = entry.getValue();
+            String oldKey = previous != null ? definition.indexKeyOf(indexName, previous.value) : null;
+            String newKey = current != null ? definition.indexKeyOf(indexName, current.value) : null;
+            if (oldKey != null && oldKey.equals(newKey)) {
+                continue;
+            }
+            if (oldKey != null) {
+                Set<String> bucket = index.get(oldKey);
+                if (bucket != null) {
+                    bucket.remove(key);
+                    if (bucket.isEmpty()) {
+                        index.remove(oldKey);
+                    }
+                }
+            }
+            if (newKey != null) {
+                index.computeIfAbsent(newKey, k -> new LinkedHashSet<>()).add(key);
+            }
+        }
+        for (Map.Entry<String, NavigableMap<String, String>> entry : sortedIndexes.entrySet()) {
+            String oldKey = previous != null ? definition.sortKeyOf(entry.getKey(), previous.value) : null;
+            String newKey = current != null ? definition.sortKeyOf(entry.getKey(), current.value) : null;
+            if (oldKey != null && oldKey.equals(newKey)) {
+                continue;
+            }
+            if (oldKey != null) {
+                entry.getValue().remove(oldKey);
+            }
+            if (newKey != null) {
+                entry.getValue().put(newKey, key);
+            }
+        }
+    }
+
+    private String keyOf(T item) {
+        String id = definition.idOf(item);
+        // Sin clave primaria: se le asigna una clave interna (nunca deberia pasar)
+        return id != null ? id : "#" + UUID.randomUUID();
+    }
+
+    private byte[] serialize(Object item) {
+        try {
+            return compactWriter.writeValueAsBytes(item);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al serializar un elemento de " + getFileName(), e);
+        }
+    }
+
+    private T deserialize(byte[] json) {
+        try {
+            return objectMapper.readValue(json, getItemClass());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al copiar un elemento de " + getFileName(), e);
+        }
+    }
+
+    private byte[] putLine(String key, byte[] json) {
+        // {"op":"PUT","id":"<clave>","data":<json>} sin volver a serializar el elemento
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length + key.length() + 32);
+        out.writeBytes(("{\"op\":\"" + OP_PUT + "\",\"id\":").getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(serialize(key));
+        out.writeBytes(",\"data\":".getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(json);
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    private byte[] deleteLine(String key) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("op", OP_DEL);
+        node.put("id", key);
+        return serialize(node);
+    }
+
+    private record Stored<T>(T value, byte[] json, int shard) {
+    }
+
+    /**
+     * Resultado de una escritura en memoria.
+     * @param pendingChanges Cambios acumulados sin volcar al .json.
+     * @param logSequence Secuencia en el log a sincronizar (0 si no hay log o no hubo cambios).
+     */
+    public record WriteResult(long pendingChanges, long logSequence) {
+    }
+
+    /**
+     * Resultado de un borrado (delete / deleteMatching).
+     * @param deleted Cantidad de elementos borrados.
+     */
+    public record DeleteResult(WriteResult write, int deleted) {
+    }
+
+    /**
+     * Pagina de resultados de un indice ordenado.
+     * @param nextKey Cursor para pedir la pagina siguiente (null si no hay mas).
+     * @param totalEstimate Cota superior de la cantidad total de resultados.
+     */
+    public record IndexPage<T>(List<T> items, String nextKey, long totalEstimate) {
+    }
+
+    /**
+     * Escritor de la foto de una coleccion o de uno de sus shards (lo implementa JsonPersistenceManager).
+     */
+    @FunctionalInterface
+    interface SnapshotWriter {
+        void write(String fileName, Collection<?> snapshot) throws IOException;
+    }
+}
@@ -1,30 +1,57 @@
 package com.scrim_pds.persistence;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * Gestiona la persistencia de colecciones de objetos en archivos JSON.
+ * Cada archivo se carga una vez en un CollectionRepository (en memoria) y las lecturas
+ * se sirven desde ahi. Las escrituras actualizan la memoria y se vuelcan a disco
+ * en segundo plano (write-behind), cada cierto intervalo o al superar un umbral de cambios.
+ * En modo WAL (data.persistence-mode=wal) cada cambio se agrega ademas a un log por archivo
+ * antes de volver, y el .json se reescribe (compacta) solo cada tanto.
  * Proporciona concurrencia (locking por archivo) y escrituras atómicas.
  */
 @Component
@@ -34,25 +61,57 @@ public class JsonPersistenceManager {
 
     private final ObjectMapper objectMapper;
     private final Path dataDirectory;
+    private final long flushIntervalMs;
+    private final int flushDirtyThreshold;
+    private final PersistenceMode persistenceMode;
+    private final int walCompactThreshold;
+    private final SnapshotFormat snapshotFormat;
+    // Mapper para las fotos en Smile (misma configuracion que el de JSON)
+    private final ObjectMapper smileMapper;
+    // Lectura de fotos con mmap (data.snapshot-reader=mmap), o null para usar streams comunes
+    private final MappedSnapshotReader mappedReader;
+    // Archivos en los que se reparten las colecciones con clave de shard (1 = sin repartir)
+    private final int shardCount;
+    // Datos frios sacados del working set (data/archive/<yyyy-MM>/...)
+    private final ArchiveStore archiveStore;
 
     // Un mapa de locks, uno para cada archivo JSON, para manejar concurrencia
     private final Map<String, ReentrantReadWriteLock> locks = new ConcurrentHashMap<>();
 
-    // Lista de todos los archivos JSON que usará la aplicación
-    // --- MODIFICADO ---
-    private static final List<String> REQUIRED_FILES = List.of(
-            "users.json",
-            "sessions.json",
-            "scrims.json",
-            "postulaciones.json",
-            "estadisticas.json",
-            "verifications.json",
-            "feedback.json" // <-- AÑADIDO
-    );
-
-    public JsonPersistenceManager(ObjectMapper objectMapper, @Value("${data.directory}") String dataDirPath) {
+    // Repositorios en memoria, uno por archivo
+    private final Map<String, CollectionRepository<?>> repositories = new ConcurrentHashMap<>();
+
+    // Hilo dedicado al volcado a disco (no compartimos el scheduler de @Scheduled,
+    // que puede estar ocupado enviando recordatorios)
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "json-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public JsonPersistenceManager(ObjectMapper objectMapper,
+                                  @Value("${data.directory}") String dataDirPath,
+                                  @Value("${data.flush-interval-ms:1000}") long flushIntervalMs,
+                                  @Value("${data.flush-dirty-threshold:100}") int flushDirtyThreshold,
+                                  @Value("${data.persistence-mode:snapshot}") String persistenceMode,
+                                  @Value("${data.wal.compact-threshold:1000}") int walCompactThreshold,
+                                  @Value("${data.snapshot-format:json}") String snapshotFormat,
+                                  @Value("${data.snapshot-reader:buffered}") String snapshotReader,
+                                  @Value("${data.shards:1}") int shardCount) {
         this.objectMapper = objectMapper;
         this.dataDirectory = Paths.get(dataDirPath);
+        this.flushIntervalMs = flushIntervalMs;
+        this.flushDirtyThreshold = flushDirtyThreshold;
+        this.persistenceMode = PersistenceMode.valueOf(persistenceMode.trim().toUpperCase());
+        this.walCompactThreshold = walCompactThreshold;
+        this.snapshotFormat = SnapshotFormat.valueOf(snapshotFormat.trim().toUpperCase());
+        // Los valores repetidos (estados, juegos, regiones) se escriben una vez y luego por referencia
+        this.smileMapper = objectMapper.copyWith(SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build());
+        this.mappedReader = "mmap".equalsIgnoreCase(snapshotReader.trim()) ? new MappedSnapshotReader() : null;
+        this.shardCount = Math.max(1, shardCount);
+        this.archiveStore = new ArchiveStore(objectMapper, this.dataDirectory.resolve("archive"));
     }
 
     /**
@@ -69,25 +128,61 @@ public class JsonPersistenceManager {
                 logger.info("Usando directorio de datos existente: {}", dataDirectory.toAbsolutePath());
             }
 
-            // 2. Crear cada archivo JSON si no existe (con lista vacía [])
-            for (String fileName : REQUIRED_FILES) {
-                Path filePath = getFilePath(fileName);
-                if (Files.notExists(filePath)) {
+            // 2. Crear cada archivo (o sus shards) si no existe en ningún formato (con lista vacía [])
+            for (CollectionDefinition<?> definition : CollectionDefinition.all().values()) {
+                String fileName = definition.getFileName();
+                if (storedParts(definition).isEmpty()) {
                     logger.warn("Archivo {} no encontrado. Creando archivo vacío.", fileName);
-                    // Usamos writeCollection para crearlo de forma segura (con lock)
-                    writeCollection(fileName, new ArrayList<>());
+                    // Usamos writeToDisk para crearlo de forma segura (con lock)
+                    for (String part : snapshotFileNames(definition)) {
+                        writeToDisk(part, new ArrayList<>());
+                    }
                     logger.info("Archivo {} creado exitosamente.", fileName);
                 }
             }
 
+            // 3. Cargar cada coleccion en memoria (una sola lectura por archivo)
+            for (CollectionDefinition<?> definition : CollectionDefinition.all().values()) {
+                getRepository(definition.getFileName(), definition.getItemClass());
+            }
+
         } catch (IOException e) {
             logger.error("Error fatal durante la inicialización del directorio/archivos de datos: {}", dataDirectory.toAbsolutePath(), e);
             // Considera detener la aplicación si la inicialización falla
             // System.exit(1);
         } catch (IllegalArgumentException e) {
-             logger.error("Error fatal: Nombre de archivo inválido en REQUIRED_FILES: {}", e.getMessage());
+             logger.error("Error fatal: Nombre de archivo inválido en CollectionDefinition: {}", e.getMessage());
              // System.exit(1);
         }
+
+        // 4. Programar el volcado periodico de las colecciones sucias
+        flushExecutor.scheduleWithFixedDelay(this::flushAllQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (persistenceMode == PersistenceMode.WAL) {
+            logger.info("Persistencia en modo WAL: compactación cada {} cambios (revisado cada {} ms).", walCompactThreshold, flushIntervalMs);
+        } else {
+            logger.info("Volcado a disco cada {} ms o cada {} escrituras pendientes.", flushIntervalMs, flushDirtyThreshold);
+        }
+    }
+
+    /**
+     * Al apagar la aplicación, vuelca todo lo pendiente antes de salir.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (String fileName : repositories.keySet()) {
+            flushQuietly(fileName);
+        }
+        for (CollectionRepository<?> repository : repositories.values()) {
+            if (repository.getChangeLog() != null) {
+                repository.getChangeLog().close();
+            }
+        }
     }
 
     /**
@@ -97,6 +192,112 @@ public class JsonPersistenceManager {
         return locks.computeIfAbsent(fileName, k -> new ReentrantReadWriteLock());
     }
 
+    /**
+     * Ruta de la foto de una colección en un formato dado (ej. "users.json" en SMILE -> data/users.smile).
+     */
+    private Path snapshotPath(String fileName, SnapshotFormat format) {
+        return getFilePath(format.fileNameFor(fileName));
+    }
+
+    /**
+     * Formato en el que está guardada una colección: primero el configurado, si no otro
+     * que exista (datos anteriores a un cambio de data.snapshot-format). Null si no hay archivo.
+     */
+    private SnapshotFormat existingFormat(String fileName) {
+        if (Files.exists(snapshotPath(fileName, snapshotFormat))) {
+            return snapshotFormat;
+        }
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            if (Files.exists(snapshotPath(fileName, format))) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    private int shardsFor(CollectionDefinition<?> definition) {
+        return definition.isShardable() ? shardCount : 1;
+    }
+
+    /**
+     * Archivos (nombres lógicos, ".json") que debería tener la foto de la colección con la
+     * configuración actual: el de la colección o uno por shard.
+     */
+    private List<String> snapshotFileNames(CollectionDefinition<?> definition) {
+        int shards = shardsFor(definition);
+        if (shards == 1) {
+            return List.of(definition.getFileName());
+        }
+        List<String> names = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            names.add(CollectionDefinition.shardFileName(definition.getFileName(), shard, shards));
+        }
+        return names;
+    }
+
+    /**
+     * Archivos de la colección que hay en disco (en cualquier formato y con cualquier cantidad
+     * de shards): primero el archivo sin repartir, después los shards en orden.
+     */
+    private List<String> storedParts(CollectionDefinition<?> definition) throws IOException {
+        String fileName = definition.getFileName();
+        List<String> parts = new ArrayList<>();
+        if (existingFormat(fileName) != null) {
+            parts.add(fileName);
+        }
+        if (!definition.isShardable() || !fileName.endsWith(".json")) {
+            return parts;
+        }
+        String base = fileName.substring(0, fileName.length() - ".json".length());
+        Pattern shardPattern = Pattern.compile(Pattern.quote(base) + "(-\\d+)\\.(json|smile)");
+        TreeSet<String> shards = new TreeSet<>();
+        try (Stream<Path> files = Files.list(dataDirectory)) {
+            files.forEach(path -> {
+                Matcher matcher = shardPattern.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    shards.add(base + matcher.group(1) + ".json");
+                }
+            });
+        }
+        parts.addAll(shards);
+        return parts;
+    }
+
+    // Mueve a .bak un archivo (o shard) que ya no forma parte de la foto, en cualquier formato
+    private void retireSnapshot(String part) throws IOException {
+        ReentrantReadWriteLock.WriteLock writeLock = getLock(part).writeLock();
+        writeLock.lock();
+        try {
+            for (SnapshotFormat format : SnapshotFormat.values()) {
+                Path path = snapshotPath(part, format);
+                if (Files.exists(path)) {
+                    invalidateMapping(path);
+                    Files.move(path, getFilePath(format.fileNameFor(part) + ".bak"), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Abre una foto para leerla: desde el mapeo en memoria si data.snapshot-reader=mmap,
+     * si no con un stream con buffer.
+     */
+    private InputStream openSnapshot(Path path) throws IOException {
+        return mappedReader != null ? mappedReader.open(path) : new BufferedInputStream(Files.newInputStream(path));
+    }
+
+    private void invalidateMapping(Path path) {
+        if (mappedReader != null) {
+            mappedReader.invalidate(path);
+        }
+    }
+
+    private ObjectMapper mapperFor(SnapshotFormat format) {
+        return format == SnapshotFormat.SMILE ? smileMapper : objectMapper;
+    }
+
     /**
      * Resuelve la ruta completa de un archivo en el directorio 'data/'.
      */
@@ -109,32 +310,436 @@ public class JsonPersistenceManager {
     }
 
     /**
-     * Lee una colección de objetos desde un archivo JSON.
-     * Es seguro para concurrencia (usa ReadLock).
+     * Obtiene el repositorio en memoria de un archivo, cargándolo desde disco la primera vez.
+     *
+     * @param fileName Nombre del archivo (ej. "users.json")
+     * @param itemClass El tipo de la clase en la lista (ej. User.class)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CollectionRepository<T> getRepository(String fileName, Class<T> itemClass) throws IOException {
+        CollectionRepository<?> repository = repositories.get(fileName);
+        if (repository == null) {
+            // Cargar bajo el lock de escritura del archivo para no cargarlo dos veces
+            ReentrantReadWriteLock.WriteLock writeLock = getLock(fileName).writeLock();
+            writeLock.lock();
+            try {
+                repository = repositories.get(fileName);
+                if (repository == null) {
+                    repository = loadRepository(fileName, itemClass);
+                    repositories.put(fileName, repository);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        if (!repository.getItemClass().equals(itemClass)) {
+            throw new IllegalArgumentException("El archivo " + fileName + " contiene " + repository.getItemClass().getSimpleName()
+                    + ", no " + itemClass.getSimpleName());
+        }
+        return (CollectionRepository<T>) repository;
+    }
+
+    /**
+     * Carga la foto (.json o .smile, uno o varios shards) y, en modo WAL, reproduce encima
+     * los cambios del log. Si la foto está en otro formato o repartida en otra cantidad de
+     * archivos que la configurada, se reescribe completa y los archivos viejos quedan como .bak.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CollectionRepository<T> loadRepository(String fileName, Class<T> itemClass) throws IOException {
+        CollectionDefinition<?> known = CollectionDefinition.forFile(fileName);
+        CollectionDefinition<T> definition = known != null && known.getItemClass().equals(itemClass)
+                ? (CollectionDefinition<T>) known
+                : new CollectionDefinition<>(fileName, itemClass, item -> null);
+
+        List<String> storedParts = storedParts(definition);
+        List<T> items = new ArrayList<>();
+        for (String part : storedParts) {
+            items.addAll(readFromDisk(part, itemClass));
+        }
+        CollectionRepository<T> repository = new CollectionRepository<>(definition, objectMapper, items, shardsFor(definition));
+
+        if (persistenceMode == PersistenceMode.WAL) {
+            Path logPath = WriteAheadLog.logPathFor(getFilePath(fileName));
+            long replayed = WriteAheadLog.replay(logPath, repository::applyLogLine);
+            repository.attachChangeLog(new WriteAheadLog(logPath, replayed));
+            if (replayed > 0) {
+                logger.info("Colección {}: {} cambios reproducidos desde el log.", fileName, replayed);
+            }
+        }
+
+        List<String> expectedParts = snapshotFileNames(definition);
+        boolean otherFormat = false;
+        for (String part : storedParts) {
+            otherFormat |= existingFormat(part) != snapshotFormat;
+        }
+        if (!storedParts.isEmpty() && (otherFormat || !new HashSet<>(storedParts).equals(new HashSet<>(expectedParts)))) {
+            repository.markAllDirty();
+            repository.flush(this::writeToDisk);
+            for (String part : storedParts) {
+                if (!expectedParts.contains(part)) {
+                    retireSnapshot(part);
+                }
+            }
+            logger.info("Colección {} reescrita en {} archivo(s) {}.", fileName, expectedParts.size(), snapshotFormat);
+        }
+        logger.info("Colección {} cargada en memoria ({} elementos).", fileName, items.size());
+        return repository;
+    }
+
+    /**
+     * Lee una colección de objetos (desde memoria).
+     * Devuelve copias: el llamador puede modificarlas libremente y luego guardarlas con writeCollection.
      *
      * @param fileName Nombre del archivo (ej. "users.json")
      * @param itemClass El tipo de la clase en la lista (ej. User.class)
      * @return Una lista de objetos, o una lista vacía si el archivo está vacío o corrupto.
      */
     public <T> List<T> readCollection(String fileName, Class<T> itemClass) throws IOException {
+        return getRepository(fileName, itemClass).findAll();
+    }
+
+    /**
+     * Escribe (sobrescribe) una coleccion completa.
+     * Actualiza la memoria al instante; el archivo se escribe en segundo plano.
+     * En modo WAL, vuelve recién cuando los cambios están en el log (fsync agrupado).
+     *
+     * @param fileName Nombre del archivo (ej. "users.json")
+     * @param collection La coleccion de objetos a guardar.
+     */
+    public void writeCollection(String fileName, Collection<?> collection) throws IOException {
+        CollectionRepository<?> repository = repositories.get(fileName);
+        if (repository == null) {
+            CollectionDefinition<?> definition = CollectionDefinition.forFile(fileName);
+            if (definition == null) {
+                // Archivo desconocido: se escribe directo a disco, como antes
+                writeToDisk(fileName, collection);
+                return;
+            }
+            repository = getRepository(fileName, definition.getItemClass());
+        }
+
+        afterWrite(repository, repository.replaceAll(collection));
+    }
+
+    /**
+     * Busca un elemento por su clave primaria (UUID o token) usando el índice hash
+     * de la colección, sin recorrerla.
+     *
+     * @return Una copia del elemento, o vacío si no existe.
+     */
+    public <T> Optional<T> findById(String fileName, Class<T> itemClass, Object id) throws IOException {
+        return getRepository(fileName, itemClass).findById(id);
+    }
+
+    /**
+     * Devuelve copias de los elementos que coinciden en un índice secundario
+     * (ver CollectionDefinition.withIndex), sin recorrer la colección.
+     *
+     * @param keyParts Valores de los campos del índice, en orden.
+     */
+    public <T> List<T> findByIndex(String fileName, Class<T> itemClass, String indexName, Object... keyParts) throws IOException {
+        return getRepository(fileName, itemClass).findByIndex(indexName, CollectionDefinition.indexKey(keyParts));
+    }
+
+    /**
+     * Devuelve copias de los elementos que coinciden en todos los índices pedidos
+     * (intersección) y cumplen el filtro adicional.
+     *
+     * @param criteria Nombre del índice -> clave (armada con CollectionDefinition.indexKey).
+     * @param filter Condición que se evalúa sobre los candidatos antes de copiarlos, o null.
+     */
+    public <T> List<T> findByIndexes(String fileName, Class<T> itemClass, Map<String, String> criteria, Predicate<? super T> filter) throws IOException {
+        return getRepository(fileName, itemClass).findByIndexes(criteria, filter);
+    }
+
+    /**
+     * Devuelve copias de los elementos que cumplen el filtro, en el orden de la colección.
+     * Para búsquedas sin índice: el filtro se evalúa sobre cada elemento y solo se copian
+     * los que pasan (readCollection copia todos).
+     */
+    public <T> List<T> findMatching(String fileName, Class<T> itemClass, Predicate<? super T> filter) throws IOException {
+        return findMatching(fileName, itemClass, filter, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Igual que findMatching, pero corta el recorrido al encontrar 'limit' elementos.
+     */
+    public <T> List<T> findMatching(String fileName, Class<T> itemClass, Predicate<? super T> filter, int limit) throws IOException {
+        return getRepository(fileName, itemClass).findMatching(filter, limit);
+    }
+
+    /**
+     * Devuelve una copia del primer elemento que cumple el filtro, sin recorrer el resto.
+     */
+    public <T> Optional<T> findFirst(String fileName, Class<T> itemClass, Predicate<? super T> filter) throws IOException {
+        List<T> found = findMatching(fileName, itemClass, filter, 1);
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    /**
+     * Devuelve una página ordenada según un índice ordenado (ver CollectionDefinition.withSortedIndex),
+     * a partir del cursor de la página anterior. No recorre más de lo necesario para llenar la página.
+     *
+     * @param afterKey Cursor devuelto en la página anterior (IndexPage.nextKey), o null para la primera.
+     */
+    public <T> CollectionRepository.IndexPage<T> findPage(String fileName, Class<T> itemClass, String sortedIndexName, boolean descending,
+                                                          Map<String, String> criteria, Predicate<? super T> filter,
+                                                          String afterKey, int limit) throws IOException {
+        return getRepository(fileName, itemClass).findPage(sortedIndexName, descending, criteria, filter, afterKey, limit);
+    }
+
+    /**
+     * Cuenta los elementos que coinciden en un índice secundario (O(1)).
+     */
+    public <T> int countByIndex(String fileName, Class<T> itemClass, String indexName, Object... keyParts) throws IOException {
+        return getRepository(fileName, itemClass).countByIndex(indexName, CollectionDefinition.indexKey(keyParts));
+    }
+
+    /**
+     * Inserta o actualiza un único elemento (por su clave primaria).
+     * A diferencia de writeCollection, no necesita la colección completa.
+     *
+     * @param fileName Nombre del archivo (ej. "scrims.json")
+     * @param item El elemento a guardar.
+     */
+    public <T> void save(String fileName, T item) throws IOException {
+        CollectionDefinition<?> definition = CollectionDefinition.forFile(fileName);
+        if (definition == null) {
+            throw new IllegalArgumentException("No se puede guardar un elemento suelto en un archivo desconocido: " + fileName);
+        }
+        CollectionRepository<?> repository = getRepository(fileName, definition.getItemClass());
+        afterWrite(repository, repository.save(item));
+    }
+
+    /**
+     * Inserta o actualiza varios elementos de una vez (ej. el resultado de un lote de envíos):
+     * un solo lock y, en modo WAL, un solo fsync. No toca el resto de la colección.
+     */
+    public void saveAll(String fileName, Collection<?> items) throws IOException {
+        CollectionDefinition<?> definition = CollectionDefinition.forFile(fileName);
+        if (definition == null) {
+            throw new IllegalArgumentException("No se pueden guardar elementos sueltos en un archivo desconocido: " + fileName);
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+        CollectionRepository<?> repository = getRepository(fileName, definition.getItemClass());
+        afterWrite(repository, repository.saveAll(items));
+    }
+
+    /**
+     * Borra un único elemento por su clave primaria, sin tocar el resto de la colección.
+     *
+     * @return true si existía.
+     */
+    public boolean delete(String fileName, Object id) throws IOException {
+        CollectionDefinition<?> definition = CollectionDefinition.forFile(fileName);
+        if (definition == null) {
+            throw new IllegalArgumentException("No se puede borrar un elemento suelto en un archivo desconocido: " + fileName);
+        }
+        CollectionRepository<?> repository = getRepository(fileName, definition.getItemClass());
+        CollectionRepository.DeleteResult result = repository.delete(id);
+        afterWrite(repository, result.write());
+        return result.deleted() > 0;
+    }
+
+    /**
+     * Borra los elementos que cumplen el filtro (ej. sesiones vencidas), sin tocar el resto.
+     *
+     * @return Cantidad de elementos borrados.
+     */
+    public <T> int deleteMatching(String fileName, Class<T> itemClass, Predicate<? super T> filter) throws IOException {
+        CollectionRepository<T> repository = getRepository(fileName, itemClass);
+        CollectionRepository.DeleteResult result = repository.deleteMatching(filter);
+        afterWrite(repository, result.write());
+        return result.deleted();
+    }
+
+    /**
+     * Mueve elementos de una colección al archivo histórico (comprimido, por mes) y los saca
+     * de la colección en memoria. Solo se mueven los que siguen iguales a como se leyeron;
+     * los que cambiaron quedan en la colección (y fuera del archivo) hasta la próxima vez.
+     * La elección, la escritura del archivo y el borrado se hacen con el lock de escritura de
+     * la colección tomado, así nada cambia en el medio (mientras tanto esa colección no se
+     * puede leer). Si falla la escritura del archivo no se borra nada; si falla el borrado,
+     * los elementos quedan en los dos lados (el archivo no duplica ids).
+     *
+     * @param items Elementos a archivar (leídos de la colección).
+     * @param group Clave por la que se agrupan y se buscan después (ver findArchived).
+     * @param partition Mes en el que se guarda cada elemento.
+     * @return Cantidad de elementos archivados (y sacados de la colección).
+     */
+    public <T> int archive(String fileName, Class<T> itemClass, List<T> items,
+                           Function<? super T, ?> group, Function<? super T, YearMonth> partition) throws IOException {
+        @SuppressWarnings("unchecked")
+        CollectionDefinition<T> definition = (CollectionDefinition<T>) CollectionDefinition.forFile(fileName);
+        if (definition == null) {
+            throw new IllegalArgumentException("No se puede archivar un archivo desconocido: " + fileName);
+        }
+        if (items.isEmpty()) {
+            return 0;
+        }
+
+        CollectionRepository<T> repository = getRepository(fileName, itemClass);
+        CollectionRepository.DeleteResult result = repository.removeUnchanged(items, unchanged -> {
+            Map<String, Map<String, List<T>>> byPartition = new TreeMap<>();
+            for (T item : unchanged) {
+                byPartition.computeIfAbsent(partition.apply(item).toString(), k -> new LinkedHashMap<>())
+                        .computeIfAbsent(String.valueOf(group.apply(item)), k -> new ArrayList<>())
+                        .add(item);
+            }
+            for (Map.Entry<String, Map<String, List<T>>> entry : byPartition.entrySet()) {
+                archiveStore.append(fileName, itemClass, entry.getKey(), entry.getValue(), definition::idOf);
+            }
+        });
+        afterWrite(repository, result.write());
+        logger.info("Colección {}: {} de {} elemento(s) archivados (los demás cambiaron desde que se leyeron).",
+                fileName, result.deleted(), items.size());
+        return result.deleted();
+    }
+
+    /**
+     * Elementos de un grupo que están en el archivo histórico (ver archive), para consultas
+     * de historial. La primera consulta de cada colección arma el índice de grupos.
+     */
+    public <T> List<T> findArchived(String fileName, Class<T> itemClass, Object group) throws IOException {
+        return archiveStore.find(fileName, itemClass, String.valueOf(group));
+    }
+
+    /**
+     * Espera el fsync del log (modo WAL) y dispara el volcado si se superó el umbral.
+     */
+    private void afterWrite(CollectionRepository<?> repository, CollectionRepository.WriteResult result) throws IOException {
+        if (result.logSequence() > 0) {
+            repository.getChangeLog().sync(result.logSequence());
+        }
+        if (result.pendingChanges() >= flushThreshold()) {
+            String fileName = repository.getFileName();
+            flushExecutor.execute(() -> flushQuietly(fileName));
+        }
+    }
+
+    /**
+     * Vuelca un archivo a disco si tiene cambios pendientes (sincrónico).
+     */
+    public void flush(String fileName) throws IOException {
+        CollectionRepository<?> repository = repositories.get(fileName);
+        if (repository != null && repository.flush(this::writeToDisk)) {
+            logger.debug("Colección {} volcada a disco.", fileName);
+        }
+    }
+
+    /**
+     * Vuelca a disco todas las colecciones con cambios pendientes (sincrónico).
+     */
+    public void flushAll() throws IOException {
+        for (String fileName : repositories.keySet()) {
+            flush(fileName);
+        }
+    }
+
+    /**
+     * Escribe la foto en disco de una colección como un único arreglo JSON indentado, sea cual
+     * sea el formato en el que está guardada y aunque esté repartida en shards (para revisar
+     * a mano las fotos). Antes vuelca los cambios pendientes, así la salida coincide con lo que
+     * hay en memoria. Se copia token a token, sin cargar la colección.
+     *
+     * @param out Destino (no se cierra).
+     */
+    public void exportJson(String fileName, OutputStream out) throws IOException {
+        flush(fileName);
+        CollectionDefinition<?> definition = CollectionDefinition.forFile(fileName);
+        List<String> parts = definition != null ? storedParts(definition) : existingFormat(fileName) != null ? List.of(fileName) : List.of();
+        if (parts.isEmpty()) {
+            throw new NoSuchFileException(fileName);
+        }
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartArray();
+            for (String part : parts) {
+                copyElements(part, generator);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    // Copia los elementos del arreglo guardado en un archivo (o shard) al generador
+    private void copyElements(String part, JsonGenerator generator) throws IOException {
+        ReentrantReadWriteLock.ReadLock readLock = getLock(part).readLock();
+        readLock.lock();
+        try {
+            SnapshotFormat format = existingFormat(part);
+            if (format == null) {
+                return;
+            }
+            try (JsonParser parser = mapperFor(format).createParser(openSnapshot(snapshotPath(part, format)))) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    return;
+                }
+                JsonToken token;
+                while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                    generator.copyCurrentStructure(parser);
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void flushQuietly(String fileName) {
+        try {
+            flush(fileName);
+        } catch (IOException | RuntimeException e) {
+            // Queda marcada como sucia, se reintenta en el proximo ciclo
+            logger.error("Error al volcar {} a disco (se reintentará): {}", fileName, e.getMessage());
+        }
+    }
+
+    /**
+     * Ciclo periodico: en modo SNAPSHOT vuelca todo lo sucio; en modo WAL
+     * solo compacta los logs que superaron el umbral (el resto ya es durable).
+     */
+    private void flushAllQuietly() {
+        long minPending = persistenceMode == PersistenceMode.WAL ? walCompactThreshold : 1;
+        for (Map.Entry<String, CollectionRepository<?>> entry : repositories.entrySet()) {
+            if (entry.getValue().getPendingChanges() >= minPending) {
+                flushQuietly(entry.getKey());
+            }
+        }
+    }
+
+    private long flushThreshold() {
+        return persistenceMode == PersistenceMode.WAL ? walCompactThreshold : flushDirtyThreshold;
+    }
+
+    /**
+     * Lee una colección de objetos desde su foto en disco (JSON o Smile, el que exista).
+     * Es seguro para concurrencia (usa ReadLock).
+     */
+    private <T> List<T> readFromDisk(String fileName, Class<T> itemClass) throws IOException {
         ReentrantReadWriteLock.ReadLock readLock = getLock(fileName).readLock();
         readLock.lock();
     
-        Path filePath = getFilePath(fileName);
+        SnapshotFormat format = existingFormat(fileName);
     
         try {    
+            if (format == null) {
+                 return new ArrayList<>();
+            }
+            Path filePath = snapshotPath(fileName, format);
             // Si el archivo está vacío (ej. justo después de crearlo), devuelve lista vacía
             if (Files.size(filePath) == 0) {
                  logger.debug("Archivo {} está vacío, devolviendo lista vacía.", fileName);
                  return new ArrayList<>();
             }
 
-            try (BufferedReader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
+            try (InputStream in = openSnapshot(filePath)) {
                 com.fasterxml.jackson.databind.type.CollectionType javaType = objectMapper.getTypeFactory()
                         .constructCollectionType(List.class, itemClass);
                 
                 try {
-                     return objectMapper.readValue(reader, javaType);
+                     return mapperFor(format).readValue(in, javaType);
                 } catch (com.fasterxml.jackson.databind.JsonMappingException | com.fasterxml.jackson.core.JsonParseException e) { 
                      logger.error("Error al parsear JSON en {}. ¿Contenido es una lista JSON válida? {}", fileName, e.getMessage());
                      return new ArrayList<>();
@@ -146,28 +751,28 @@ public class JsonPersistenceManager {
     }
 
     /**
-     * Escribe (sobrescribe) una coleccion completa a un archivo JSON.
+     * Escribe (sobrescribe) una coleccion completa en el formato configurado (data.snapshot-format).
      * (usa WriteLock).
-     * Tambien crea un backup (.bak) del archivo anterior.
-     *
-     * @param fileName Nombre del archivo (ej. "users.json")
-     * @param collection La coleccion de objetos a guardar.
+     * Tambien crea un backup (.bak) del archivo anterior. Si la coleccion estaba guardada
+     * en otro formato, ese archivo pasa a ser el backup (migracion).
      */
-    public void writeCollection(String fileName, Collection<?> collection) throws IOException {
+    private void writeToDisk(String fileName, Collection<?> collection) throws IOException {
         ReentrantReadWriteLock.WriteLock writeLock = getLock(fileName).writeLock();
         writeLock.lock();
         
-        Path filePath = getFilePath(fileName);
-        Path tempPath = getFilePath(fileName + ".tmp");
-        Path bakPath = getFilePath(fileName + ".bak");
+        String diskName = snapshotFormat.fileNameFor(fileName);
+        Path filePath = getFilePath(diskName);
+        Path tempPath = getFilePath(diskName + ".tmp");
+        Path bakPath = getFilePath(diskName + ".bak");
 
         try {
             // 1. Escribir al archivo temporal
-            try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
-                objectMapper.writeValue(writer, collection);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempPath))) {
+                mapperFor(snapshotFormat).writeValue(out, collection);
             }
 
             // 2. Crear backup del archivo actual (si existe)
+            invalidateMapping(filePath);
             if (Files.exists(filePath)) {
                 Files.move(filePath, bakPath, StandardCopyOption.REPLACE_EXISTING);
             }
@@ -175,6 +780,17 @@ public class JsonPersistenceManager {
             // 3. Renombrar el temporal al archivo final
             Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING);
 
+            // 4. Retirar la foto en otro formato (si la habia), para que no se vuelva a leer
+            for (SnapshotFormat other : SnapshotFormat.values()) {
+                Path otherPath = snapshotPath(fileName, other);
+                if (other != snapshotFormat && Files.exists(otherPath)) {
+                    invalidateMapping(otherPath);
+                    Path otherBak = getFilePath(other.fileNameFor(fileName) + ".bak");
+                    Files.move(otherPath, otherBak, StandardCopyOption.REPLACE_EXISTING);
+                    logger.info("Colección {} migrada a {} (el archivo anterior quedó en {}).", fileName, snapshotFormat, otherBak.getFileName());
+                }
+            }
+
         } catch (IOException e) {
             logger.error("Error al escribir en {}: {}", fileName, e.getMessage());
             try { 
@@ -0,0 +1,68 @@
+package com.scrim_pds.persistence;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lectura de fotos mapeando el archivo en memoria (FileChannel.map), para data.snapshot-reader=mmap.
+ *
+ * Jackson lee directamente de las paginas del archivo, sin pasar por el buffer del canal ni
+ * el de un BufferedReader. El mapeo se guarda por ruta y se reutiliza mientras el archivo no
+ * cambie de "generacion" (identidad del archivo, fecha de modificacion y tamaño): como las
+ * escrituras hacen .tmp + rename, cada volcado es un archivo nuevo y se vuelve a mapear.
+ *
+ * En Windows un archivo mapeado no se puede reemplazar con rename, por eso es opcional.
+ */
+class MappedSnapshotReader {
+
+    private final Map<Path, Mapping> mappings = new ConcurrentHashMap<>();
+
+    /**
+     * Abre la foto para leerla desde el mapeo (cada llamada tiene su propia posicion).
+     * Si el archivo no entra en un unico mapeo (2 GB) se lee con un stream comun.
+     */
+    InputStream open(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (attributes.size() > Integer.MAX_VALUE) {
+            return Files.newInputStream(path);
+        }
+        Generation generation = new Generation(attributes.fileKey(), attributes.lastModifiedTime(), attributes.size());
+        Mapping mapping = mappings.get(path);
+        if (mapping == null || !mapping.generation().equals(generation)) {
+            mapping = new Mapping(generation, map(path, attributes.size()));
+            mappings.put(path, mapping);
+        }
+        return new ByteBufferBackedInputStream(mapping.buffer().duplicate());
+    }
+
+    /**
+     * Olvida el mapeo de un archivo que se va a reemplazar o mover (el GC libera el mapeo).
+     */
+    void invalidate(Path path) {
+        mappings.remove(path);
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // El mapeo sigue valido despues de cerrar el canal
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    private record Generation(Object fileKey, FileTime lastModified, long size) {
+    }
+
+    private record Mapping(Generation generation, MappedByteBuffer buffer) {
+    }
+}
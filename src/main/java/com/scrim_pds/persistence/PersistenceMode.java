@@ -0,0 +1,10 @@
+package com.scrim_pds.persistence;
+
+// Modo de persistencia a disco de las colecciones (propiedad data.persistence-mode).
+
+public enum PersistenceMode {
+    // Se reescribe el archivo .json completo en cada volcado (write-behind)
+    SNAPSHOT,
+    // Cada cambio se agrega como una linea a "<archivo>.wal" y el .json se compacta periodicamente
+    WAL
+}
@@ -0,0 +1,29 @@
+package com.scrim_pds.persistence;
+
+// Formato de las fotos de las colecciones en disco (propiedad data.snapshot-format).
+
+public enum SnapshotFormat {
+    // JSON indentado en "<nombre>.json" (legible, el formato de siempre)
+    JSON(".json"),
+    // Jackson Smile (JSON binario) en "<nombre>.smile": mas chico y mas rapido de leer y escribir
+    SMILE(".smile");
+
+    private final String extension;
+
+    SnapshotFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Nombre del archivo en disco para una coleccion (ej. "users.json" -> "users.smile").
+     */
+    public String fileNameFor(String fileName) {
+        if (this == JSON) {
+            return fileName;
+        }
+        String base = fileName.endsWith(JSON.extension)
+                ? fileName.substring(0, fileName.length() - JSON.extension.length())
+                : fileName;
+        return base + extension;
+    }
+}
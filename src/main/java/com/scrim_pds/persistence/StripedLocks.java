@@ -0,0 +1,68 @@
+package com.scrim_pds.persistence;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locks por entidad (ej. por scrim) repartidos en un numero fijo de "franjas".
+ * Dos operaciones sobre la misma entidad se serializan; operaciones sobre
+ * entidades distintas normalmente caen en franjas distintas y corren en paralelo.
+ *
+ * Sirve para hacer atomico un ciclo leer-modificar-guardar de una entidad:
+ * el lock de la coleccion solo protege cada lectura o escritura por separado.
+ */
+@Component
+public class StripedLocks {
+
+    private final ReentrantLock[] stripes;
+
+    public StripedLocks(@Value("${data.lock-stripes:64}") int stripeCount) {
+        this.stripes = new ReentrantLock[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Ejecuta la operacion con el lock de la entidad tomado.
+     */
+    public <T> T withLock(Object key, LockedOperation<T> operation) throws IOException {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            return operation.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Igual que withLock, para operaciones sin resultado.
+     */
+    public void runWithLock(Object key, LockedAction action) throws IOException {
+        withLock(key, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    ReentrantLock lockFor(Object key) {
+        // Mezcla los bits del hash para repartir bien claves parecidas
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+
+    @FunctionalInterface
+    public interface LockedOperation<T> {
+        T run() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface LockedAction {
+        void run() throws IOException;
+    }
+}
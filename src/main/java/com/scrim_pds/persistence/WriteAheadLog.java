@@ -0,0 +1,183 @@
+package com.scrim_pds.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Log de escritura anticipada (append-only) de una coleccion.
+ * Cada cambio es una linea JSON {"op":"PUT"|"DEL","id":...,"data":...}
+ * (la arma CollectionRepository y la reproduce CollectionRepository.applyLogLine).
+ *
+ * Group commit: los escritores agregan sus lineas (rapido, solo al buffer del SO)
+ * y luego piden sync(). El primero que entra hace un unico fsync que cubre
+ * todas las lineas agregadas hasta ese momento; los que esperaban detras
+ * encuentran su linea ya sincronizada y vuelven sin hacer otro fsync.
+ *
+ * Compactacion: rotate() pasa el log actual a "<archivo>.wal.1" y abre uno nuevo;
+ * una vez escrita la foto (.json), deleteRotated() borra el segmento viejo.
+ */
+public class WriteAheadLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+    private static final byte NEWLINE = '\n';
+
+    private final Path logPath;
+    private final Path rotatedPath;
+
+    private FileChannel channel;
+    private long appendedSeq = 0; // ultima linea agregada (protegido por 'this')
+    private long syncedSeq = 0;   // ultima linea con fsync (protegido por syncLock)
+    private long entries = 0;     // lineas en el log actual
+    private final Object syncLock = new Object();
+
+    /**
+     * @param existingEntries Lineas que ya tenia el log (las reproducidas al iniciar),
+     *                        para que cuenten para la proxima compactacion.
+     */
+    public WriteAheadLog(Path logPath, long existingEntries) throws IOException {
+        this.logPath = logPath;
+        this.entries = existingEntries;
+        this.rotatedPath = logPath.resolveSibling(logPath.getFileName() + ".1");
+        this.channel = open(logPath);
+    }
+
+    public static Path logPathFor(Path snapshotPath) {
+        return snapshotPath.resolveSibling(snapshotPath.getFileName() + ".wal");
+    }
+
+    /**
+     * Reproduce, en orden, las lineas del segmento rotado (si quedo de una compactacion
+     * interrumpida) y luego las del log actual.
+     * @return La cantidad de lineas reproducidas.
+     */
+    public static long replay(Path logPath, Consumer<String> lineConsumer) throws IOException {
+        Path rotated = logPath.resolveSibling(logPath.getFileName() + ".1");
+        return replayFile(rotated, lineConsumer) + replayFile(logPath, lineConsumer);
+    }
+
+    private static long replayFile(Path path, Consumer<String> lineConsumer) throws IOException {
+        if (Files.notExists(path)) {
+            return 0;
+        }
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                lineConsumer.accept(line);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Agrega lineas al log (sin fsync). Debe llamarse en el mismo orden
+     * en que se aplican los cambios en memoria.
+     * @return Numero de secuencia a pasar a sync().
+     */
+    public synchronized long append(List<byte[]> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return appendedSeq;
+        }
+        int size = 0;
+        for (byte[] line : lines) {
+            size += line.length + 1;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] line : lines) {
+            buffer.put(line).put(NEWLINE);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        entries += lines.size();
+        appendedSeq += lines.size();
+        return appendedSeq;
+    }
+
+    /**
+     * Espera a que la linea 'seq' este en disco, haciendo fsync si nadie lo hizo todavia.
+     */
+    public void sync(long seq) throws IOException {
+        synchronized (syncLock) {
+            if (syncedSeq >= seq) {
+                return; // Otro escritor ya hizo el fsync que nos cubre
+            }
+            long target;
+            FileChannel current;
+            synchronized (this) {
+                target = appendedSeq;
+                current = channel;
+            }
+            current.force(false);
+            syncedSeq = target;
+        }
+    }
+
+    public synchronized long getEntries() {
+        return entries;
+    }
+
+    /**
+     * Pasa el log actual a segmento rotado y abre uno vacio.
+     * Debe llamarse con la coleccion bloqueada, junto con la toma de la foto.
+     */
+    public void rotate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.force(false);
+                channel.close();
+                syncedSeq = appendedSeq;
+                if (Files.exists(rotatedPath)) {
+                    // Quedo un segmento de una compactacion fallida: se conserva agregandole el actual
+                    Files.write(rotatedPath, Files.readAllBytes(logPath), StandardOpenOption.APPEND);
+                    Files.delete(logPath);
+                } else {
+                    Files.move(logPath, rotatedPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+                channel = open(logPath);
+                entries = 0;
+            }
+        }
+    }
+
+    /**
+     * Borra el segmento rotado una vez que la foto que lo incluye ya esta en disco.
+     */
+    public void deleteRotated() throws IOException {
+        Files.deleteIfExists(rotatedPath);
+    }
+
+    public void close() {
+        synchronized (syncLock) {
+            synchronized (this) {
+                try {
+                    channel.force(false);
+                    channel.close();
+                } catch (IOException e) {
+                    logger.error("Error al cerrar el log {}: {}", logPath, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,227 @@
+package com.scrim_pds.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scrim_pds.config.JacksonConfig;
+import com.scrim_pds.model.Postulacion;
+import com.scrim_pds.model.PreferenciasUsuario;
+import com.scrim_pds.model.Scrim;
+import com.scrim_pds.model.User;
+import com.scrim_pds.model.enums.CanalNotificacion;
+import com.scrim_pds.model.enums.PostulacionState;
+import com.scrim_pds.model.enums.ScrimStateEnum;
+import com.scrim_pds.notification.NotificationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EventOutboxTest {
+
+    @TempDir
+    Path dataDir;
+
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new JacksonConfig().objectMapper();
+    }
+
+    @Test
+    void record_withoutDone_shouldBeRecoveredAfterRestart() throws IOException {
+        // Arrange
+        EventOutbox outbox = new EventOutbox(objectMapper, dataDir.toString(), true, 1_000);
+        Scrim scrim = new Scrim();
+        scrim.setId(UUID.randomUUID());
+        scrim.setJuego("Valorant");
+        scrim.setOrganizadorId(UUID.randomUUID());
+        scrim.setEstado(ScrimStateEnum.LOBBY_ARMADO);
+        User jugador = new User();
+        jugador.setId(UUID.randomUUID());
+        jugador.setUsername("jugador");
+        jugador.setEmail("jugador@x.com");
+        jugador.setPreferencias(new PreferenciasUsuario());
+        jugador.getPreferencias().setCanalesNotificacion(Set.of("EMAIL", "DISCORD"));
+        jugador.getPreferencias().setDiscordWebhookUrl("https://discord.com/api/webhooks/1/abc");
+        LobbyArmadoEvent event = new LobbyArmadoEvent(scrim, null,
+                List.of(ParticipanteSnapshot.of(newPostulacion(jugador.getId()), jugador)));
+        UUID id = outbox.record(event, List.of("A", "B"));
+        outbox.markDone(id, "A");
+        outbox.close();
+
+        // Act: reiniciar
+        EventOutbox reopened = new EventOutbox(objectMapper, dataDir.toString(), true, 1_000);
+        List<EventOutbox.PendingEvent> recovered = reopened.takeRecovered();
+
+        // Assert: solo queda la entrega a B, con el evento completo
+        assertEquals(1, recovered.size());
+        LobbyArmadoEvent recoveredEvent = (LobbyArmadoEvent) recovered.get(0).event();
+        assertEquals(scrim.getId(), recoveredEvent.scrimId());
+        assertEquals(ScrimStateEnum.LOBBY_ARMADO, recoveredEvent.scrim().getEstado());
+        assertEquals(event.participantes(), recoveredEvent.participantes());
+        User destinatario = recoveredEvent.participantes().get(0).usuario().toUser(); // Sin releer users.json
+        assertEquals("jugador@x.com", destinatario.getEmail());
+        assertEquals(Set.of("EMAIL", "DISCORD"), destinatario.getPreferencias().getCanalesNotificacion());
+        assertEquals(Set.of("B"), recovered.get(0).subscribers());
+        assertTrue(reopened.takeRecovered().isEmpty()); // Se devuelven una sola vez
+        reopened.close();
+    }
+
+    @Test
+    void markDone_allSubscribers_shouldNotBeRecoveredAfterCompaction() throws IOException {
+        // Arrange: umbral bajo para forzar la compactacion
+        EventOutbox outbox = new EventOutbox(objectMapper, dataDir.toString(), true, 3);
+        for (int i = 0; i < 5; i++) {
+            UUID id = outbox.record(new LobbyArmadoEvent(UUID.randomUUID(), "CS2", UUID.randomUUID(), null, null, List.of()), List.of("A"));
+            outbox.markDone(id, "A");
+        }
+        UUID pendingId = outbox.record(new LobbyArmadoEvent(UUID.randomUUID(), "CS2", UUID.randomUUID(), null, null, List.of()), List.of("A"));
+        outbox.close();
+
+        // Act
+        EventOutbox reopened = new EventOutbox(objectMapper, dataDir.toString(), true, 3);
+
+        // Assert
+        List<EventOutbox.PendingEvent> recovered = reopened.takeRecovered();
+        assertEquals(1, recovered.size());
+        assertEquals(pendingId, recovered.get(0).id());
+        reopened.close();
+    }
+
+    @Test
+    void failedDelivery_shouldBeRedispatchedWithoutRestart() throws Exception {
+        // Arrange: un suscriptor que falla la primera vez
+        EventOutbox outbox = new EventOutbox(objectMapper, dataDir.toString(), true, 1_000);
+        DomainEventBus bus = new DomainEventBus(new SimpleMeterRegistry(), outbox, "bounded", 2, 2, 100, "abort", 2, 100, 5, 0, 500);
+        AtomicInteger attempts = new AtomicInteger();
+        bus.subscribe(new Subscriber<LobbyArmadoEvent>() {
+            @Override
+            public void onEvent(LobbyArmadoEvent event) {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new IllegalStateException("falla de prueba");
+                }
+            }
+
+            @Override
+            public Class<LobbyArmadoEvent> listensTo() {
+                return LobbyArmadoEvent.class;
+            }
+        });
+
+        // Act: publicar y correr el reintento periodico hasta que no quede nada pendiente
+        bus.publish(new LobbyArmadoEvent(UUID.randomUUID(), "CS2", UUID.randomUUID(), null, null, List.of()));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (outbox.pendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            bus.redispatchOutbox();
+            Thread.sleep(20);
+        }
+
+        // Assert: se entrego en el segundo intento, sin duplicar entregas ya encoladas
+        assertEquals(0, outbox.pendingCount());
+        bus.shutdown();
+        assertEquals(2, attempts.get());
+        outbox.close();
+    }
+
+    @Test
+    void failingLifecycleSubscriber_shouldLeaveDeliveryPendingAndBeRedispatched() throws Exception {
+        // Arrange: el primer envio falla (ej. no se pudo encolar la notificacion)
+        EventOutbox outbox = new EventOutbox(objectMapper, dataDir.toString(), true, 1_000);
+        DomainEventBus bus = new DomainEventBus(new SimpleMeterRegistry(), outbox, "bounded", 2, 2, 100, "abort", 2, 100, 5, 0, 500);
+        NotificationService notificationService = mock(NotificationService.class);
+        when(notificationService.canalesDe(any())).thenReturn(EnumSet.of(CanalNotificacion.EMAIL));
+        doThrow(new IllegalStateException("falla de prueba")).doNothing()
+                .when(notificationService).sendLobbyArmadoNotification(any(), any());
+        new LobbyArmadoSubscriber(bus, notificationService).subscribeToEvents();
+        User jugador = new User();
+        jugador.setId(UUID.randomUUID());
+        jugador.setEmail("jugador@x.com");
+        jugador.setPreferencias(new PreferenciasUsuario());
+        Scrim scrim = new Scrim();
+        scrim.setId(UUID.randomUUID());
+        scrim.setOrganizadorId(UUID.randomUUID());
+
+        // Act
+        bus.publish(new LobbyArmadoEvent(scrim, null, List.of(ParticipanteSnapshot.of(newPostulacion(jugador.getId()), jugador))));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (outbox.pendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            bus.redispatchOutbox();
+            Thread.sleep(20);
+        }
+
+        // Assert: el error no se trago en el suscriptor, asi que la entrega se repitio
+        assertEquals(0, outbox.pendingCount());
+        bus.shutdown();
+        verify(notificationService, times(2)).sendLobbyArmadoNotification(any(), any());
+        outbox.close();
+    }
+
+    @Test
+    void failedDelivery_shouldHoldLaterEventsOfSameScrimUntilRedispatched() throws Exception {
+        // Arrange: la primera entrega del scrim falla
+        EventOutbox outbox = new EventOutbox(objectMapper, dataDir.toString(), true, 1_000);
+        DomainEventBus bus = new DomainEventBus(new SimpleMeterRegistry(), outbox, "bounded", 2, 2, 100, "abort", 2, 100, 5, 0, 500);
+        AtomicInteger attempts = new AtomicInteger();
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        bus.subscribe(new Subscriber<LobbyArmadoEvent>() {
+            @Override
+            public void onEvent(LobbyArmadoEvent event) {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new IllegalStateException("falla de prueba");
+                }
+                delivered.add(event.juego());
+            }
+
+            @Override
+            public Class<LobbyArmadoEvent> listensTo() {
+                return LobbyArmadoEvent.class;
+            }
+        });
+        UUID scrimId = UUID.randomUUID();
+
+        // Act: el segundo evento del scrim se publica despues de la falla del primero
+        bus.publish(new LobbyArmadoEvent(scrimId, "primero", UUID.randomUUID(), null, null, List.of()));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (attempts.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        bus.publish(new LobbyArmadoEvent(scrimId, "segundo", UUID.randomUUID(), null, null, List.of()));
+        Thread.sleep(100);
+
+        // Assert: el segundo espera detras del primero
+        assertTrue(delivered.isEmpty(), delivered.toString());
+        assertEquals(2, outbox.pendingCount());
+
+        // Act: reintento periodico
+        while (outbox.pendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            bus.redispatchOutbox();
+            Thread.sleep(20);
+        }
+
+        // Assert: se entregaron en el orden en que se publicaron
+        bus.shutdown();
+        assertEquals(List.of("primero", "segundo"), delivered);
+        outbox.close();
+    }
+
+    private static Postulacion newPostulacion(UUID usuarioId) {
+        Postulacion postulacion = new Postulacion();
+        postulacion.setId(UUID.randomUUID());
+        postulacion.setUsuarioId(usuarioId);
+        postulacion.setEstado(PostulacionState.ACEPTADA);
+        return postulacion;
+    }
+}
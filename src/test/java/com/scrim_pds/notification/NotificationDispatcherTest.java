@@ -0,0 +1,215 @@
+package com.scrim_pds.notification;
+
+import com.scrim_pds.adapter.EmailMessage;
+import com.scrim_pds.adapter.SendGridAdapter;
+import com.scrim_pds.model.Notificacion;
+import com.scrim_pds.model.enums.CanalNotificacion;
+import com.scrim_pds.model.enums.EstadoNotificacion;
+import com.scrim_pds.persistence.JsonPersistenceManager;
+import com.scrim_pds.persistence.PersistenceTestSupport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationDispatcherTest {
+
+    @TempDir
+    Path dataDir;
+
+    // Guarda los lotes que recibe el "proveedor"
+    private final List<List<EmailMessage>> lotes = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean proveedorCaido = false;
+    // Webhooks de Discord que aceptaron el mensaje
+    private final List<String> discordEnviados = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean discordCaido = false;
+
+    private PersistenceTestSupport managers;
+    private JsonPersistenceManager persistenceManager;
+    private NotificationStore store;
+
+    @BeforeEach
+    void setUp() {
+        managers = new PersistenceTestSupport(dataDir);
+        persistenceManager = managers.start();
+        // Backoff de 60s, 2 intentos como maximo
+        store = new NotificationStore(persistenceManager, new SimpleMeterRegistry(), 2, 60, 3600);
+    }
+
+    @AfterEach
+    void tearDown() {
+        managers.shutdownAll();
+    }
+
+    private final NotifierFactory factory = new NotifierFactory() {
+        @Override
+        public Notifier createEmailNotifier() {
+            return new Notifier() {
+                @Override
+                public boolean send(String destinatario, String asunto, String cuerpo) {
+                    return sendBatch(List.of(new EmailMessage(destinatario, asunto, cuerpo)));
+                }
+
+                @Override
+                public boolean sendBatch(List<EmailMessage> mensajes) {
+                    if (proveedorCaido) {
+                        throw new IllegalStateException("timeout");
+                    }
+                    if (mensajes.stream().anyMatch(m -> m.destinatario().startsWith("invalido"))) {
+                        return false; // Como un 400 de SendGrid: se rechaza el lote entero
+                    }
+                    lotes.add(List.copyOf(mensajes));
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        public Notifier createPushNotifier() {
+            return (d, a, c) -> false;
+        }
+
+        @Override
+        public Notifier createDiscordNotifier() {
+            return (d, a, c) -> {
+                if (discordCaido) {
+                    return false;
+                }
+                discordEnviados.add(d);
+                return true;
+            };
+        }
+    };
+
+    @Test
+    void enqueue_shouldBatchAndCoalescePerRecipient() {
+        // Arrange: ventana larga para que todo entre en un lote
+        NotificationDispatcher dispatcher = new NotificationDispatcher(factory, store, new SimpleMeterRegistry(),
+                100, 1000, 60_000, 0, true, 5);
+
+        // Act: se encola antes de arrancar el hilo y se apaga (el apagado corta la ventana y vacía la cola)
+        dispatcher.enqueue(new EmailMessage("a@x.com", "Lobby Armado", "lobby"), "Lobby Armado", null);
+        dispatcher.enqueue(new EmailMessage("b@x.com", "Lobby Armado", "lobby"), "Lobby Armado", null);
+        dispatcher.enqueue(new EmailMessage("a@x.com", "Confirmado", "confirmado"), "Scrim Confirmado", null);
+        dispatcher.start();
+        dispatcher.shutdown();
+
+        // Assert: una sola llamada, un email por destinatario
+        assertEquals(1, lotes.size());
+        List<EmailMessage> lote = lotes.get(0);
+        assertEquals(2, lote.size());
+        EmailMessage paraA = lote.get(0);
+        assertEquals("a@x.com", paraA.destinatario());
+        assertTrue(paraA.cuerpo().contains("lobby"));
+        assertTrue(paraA.cuerpo().indexOf("lobby") < paraA.cuerpo().indexOf("confirmado"));
+        assertEquals("b@x.com", lote.get(1).destinatario());
+    }
+
+    @Test
+    void failedSend_shouldBeRescheduledWithBackoffAndFailAfterMaxAttempts() throws Exception {
+        // Arrange
+        proveedorCaido = true;
+        NotificationDispatcher dispatcher = new NotificationDispatcher(factory, store, new SimpleMeterRegistry(),
+                100, 1000, 0, 0, true, 5);
+        dispatcher.start();
+
+        // Act: primer intento
+        dispatcher.enqueue(new EmailMessage("a@x.com", "Lobby Armado", "lobby"), "Lobby Armado", null);
+        Notificacion notificacion = awaitIntentos(1);
+
+        // Assert: sigue pendiente, reprogramada a un minuto y fuera de la ventana de reintento
+        assertEquals(EstadoNotificacion.PENDIENTE_ENVIO, notificacion.getEstado());
+        assertEquals("timeout", notificacion.getUltimoError());
+        assertTrue(notificacion.getProximoIntento().isAfter(LocalDateTime.now().plusSeconds(50)));
+        assertTrue(store.pendientesVencidas(LocalDateTime.now(), 10).isEmpty());
+        assertEquals(1, store.pendientesVencidas(LocalDateTime.now().plusMinutes(2), 10).size());
+
+        // Act: segundo (y ultimo) intento, como lo haria NotificationRetryWorker
+        assertTrue(dispatcher.reintentar(notificacion));
+        notificacion = awaitIntentos(2);
+        dispatcher.shutdown();
+
+        // Assert
+        assertEquals(EstadoNotificacion.FALLIDA, notificacion.getEstado());
+        assertNull(notificacion.getProximoIntento());
+        assertTrue(store.pendientesVencidas(LocalDateTime.now().plusDays(1), 10).isEmpty());
+    }
+
+    @Test
+    void rejectedBatch_shouldBeSplitToIsolateTheBadAddress() throws Exception {
+        // Arrange
+        NotificationDispatcher dispatcher = new NotificationDispatcher(factory, store, new SimpleMeterRegistry(),
+                100, 1000, 60_000, 0, true, 5);
+        for (String destinatario : List.of("a@x.com", "b@x.com", "invalido@", "c@x.com", "d@x.com")) {
+            dispatcher.enqueue(new EmailMessage(destinatario, "Lobby Armado", "lobby"), "Lobby Armado", null);
+        }
+        // Cuerpo que no entra como sustitucion de SendGrid: va en su propia llamada
+        dispatcher.enqueue(new EmailMessage("e@x.com", "Resumen", "x".repeat(SendGridAdapter.MAX_BYTES_SUSTITUCION)), "Resumen", null);
+
+        // Act
+        dispatcher.start();
+        dispatcher.shutdown();
+
+        // Assert: solo queda pendiente el rechazado
+        assertTrue(lotes.contains(List.of(new EmailMessage("e@x.com", "Resumen", "x".repeat(SendGridAdapter.MAX_BYTES_SUSTITUCION)))));
+        assertEquals(5, lotes.stream().mapToInt(List::size).sum());
+        List<Notificacion> todas = persistenceManager.readCollection("notifications.json", Notificacion.class);
+        assertEquals(5, todas.stream().filter(n -> n.getEstado() == EstadoNotificacion.ENVIADA).count());
+        Notificacion rechazada = todas.stream().filter(n -> n.getEstado() != EstadoNotificacion.ENVIADA).findFirst().orElseThrow();
+        assertEquals("invalido@", rechazada.getDestinatario());
+        assertEquals(EstadoNotificacion.PENDIENTE_ENVIO, rechazada.getEstado());
+        assertEquals(1, rechazada.getIntentos());
+    }
+
+    @Test
+    void failedDiscordSend_shouldBeStoredAndRetriedWithBackoff() throws Exception {
+        // Arrange
+        discordCaido = true;
+        NotificationDispatcher dispatcher = new NotificationDispatcher(factory, store, new SimpleMeterRegistry(),
+                100, 1000, 0, 0, true, 5);
+        dispatcher.start();
+
+        // Act: primer intento
+        dispatcher.enqueueAll(CanalNotificacion.DISCORD,
+                List.of(new EmailMessage("https://discord.com/api/webhooks/1/abc", "Lobby Armado", "lobby")), "Lobby Armado", null);
+        Notificacion notificacion = awaitIntentos(1);
+
+        // Assert: registrada con su canal y reprogramada como un email
+        assertEquals(CanalNotificacion.DISCORD.name(), notificacion.getCanal());
+        assertEquals(EstadoNotificacion.PENDIENTE_ENVIO, notificacion.getEstado());
+        assertTrue(notificacion.getProximoIntento().isAfter(LocalDateTime.now().plusSeconds(50)));
+
+        // Act: Discord vuelve y el worker la reintenta
+        discordCaido = false;
+        assertTrue(dispatcher.reintentar(notificacion));
+        notificacion = awaitIntentos(2);
+        dispatcher.shutdown();
+
+        // Assert: enviada por Discord, sin pasar por el proveedor de email
+        assertEquals(EstadoNotificacion.ENVIADA, notificacion.getEstado());
+        assertEquals(List.of("https://discord.com/api/webhooks/1/abc"), discordEnviados);
+        assertTrue(lotes.isEmpty());
+    }
+
+    private Notificacion awaitIntentos(int intentos) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            List<Notificacion> todas = persistenceManager.readCollection("notifications.json", Notificacion.class);
+            if (todas.size() == 1 && todas.get(0).getIntentos() == intentos) {
+                return todas.get(0);
+            }
+            Thread.sleep(20);
+        }
+        fail("La notificación no llegó a " + intentos + " intentos");
+        return null;
+    }
+}
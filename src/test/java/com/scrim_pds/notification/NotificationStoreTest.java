@@ -0,0 +1,140 @@
+package com.scrim_pds.notification;
+
+import com.scrim_pds.adapter.EmailMessage;
+import com.scrim_pds.model.Notificacion;
+import com.scrim_pds.model.enums.EstadoNotificacion;
+import com.scrim_pds.persistence.JsonPersistenceManager;
+import com.scrim_pds.persistence.PersistenceTestSupport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationStoreTest {
+
+    @TempDir
+    Path dataDir;
+
+    private PersistenceTestSupport managers;
+    private JsonPersistenceManager persistenceManager;
+    private NotificationStore store;
+
+    @BeforeEach
+    void setUp() {
+        managers = new PersistenceTestSupport(dataDir);
+        persistenceManager = managers.start();
+        store = new NotificationStore(persistenceManager, new SimpleMeterRegistry(), 3, 60, 3600);
+    }
+
+    @AfterEach
+    void tearDown() {
+        managers.shutdownAll();
+    }
+
+    @Test
+    void pendientesVencidas_shouldOrderTimestampsWithinTheSameMinute() throws IOException {
+        // Arrange: LocalDateTime.toString() da "10:00", "10:00:00.500" y "10:00:30" (anchos distintos)
+        LocalDateTime minuto = LocalDateTime.of(2030, 1, 1, 10, 0);
+        UUID enPunto = registrarPara(minuto);
+        UUID medioSegundo = registrarPara(minuto.plusNanos(500_000_000));
+        registrarPara(minuto.plusSeconds(30));
+
+        // Act
+        List<Notificacion> vencidas = store.pendientesVencidas(minuto.plusSeconds(10), 10);
+
+        // Assert: las dos vencidas, en orden, sin cortar antes por la de las 10:00:30
+        assertEquals(List.of(enPunto, medioSegundo), vencidas.stream().map(Notificacion::getId).toList());
+    }
+
+    @Test
+    void pendientesVencidas_shouldSkipInFlightBeforeApplyingLimit() throws IOException {
+        // Arrange: dos recien registradas (en la cola) y una que fallo antes, con el limite en 1
+        LocalDateTime ahora = LocalDateTime.now();
+        UUID enCola1 = registrarPara(ahora.minusSeconds(3));
+        UUID enCola2 = registrarPara(ahora.minusSeconds(2));
+        UUID fallida = registrarPara(ahora.minusSeconds(1));
+        Set<UUID> enVuelo = Set.of(enCola1, enCola2);
+
+        // Act
+        List<Notificacion> vencidas = store.pendientesVencidas(ahora, 1, enVuelo::contains);
+
+        // Assert: no se pierde el lugar con las que ya estan en vuelo
+        assertEquals(List.of(fallida), vencidas.stream().map(Notificacion::getId).toList());
+    }
+
+    @Test
+    void purgarTerminadas_shouldDeleteOnlyOldSentOrFailed() throws IOException {
+        // Arrange: una enviada vieja, una enviada reciente, una fallida vieja y una pendiente vieja
+        LocalDateTime limite = LocalDateTime.now().minusDays(30);
+        List<Notificacion> registradas = store.registrarTodos(List.of(
+                new EmailMessage("a@test.com", "asunto", "cuerpo"),
+                new EmailMessage("b@test.com", "asunto", "cuerpo"),
+                new EmailMessage("c@test.com", "asunto", "cuerpo"),
+                new EmailMessage("d@test.com", "asunto", "cuerpo")), "TEST", null);
+        List<UUID> ids = registradas.stream().map(Notificacion::getId).toList();
+        store.marcarEnviadas(ids.subList(0, 2));
+        store.registrarFallo(List.of(ids.get(2)), "error");
+        store.registrarFallo(List.of(ids.get(2)), "error");
+        store.registrarFallo(List.of(ids.get(2)), "error"); // Agota los 3 intentos: FALLIDA
+        envejecer(ids.get(0), limite.minusDays(1));
+        envejecer(ids.get(2), limite.minusDays(1));
+        envejecer(ids.get(3), limite.minusDays(1));
+
+        // Act
+        int borradas = store.purgarTerminadas(limite);
+
+        // Assert
+        assertEquals(2, borradas);
+        assertTrue(store.findById(ids.get(0)).isEmpty());
+        assertTrue(store.findById(ids.get(2)).isEmpty());
+        assertEquals(EstadoNotificacion.ENVIADA, store.findById(ids.get(1)).orElseThrow().getEstado());
+        assertEquals(EstadoNotificacion.PENDIENTE_ENVIO, store.findById(ids.get(3)).orElseThrow().getEstado());
+    }
+
+    @Test
+    void marcarEnviadas_shouldUpdateTheWholeBatch() throws IOException {
+        // Arrange
+        List<Notificacion> registradas = store.registrarTodos(List.of(
+                new EmailMessage("a@test.com", "asunto", "cuerpo"),
+                new EmailMessage("b@test.com", "asunto", "cuerpo")), "TEST", null);
+        List<UUID> ids = registradas.stream().map(Notificacion::getId).toList();
+
+        // Act: incluye un id que no existe, que se ignora
+        store.marcarEnviadas(List.of(ids.get(0), UUID.randomUUID(), ids.get(1)));
+
+        // Assert
+        for (UUID id : ids) {
+            Notificacion notificacion = store.findById(id).orElseThrow();
+            assertEquals(EstadoNotificacion.ENVIADA, notificacion.getEstado());
+            assertEquals(1, notificacion.getIntentos());
+            assertNotNull(notificacion.getFechaEnvio());
+        }
+        assertTrue(store.pendientesVencidas(LocalDateTime.now().plusDays(1), 10).isEmpty());
+    }
+
+    private void envejecer(UUID id, LocalDateTime fecha) throws IOException {
+        Notificacion notificacion = store.findById(id).orElseThrow();
+        notificacion.setFechaCreacion(fecha);
+        if (notificacion.getFechaEnvio() != null) {
+            notificacion.setFechaEnvio(fecha);
+        }
+        persistenceManager.save("notifications.json", notificacion);
+    }
+
+    private UUID registrarPara(LocalDateTime proximoIntento) throws IOException {
+        Notificacion notificacion = store.registrar(new EmailMessage("a@test.com", "asunto", "cuerpo"), "TEST", null);
+        notificacion.setProximoIntento(proximoIntento);
+        persistenceManager.save("notifications.json", notificacion);
+        return notificacion.getId();
+    }
+}
@@ -0,0 +1,35 @@
+package com.scrim_pds.notification;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationTemplateTest {
+
+    @Test
+    void bindThenRender_shouldReplaceVariablesAndUseDefaults() {
+        // Arrange
+        NotificationTemplate template = NotificationTemplate.compile(
+                "Hola {{usuario}}, scrim de {{juego|N/A}} en {{region|N/A}} ({{descripcion|(Sin descripción)}})");
+        Map<String, String> scrim = new HashMap<>();
+        scrim.put("juego", "Valorant");
+        scrim.put("region", null); // presente sin valor: usa el defecto
+        scrim.put("descripcion", "");
+
+        // Act
+        NotificationTemplate porEvento = template.bind(scrim);
+
+        // Assert
+        assertEquals("Hola ana, scrim de Valorant en N/A ((Sin descripción))", porEvento.render("usuario", "ana"));
+        assertEquals("Hola beto, scrim de Valorant en N/A ((Sin descripción))", porEvento.render(Map.of("usuario", "beto")));
+        assertEquals("Hola , scrim de N/A en N/A ((Sin descripción))", template.render(Map.of()));
+    }
+
+    @Test
+    void compile_shouldRejectUnclosedVariable() {
+        assertThrows(IllegalArgumentException.class, () -> NotificationTemplate.compile("Hola {{usuario"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.scrim_pds.notification;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scrim_pds.adapter.DiscordAdapter;
+import com.scrim_pds.adapter.PushAdapter;
+import com.scrim_pds.adapter.WebhookTransport;
+import com.scrim_pds.config.JacksonConfig;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookNotifierTest {
+
+    private final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+
+    // Webhook de prueba: guarda los cuerpos recibidos y la maxima cantidad de requests simultaneos
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final List<JsonNode> recibidos = new CopyOnWriteArrayList<>();
+    private final AtomicInteger enVuelo = new AtomicInteger();
+    private final AtomicInteger maxEnVuelo = new AtomicInteger();
+    private volatile long demoraMs = 0;
+    private CountDownLatch esperados;
+
+    private WebhookTransport transport;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            int actuales = enVuelo.incrementAndGet();
+            maxEnVuelo.accumulateAndGet(actuales, Math::max);
+            try {
+                recibidos.add(objectMapper.readTree(exchange.getRequestBody().readAllBytes()));
+                Thread.sleep(demoraMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                enVuelo.decrementAndGet();
+            }
+            byte[] ok = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, ok.length);
+            exchange.getResponseBody().write(ok);
+            exchange.close();
+            esperados.countDown();
+        });
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverExecutor);
+        server.start();
+        transport = new WebhookTransport(new SimpleMeterRegistry(), 2000, 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        transport.shutdown();
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @Test
+    void discordNotifier_shouldPostContentToAllowedWebhookOnly() throws Exception {
+        // Arrange
+        esperados = new CountDownLatch(1);
+        Notifier discord = new DiscordNotifier(new DiscordAdapter(transport, objectMapper, 4, 100, "localhost"));
+
+        // Act
+        boolean encolado = discord.send(baseUrl() + "/api/webhooks/1/abc", "Lobby Armado", "@everyone a jugar");
+        boolean noPermitido = discord.send("http://169.254.169.254/latest", "Lobby Armado", "x");
+
+        // Assert
+        assertTrue(encolado);
+        assertFalse(noPermitido);
+        assertTrue(esperados.await(5, TimeUnit.SECONDS));
+        JsonNode body = recibidos.get(0);
+        assertEquals("**Lobby Armado**\n\n@everyone a jugar", body.get("content").asText());
+        assertEquals(0, body.get("allowed_mentions").get("parse").size());
+    }
+
+    @Test
+    void pushNotifier_shouldRespectChannelConcurrencyLimit() throws Exception {
+        // Arrange: el webhook tarda, asi se acumulan requests
+        demoraMs = 100;
+        esperados = new CountDownLatch(10);
+        Notifier push = new PushNotifier(new PushAdapter(transport, objectMapper, baseUrl() + "/push", "", 2, 100));
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            assertTrue(push.send("token-" + i, "Scrim Confirmado", "cuerpo"));
+        }
+
+        // Assert: llegaron todos, nunca mas de 2 a la vez
+        assertTrue(esperados.await(10, TimeUnit.SECONDS));
+        assertEquals(10, recibidos.size());
+        assertTrue(maxEnVuelo.get() <= 2, "Máximo en vuelo: " + maxEnVuelo.get());
+        assertEquals("Scrim Confirmado", recibidos.get(0).get("title").asText());
+    }
+}
@@ -0,0 +1,72 @@
+package com.scrim_pds.persistence;
+
+import com.scrim_pds.model.Scrim;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+import static com.scrim_pds.persistence.PersistenceTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Archivo historico de datos frios (JsonPersistenceManager.archive / findArchived).
+ */
+class ArchiveTest {
+
+    @TempDir
+    Path dataDir;
+
+    private PersistenceTestSupport managers;
+    private JsonPersistenceManager persistenceManager;
+
+    @BeforeEach
+    void setUp() {
+        managers = new PersistenceTestSupport(dataDir);
+        persistenceManager = managers.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        managers.shutdownAll();
+    }
+
+    @Test
+    void archive_shouldMoveItemsOutOfWorkingSetAndKeepThemReadable() throws IOException {
+        // Arrange
+        Scrim archived = newScrim();
+        Scrim changed = newScrim();
+        persistenceManager.save("scrims.json", archived);
+        persistenceManager.save("scrims.json", changed);
+        List<Scrim> toArchive = persistenceManager.findMatching("scrims.json", Scrim.class, s -> true);
+        // Un cambio despues de leerlo: ese no se tiene que borrar
+        Scrim updated = persistenceManager.findById("scrims.json", Scrim.class, changed.getId()).orElseThrow();
+        updated.setJuego("LoL");
+        persistenceManager.save("scrims.json", updated);
+
+        // Act
+        int count = persistenceManager.archive("scrims.json", Scrim.class, toArchive, Scrim::getId, s -> YearMonth.of(2025, 1));
+        persistenceManager.flushAll();
+
+        // Assert: solo se archivo el que no cambio (sin copia vieja del otro en el archivo)
+        assertEquals(1, count);
+        assertTrue(persistenceManager.findArchived("scrims.json", Scrim.class, changed.getId()).isEmpty());
+        assertTrue(Files.exists(dataDir.resolve("archive").resolve("2025-01").resolve("scrims.json.gz")));
+        assertTrue(persistenceManager.findById("scrims.json", Scrim.class, archived.getId()).isEmpty());
+        assertEquals("LoL", persistenceManager.findById("scrims.json", Scrim.class, changed.getId()).orElseThrow().getJuego());
+        assertEquals(1, persistenceManager.findArchived("scrims.json", Scrim.class, archived.getId()).size());
+
+        // Tras reiniciar, el indice del archivo se rearma desde disco
+        JsonPersistenceManager restarted = managers.start();
+        assertEquals(1, restarted.readCollection("scrims.json", Scrim.class).size());
+        assertEquals(archived.getId(), restarted.findArchived("scrims.json", Scrim.class, archived.getId()).get(0).getId());
+        assertTrue(restarted.findArchived("scrims.json", Scrim.class, UUID.randomUUID()).isEmpty());
+    }
+}
@@ -0,0 +1,299 @@
+package com.scrim_pds.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scrim_pds.exception.OptimisticLockException;
+import com.scrim_pds.model.Postulacion;
+import com.scrim_pds.model.PreferenciasUsuario;
+import com.scrim_pds.model.Scrim;
+import com.scrim_pds.model.User;
+import com.scrim_pds.model.enums.PostulacionState;
+import com.scrim_pds.model.enums.ScrimStateEnum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.scrim_pds.persistence.PersistenceTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonPersistenceManagerTest {
+
+    @TempDir
+    Path dataDir;
+
+    private PersistenceTestSupport managers;
+    private ObjectMapper objectMapper;
+    private JsonPersistenceManager persistenceManager;
+
+    @BeforeEach
+    void setUp() {
+        managers = new PersistenceTestSupport(dataDir);
+        objectMapper = managers.objectMapper();
+        persistenceManager = managers.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        managers.shutdownAll();
+    }
+
+    @Test
+    void init_shouldCreateEmptyFiles() {
+        assertTrue(Files.exists(dataDir.resolve("users.json")));
+        assertTrue(Files.exists(dataDir.resolve("scrims.json")));
+    }
+
+    @Test
+    void writeCollection_shouldBeVisibleInMemoryBeforeFlush() throws IOException {
+        // Arrange
+        Scrim scrim = newScrim();
+
+        // Act
+        persistenceManager.writeCollection("scrims.json", List.of(scrim));
+
+        // Assert
+        List<Scrim> scrims = persistenceManager.readCollection("scrims.json", Scrim.class);
+        assertEquals(1, scrims.size());
+        assertEquals(scrim.getId(), scrims.get(0).getId());
+        assertEquals("[ ]", Files.readString(dataDir.resolve("scrims.json")).trim()); // Todavia no se volco
+    }
+
+    @Test
+    void flush_shouldWriteFileAndKeepBackup() throws IOException {
+        // Arrange
+        Scrim scrim = newScrim();
+        persistenceManager.writeCollection("scrims.json", List.of(scrim));
+
+        // Act
+        persistenceManager.flushAll();
+
+        // Assert
+        Scrim[] onDisk = objectMapper.readValue(dataDir.resolve("scrims.json").toFile(), Scrim[].class);
+        assertEquals(1, onDisk.length);
+        assertEquals(scrim.getId(), onDisk[0].getId());
+        assertTrue(Files.exists(dataDir.resolve("scrims.json.bak")));
+        assertFalse(Files.exists(dataDir.resolve("scrims.json.tmp")));
+    }
+
+    @Test
+    void readCollection_shouldReturnCopies() throws IOException {
+        // Arrange
+        persistenceManager.writeCollection("scrims.json", List.of(newScrim()));
+
+        // Act: modificar lo leido sin volver a escribir
+        List<Scrim> scrims = persistenceManager.readCollection("scrims.json", Scrim.class);
+        scrims.get(0).setEstado(ScrimStateEnum.CANCELADO);
+
+        // Assert
+        Scrim stored = persistenceManager.readCollection("scrims.json", Scrim.class).get(0);
+        assertEquals(ScrimStateEnum.BUSCANDO, stored.getEstado());
+    }
+
+    @Test
+    void findMatching_shouldStopAtLimitAndEvaluateFilterOncePerVisitedItem() throws IOException {
+        // Arrange
+        Scrim first = newScrim();
+        Scrim second = newScrim();
+        Scrim third = newScrim();
+        persistenceManager.writeCollection("scrims.json", List.of(first, second, third));
+        AtomicInteger evaluated = new AtomicInteger();
+
+        // Act
+        List<Scrim> found = persistenceManager.findMatching("scrims.json", Scrim.class, s -> {
+            evaluated.incrementAndGet();
+            return !s.getId().equals(first.getId());
+        }, 1);
+
+        // Assert: corta en el segundo elemento, sin mirar el tercero
+        assertEquals(1, found.size());
+        assertEquals(second.getId(), found.get(0).getId());
+        assertEquals(2, evaluated.get());
+        found.get(0).setEstado(ScrimStateEnum.CANCELADO); // Es una copia
+        assertEquals(ScrimStateEnum.BUSCANDO,
+                persistenceManager.findFirst("scrims.json", Scrim.class, s -> s.getId().equals(second.getId())).orElseThrow().getEstado());
+    }
+
+    @Test
+    void findMatching_shouldReadUnregisteredFile() throws IOException {
+        // Arrange: archivo sin CollectionDefinition
+        Scrim first = newScrim();
+        Scrim second = newScrim();
+        Files.writeString(dataDir.resolve("archivo-externo.json"), objectMapper.writeValueAsString(List.of(first, second)));
+
+        // Act
+        Scrim found = persistenceManager.findFirst("archivo-externo.json", Scrim.class,
+                s -> s.getId().equals(second.getId())).orElseThrow();
+
+        // Assert
+        assertEquals(second.getId(), found.getId());
+        assertTrue(persistenceManager.findFirst("archivo-externo.json", Scrim.class, s -> false).isEmpty());
+        assertTrue(persistenceManager.findMatching("no-existe.json", Scrim.class, s -> true).isEmpty());
+    }
+
+    @Test
+    void save_shouldUpdateSingleItemFoundById() throws IOException {
+        // Arrange
+        Scrim first = newScrim();
+        Scrim second = newScrim();
+        persistenceManager.writeCollection("scrims.json", List.of(first, second));
+
+        // Act
+        Scrim found = persistenceManager.findById("scrims.json", Scrim.class, first.getId()).orElseThrow();
+        found.setEstado(ScrimStateEnum.CANCELADO);
+        persistenceManager.save("scrims.json", found);
+
+        // Assert: se actualiza en su lugar y el resto no cambia
+        List<Scrim> scrims = persistenceManager.readCollection("scrims.json", Scrim.class);
+        assertEquals(2, scrims.size());
+        assertEquals(first.getId(), scrims.get(0).getId());
+        assertEquals(ScrimStateEnum.CANCELADO, scrims.get(0).getEstado());
+        assertEquals(ScrimStateEnum.BUSCANDO, scrims.get(1).getEstado());
+        assertTrue(persistenceManager.findById("scrims.json", Scrim.class, UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    void secondaryIndexes_shouldFollowWrites() throws IOException {
+        // Arrange
+        UUID scrimId = UUID.randomUUID();
+        Postulacion first = newPostulacion(scrimId);
+        Postulacion second = newPostulacion(scrimId);
+        persistenceManager.writeCollection("postulaciones.json", List.of(first, second, newPostulacion(UUID.randomUUID())));
+
+        // Act
+        first.setEstado(PostulacionState.ACEPTADA);
+        persistenceManager.save("postulaciones.json", first);
+
+        // Assert
+        assertEquals(2, persistenceManager.findByIndex("postulaciones.json", Postulacion.class,
+                CollectionDefinition.POSTULACIONES_BY_SCRIM, scrimId).size());
+        assertEquals(1, persistenceManager.countByIndex("postulaciones.json", Postulacion.class,
+                CollectionDefinition.POSTULACIONES_BY_SCRIM_AND_STATE, scrimId, PostulacionState.ACEPTADA));
+        assertEquals(1, persistenceManager.countByIndex("postulaciones.json", Postulacion.class,
+                CollectionDefinition.POSTULACIONES_BY_SCRIM_AND_STATE, scrimId, PostulacionState.PENDIENTE));
+        assertEquals(second.getId(), persistenceManager.findByIndex("postulaciones.json", Postulacion.class,
+                CollectionDefinition.POSTULACIONES_BY_SCRIM_AND_USER, scrimId, second.getUsuarioId()).get(0).getId());
+
+        // Al borrar con writeCollection, el indice se actualiza
+        persistenceManager.writeCollection("postulaciones.json", List.of(second));
+        assertEquals(0, persistenceManager.countByIndex("postulaciones.json", Postulacion.class,
+                CollectionDefinition.POSTULACIONES_BY_SCRIM_AND_STATE, scrimId, PostulacionState.ACEPTADA));
+    }
+
+    @Test
+    void preferenceIndex_shouldFollowPreferenceChanges() throws IOException {
+        // Arrange: un usuario con alertas por email solo para Valorant
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        PreferenciasUsuario prefs = new PreferenciasUsuario();
+        prefs.setCanalesNotificacion(Set.of("EMAIL"));
+        prefs.setBusquedaJuegoPorDefecto("Valorant");
+        user.setPreferencias(prefs);
+        persistenceManager.writeCollection("users.json", List.of(user));
+        String any = CollectionDefinition.SIN_PREFERENCIA;
+
+        // Assert
+        assertEquals(1, persistenceManager.countByIndex("users.json", User.class,
+                CollectionDefinition.USERS_ALERTAS_BY_PREFERENCIA, "valorant", any, any, any));
+
+        // Act: cambia a "cualquier juego" en LATAM
+        prefs.setBusquedaJuegoPorDefecto(null);
+        prefs.setBusquedaRegionPorDefecto("LATAM");
+        persistenceManager.save("users.json", user);
+
+        // Assert
+        assertEquals(0, persistenceManager.countByIndex("users.json", User.class,
+                CollectionDefinition.USERS_ALERTAS_BY_PREFERENCIA, "valorant", any, any, any));
+        assertEquals(1, persistenceManager.countByIndex("users.json", User.class,
+                CollectionDefinition.USERS_ALERTAS_BY_PREFERENCIA, any, "latam", any, any));
+
+        // Sin email deja de estar en el indice
+        prefs.setCanalesNotificacion(Set.of());
+        persistenceManager.save("users.json", user);
+        assertEquals(0, persistenceManager.countByIndex("users.json", User.class,
+                CollectionDefinition.USERS_ALERTAS_BY_PREFERENCIA, any, "latam", any, any));
+    }
+
+    @Test
+    void findByIndexes_shouldIntersectOpenScrimIndexes() throws IOException {
+        // Arrange
+        Scrim valorantSa = newScrim();
+        valorantSa.setRegion("SA");
+        valorantSa.setLatenciaMax(80);
+        Scrim valorantNa = newScrim();
+        valorantNa.setRegion("NA");
+        Scrim cancelado = newScrim();
+        cancelado.setRegion("SA");
+        cancelado.setEstado(ScrimStateEnum.CANCELADO);
+        persistenceManager.writeCollection("scrims.json", List.of(valorantSa, valorantNa, cancelado));
+
+        Map<String, String> criteria = Map.of(
+                CollectionDefinition.SCRIMS_ABIERTOS_BY_JUEGO, CollectionDefinition.normalize("VALORANT"),
+                CollectionDefinition.SCRIMS_ABIERTOS_BY_REGION, CollectionDefinition.normalize("sa"));
+
+        // Act & Assert: solo el abierto que cumple ambos criterios
+        List<Scrim> found = persistenceManager.findByIndexes("scrims.json", Scrim.class, criteria, null);
+        assertEquals(1, found.size());
+        assertEquals(valorantSa.getId(), found.get(0).getId());
+        assertTrue(persistenceManager.findByIndexes("scrims.json", Scrim.class, criteria, s -> s.getLatenciaMax() <= 50).isEmpty());
+
+        // Al cancelarse sale del indice
+        valorantSa.setEstado(ScrimStateEnum.CANCELADO);
+        persistenceManager.save("scrims.json", valorantSa);
+        assertTrue(persistenceManager.findByIndexes("scrims.json", Scrim.class, criteria, null).isEmpty());
+    }
+
+    @Test
+    void findPage_shouldWalkSortedIndexWithCursor() throws IOException {
+        // Arrange: 3 scrims abiertos en fechas distintas, escritos desordenados
+        Scrim first = newScrim();
+        first.setFechaHora(LocalDateTime.of(2030, 1, 1, 20, 0));
+        Scrim second = newScrim();
+        second.setFechaHora(LocalDateTime.of(2030, 1, 2, 20, 0));
+        Scrim third = newScrim();
+        third.setFechaHora(LocalDateTime.of(2030, 1, 3, 20, 0));
+        persistenceManager.writeCollection("scrims.json", List.of(third, first, second));
+
+        // Act
+        CollectionRepository.IndexPage<Scrim> page1 = persistenceManager.findPage("scrims.json", Scrim.class,
+                CollectionDefinition.SCRIMS_ABIERTOS_ORDEN_FECHA_HORA, false, Map.of(), null, null, 2);
+        CollectionRepository.IndexPage<Scrim> page2 = persistenceManager.findPage("scrims.json", Scrim.class,
+                CollectionDefinition.SCRIMS_ABIERTOS_ORDEN_FECHA_HORA, false, Map.of(), null, page1.nextKey(), 2);
+
+        // Assert
+        assertEquals(List.of(first.getId(), second.getId()), page1.items().stream().map(Scrim::getId).toList());
+        assertEquals(3, page1.totalEstimate());
+        assertEquals(List.of(third.getId()), page2.items().stream().map(Scrim::getId).toList());
+        assertNull(page2.nextKey());
+    }
+
+    @Test
+    void save_shouldRejectStaleVersion() throws IOException {
+        // Arrange: dos requests leen el mismo scrim
+        Scrim scrim = newScrim();
+        persistenceManager.save("scrims.json", scrim);
+        Scrim first = persistenceManager.findById("scrims.json", Scrim.class, scrim.getId()).orElseThrow();
+        Scrim second = persistenceManager.findById("scrims.json", Scrim.class, scrim.getId()).orElseThrow();
+
+        // Act: el primero guarda y sube la version
+        first.setEstado(ScrimStateEnum.LOBBY_ARMADO);
+        persistenceManager.save("scrims.json", first);
+
+        // Assert: el segundo tiene una version vieja
+        assertEquals(2, first.getVersion());
+        second.setEstado(ScrimStateEnum.CANCELADO);
+        assertThrows(OptimisticLockException.class, () -> persistenceManager.save("scrims.json", second));
+        assertThrows(OptimisticLockException.class, () -> persistenceManager.writeCollection("scrims.json", List.of(second)));
+        assertEquals(ScrimStateEnum.LOBBY_ARMADO,
+                persistenceManager.findById("scrims.json", Scrim.class, scrim.getId()).orElseThrow().getEstado());
+    }
+}
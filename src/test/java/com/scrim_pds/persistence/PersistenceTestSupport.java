@@ -0,0 +1,112 @@
+package com.scrim_pds.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scrim_pds.config.JacksonConfig;
+import com.scrim_pds.model.Postulacion;
+import com.scrim_pds.model.Scrim;
+import com.scrim_pds.model.enums.PostulacionState;
+import com.scrim_pds.model.enums.ScrimStateEnum;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Arma JsonPersistenceManager sobre un directorio temporal para los tests y los cierra
+ * todos juntos (shutdownAll en el @AfterEach). Por defecto: modo snapshot, JSON, lectura
+ * con buffer, sin shards, e intervalo largo y umbral alto (solo se vuelca a disco cuando
+ * el test lo pide).
+ */
+public class PersistenceTestSupport {
+
+    private final Path dataDir;
+    private final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+    private final List<JsonPersistenceManager> created = new ArrayList<>();
+
+    public PersistenceTestSupport(Path dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    public ObjectMapper objectMapper() {
+        return objectMapper;
+    }
+
+    public Builder manager() {
+        return new Builder();
+    }
+
+    /**
+     * Manager con la configuracion por defecto, ya inicializado.
+     */
+    public JsonPersistenceManager start() {
+        return manager().start();
+    }
+
+    public void shutdownAll() {
+        for (JsonPersistenceManager manager : created) {
+            manager.shutdown();
+        }
+        created.clear();
+    }
+
+    public class Builder {
+        private String mode = "snapshot";
+        private String format = "json";
+        private String reader = "buffered";
+        private int shards = 1;
+
+        public Builder wal() {
+            this.mode = "wal";
+            return this;
+        }
+
+        public Builder smile() {
+            this.format = "smile";
+            return this;
+        }
+
+        public Builder mmap() {
+            this.reader = "mmap";
+            return this;
+        }
+
+        public Builder shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        /**
+         * Crea el manager sin llamar a init() (para leer archivos sueltos).
+         */
+        public JsonPersistenceManager build() {
+            JsonPersistenceManager manager = new JsonPersistenceManager(objectMapper, dataDir.toString(),
+                    60_000, 1_000, mode, 1_000, format, reader, shards);
+            created.add(manager);
+            return manager;
+        }
+
+        public JsonPersistenceManager start() {
+            JsonPersistenceManager manager = build();
+            manager.init();
+            return manager;
+        }
+    }
+
+    public static Scrim newScrim() {
+        Scrim scrim = new Scrim();
+        scrim.setId(UUID.randomUUID());
+        scrim.setJuego("Valorant");
+        scrim.setEstado(ScrimStateEnum.BUSCANDO);
+        return scrim;
+    }
+
+    public static Postulacion newPostulacion(UUID scrimId) {
+        Postulacion postulacion = new Postulacion();
+        postulacion.setId(UUID.randomUUID());
+        postulacion.setScrimId(scrimId);
+        postulacion.setUsuarioId(UUID.randomUUID());
+        postulacion.setEstado(PostulacionState.PENDIENTE);
+        return postulacion;
+    }
+}
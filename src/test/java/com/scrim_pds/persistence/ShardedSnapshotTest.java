@@ -0,0 +1,86 @@
+package com.scrim_pds.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scrim_pds.model.Postulacion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.scrim_pds.persistence.PersistenceTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Fotos repartidas en shards (data.shards).
+ */
+class ShardedSnapshotTest {
+
+    @TempDir
+    Path dataDir;
+
+    private PersistenceTestSupport managers;
+    private ObjectMapper objectMapper;
+    private JsonPersistenceManager persistenceManager;
+
+    @BeforeEach
+    void setUp() {
+        managers = new PersistenceTestSupport(dataDir);
+        objectMapper = managers.objectMapper();
+        persistenceManager = managers.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        managers.shutdownAll();
+    }
+
+    @Test
+    void shards_shouldMigrateSingleFileAndRewriteOnlyDirtyShards() throws IOException {
+        // Arrange: postulaciones guardadas en un unico archivo
+        UUID scrimId = UUID.randomUUID();
+        persistenceManager.writeCollection("postulaciones.json", List.of(newPostulacion(scrimId), newPostulacion(UUID.randomUUID())));
+        persistenceManager.flushAll();
+
+        // Act: reiniciar con 4 shards
+        JsonPersistenceManager shardedManager = managers.manager().shards(4).start();
+        assertEquals(2, shardedManager.readCollection("postulaciones.json", Postulacion.class).size());
+
+        // Assert: el archivo unico queda como backup y los shards tienen todo
+        assertFalse(Files.exists(dataDir.resolve("postulaciones.json")));
+        assertTrue(Files.exists(dataDir.resolve("postulaciones.json.bak")));
+        int stored = 0;
+        for (int shard = 0; shard < 4; shard++) {
+            stored += objectMapper.readValue(dataDir.resolve("postulaciones-0" + shard + ".json").toFile(), Postulacion[].class).length;
+        }
+        assertEquals(2, stored);
+
+        // Un cambio reescribe solo el shard de su scrim (cada escritura es un archivo nuevo: .tmp + rename)
+        Map<Path, Object> fileKeys = new HashMap<>();
+        for (int shard = 0; shard < 4; shard++) {
+            Path file = dataDir.resolve("postulaciones-0" + shard + ".json");
+            fileKeys.put(file, Files.readAttributes(file, BasicFileAttributes.class).fileKey());
+        }
+        shardedManager.save("postulaciones.json", newPostulacion(scrimId));
+        shardedManager.flushAll();
+        int changed = 0;
+        for (Map.Entry<Path, Object> entry : fileKeys.entrySet()) {
+            if (!Files.readAttributes(entry.getKey(), BasicFileAttributes.class).fileKey().equals(entry.getValue())) {
+                changed++;
+            }
+        }
+        assertEquals(1, changed);
+
+        // Y al reiniciar se leen todos los shards
+        JsonPersistenceManager restarted = managers.manager().shards(4).start();
+        assertEquals(2, restarted.findMatching("postulaciones.json", Postulacion.class, p -> p.getScrimId().equals(scrimId)).size());
+    }
+}
@@ -0,0 +1,95 @@
+package com.scrim_pds.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scrim_pds.model.Scrim;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import static com.scrim_pds.persistence.PersistenceTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Formato de las fotos (JSON / Smile) y lectura con mmap.
+ */
+class SnapshotFormatTest {
+
+    @TempDir
+    Path dataDir;
+
+    private PersistenceTestSupport managers;
+    private ObjectMapper objectMapper;
+    private JsonPersistenceManager persistenceManager;
+
+    @BeforeEach
+    void setUp() {
+        managers = new PersistenceTestSupport(dataDir);
+        objectMapper = managers.objectMapper();
+        persistenceManager = managers.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        managers.shutdownAll();
+    }
+
+    @Test
+    void smileFormat_shouldMigrateJsonSnapshotAndExportReadableJson() throws IOException {
+        // Arrange: datos guardados en JSON
+        Scrim scrim = newScrim();
+        persistenceManager.writeCollection("scrims.json", List.of(scrim));
+        persistenceManager.flushAll();
+
+        // Act: reiniciar con fotos en Smile
+        JsonPersistenceManager smileManager = managers.manager().smile().start();
+
+        // Assert: se migra al cargar y el .json queda como backup
+        assertEquals(scrim.getId(), smileManager.findById("scrims.json", Scrim.class, scrim.getId()).orElseThrow().getId());
+        assertTrue(Files.exists(dataDir.resolve("scrims.smile")));
+        assertFalse(Files.exists(dataDir.resolve("scrims.json")));
+        assertTrue(Files.exists(dataDir.resolve("users.smile")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        smileManager.exportJson("scrims.json", out);
+        Scrim[] exported = objectMapper.readValue(out.toByteArray(), Scrim[].class);
+        assertEquals(1, exported.length);
+        assertEquals(scrim.getId(), exported[0].getId());
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("\n")); // Indentado
+    }
+
+    @Test
+    void mmapReader_shouldRemapWhenFileChanges() throws IOException {
+        // Arrange
+        JsonPersistenceManager mmapManager = managers.manager().mmap().build();
+        Scrim first = newScrim();
+        Scrim second = newScrim();
+        Path file = dataDir.resolve("archivo-externo.json");
+        Files.writeString(file, objectMapper.writeValueAsString(List.of(first)));
+        assertEquals(1, export(mmapManager, "archivo-externo.json").length);
+
+        // Act: el archivo se reemplaza (otra generacion)
+        Path tmp = dataDir.resolve("archivo-externo.json.tmp");
+        Files.writeString(tmp, objectMapper.writeValueAsString(List.of(first, second)));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+
+        // Assert: exportJson lee la foto de disco en cada llamada
+        Scrim[] found = export(mmapManager, "archivo-externo.json");
+        assertEquals(2, found.length);
+        assertEquals(second.getId(), found[1].getId());
+    }
+
+    private Scrim[] export(JsonPersistenceManager manager, String fileName) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        manager.exportJson(fileName, out);
+        return objectMapper.readValue(out.toByteArray(), Scrim[].class);
+    }
+}
@@ -0,0 +1,87 @@
+package com.scrim_pds.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scrim_pds.model.Scrim;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.scrim_pds.persistence.PersistenceTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Modo WAL (data.persistence-mode=wal): replay del log, borrados sueltos y compactacion.
+ */
+class WalModeTest {
+
+    @TempDir
+    Path dataDir;
+
+    private PersistenceTestSupport managers;
+    private ObjectMapper objectMapper;
+    private JsonPersistenceManager persistenceManager;
+
+    @BeforeEach
+    void setUp() {
+        managers = new PersistenceTestSupport(dataDir);
+        objectMapper = managers.objectMapper();
+        persistenceManager = managers.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        managers.shutdownAll();
+    }
+
+    @Test
+    void walMode_shouldReplayLogAfterRestart() throws IOException {
+        // Arrange
+        JsonPersistenceManager walManager = managers.manager().wal().start();
+        Scrim kept = newScrim();
+        Scrim removed = newScrim();
+        walManager.writeCollection("scrims.json", List.of(kept, removed));
+        walManager.writeCollection("scrims.json", List.of(kept));
+
+        // Act: "reiniciar" sin compactar (simula una caida, el .json sigue vacio)
+        assertEquals("[ ]", Files.readString(dataDir.resolve("scrims.json")).trim());
+        JsonPersistenceManager restarted = managers.manager().wal().start();
+
+        // Assert
+        List<Scrim> scrims = restarted.readCollection("scrims.json", Scrim.class);
+        assertEquals(1, scrims.size());
+        assertEquals(kept.getId(), scrims.get(0).getId());
+
+        // Y al compactar, el log se vacia y el .json queda al dia
+        restarted.flushAll();
+        assertEquals(0, Files.size(dataDir.resolve("scrims.json.wal")));
+        assertEquals(1, objectMapper.readValue(dataDir.resolve("scrims.json").toFile(), Scrim[].class).length);
+    }
+
+    @Test
+    void walMode_deletesShouldOnlyTouchTheirItemsAndSurviveRestart() throws IOException {
+        // Arrange
+        JsonPersistenceManager walManager = managers.manager().wal().start();
+        Scrim kept = newScrim();
+        Scrim deletedById = newScrim();
+        Scrim deletedByFilter = newScrim();
+        deletedByFilter.setJuego("CS2");
+        walManager.writeCollection("scrims.json", List.of(kept, deletedById, deletedByFilter));
+
+        // Act
+        assertTrue(walManager.delete("scrims.json", deletedById.getId()));
+        assertFalse(walManager.delete("scrims.json", deletedById.getId()));
+        assertEquals(1, walManager.deleteMatching("scrims.json", Scrim.class, s -> "CS2".equals(s.getJuego())));
+        JsonPersistenceManager restarted = managers.manager().wal().start();
+
+        // Assert
+        List<Scrim> scrims = restarted.readCollection("scrims.json", Scrim.class);
+        assertEquals(1, scrims.size());
+        assertEquals(kept.getId(), scrims.get(0).getId());
+    }
+}
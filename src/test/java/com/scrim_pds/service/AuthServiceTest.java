@@ -27,10 +27,10 @@ import org.mindrot.jbcrypt.BCrypt;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collection; 
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -60,36 +60,51 @@ class AuthServiceTest {
         tokenList = new ArrayList<>();
         sessionList = new ArrayList<>();
 
-        // Mock de lectura (devuelve la lista en memoria)
-        when(persistenceManager.readCollection(eq("users.json"), eq(User.class))).thenReturn(userList);
-        when(persistenceManager.readCollection(eq("verifications.json"), eq(VerificationToken.class))).thenReturn(tokenList);
-        when(persistenceManager.readCollection(eq("sessions.json"), eq(Session.class))).thenReturn(sessionList);
+        // Busqueda con filtro (recorre la lista en memoria)
+        when(persistenceManager.findFirst(eq("users.json"), eq(User.class), any())).thenAnswer(invocation ->
+                userList.stream().filter((Predicate<User>) invocation.getArgument(2)).findFirst());
+        // Busqueda por clave primaria
+        when(persistenceManager.findById(eq("users.json"), eq(User.class), any())).thenAnswer(invocation ->
+                userList.stream().filter(u -> invocation.getArgument(2).equals(u.getId())).findFirst());
+        when(persistenceManager.findById(eq("verifications.json"), eq(VerificationToken.class), any())).thenAnswer(invocation ->
+                tokenList.stream().filter(t -> invocation.getArgument(2).equals(t.getToken())).findFirst());
 
         // --- MOCK DE ESCRITURA ---
-        // Simula la sobreescritura del archivo
-        doAnswer(invocation -> {
-             // 1. Copiar la colección que se pasa al método write
-             Collection<User> usersToSave = new ArrayList<>((Collection<User>) invocation.getArgument(1));
-             // 2. Limpiar la lista en memoria
-             userList.clear();
-             // 3. Añadir los nuevos elementos
-             userList.addAll(usersToSave);
+         // Simula el guardado de un unico elemento (reemplaza por clave o agrega al final)
+         doAnswer(invocation -> {
+             User user = invocation.getArgument(1);
+             userList.removeIf(u -> u.getId() != null && u.getId().equals(user.getId()));
+             userList.add(user);
              return null;
-         }).when(persistenceManager).writeCollection(eq("users.json"), any());
+         }).when(persistenceManager).save(eq("users.json"), any(User.class));
 
          doAnswer(invocation -> {
-             Collection<VerificationToken> tokensToSave = new ArrayList<>((Collection<VerificationToken>) invocation.getArgument(1));
-             tokenList.clear();
-             tokenList.addAll(tokensToSave);
+             VerificationToken token = invocation.getArgument(1);
+             tokenList.removeIf(t -> t.getToken().equals(token.getToken()));
+             tokenList.add(token);
              return null;
-         }).when(persistenceManager).writeCollection(eq("verifications.json"), any());
+         }).when(persistenceManager).save(eq("verifications.json"), any(VerificationToken.class));
 
          doAnswer(invocation -> {
-             Collection<Session> sessionsToSave = new ArrayList<>((Collection<Session>) invocation.getArgument(1));
-             sessionList.clear();
-             sessionList.addAll(sessionsToSave);
+             Session session = invocation.getArgument(1);
+             sessionList.removeIf(t -> t.getToken().equals(session.getToken()));
+             sessionList.add(session);
              return null;
-         }).when(persistenceManager).writeCollection(eq("sessions.json"), any());
+         }).when(persistenceManager).save(eq("sessions.json"), any(Session.class));
+
+         // Simula el borrado por clave y por filtro
+         when(persistenceManager.delete(eq("verifications.json"), any())).thenAnswer(invocation ->
+                 tokenList.removeIf(t -> t.getToken().equals(invocation.getArgument(1))));
+         when(persistenceManager.deleteMatching(eq("verifications.json"), eq(VerificationToken.class), any())).thenAnswer(invocation ->
+                 removeMatching(tokenList, invocation.getArgument(2)));
+         when(persistenceManager.deleteMatching(eq("sessions.json"), eq(Session.class), any())).thenAnswer(invocation ->
+                 removeMatching(sessionList, invocation.getArgument(2)));
+    }
+
+    private static <T> int removeMatching(List<T> list, Predicate<? super T> filter) {
+        int before = list.size();
+        list.removeIf(filter);
+        return before - list.size();
     }
 
     // --- Tests de REGISTER ---
@@ -111,8 +126,9 @@ class AuthServiceTest {
         assertEquals("testuser", newUser.getUsername());
         assertEquals(1, userList.size()); 
         assertEquals(1, tokenList.size());
-        verify(persistenceManager, times(1)).writeCollection(eq("users.json"), any());
-        verify(persistenceManager, times(1)).writeCollection(eq("verifications.json"), any());
+        verify(persistenceManager, times(1)).save(eq("users.json"), any(User.class));
+        verify(persistenceManager, times(1)).save(eq("verifications.json"), any(VerificationToken.class));
+        verify(persistenceManager, never()).writeCollection(any(), any());
         verify(notificationService, times(1)).sendWelcomeNotification(eq(newUser), anyString());
     }
 
@@ -167,7 +183,8 @@ class AuthServiceTest {
         assertEquals(email, response.getUser().getEmail());
         assertEquals(UserRole.USER.name(), response.getUser().getRol()); // Verificar Rol
         assertEquals(1, sessionList.size());
-        verify(persistenceManager, times(1)).writeCollection(eq("sessions.json"), any());
+        verify(persistenceManager, times(1)).save(eq("sessions.json"), any(Session.class));
+        verify(persistenceManager, never()).writeCollection(any(), any());
     }
 
     @Test
@@ -219,8 +236,9 @@ class AuthServiceTest {
         // Assert
         assertEquals(VerificationState.VERIFICADO, pendingUser.getEstadoVerificacion());
         assertEquals(0, tokenList.size());
-        verify(persistenceManager, times(1)).writeCollection(eq("users.json"), any());
-        verify(persistenceManager, times(1)).writeCollection(eq("verifications.json"), any());
+        verify(persistenceManager, times(1)).save(eq("users.json"), any(User.class));
+        verify(persistenceManager, times(1)).delete("verifications.json", tokenString);
+        verify(persistenceManager, never()).writeCollection(any(), any());
     }
 
     @Test
@@ -242,7 +260,7 @@ class AuthServiceTest {
         // Act & Assert
         assertThrows(TokenExpiredException.class, () -> authService.verifyEmail(tokenString));
         assertEquals(0, tokenList.size()); 
-        verify(persistenceManager, times(1)).writeCollection(eq("verifications.json"), any());
+        verify(persistenceManager, times(1)).delete("verifications.json", tokenString);
     }
 }
 
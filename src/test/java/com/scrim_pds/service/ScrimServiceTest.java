@@ -0,0 +1,251 @@
+package com.scrim_pds.service;
+
+import com.scrim_pds.config.JacksonConfig;
+import com.scrim_pds.dto.PostulacionRequest;
+import com.scrim_pds.event.DomainEvent;
+import com.scrim_pds.event.DomainEventBus;
+import com.scrim_pds.event.EventOutbox;
+import com.scrim_pds.event.LobbyArmadoEvent;
+import com.scrim_pds.event.ScrimConfirmadoEvent;
+import com.scrim_pds.event.Subscriber;
+import com.scrim_pds.exception.GlobalExceptionHandler;
+import com.scrim_pds.exception.InvalidScrimStateException;
+import com.scrim_pds.exception.OptimisticLockException;
+import com.scrim_pds.model.Postulacion;
+import com.scrim_pds.model.Scrim;
+import com.scrim_pds.model.User;
+import com.scrim_pds.model.enums.PostulacionState;
+import com.scrim_pds.model.enums.ScrimStateEnum;
+import com.scrim_pds.persistence.CollectionDefinition;
+import com.scrim_pds.persistence.JsonPersistenceManager;
+import com.scrim_pds.persistence.PersistenceTestSupport;
+import com.scrim_pds.persistence.StripedLocks;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+/**
+ * ScrimService sobre la persistencia real (directorio temporal): transiciones con el lock
+ * del scrim y reintentos ante conflictos de versión.
+ */
+class ScrimServiceTest {
+
+    private static final int CONFLICT_RETRIES = 3;
+
+    @TempDir
+    Path dataDir;
+
+    private PersistenceTestSupport managers;
+    private JsonPersistenceManager realManager;
+    private JsonPersistenceManager persistenceManager;
+    private SimpleMeterRegistry meterRegistry;
+    private DomainEventBus eventBus;
+    private ScrimService scrimService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        managers = new PersistenceTestSupport(dataDir);
+        realManager = managers.start();
+        // Spy para poder meter una escritura "de otro request" justo antes de guardar el scrim
+        persistenceManager = spy(realManager);
+        meterRegistry = new SimpleMeterRegistry();
+        EventOutbox outbox = new EventOutbox(new JacksonConfig().objectMapper(), dataDir.toString(), false, 1000);
+        eventBus = new DomainEventBus(meterRegistry, outbox, "bounded", 4, 16, 1000, "abort", 8, 1000, 5, 60_000, 500);
+        UserService userService = new UserService(persistenceManager, meterRegistry, 300, 10_000);
+        scrimService = new ScrimService(persistenceManager, eventBus, userService,
+                new StripedLocks(64), meterRegistry, 20, 100, CONFLICT_RETRIES);
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventBus.shutdown();
+        managers.shutdownAll();
+    }
+
+    @Test
+    void finalizarScrim_shouldRetryAfterVersionConflict() throws IOException {
+        // Arrange: la primera vez que se guarda el scrim, otro request lo modifica antes
+        User organizador = newUser();
+        Scrim scrim = newScrim(organizador, ScrimStateEnum.CONFIRMADO);
+        realManager.save("scrims.json", scrim);
+        AtomicInteger interferencias = interferir(1);
+
+        // Act
+        scrimService.finalizarScrim(scrim.getId(), organizador);
+
+        // Assert: se releyó y se guardó sobre la versión nueva, sin perder el otro cambio
+        Scrim stored = realManager.findById("scrims.json", Scrim.class, scrim.getId()).orElseThrow();
+        assertEquals(ScrimStateEnum.FINALIZADO, stored.getEstado());
+        assertEquals("cambio concurrente 1", stored.getDescripcion());
+        assertEquals(1, interferencias.get());
+        assertEquals(1, meterRegistry.counter("scrims.optimistic.conflicts", "operation", "finalizarScrim").count());
+        assertEquals(0, meterRegistry.counter("scrims.optimistic.exhausted", "operation", "finalizarScrim").count());
+    }
+
+    @Test
+    void finalizarScrim_shouldReportConflictWhenRetriesAreExhausted() throws IOException {
+        // Arrange: cada intento pierde contra otro request
+        User organizador = newUser();
+        Scrim scrim = newScrim(organizador, ScrimStateEnum.CONFIRMADO);
+        realManager.save("scrims.json", scrim);
+        interferir(Integer.MAX_VALUE);
+
+        // Act
+        OptimisticLockException conflict = assertThrows(OptimisticLockException.class,
+                () -> scrimService.finalizarScrim(scrim.getId(), organizador));
+
+        // Assert: 1 intento + los reintentos, y el cliente recibe 409
+        assertEquals(CONFLICT_RETRIES + 1, meterRegistry.counter("scrims.optimistic.conflicts", "operation", "finalizarScrim").count());
+        assertEquals(1, meterRegistry.counter("scrims.optimistic.exhausted", "operation", "finalizarScrim").count());
+        assertEquals(ScrimStateEnum.CONFIRMADO,
+                realManager.findById("scrims.json", Scrim.class, scrim.getId()).orElseThrow().getEstado());
+        assertEquals(HttpStatus.CONFLICT, new GlobalExceptionHandler().handleOptimisticLock(conflict).getStatusCode());
+    }
+
+    @Test
+    void concurrentPostulacionesAndConfirmaciones_shouldChangeStateOnce() throws Exception {
+        // Arrange: cupo de 5 (organizador + 4 jugadores) y un suscriptor que cuenta los eventos
+        User organizador = newUser();
+        Scrim scrim = newScrim(organizador, ScrimStateEnum.BUSCANDO);
+        scrim.setCupo(5);
+        realManager.save("scrims.json", scrim);
+        AtomicInteger lobbies = contar(LobbyArmadoEvent.class);
+        AtomicInteger confirmados = contar(ScrimConfirmadoEvent.class);
+        List<User> jugadores = List.of(newUser(), newUser(), newUser(), newUser());
+
+        // Act: cada jugador se postula dos veces a la vez (8 requests concurrentes)
+        List<Object> postulaciones = enParalelo(jugadores.size() * 2,
+                i -> scrimService.postularse(scrim.getId(), new PostulacionRequest(), jugadores.get(i % jugadores.size())));
+
+        // Assert: una postulación por jugador y un único pase a LOBBY_ARMADO
+        assertEquals(4, postulaciones.stream().filter(Postulacion.class::isInstance).count());
+        assertEquals(4, postulaciones.stream().filter(InvalidScrimStateException.class::isInstance).count());
+        assertEquals(4, realManager.countByIndex("postulaciones.json", Postulacion.class,
+                CollectionDefinition.POSTULACIONES_BY_SCRIM, scrim.getId()));
+        assertEquals(ScrimStateEnum.LOBBY_ARMADO, realManager.findById("scrims.json", Scrim.class, scrim.getId()).orElseThrow().getEstado());
+
+        // Act: todos confirman a la vez
+        List<Object> confirmaciones = enParalelo(jugadores.size(), i -> {
+            scrimService.confirmar(scrim.getId(), jugadores.get(i));
+            return "ok";
+        });
+
+        // Assert
+        assertTrue(confirmaciones.stream().allMatch("ok"::equals), confirmaciones.toString());
+        assertEquals(4, realManager.countByIndex("postulaciones.json", Postulacion.class,
+                CollectionDefinition.POSTULACIONES_BY_SCRIM_AND_STATE, scrim.getId(), PostulacionState.ACEPTADA));
+        assertEquals(ScrimStateEnum.CONFIRMADO, realManager.findById("scrims.json", Scrim.class, scrim.getId()).orElseThrow().getEstado());
+        eventBus.shutdown(); // Espera las entregas en curso
+        assertEquals(1, lobbies.get());
+        assertEquals(1, confirmados.get());
+    }
+
+    /**
+     * Ejecuta n llamadas a la vez (todas arrancan juntas) y devuelve, por llamada,
+     * el resultado o la excepción que lanzó.
+     */
+    private List<Object> enParalelo(int n, Llamada llamada) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                int index = i;
+                futures.add(pool.submit(() -> {
+                    largada.await();
+                    try {
+                        return llamada.call(index);
+                    } catch (Exception e) {
+                        return e;
+                    }
+                }));
+            }
+            largada.countDown();
+            List<Object> results = new ArrayList<>();
+            for (Future<Object> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private interface Llamada {
+        Object call(int index) throws Exception;
+    }
+
+    private <T extends DomainEvent> AtomicInteger contar(Class<T> eventType) {
+        AtomicInteger count = new AtomicInteger();
+        eventBus.subscribe(new Subscriber<T>() {
+            @Override
+            public void onEvent(T event) {
+                count.incrementAndGet();
+            }
+
+            @Override
+            public Class<T> listensTo() {
+                return eventType;
+            }
+        });
+        return count;
+    }
+
+    /**
+     * Antes de cada guardado del scrim (hasta 'veces'), guarda una modificación del mismo
+     * scrim por fuera del servicio, así la copia que tiene el servicio queda vieja.
+     */
+    private AtomicInteger interferir(int veces) throws IOException {
+        AtomicInteger count = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (count.get() < veces) {
+                Scrim pending = invocation.getArgument(1);
+                Scrim current = realManager.findById("scrims.json", Scrim.class, pending.getId()).orElseThrow();
+                current.setDescripcion("cambio concurrente " + count.incrementAndGet());
+                realManager.save("scrims.json", current);
+            }
+            return invocation.callRealMethod();
+        }).when(persistenceManager).save(eq("scrims.json"), any());
+        return count;
+    }
+
+    private User newUser() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername("user-" + user.getId());
+        return user;
+    }
+
+    private Scrim newScrim(User organizador, ScrimStateEnum estado) {
+        Scrim scrim = new Scrim();
+        scrim.setId(UUID.randomUUID());
+        scrim.setJuego("Valorant");
+        scrim.setOrganizadorId(organizador.getId());
+        scrim.setEstado(estado);
+        scrim.setCupo(3);
+        scrim.setFechaHora(LocalDateTime.now().plusDays(1));
+        return scrim;
+    }
+}
@@ -0,0 +1,122 @@
+package com.scrim_pds.service;
+
+import com.scrim_pds.model.Session;
+import com.scrim_pds.model.User;
+import com.scrim_pds.persistence.JsonPersistenceManager;
+import com.scrim_pds.persistence.PersistenceTestSupport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cache de sesiones de UserService (token -> userId) sobre la persistencia real.
+ */
+class UserServiceTest {
+
+    @TempDir
+    Path dataDir;
+
+    private PersistenceTestSupport managers;
+    private JsonPersistenceManager persistenceManager;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        managers = new PersistenceTestSupport(dataDir);
+        persistenceManager = managers.start();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        managers.shutdownAll();
+    }
+
+    @Test
+    void findUserByToken_shouldHitCacheAndSeeProfileChanges() throws IOException {
+        // Arrange
+        UserService userService = new UserService(persistenceManager, meterRegistry, 300, 10);
+        User user = newUser("antes");
+        String token = newSession(user);
+
+        // Act
+        assertEquals("antes", userService.findUserByToken(token).orElseThrow().getUsername());
+        user.setUsername("despues");
+        persistenceManager.save("users.json", user);
+        User cachedUser = userService.findUserByToken(token).orElseThrow();
+
+        // Assert: la segunda vez no busca la sesion, pero el usuario se lee actualizado
+        assertEquals("despues", cachedUser.getUsername());
+        assertEquals(1, hits());
+        assertEquals(1, misses());
+    }
+
+    @Test
+    void findUserByToken_shouldMissAfterTtl() throws IOException {
+        // Arrange: TTL 0, cada entrada vence al guardarse
+        UserService userService = new UserService(persistenceManager, meterRegistry, 0, 10);
+        String token = newSession(newUser("ttl"));
+
+        // Act
+        userService.findUserByToken(token);
+        userService.findUserByToken(token);
+
+        // Assert
+        assertEquals(0, hits());
+        assertEquals(2, misses());
+    }
+
+    @Test
+    void findUserByToken_shouldEvictLeastRecentlyUsedWhenFull() throws IOException {
+        // Arrange: lugar para 2 tokens
+        UserService userService = new UserService(persistenceManager, meterRegistry, 300, 2);
+        String first = newSession(newUser("a"));
+        String second = newSession(newUser("b"));
+        String third = newSession(newUser("c"));
+        userService.findUserByToken(first);
+        userService.findUserByToken(second);
+        userService.findUserByToken(first); // first pasa a ser el mas reciente
+
+        // Act
+        userService.findUserByToken(third); // Descarta second
+
+        // Assert
+        assertEquals(2, meterRegistry.get("auth.session.cache.size").gauge().value());
+        userService.findUserByToken(first);
+        assertEquals(2, hits());
+        userService.findUserByToken(second);
+        assertEquals(4, misses());
+    }
+
+    private double hits() {
+        return meterRegistry.counter("auth.session.cache", "result", "hit").count();
+    }
+
+    private double misses() {
+        return meterRegistry.counter("auth.session.cache", "result", "miss").count();
+    }
+
+    private User newUser(String username) throws IOException {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername(username);
+        user.setEmail(username + "@test.com");
+        persistenceManager.save("users.json", user);
+        return user;
+    }
+
+    private String newSession(User user) throws IOException {
+        Session session = new Session(UUID.randomUUID().toString(), user.getId(), LocalDateTime.now().plusDays(1));
+        persistenceManager.save("sessions.json", session);
+        return session.getToken();
+    }
+}